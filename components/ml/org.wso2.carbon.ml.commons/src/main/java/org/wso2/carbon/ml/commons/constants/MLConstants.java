@@ -60,6 +60,8 @@ public class MLConstants {
     // Spark configuration properties
     public static final String SPARK_EXECUTOR_CLASSPATH = "spark.executor.extraClassPath";
     public static final String SPARK_DRIVER_CLASSPATH = "spark.driver.extraClassPath";
+    public static final String SPARK_SERIALIZER = "spark.serializer";
+    public static final String SPARK_KRYO_REGISTRATOR = "spark.kryo.registrator";
 
     // Character Encodings
     public static final String UTF_8= "UTF-8";
@@ -89,6 +91,7 @@ public class MLConstants {
     public static final String DATASET_URL = "datasetURL";
     public static final String NORMAL_LABELS = "normalLabels";
     public static final String TRAIN_DATA_FRACTION = "trainDataFraction";
+    public static final String CROSS_VALIDATION_FOLDS = "crossValidationFolds";
     public static final String RESPONSE_VARIABLE = "responseVariable";
     public static final String USER_VARIABLE = "userVariable";
     public static final String PRODUCT_VARIABLE = "productVariable";
@@ -108,6 +111,17 @@ public class MLConstants {
     public static final String MODEL_STATUS_IN_PROGRESS = "In Progress";
     public static final String MODEL_STATUS_COMPLETE = "Complete";
     public static final String MODEL_STATUS_FAILED = "Failed";
+    public static final String MODEL_STATUS_CANCELLED = "Cancelled";
+
+    // model building stages
+    public static final String MODEL_BUILD_STAGE_PREPROCESSING = "Preprocessing";
+    public static final String MODEL_BUILD_STAGE_TRAINING = "Training";
+    public static final String MODEL_BUILD_STAGE_EVALUATION = "Evaluation";
+    public static final String MODEL_BUILD_STAGE_PERSISTING = "Persisting";
+
+    // states of a pending model build in the build queue
+    public static final String BUILD_STATE_QUEUED = "Queued";
+    public static final String BUILD_STATE_RUNNING = "Running";
 
     // dataset version statuses
     public static final String DATASET_VERSION_STATUS_IN_PROGRESS = "Processing";
@@ -150,6 +164,10 @@ public class MLConstants {
     public static final String REGULARIZATION_TYPE = "Reg_Type";
     public static final String REGULARIZATION_PARAMETER = "Reg_Parameter";
     public static final String SGD_DATA_FRACTION = "SGD_Data_Fraction";
+    public static final String EARLY_STOPPING = "Early_Stopping";
+    public static final String VALIDATION_FRACTION = "Validation_Fraction";
+    public static final String EARLY_STOPPING_TOLERANCE = "Early_Stopping_Tolerance";
+    public static final String EARLY_STOPPING_PATIENCE = "Early_Stopping_Patience";
     public static final String NUM_CLASSES = "Num_Classes";
     public static final String MAX_DEPTH = "Max_Depth";
     public static final String MAX_BINS = "Max_Bins";
@@ -170,6 +188,9 @@ public class MLConstants {
     public static final String BLOCKS = "Blocks";
     public static final String ALPHA = "Alpha";
     public static final String WEIGHTS = "Weights";
+    public static final String MIPS_INDEX_DEGREE = "MIPS_Index_Degree";
+    public static final String MIPS_SEARCH_BREADTH = "MIPS_Search_Breadth";
+    public static final String TOP_N_RECOMMENDATIONS = "Top_N_Recommendations";
 
     // configuration file names
     public static final String ML_ALGORITHMS_CONFIG_XML = "repository/conf/etc/ml-algorithms.xml";
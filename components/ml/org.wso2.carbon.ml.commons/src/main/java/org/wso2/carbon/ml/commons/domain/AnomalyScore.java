@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+
+/**
+ * DTO class to store the anomaly score of a data point
+ */
+public class AnomalyScore implements Serializable {
+
+    private static final long serialVersionUID = -4907350327391446282L;
+    private int cluster;
+    private double distance;
+    private double percentileRank;
+
+    public AnomalyScore() {
+    }
+
+    public AnomalyScore(int cluster, double distance, double percentileRank) {
+        this.cluster = cluster;
+        this.distance = distance;
+        this.percentileRank = percentileRank;
+    }
+
+    /**
+     * @return Returns the cluster the data point is assigned to
+     */
+    public int getCluster() {
+        return cluster;
+    }
+
+    /**
+     * @param cluster Sets the cluster the data point is assigned to
+     */
+    public void setCluster(int cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * @return Returns the distance from the data point to its cluster center
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @param distance Sets the distance from the data point to its cluster center
+     */
+    public void setDistance(double distance) {
+        this.distance = distance;
+    }
+
+    /**
+     * @return Returns the percentile rank (0-100) of the distance among the training distances of the cluster
+     */
+    public double getPercentileRank() {
+        return percentileRank;
+    }
+
+    /**
+     * @param percentileRank Sets the percentile rank of the distance
+     */
+    public void setPercentileRank(double percentileRank) {
+        this.percentileRank = percentileRank;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO class to store the anomaly scores of a batch of data points together with the cluster boundaries of the model,
+ * so that any percentile can be applied on the client side.
+ */
+public class AnomalyScores implements Serializable {
+
+    private static final long serialVersionUID = 6155628709237418337L;
+    private List<AnomalyScore> scores;
+    /*
+     * key : cluster index
+     * value : map of percentile value to cluster boundary distance
+     */
+    private Map<Integer, Map<Integer, Double>> clusterPercentileDistances;
+
+    public List<AnomalyScore> getScores() {
+        return scores;
+    }
+
+    public void setScores(List<AnomalyScore> scores) {
+        this.scores = scores;
+    }
+
+    public Map<Integer, Map<Integer, Double>> getClusterPercentileDistances() {
+        return clusterPercentileDistances;
+    }
+
+    public void setClusterPercentileDistances(Map<Integer, Map<Integer, Double>> clusterPercentileDistances) {
+        this.clusterPercentileDistances = clusterPercentileDistances;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO class to store a hyperparameter sweep request: the values to try per hyperparameter and how to search them.
+ * Hyperparameters which are not listed keep the values of the analysis.
+ */
+public class MLHyperParameterSweep implements Serializable {
+
+    private static final long serialVersionUID = 3850281637427153904L;
+    public static final String GRID_SEARCH = "grid";
+    public static final String RANDOM_SEARCH = "random";
+
+    private String searchType = GRID_SEARCH;
+    private Map<String, List<String>> hyperParameters;
+    private int numberOfCandidates = 10;
+    private long seed;
+    private int parallelism = 4;
+    private boolean earlyStopping = true;
+    private int reductionFactor = 3;
+
+    /**
+     * @return Returns {@link #GRID_SEARCH} to try every combination of values, or {@link #RANDOM_SEARCH} to try
+     *         {@link #getNumberOfCandidates()} random combinations
+     */
+    public String getSearchType() {
+        return searchType;
+    }
+
+    public void setSearchType(String searchType) {
+        this.searchType = searchType;
+    }
+
+    public Map<String, List<String>> getHyperParameters() {
+        return hyperParameters;
+    }
+
+    public void setHyperParameters(Map<String, List<String>> hyperParameters) {
+        this.hyperParameters = hyperParameters;
+    }
+
+    public int getNumberOfCandidates() {
+        return numberOfCandidates;
+    }
+
+    public void setNumberOfCandidates(int numberOfCandidates) {
+        this.numberOfCandidates = numberOfCandidates;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return Returns the number of candidates fitted at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return Returns whether losing candidates are stopped on a fraction of the training data, by successive halving
+     */
+    public boolean isEarlyStopping() {
+        return earlyStopping;
+    }
+
+    public void setEarlyStopping(boolean earlyStopping) {
+        this.earlyStopping = earlyStopping;
+    }
+
+    /**
+     * @return Returns the factor by which the candidates are reduced, and their training data grown, per round of
+     *         successive halving
+     */
+    public int getReductionFactor() {
+        return reductionFactor;
+    }
+
+    public void setReductionFactor(int reductionFactor) {
+        this.reductionFactor = reductionFactor;
+    }
+
+    @Override
+    public String toString() {
+        return "MLHyperParameterSweep [searchType=" + searchType + ", hyperParameters=" + hyperParameters
+                + ", numberOfCandidates=" + numberOfCandidates + ", seed=" + seed + ", parallelism=" + parallelism
+                + ", earlyStopping=" + earlyStopping + ", reductionFactor=" + reductionFactor + "]";
+    }
+}
@@ -38,12 +38,37 @@ public class MLModel implements Serializable {
     private Externalizable model;
     private String normalLabels;
     private boolean normalization;
+    // min and max values of the features used for normalization, computed when the model is built
+    private double[] normalizationMinValues;
+    private double[] normalizationMaxValues;
     /*
     key - summary stat name
     value - summary stat value
      */
     private Map<String, String> summaryStatsOfFeatures;
 
+    public MLModel() {
+    }
+
+    /**
+     * Shallow copy of another model, e.g. to replace the trained model it holds without changing the other
+     */
+    public MLModel(MLModel other) {
+        this.algorithmName = other.algorithmName;
+        this.algorithmClass = other.algorithmClass;
+        this.features = other.features;
+        this.responseVariable = other.responseVariable;
+        this.responseIndex = other.responseIndex;
+        this.encodings = other.encodings;
+        this.newToOldIndicesList = other.newToOldIndicesList;
+        this.model = other.model;
+        this.normalLabels = other.normalLabels;
+        this.normalization = other.normalization;
+        this.normalizationMinValues = other.normalizationMinValues;
+        this.normalizationMaxValues = other.normalizationMaxValues;
+        this.summaryStatsOfFeatures = other.summaryStatsOfFeatures;
+    }
+
     public String getAlgorithmName() {
         return algorithmName;
     }
@@ -125,6 +150,22 @@ public class MLModel implements Serializable {
         this.normalization = normalization;
     }
 
+    public double[] getNormalizationMinValues() {
+        return normalizationMinValues;
+    }
+
+    public void setNormalizationMinValues(double[] normalizationMinValues) {
+        this.normalizationMinValues = normalizationMinValues;
+    }
+
+    public double[] getNormalizationMaxValues() {
+        return normalizationMaxValues;
+    }
+
+    public void setNormalizationMaxValues(double[] normalizationMaxValues) {
+        this.normalizationMaxValues = normalizationMaxValues;
+    }
+
     public Map<String, String> getSummaryStatsOfFeatures() {
         return summaryStatsOfFeatures;
     }
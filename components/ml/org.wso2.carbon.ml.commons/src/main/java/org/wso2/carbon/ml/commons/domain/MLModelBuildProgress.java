@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO class to store the progress of a model build
+ */
+public class MLModelBuildProgress implements Serializable {
+
+    private static final long serialVersionUID = -3650312263914781904L;
+    private long modelId;
+    private String stage;
+    private int percentage;
+    private long rowsProcessed;
+    private Map<String, Long> stageTimes;
+    private List<Integer> sparkJobIds;
+    private List<Integer> sparkStageIds;
+    private long cachedBytes;
+    private long recomputedPartitions;
+    private String lastUpdatedTime;
+
+    public long getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(long modelId) {
+        this.modelId = modelId;
+    }
+
+    /**
+     * @return Returns the current stage of the build, or its final status once it has ended
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public int getPercentage() {
+        return percentage;
+    }
+
+    public void setPercentage(int percentage) {
+        this.percentage = percentage;
+    }
+
+    /**
+     * @return Returns the number of pre-processed rows computed so far
+     */
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    /**
+     * @return Returns the milliseconds spent in each stage so far, in the order of the stages
+     */
+    public Map<String, Long> getStageTimes() {
+        return stageTimes;
+    }
+
+    public void setStageTimes(Map<String, Long> stageTimes) {
+        this.stageTimes = stageTimes;
+    }
+
+    public List<Integer> getSparkJobIds() {
+        return sparkJobIds;
+    }
+
+    public void setSparkJobIds(List<Integer> sparkJobIds) {
+        this.sparkJobIds = sparkJobIds;
+    }
+
+    public List<Integer> getSparkStageIds() {
+        return sparkStageIds;
+    }
+
+    public void setSparkStageIds(List<Integer> sparkStageIds) {
+        this.sparkStageIds = sparkStageIds;
+    }
+
+    /**
+     * @return Returns the bytes the intermediate data of the build took in the block store, once released
+     */
+    public long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public void setCachedBytes(long cachedBytes) {
+        this.cachedBytes = cachedBytes;
+    }
+
+    /**
+     * @return Returns the partitions of the intermediate data of the build which were computed more than once, e.g.
+     *         after being evicted from the block store
+     */
+    public long getRecomputedPartitions() {
+        return recomputedPartitions;
+    }
+
+    public void setRecomputedPartitions(long recomputedPartitions) {
+        this.recomputedPartitions = recomputedPartitions;
+    }
+
+    public String getLastUpdatedTime() {
+        return lastUpdatedTime;
+    }
+
+    public void setLastUpdatedTime(String lastUpdatedTime) {
+        this.lastUpdatedTime = lastUpdatedTime;
+    }
+
+    @Override
+    public String toString() {
+        return "MLModelBuildProgress [modelId=" + modelId + ", stage=" + stage + ", percentage=" + percentage
+                + ", rowsProcessed=" + rowsProcessed + ", stageTimes=" + stageTimes + ", sparkJobIds=" + sparkJobIds
+                + ", sparkStageIds=" + sparkStageIds + ", cachedBytes=" + cachedBytes + ", recomputedPartitions="
+                + recomputedPartitions + ", lastUpdatedTime=" + lastUpdatedTime + "]";
+    }
+}
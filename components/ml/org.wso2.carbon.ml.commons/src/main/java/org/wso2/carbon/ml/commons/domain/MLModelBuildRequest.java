@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+
+/**
+ * DTO class to store a model build request persisted in the build queue: what to build, for whom, and the node
+ * holding the lease on it
+ */
+public class MLModelBuildRequest implements Serializable {
+
+    private static final long serialVersionUID = 5210738153941486520L;
+    private long modelId;
+    private int tenantId;
+    private String userName;
+    private MLHyperParameterSweep sweep;
+    private Long warmStartModelId;
+    private String state;
+    private String owner;
+    private boolean cancelRequested;
+
+    public long getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(long modelId) {
+        this.modelId = modelId;
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(int tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    /**
+     * @return Returns the hyperparameter sweep to run, or null for a plain build
+     */
+    public MLHyperParameterSweep getSweep() {
+        return sweep;
+    }
+
+    public void setSweep(MLHyperParameterSweep sweep) {
+        this.sweep = sweep;
+    }
+
+    /**
+     * @return Returns the id of the model whose parameters the build starts from, or null to build from scratch
+     */
+    public Long getWarmStartModelId() {
+        return warmStartModelId;
+    }
+
+    public void setWarmStartModelId(Long warmStartModelId) {
+        this.warmStartModelId = warmStartModelId;
+    }
+
+    /**
+     * @return Returns Queued or Running while the build is pending, otherwise its final model status
+     */
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    /**
+     * @return Returns the id of the node holding the lease on the build
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return Returns whether the cancellation of the build has been requested, e.g. on a node other than its owner
+     */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void setCancelRequested(boolean cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    @Override
+    public String toString() {
+        return "MLModelBuildRequest [modelId=" + modelId + ", tenantId=" + tenantId + ", userName=" + userName
+                + ", sweep=" + sweep + ", warmStartModelId=" + warmStartModelId + ", state=" + state
+                + ", owner=" + owner + ", cancelRequested=" + cancelRequested + "]";
+    }
+}
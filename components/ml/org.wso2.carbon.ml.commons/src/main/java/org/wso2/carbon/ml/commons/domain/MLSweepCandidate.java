@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * DTO class to store a candidate configuration of a hyperparameter sweep and how it performed
+ */
+public class MLSweepCandidate implements Serializable {
+
+    private static final long serialVersionUID = -1093465268510937216L;
+    public static final String STATUS_PENDING = "Pending";
+    public static final String STATUS_COMPLETED = "Completed";
+    public static final String STATUS_STOPPED = "Stopped";
+    public static final String STATUS_FAILED = "Failed";
+
+    private Map<String, String> hyperParameters;
+    private Double metric;
+    private double trainingFraction;
+    private String status = STATUS_PENDING;
+    private String error;
+
+    public Map<String, String> getHyperParameters() {
+        return hyperParameters;
+    }
+
+    public void setHyperParameters(Map<String, String> hyperParameters) {
+        this.hyperParameters = hyperParameters;
+    }
+
+    /**
+     * @return Returns the metric of the last fit of the candidate on the test data, or null if it has none
+     */
+    public Double getMetric() {
+        return metric;
+    }
+
+    public void setMetric(Double metric) {
+        this.metric = metric;
+    }
+
+    /**
+     * @return Returns the fraction of the training data the candidate was last fitted on
+     */
+    public double getTrainingFraction() {
+        return trainingFraction;
+    }
+
+    public void setTrainingFraction(double trainingFraction) {
+        this.trainingFraction = trainingFraction;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "MLSweepCandidate [hyperParameters=" + hyperParameters + ", metric=" + metric + ", trainingFraction="
+                + trainingFraction + ", status=" + status + ", error=" + error + "]";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.commons.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * DTO class to store the candidates of a hyperparameter sweep, best first. The candidates are replaced by new
+ * snapshots as the sweep goes on, rather than updated.
+ */
+public class MLSweepLeaderboard implements Serializable {
+
+    private static final long serialVersionUID = 6620481127386549923L;
+    private long modelId;
+    private volatile String status;
+    private String metricName;
+    private boolean lowerIsBetter;
+    private volatile List<MLSweepCandidate> candidates;
+
+    /**
+     * @return Returns the id of the model the best candidate is persisted as
+     */
+    public long getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(long modelId) {
+        this.modelId = modelId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public void setMetricName(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public boolean isLowerIsBetter() {
+        return lowerIsBetter;
+    }
+
+    public void setLowerIsBetter(boolean lowerIsBetter) {
+        this.lowerIsBetter = lowerIsBetter;
+    }
+
+    public List<MLSweepCandidate> getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(List<MLSweepCandidate> candidates) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public String toString() {
+        return "MLSweepLeaderboard [modelId=" + modelId + ", status=" + status + ", metricName=" + metricName
+                + ", candidates=" + candidates + "]";
+    }
+}
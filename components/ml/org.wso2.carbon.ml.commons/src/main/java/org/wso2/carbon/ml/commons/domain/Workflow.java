@@ -35,6 +35,7 @@ public class Workflow implements Serializable {
     private String ratingVariable;
     private String observations;
     private double trainDataFraction;
+    private int crossValidationFolds;
     private List<Feature> features;
     private Map<String, String> hyperParameters;
     private String datasetVersion;
@@ -171,6 +172,21 @@ public class Workflow implements Serializable {
         this.trainDataFraction = trainDataFraction;
     }
 
+    /**
+     * @return Returns the number of folds to cross-validate supervised models with, cross-validation is off if less
+     *         than two
+     */
+    public int getCrossValidationFolds() {
+        return crossValidationFolds;
+    }
+
+    /**
+     * @param crossValidationFolds Sets the number of cross-validation folds
+     */
+    public void setCrossValidationFolds(int crossValidationFolds) {
+        this.crossValidationFolds = crossValidationFolds;
+    }
+
     /**
      * @return Returns normalization
      */
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.impl;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.ml.commons.domain.MLModelBuildRequest;
+import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
+import org.wso2.carbon.ml.database.DatabaseService;
+import org.wso2.carbon.ml.database.exceptions.DatabaseHandlerException;
+
+/**
+ * Keeps the model builds persisted in the build queue alive across restarts and failures of the nodes of a cluster.
+ * A node periodically renews the leases on its pending builds, and claims the pending builds it does not run: its own
+ * after a restart, and those of other nodes whose lease has expired. Claiming is a conditional update of the row of
+ * the build, so that only one node claims it, and a claimed build is queued again from the start. A node which finds
+ * that one of its builds has been claimed by another, e.g. after its renewals failed for longer than the lease, cancels
+ * it; the writes of the build are fenced by its owner anyway.
+ */
+public class BuildLeaseManager {
+
+    private static final Log log = LogFactory.getLog(BuildLeaseManager.class);
+    private final String nodeId;
+    private final long leaseDuration;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // claimed builds are queued on their own thread, as queuing blocks while the tenant uses its share of the pool
+    private final ExecutorService claimer = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean claiming = new AtomicBoolean();
+    private final Map<Long, String> unsavedStates = new ConcurrentHashMap<Long, String>();
+    private Set<Long> renewedBuilds = new HashSet<Long>();
+
+    /**
+     * @param nodeId id of this node, stable across restarts so that it reclaims its own builds at once
+     * @param leaseDuration milliseconds a lease is held for without being renewed
+     */
+    public BuildLeaseManager(String nodeId, long leaseDuration) {
+        this.nodeId = nodeId;
+        this.leaseDuration = leaseDuration;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return time in milliseconds until which a lease taken or renewed now is held
+     */
+    public long getLeaseExpiryTime() {
+        return System.currentTimeMillis() + leaseDuration;
+    }
+
+    /**
+     * Save the final state of a build when the leases are next renewed, as it failed to be saved when the build ended.
+     * The build is not claimed again meanwhile.
+     *
+     * @param modelId id of the model
+     * @param state final status of the model
+     */
+    public void retryBuildState(long modelId, String state) {
+        unsavedStates.put(modelId, state);
+    }
+
+    /**
+     * Recover the builds interrupted by a restart of this node, then renew leases and claim builds every third of the
+     * lease duration.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                renew();
+            }
+        }, 0, leaseDuration / 3, TimeUnit.MILLISECONDS);
+        log.info(String.format("Build queue of node %s started with a lease duration of %s seconds.", nodeId,
+                leaseDuration / 1000));
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        claimer.shutdownNow();
+    }
+
+    private void renew() {
+        DatabaseService databaseService = MLCoreServiceValueHolder.getInstance().getDatabaseService();
+        MLModelHandler modelHandler = new MLModelHandler();
+        try {
+            databaseService.renewModelBuildLeases(nodeId, getLeaseExpiryTime());
+            for (Map.Entry<Long, String> state : unsavedStates.entrySet()) {
+                // not updated if another node claimed the build meanwhile
+                databaseService.updateModelBuildState(state.getKey(), nodeId, state.getValue());
+                unsavedStates.remove(state.getKey());
+            }
+            // a build queued since the last renewal may not have been persisted yet
+            Set<Long> building = modelHandler.getBuildingModelIds();
+            for (long modelId : building) {
+                if (renewedBuilds.contains(modelId) && !databaseService.isModelBuildOwner(modelId, nodeId)) {
+                    log.warn(String.format("Cancelling the build of model [id] %s, claimed by another node.",
+                            modelId));
+                    modelHandler.cancelBuild(modelId);
+                }
+            }
+            renewedBuilds = building;
+            for (long modelId : databaseService.getCancelRequestedModelBuilds(nodeId)) {
+                if (modelHandler.cancelBuild(modelId)) {
+                    log.info(String.format("Cancelled the build of model [id] %s as requested on another node.",
+                            modelId));
+                }
+            }
+        } catch (DatabaseHandlerException e) {
+            log.warn("Failed to renew the model build leases: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic runs
+            log.error("Failed to renew the model build leases: " + e.getMessage(), e);
+        }
+        if (claiming.compareAndSet(false, true)) {
+            claimer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        claim();
+                    } finally {
+                        claiming.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    private void claim() {
+        DatabaseService databaseService = MLCoreServiceValueHolder.getInstance().getDatabaseService();
+        MLModelHandler modelHandler = new MLModelHandler();
+        try {
+            for (MLModelBuildRequest build : databaseService.getClaimableModelBuilds(nodeId)) {
+                long modelId = build.getModelId();
+                if (modelHandler.isBuilding(modelId) || unsavedStates.containsKey(modelId)) {
+                    continue;
+                }
+                if (databaseService.claimModelBuild(modelId, nodeId, getLeaseExpiryTime())) {
+                    log.info(String.format("Claimed the %s build of model [id] %s from %s.", build.getState()
+                            .toLowerCase(), modelId, build.getOwner()));
+                    if (build.isCancelRequested()) {
+                        modelHandler.cancelClaimedBuild(modelId);
+                    } else {
+                        modelHandler.resumeBuild(build);
+                    }
+                }
+            }
+        } catch (DatabaseHandlerException e) {
+            log.warn("Failed to claim model builds: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            log.error("Failed to claim model builds: " + e.getMessage(), e);
+        }
+    }
+}
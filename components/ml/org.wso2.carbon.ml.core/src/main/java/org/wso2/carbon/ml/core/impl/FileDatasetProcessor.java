@@ -30,6 +30,7 @@ import org.wso2.carbon.ml.core.exceptions.MLOutputAdapterException;
 import org.wso2.carbon.ml.core.factories.DatasetType;
 import org.wso2.carbon.ml.core.interfaces.DatasetProcessor;
 import org.wso2.carbon.ml.core.interfaces.MLOutputAdapter;
+import org.wso2.carbon.ml.core.spark.ColumnarDataset;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 import org.wso2.carbon.ml.core.utils.MLUtils;
 
@@ -95,4 +96,15 @@ public class FileDatasetProcessor extends DatasetProcessor {
         }
     }
 
+    @Override
+    public void storeColumnar() throws MLDataProcessingException {
+        MLCoreServiceValueHolder valueHolder = MLCoreServiceValueHolder.getInstance();
+        if (valueHolder.isColumnarDatasetStorage()) {
+            MLDataset dataset = getDataset();
+            ColumnarDataset.write(valueHolder.getSparkContext(), getTargetPath(),
+                    MLUtils.ColumnSeparatorFactory.getColumnSeparator(dataset.getDataType()),
+                    dataset.isContainsHeader());
+        }
+    }
+
 }
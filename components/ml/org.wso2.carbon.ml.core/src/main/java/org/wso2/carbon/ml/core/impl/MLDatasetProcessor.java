@@ -242,8 +242,7 @@ public class MLDatasetProcessor {
         // start summary stats generation in a new thread, pass data set version id
         SummaryStatsGenerator task = new SummaryStatsGenerator(datasetSchemaId, datasetVersionId, summaryStatsSettings,
                 datasetProcessor);
-        threadExecutor.execute(task);
-        threadExecutor.afterExecute(task, null);
+        threadExecutor.execute(task, dataset.getTenantId(), BlockingExecutor.Priority.HIGH);
         log.info(String.format("[Created] %s", dataset));
 
     }
@@ -20,8 +20,11 @@ package org.wso2.carbon.ml.core.impl;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -38,9 +41,10 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.InvalidRequestException;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.mllib.clustering.KMeansModel;
 import org.apache.spark.mllib.pmml.PMMLExportable;
-import org.apache.spark.mllib.recommendation.MatrixFactorizationModel;
+import org.apache.spark.mllib.recommendation.Rating;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.wso2.carbon.context.CarbonContext;
@@ -52,6 +56,7 @@ import org.wso2.carbon.ml.commons.constants.MLConstants;
 import org.wso2.carbon.ml.commons.domain.*;
 import org.wso2.carbon.ml.commons.domain.config.Storage;
 import org.wso2.carbon.ml.core.exceptions.*;
+import org.wso2.carbon.ml.core.factories.AlgorithmType;
 import org.wso2.carbon.ml.core.factories.DatasetType;
 import org.wso2.carbon.ml.core.factories.ModelBuilderFactory;
 import org.wso2.carbon.ml.core.interfaces.MLInputAdapter;
@@ -59,11 +64,20 @@ import org.wso2.carbon.ml.core.interfaces.MLModelBuilder;
 import org.wso2.carbon.ml.core.interfaces.MLOutputAdapter;
 import org.wso2.carbon.ml.core.interfaces.PMMLModelContainer;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+import org.wso2.carbon.ml.core.spark.BuildProgressTracker;
+import org.wso2.carbon.ml.core.spark.ColumnarDataset;
+import org.wso2.carbon.ml.core.spark.algorithms.HyperParameterSweep;
 import org.wso2.carbon.ml.core.spark.algorithms.KMeans;
 import org.wso2.carbon.ml.core.spark.algorithms.SparkModelUtils;
 import org.wso2.carbon.ml.core.spark.models.MLDeeplearningModel;
+import org.wso2.carbon.ml.core.spark.models.MLKMeansModel;
 import org.wso2.carbon.ml.core.spark.models.MLMatrixFactorizationModel;
-import org.wso2.carbon.ml.core.spark.recommendation.CollaborativeFiltering;
+import org.wso2.carbon.ml.core.spark.recommendation.BatchRecommendations;
+import org.wso2.carbon.ml.core.spark.recommendation.BlockedTopKScorer;
+import org.wso2.carbon.ml.core.spark.recommendation.FactorStore;
+import org.wso2.carbon.ml.core.spark.recommendation.TopNTable;
+import org.wso2.carbon.ml.core.spark.summary.WarmStartSummary;
+import org.wso2.carbon.ml.core.spark.transformations.FactorsToRecommendations;
 import org.wso2.carbon.ml.core.spark.transformations.HeaderFilter;
 import org.wso2.carbon.ml.core.spark.transformations.LineToTokens;
 import org.wso2.carbon.ml.core.spark.transformations.MissingValuesFilter;
@@ -71,6 +85,7 @@ import org.wso2.carbon.ml.core.spark.transformations.TokensToVectors;
 import org.wso2.carbon.ml.core.utils.BlockingExecutor;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 import org.wso2.carbon.ml.core.utils.MLUtils;
+import org.wso2.carbon.ml.core.utils.LineTokenizer;
 import org.wso2.carbon.ml.core.utils.MLUtils.ColumnSeparatorFactory;
 import org.wso2.carbon.ml.core.utils.MLUtils.DataTypeFactory;
 import org.wso2.carbon.ml.database.DatabaseService;
@@ -88,6 +103,61 @@ import hex.deeplearning.DeepLearningModel;
  */
 public class MLModelHandler {
     private static final Log log = LogFactory.getLog(MLModelHandler.class);
+    private static final int RECOMMENDATION_MODEL_CACHE_SIZE = 8;
+    // attempts of a fold-in racing fold-ins of the same model on other nodes, and the wait between them
+    private static final int FOLD_IN_ATTEMPTS = 5;
+    private static final long FOLD_IN_RETRY_INTERVAL = 200;
+    // users scored per task when exporting recommendations
+    private static final int RECOMMENDATION_EXPORT_PARTITION_SIZE = 50000;
+    // recently used recommendation models, keyed by model id, to avoid loading the model per request; a cached model
+    // is used only while its factors are at the version of the model in the database, so that fold-ins made on other
+    // nodes are picked up. Cached models are replaced, never changed, by fold-ins.
+    private static final Map<Long, MLModel> recommendationModelCache = Collections
+            .synchronizedMap(new LinkedHashMap<Long, MLModel>(16, 0.75f, true) {
+                private static final long serialVersionUID = -6123740937531180496L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, MLModel> eldest) {
+                    return size() > RECOMMENDATION_MODEL_CACHE_SIZE;
+                }
+            });
+    // fold-ins of a model are applied one at a time on a node, under the lock of the model, and one at a time across
+    // the nodes by advancing the version of the model in the database
+    private static final ConcurrentMap<Long, Object> foldInLocks = new ConcurrentHashMap<Long, Object>();
+    private static final int TOP_N_TABLE_CACHE_SIZE = 64;
+    // memory-mapped top N recommendations of recently used models, null if a model has none
+    private static final Map<Long, TopNTable> topNTableCache = Collections
+            .synchronizedMap(new LinkedHashMap<Long, TopNTable>(16, 0.75f, true) {
+                private static final long serialVersionUID = 4016287733940162262L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, TopNTable> eldest) {
+                    return size() > TOP_N_TABLE_CACHE_SIZE;
+                }
+            });
+    private static final int SWEEP_LEADERBOARD_CACHE_SIZE = 64;
+    // leaderboards of the latest hyperparameter sweeps, keyed by the id of the model the best candidate is saved as
+    private static final Map<Long, MLSweepLeaderboard> sweepLeaderboards = Collections
+            .synchronizedMap(new LinkedHashMap<Long, MLSweepLeaderboard>(16, 0.75f, true) {
+                private static final long serialVersionUID = 2957365198201638743L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, MLSweepLeaderboard> eldest) {
+                    return size() > SWEEP_LEADERBOARD_CACHE_SIZE;
+                }
+            });
+    // progress of the builds running or waiting to run on this node, by the id of the model being built
+    private static final Map<Long, BuildProgressTracker> progressTrackers =
+            new ConcurrentHashMap<Long, BuildProgressTracker>();
+    // tasks of the builds running or waiting to run on this node, by the id of the model being built
+    private static final Map<Long, Runnable> buildTasks = new ConcurrentHashMap<Long, Runnable>();
+    // algorithms whose builds can be warm-started from the parameters of a previous model
+    private static final Set<String> WARM_START_ALGORITHMS = new HashSet<String>(Arrays.asList(
+            MLConstants.SUPERVISED_ALGORITHM.LOGISTIC_REGRESSION.name(), MLConstants.SUPERVISED_ALGORITHM.SVM.name(),
+            MLConstants.SUPERVISED_ALGORITHM.LINEAR_REGRESSION.name(),
+            MLConstants.SUPERVISED_ALGORITHM.RIDGE_REGRESSION.name(),
+            MLConstants.SUPERVISED_ALGORITHM.LASSO_REGRESSION.name(),
+            MLConstants.UNSUPERVISED_ALGORITHM.K_MEANS.name()));
     private DatabaseService databaseService;
     private Properties mlProperties;
     private BlockingExecutor threadExecutor;
@@ -141,8 +211,13 @@ public class MLModelHandler {
     }
 
     public void deleteModel(int tenantId, String userName, long modelId) throws MLModelHandlerException {
+        // stop building the model, if it is being built
+        cancelModelBuild(tenantId, userName, modelId);
         try {
             databaseService.deleteModel(tenantId, userName, modelId);
+            recommendationModelCache.remove(modelId);
+            topNTableCache.remove(modelId);
+            foldInLocks.remove(modelId);
             log.info(String.format("[Deleted] Model [id] %s", modelId));
         } catch (DatabaseHandlerException e) {
             throw new MLModelHandlerException(e.getMessage(), e);
@@ -229,6 +304,376 @@ public class MLModelHandler {
      */
     public Workflow buildModel(int tenantId, String userName, long modelId) throws MLModelHandlerException,
             MLModelBuilderException {
+        return buildModel(tenantId, userName, modelId, null);
+    }
+
+    /**
+     * Build a ML model asynchronously and persist the built model in a given storage, optionally warm-starting the
+     * build from the parameters of a built model of the same algorithm and features, e.g. one built on a previous
+     * version of the dataset. Generalized linear models trained by SGD then start from the weights of that model, and
+     * k-means from its cluster centres.
+     *
+     * @param tenantId tenant id
+     * @param userName tenant user name
+     * @param modelId id of the model to be built
+     * @param warmStartModelId id of the model to warm-start from, or null to build from scratch
+     * @throws MLModelHandlerException
+     * @throws MLModelBuilderException
+     */
+    public Workflow buildModel(int tenantId, String userName, long modelId, Long warmStartModelId)
+            throws MLModelHandlerException, MLModelBuilderException {
+
+        MLModelConfigurationContext context = prepareBuild(tenantId, userName, modelId);
+        if (warmStartModelId != null) {
+            prepareWarmStart(tenantId, userName, warmStartModelId, context);
+        }
+        try {
+            // build the model asynchronously
+            ModelBuilder task = new ModelBuilder(modelId, context);
+            submitBuild(tenantId, userName, modelId, null, warmStartModelId, task, task.progressTracker);
+
+            if (warmStartModelId != null) {
+                log.info(String.format("Build model [id] %s job, warm-started from model [id] %s, is successfully "
+                        + "submitted to Spark.", modelId, warmStartModelId));
+            } else {
+                log.info(String.format("Build model [id] %s job is successfully submitted to Spark.", modelId));
+            }
+
+            return context.getFacts();
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelBuilderException("An error occurred while saving model [id] " + modelId + " to database: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sweep the hyperparameters of a supervised Spark algorithm asynchronously and persist the best candidate as the
+     * given model. The data is pre-processed once and the candidates are fitted concurrently on it.
+     *
+     * @param tenantId tenant id
+     * @param userName tenant user name
+     * @param modelId id of the model the best candidate is persisted as
+     * @param sweep values to try per hyperparameter and how to search them
+     * @return leaderboard of the sweep, updated as the candidates are fitted
+     * @throws MLModelHandlerException
+     * @throws MLModelBuilderException
+     */
+    public MLSweepLeaderboard sweepHyperParameters(int tenantId, String userName, long modelId,
+            MLHyperParameterSweep sweep) throws MLModelHandlerException, MLModelBuilderException {
+        if (sweep == null || sweep.getHyperParameters() == null || sweep.getHyperParameters().isEmpty()) {
+            throw new MLModelHandlerException("At least one hyperparameter to sweep should be given.");
+        }
+        // rejected before the candidates are generated
+        long numberOfCandidates = HyperParameterSweep.countCandidates(sweep);
+        int maxCandidates = MLCoreServiceValueHolder.getInstance().getMaxSweepCandidates();
+        if (numberOfCandidates > maxCandidates) {
+            throw new MLModelHandlerException(String.format("The sweep has %s candidates, more than the maximum of %s.",
+                    numberOfCandidates, maxCandidates));
+        }
+        MLModelConfigurationContext context = prepareBuild(tenantId, userName, modelId);
+        Workflow facts = context.getFacts();
+        AlgorithmType algorithmType = AlgorithmType.getAlgorithmType(facts.getAlgorithmClass());
+        if (algorithmType != AlgorithmType.CLASSIFICATION && algorithmType != AlgorithmType.NUMERICAL_PREDICTION
+                || !isSupervisedSparkAlgorithm(facts.getAlgorithmName())) {
+            throw new MLModelHandlerException("Hyperparameter sweeps are not supported for algorithm: "
+                    + facts.getAlgorithmName());
+        }
+        for (Map.Entry<String, List<String>> entry : sweep.getHyperParameters().entrySet()) {
+            if (facts.getHyperParameters() == null || !facts.getHyperParameters().containsKey(entry.getKey())) {
+                throw new MLModelHandlerException(String.format("%s is not a hyperparameter of algorithm: %s",
+                        entry.getKey(), facts.getAlgorithmName()));
+            }
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                throw new MLModelHandlerException("No values are given for hyperparameter: " + entry.getKey());
+            }
+        }
+
+        try {
+            MLSweepLeaderboard leaderboard = new MLSweepLeaderboard();
+            leaderboard.setModelId(modelId);
+            leaderboard.setStatus(MLConstants.MODEL_STATUS_IN_PROGRESS);
+            HyperParameterSweep hyperParameterSweep = new HyperParameterSweep(context, sweep, leaderboard,
+                    tenantId);
+            sweepLeaderboards.put(modelId, leaderboard);
+
+            SweepRunner task = new SweepRunner(modelId, context, hyperParameterSweep, leaderboard);
+            submitBuild(tenantId, userName, modelId, sweep, null, task, task.progressTracker);
+
+            log.info(String.format("Hyperparameter sweep of model [id] %s over %s candidates is successfully "
+                    + "submitted to Spark.", modelId, leaderboard.getCandidates().size()));
+            return leaderboard;
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelBuilderException("An error occurred while saving model [id] " + modelId + " to database: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the leaderboard of the latest hyperparameter sweep of a model.
+     *
+     * @param modelId id of the model
+     * @return leaderboard, or null if the model has not been swept since the server started
+     */
+    public MLSweepLeaderboard getSweepLeaderboard(long modelId) {
+        return sweepLeaderboards.get(modelId);
+    }
+
+    /**
+     * Cancel the build of a model. A waiting build is removed from the queue. A running build has its spark jobs and
+     * H2O job cancelled, and releases its persisted data as it fails. Either way the model is marked as cancelled. The
+     * cancellation of a build running on another node is recorded in the build queue, and that node cancels it when it
+     * next renews its leases.
+     *
+     * @param tenantId tenant id
+     * @param userName tenant user name
+     * @param modelId id of the model
+     * @return whether a live build of the model was cancelled or its cancellation requested, false if the model is not
+     *         being built or its build has been cancelled already
+     * @throws MLModelHandlerException
+     */
+    public boolean cancelModelBuild(int tenantId, String userName, long modelId) throws MLModelHandlerException {
+        try {
+            if (databaseService.getModel(tenantId, userName, modelId) == null) {
+                return false;
+            }
+            if (isBuilding(modelId)) {
+                return cancelBuild(modelId);
+            }
+            return getBuildOwner() != null && databaseService.requestModelBuildCancel(modelId);
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelHandlerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cancel the build of a model running or waiting to run on this node.
+     *
+     * @param modelId id of the model
+     * @return whether a live build of the model was cancelled, false if the model is not being built on this node or
+     *         its build has been cancelled already or is ending
+     * @throws DatabaseHandlerException
+     */
+    public boolean cancelBuild(long modelId) throws DatabaseHandlerException {
+        BuildProgressTracker progressTracker = progressTrackers.get(modelId);
+        Runnable task = buildTasks.get(modelId);
+        if (progressTracker == null || task == null) {
+            return false;
+        }
+        if (threadExecutor.cancel(task)) {
+            updateBuildStatus(modelId, MLConstants.MODEL_STATUS_CANCELLED);
+            progressTracker.finish(MLConstants.MODEL_STATUS_CANCELLED);
+            updateBuildState(modelId, MLConstants.MODEL_STATUS_CANCELLED);
+            endBuild(modelId);
+            log.info(String.format("Build of model [id] %s was cancelled before it started.", modelId));
+            return true;
+        }
+        // the build marks the model as cancelled once it has stopped
+        return progressTracker.cancel();
+    }
+
+    /**
+     * End a build claimed from the build queue whose cancellation was requested before its owner could act on it.
+     *
+     * @param modelId id of the model
+     * @throws DatabaseHandlerException
+     */
+    public void cancelClaimedBuild(long modelId) throws DatabaseHandlerException {
+        updateBuildStatus(modelId, MLConstants.MODEL_STATUS_CANCELLED);
+        updateBuildState(modelId, MLConstants.MODEL_STATUS_CANCELLED);
+        log.info(String.format("Build of model [id] %s was cancelled before it was resumed.", modelId));
+    }
+
+    /**
+     * Whether a build of a model is running or waiting to run on this node.
+     */
+    public boolean isBuilding(long modelId) {
+        return buildTasks.containsKey(modelId);
+    }
+
+    /**
+     * @return ids of the models being built or waiting to be built on this node
+     */
+    public Set<Long> getBuildingModelIds() {
+        return new HashSet<Long>(buildTasks.keySet());
+    }
+
+    /**
+     * Queue again a build claimed from the build queue, e.g. one interrupted by a restart of this node or by the
+     * failure of another. The build starts over, in the tenant flow of the user who requested it.
+     *
+     * @param build build request claimed by this node
+     */
+    public void resumeBuild(MLModelBuildRequest build) {
+        long modelId = build.getModelId();
+        PrivilegedCarbonContext.startTenantFlow();
+        try {
+            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            carbonContext.setTenantId(build.getTenantId(), true);
+            carbonContext.setUsername(build.getUserName());
+            if (build.getSweep() != null) {
+                sweepHyperParameters(build.getTenantId(), build.getUserName(), modelId, build.getSweep());
+            } else {
+                buildModel(build.getTenantId(), build.getUserName(), modelId, build.getWarmStartModelId());
+            }
+            log.info(String.format("Resumed the build of model [id] %s.", modelId));
+        } catch (MLModelHandlerException | MLModelBuilderException | RuntimeException e) {
+            log.error(String.format("Failed to resume the build of model [id] %s ", modelId), e);
+            try {
+                if (updateBuildStatus(modelId, MLConstants.MODEL_STATUS_FAILED)) {
+                    databaseService.updateModelError(modelId, e.getMessage());
+                }
+            } catch (DatabaseHandlerException e1) {
+                log.error(String.format("Failed to update the status of model [id] %s ", modelId), e1);
+            }
+            updateBuildState(modelId, MLConstants.MODEL_STATUS_FAILED);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    /**
+     * Persist a build in the build queue, so that it survives a restart of this node, mark the model as in progress
+     * and queue the build.
+     */
+    private void submitBuild(int tenantId, String userName, long modelId, MLHyperParameterSweep sweep,
+            Long warmStartModelId, Runnable task, BuildProgressTracker progressTracker)
+            throws DatabaseHandlerException {
+        // registered first, so that this node does not claim the persisted build as an interrupted one
+        progressTrackers.put(modelId, progressTracker);
+        buildTasks.put(modelId, task);
+        BuildLeaseManager buildLeaseManager = MLCoreServiceValueHolder.getInstance().getBuildLeaseManager();
+        try {
+            if (buildLeaseManager != null) {
+                MLModelBuildRequest build = new MLModelBuildRequest();
+                build.setModelId(modelId);
+                build.setTenantId(tenantId);
+                build.setUserName(userName);
+                build.setSweep(sweep);
+                build.setWarmStartModelId(warmStartModelId);
+                build.setState(MLConstants.BUILD_STATE_QUEUED);
+                build.setOwner(buildLeaseManager.getNodeId());
+                databaseService.insertModelBuild(build, buildLeaseManager.getLeaseExpiryTime());
+            }
+            // before the build is queued, as queuing blocks while the tenant is at its share of the pool, and a
+            // build that ends meanwhile would be switched back to in progress
+            databaseService.updateModelStatus(modelId, MLConstants.MODEL_STATUS_IN_PROGRESS);
+        } catch (DatabaseHandlerException e) {
+            endBuild(modelId);
+            throw e;
+        }
+        threadExecutor.execute(task, tenantId, BlockingExecutor.Priority.NORMAL);
+    }
+
+    /**
+     * @return id of this node if the builds are persisted in the build queue, otherwise null
+     */
+    private static String getBuildOwner() {
+        BuildLeaseManager buildLeaseManager = MLCoreServiceValueHolder.getInstance().getBuildLeaseManager();
+        return buildLeaseManager != null ? buildLeaseManager.getNodeId() : null;
+    }
+
+    /**
+     * Update the state of a build in the build queue, unless another node has claimed it since.
+     *
+     * @return whether this node still owns the build
+     */
+    private boolean updateBuildState(long modelId, String state) {
+        BuildLeaseManager buildLeaseManager = MLCoreServiceValueHolder.getInstance().getBuildLeaseManager();
+        if (buildLeaseManager == null) {
+            return true;
+        }
+        try {
+            if (databaseService.updateModelBuildState(modelId, buildLeaseManager.getNodeId(), state)) {
+                return true;
+            }
+            log.warn(String.format("Build state of model [id] %s was not updated to %s: the build has been claimed "
+                    + "by another node.", modelId, state));
+            return false;
+        } catch (DatabaseHandlerException e) {
+            if (MLConstants.BUILD_STATE_RUNNING.equals(state)) {
+                log.warn(String.format("Failed to update the build state of model [id] %s to %s: %s", modelId, state,
+                        e.getMessage()));
+            } else {
+                // a build left pending would be claimed and built again
+                log.warn(String.format("Failed to update the build state of model [id] %s to %s, retrying when the "
+                        + "leases are next renewed: %s", modelId, state, e.getMessage()));
+                buildLeaseManager.retryBuildState(modelId, state);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Update the status of a model being built, unless another node has claimed its build since.
+     *
+     * @return whether the status was updated
+     */
+    private boolean updateBuildStatus(long modelId, String status) throws DatabaseHandlerException {
+        String owner = getBuildOwner();
+        if (owner == null) {
+            databaseService.updateModelStatus(modelId, status);
+            return true;
+        }
+        if (databaseService.updateModelStatus(modelId, status, owner)) {
+            return true;
+        }
+        log.warn(String.format("Status of model [id] %s was not updated to %s: the build has been claimed by another "
+                + "node.", modelId, status));
+        return false;
+    }
+
+    /**
+     * Fail a build whose lease has expired or been claimed by another node, before it writes the model.
+     */
+    private void checkBuildOwner(long modelId) throws MLModelBuilderException {
+        String owner = getBuildOwner();
+        try {
+            if (owner != null && !databaseService.isModelBuildOwner(modelId, owner)) {
+                throw new MLModelBuilderException("Lost the lease on the build of model [id] " + modelId);
+            }
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelBuilderException("Failed to check the lease on the build of model [id] " + modelId + ". "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static void endBuild(long modelId) {
+        progressTrackers.remove(modelId);
+        buildTasks.remove(modelId);
+    }
+
+    /**
+     * Get the progress of the build of a model: its current stage, the time spent in each stage, the rows processed
+     * and the ids of its Spark jobs and stages. The progress of a build running on this node is live, otherwise it is
+     * the one last saved to the database.
+     *
+     * @param modelId id of the model
+     * @return progress, or null if the model has not been built
+     * @throws MLModelHandlerException
+     */
+    public MLModelBuildProgress getModelProgress(long modelId) throws MLModelHandlerException {
+        BuildProgressTracker progressTracker = progressTrackers.get(modelId);
+        if (progressTracker != null) {
+            return progressTracker.getProgress();
+        }
+        try {
+            return databaseService.getModelProgress(modelId);
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelHandlerException(e.getMessage(), e);
+        }
+    }
+
+    private static boolean isSupervisedSparkAlgorithm(String algorithmName) {
+        for (MLConstants.SUPERVISED_ALGORITHM algorithm : MLConstants.SUPERVISED_ALGORITHM.values()) {
+            if (algorithm.name().equals(algorithmName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private MLModelConfigurationContext prepareBuild(int tenantId, String userName, long modelId)
+            throws MLModelHandlerException, MLModelBuilderException {
 
         if (!isValidModelId(tenantId, userName, modelId)) {
             String msg = String.format("Failed to build the model. Invalid model id: %s for tenant: %s and user: %s",
@@ -264,27 +709,154 @@ public class MLModelHandler {
 
             MLModelConfigurationContext context = buildMLModelConfigurationContext(modelId, datasetVersionId,
                     columnSeparator, model, facts, lines, sparkContext);
+            if (DatasetType.DAS != DatasetType.getDatasetType(dataSourceType)) {
+                String columnarPath = ColumnarDataset.getPath(dataUrl);
+                if (ColumnarDataset.exists(sparkContext, columnarPath)) {
+                    context.setColumnarDatasetPath(columnarPath);
+                }
+            }
 
-            // build the model asynchronously
-            ModelBuilder task = new ModelBuilder(modelId, context);
-            threadExecutor.execute(task);
-            threadExecutor.afterExecute(task, null);
+            return context;
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelBuilderException("An error occurred while reading model [id] " + modelId
+                    + " from database: " + e.getMessage(), e);
+        }
+    }
 
-            databaseService.updateModelStatus(modelId, MLConstants.MODEL_STATUS_IN_PROGRESS);
-            log.info(String.format("Build model [id] %s job is successfully submitted to Spark.", modelId));
+    /**
+     * Load the model a build is warm-started from into its context, with the iterations and training time of its own
+     * build to report what warm-starting saved. The model should be a built model of the user, of the same algorithm
+     * and with the same feature vectors as the build.
+     */
+    private void prepareWarmStart(int tenantId, String userName, long warmStartModelId,
+            MLModelConfigurationContext context) throws MLModelHandlerException {
+        Workflow facts = context.getFacts();
+        if (!WARM_START_ALGORITHMS.contains(facts.getAlgorithmName())) {
+            throw new MLModelHandlerException("Warm starts are not supported for algorithm: "
+                    + facts.getAlgorithmName());
+        }
+        if (!isValidModelId(tenantId, userName, warmStartModelId)) {
+            String msg = String.format("Failed to warm-start the build of model [id] %s. Invalid model id: %s for "
+                    + "tenant: %s and user: %s", context.getModelId(), warmStartModelId, tenantId, userName);
+            throw new MLModelHandlerException(msg);
+        }
+        if (!isValidModelStatus(warmStartModelId, tenantId, userName)) {
+            String msg = String.format("Failed to warm-start the build of model [id] %s. Status of model [id] %s is "
+                    + "not 'Complete'", context.getModelId(), warmStartModelId);
+            throw new MLModelHandlerException(msg);
+        }
+
+        MLModel warmStartModel = retrieveModel(warmStartModelId);
+        checkWarmStartModel(context.getModelId(), facts, context.getNewToOldIndicesList(),
+                SparkModelUtils.buildEncodings(context), warmStartModelId, warmStartModel);
 
-            return facts;
+        context.setWarmStartModel(warmStartModel);
+        context.setWarmStartModelId(warmStartModelId);
+        try {
+            ModelSummary summary = databaseService.getModelSummary(warmStartModelId);
+            if (summary instanceof WarmStartSummary) {
+                context.setWarmStartModelIterations(((WarmStartSummary) summary).getIterations());
+            }
+            MLModelBuildProgress progress = databaseService.getModelProgress(warmStartModelId);
+            if (progress != null && progress.getStageTimes() != null) {
+                context.setWarmStartModelTrainingTime(progress.getStageTimes().get(
+                        MLConstants.MODEL_BUILD_STAGE_TRAINING));
+            }
         } catch (DatabaseHandlerException e) {
-            throw new MLModelBuilderException("An error occurred while saving model [id] " + modelId + " to database: "
-                    + e.getMessage(), e);
+            throw new MLModelHandlerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check that a model can warm-start a build: it should be of the same algorithm, with feature vectors of the same
+     * features in the same order, encoded alike, the same response variable if supervised and the same number of
+     * clusters if K-means. The categorical values of a new dataset version may shift the codes of the others, and
+     * the parameters of the model would then weigh the wrong values.
+     *
+     * @param modelId id of the model being built
+     * @param facts workflow of the build
+     * @param newToOldIndicesList indices of the features of the build, in the order of its feature vectors
+     * @param encodings encodings of the categorical features and response of the build
+     * @param warmStartModelId id of the model to warm-start from
+     * @param warmStartModel model to warm-start from
+     * @throws MLModelHandlerException if the model cannot warm-start the build
+     */
+    static void checkWarmStartModel(long modelId, Workflow facts, List<Integer> newToOldIndicesList,
+            List<Map<String, Integer>> encodings, long warmStartModelId, MLModel warmStartModel)
+            throws MLModelHandlerException {
+        if (!facts.getAlgorithmName().equals(warmStartModel.getAlgorithmName())) {
+            String msg = String.format("Failed to warm-start the build of model [id] %s. [algorithm] %s of model "
+                    + "[id] %s does not match [algorithm] %s", modelId,
+                    warmStartModel.getAlgorithmName(), warmStartModelId, facts.getAlgorithmName());
+            throw new MLModelHandlerException(msg);
+        }
+        // the parameters of the model are only meaningful for feature vectors of the same features in the same order
+        List<String> featureVector = getFeatureVector(facts.getFeatures(), newToOldIndicesList);
+        List<String> warmStartFeatureVector = getFeatureVector(warmStartModel.getFeatures(),
+                warmStartModel.getNewToOldIndicesList());
+        if (!featureVector.equals(warmStartFeatureVector)) {
+            String msg = String.format("Failed to warm-start the build of model [id] %s. [features] %s of model "
+                    + "[id] %s do not match [features] %s", modelId, warmStartFeatureVector,
+                    warmStartModelId, featureVector);
+            throw new MLModelHandlerException(msg);
+        }
+        List<Map<String, Integer>> warmStartEncodings = warmStartModel.getEncodings();
+        for (int i = 0; i < encodings.size(); i++) {
+            Map<String, Integer> warmStartEncoding = warmStartEncodings != null && i < warmStartEncodings.size()
+                    ? warmStartEncodings.get(i) : null;
+            if (!encodings.get(i).equals(warmStartEncoding)) {
+                String feature = i < featureVector.size() ? featureVector.get(i) : facts.getResponseVariable();
+                String msg = String.format("Failed to warm-start the build of model [id] %s. [encoding] %s of %s of "
+                        + "model [id] %s does not match [encoding] %s", modelId, warmStartEncoding, feature,
+                        warmStartModelId, encodings.get(i));
+                throw new MLModelHandlerException(msg);
+            }
+        }
+        if (isSupervisedSparkAlgorithm(facts.getAlgorithmName())
+                && !facts.getResponseVariable().equals(warmStartModel.getResponseVariable())) {
+            String msg = String.format("Failed to warm-start the build of model [id] %s. [response variable] %s of "
+                    + "model [id] %s does not match [response variable] %s", modelId,
+                    warmStartModel.getResponseVariable(), warmStartModelId, facts.getResponseVariable());
+            throw new MLModelHandlerException(msg);
+        }
+        if (warmStartModel.getModel() instanceof MLKMeansModel) {
+            int clusters = ((MLKMeansModel) warmStartModel.getModel()).getModel().k();
+            String noOfClusters = facts.getHyperParameters().get(MLConstants.NUM_CLUSTERS);
+            if (!String.valueOf(clusters).equals(noOfClusters)) {
+                String msg = String.format("Failed to warm-start the build of model [id] %s. [number of clusters] %s "
+                        + "of model [id] %s does not match [number of clusters] %s", modelId,
+                        clusters, warmStartModelId, noOfClusters);
+                throw new MLModelHandlerException(msg);
+            }
         }
     }
 
+    /**
+     * @return name and type of each feature of the feature vectors of a model, in order
+     */
+    private static List<String> getFeatureVector(List<Feature> features, List<Integer> newToOldIndicesList) {
+        Map<Integer, Feature> featuresByIndex = new HashMap<Integer, Feature>();
+        if (features != null) {
+            for (Feature feature : features) {
+                featuresByIndex.put(feature.getIndex(), feature);
+            }
+        }
+        List<String> featureVector = new ArrayList<String>();
+        if (newToOldIndicesList != null) {
+            for (Integer index : newToOldIndicesList) {
+                Feature feature = featuresByIndex.get(index);
+                featureVector.add(feature == null ? null : feature.getName() + ":" + feature.getType());
+            }
+        }
+        return featureVector;
+    }
+
     private MLModelConfigurationContext buildMLModelConfigurationContext(long modelId, long datasetVersionId,
                                                                          String columnSeparator, MLModelData model, Workflow facts, JavaRDD<String> lines,
                                                                          JavaSparkContext sparkContext) throws DatabaseHandlerException {
         MLModelConfigurationContext context = new MLModelConfigurationContext();
         context.setModelId(modelId);
+        context.setDatasetVersionId(datasetVersionId);
         context.setColumnSeparator(columnSeparator);
         context.setFacts(facts);
         context.setModel(model);
@@ -306,11 +878,12 @@ public class MLModelHandler {
             throws MLModelHandlerException {
         List<String[]> data = new ArrayList<String[]>();
         CSVFormat csvFormat = DataTypeFactory.getCSVFormat(dataFormat);
+        LineTokenizer tokenizer = new LineTokenizer(csvFormat.getDelimiter());
         BufferedReader br = new BufferedReader(new InputStreamReader(dataStream, StandardCharsets.UTF_8));
         try {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                String[] dataRow = tokenizer.tokenize(line);
                 data.add(dataRow);
             }
             return predict(tenantId, userName, modelId, data);
@@ -332,20 +905,21 @@ public class MLModelHandler {
                                    String columnHeader, InputStream dataStream) throws MLModelHandlerException {
         List<String[]> data = new ArrayList<String[]>();
         CSVFormat csvFormat = DataTypeFactory.getCSVFormat(dataFormat);
+        LineTokenizer tokenizer = new LineTokenizer(csvFormat.getDelimiter());
         MLModel mlModel = retrieveModel(modelId);
         BufferedReader br = new BufferedReader(new InputStreamReader(dataStream, StandardCharsets.UTF_8));
         StringBuilder predictionsWithData = new StringBuilder();
         try {
             String line;
-            if((line = br.readLine()) != null && line.split(csvFormat.getDelimiter() + "").length == mlModel.getNewToOldIndicesList().size()) {
+            if((line = br.readLine()) != null && tokenizer.tokenize(line).length == mlModel.getNewToOldIndicesList().size()) {
                 if(columnHeader.equalsIgnoreCase(MLConstants.NO)) {
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     data.add(dataRow);
                 } else {
                     predictionsWithData.append(line).append(MLConstants.NEW_LINE);
                 }
                 while ((line = br.readLine()) != null) {
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     data.add(dataRow);
                 }
                 // cloning unencoded data to append with predictions
@@ -365,7 +939,7 @@ public class MLModelHandler {
                 List<String[]> unencodedData = new ArrayList<String[]>();
                 if(columnHeader.equalsIgnoreCase(MLConstants.NO)) {
                     int count = 0;
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     unencodedData.add(dataRow.clone());
                     String[] includedFeatureValues = new String[includedFeatureIndices.size()];
                     for (int index : includedFeatureIndices) {
@@ -377,7 +951,7 @@ public class MLModelHandler {
                 }
                 while ((line = br.readLine()) != null) {
                     int count = 0;
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     unencodedData.add(dataRow.clone());
                     String[] includedFeatureValues = new String[includedFeatureIndices.size()];
                     for (int index : includedFeatureIndices) {
@@ -467,11 +1041,12 @@ public class MLModelHandler {
             double percentile, boolean skipDecoding) throws MLModelHandlerException {
         List<String[]> data = new ArrayList<String[]>();
         CSVFormat csvFormat = DataTypeFactory.getCSVFormat(dataFormat);
+        LineTokenizer tokenizer = new LineTokenizer(csvFormat.getDelimiter());
         BufferedReader br = new BufferedReader(new InputStreamReader(dataStream, StandardCharsets.UTF_8));
         try {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                String[] dataRow = tokenizer.tokenize(line);
                 data.add(dataRow);
             }
             return predict(tenantId, userName, modelId, data, percentile, skipDecoding);
@@ -493,20 +1068,21 @@ public class MLModelHandler {
                                    String columnHeader, InputStream dataStream, double percentile, boolean skipDecoding) throws MLModelHandlerException {
         List<String[]> data = new ArrayList<String[]>();
         CSVFormat csvFormat = DataTypeFactory.getCSVFormat(dataFormat);
+        LineTokenizer tokenizer = new LineTokenizer(csvFormat.getDelimiter());
         MLModel mlModel = retrieveModel(modelId);
         BufferedReader br = new BufferedReader(new InputStreamReader(dataStream, StandardCharsets.UTF_8));
         StringBuilder predictionsWithData = new StringBuilder();
         try {
             String line;
-            if((line = br.readLine()) != null && line.split(csvFormat.getDelimiter() + "").length == mlModel.getNewToOldIndicesList().size()) {
+            if((line = br.readLine()) != null && tokenizer.tokenize(line).length == mlModel.getNewToOldIndicesList().size()) {
                 if(columnHeader.equalsIgnoreCase(MLConstants.NO)) {
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     data.add(dataRow);
                 } else {
                     predictionsWithData.append(line).append(MLConstants.NEW_LINE);
                 }
                 while ((line = br.readLine()) != null) {
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     data.add(dataRow);
                 }
                 // cloning unencoded data to append with predictions
@@ -526,7 +1102,7 @@ public class MLModelHandler {
                 List<String[]> unencodedData = new ArrayList<String[]>();
                 if(columnHeader.equalsIgnoreCase(MLConstants.NO)) {
                     int count = 0;
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     unencodedData.add(dataRow.clone());
                     String[] includedFeatureValues = new String[includedFeatureIndices.size()];
                     for (int index : includedFeatureIndices) {
@@ -538,7 +1114,7 @@ public class MLModelHandler {
                 }
                 while ((line = br.readLine()) != null) {
                     int count = 0;
-                    String[] dataRow = line.split(csvFormat.getDelimiter() + "");
+                    String[] dataRow = tokenizer.tokenize(line);
                     unencodedData.add(dataRow.clone());
                     String[] includedFeatureValues = new String[includedFeatureIndices.size()];
                     for (int index : includedFeatureIndices) {
@@ -582,6 +1158,51 @@ public class MLModelHandler {
     public List<?> predict(int tenantId, String userName, long modelId, List<String[]> data, double percentile,
             boolean skipDecoding) throws MLModelHandlerException {
 
+        MLModel builtModel = retrieveModelForPrediction(tenantId, userName, modelId, data);
+
+        // predict
+        Predictor predictor = new Predictor(modelId, builtModel, data, percentile, skipDecoding);
+        List<?> predictions = predictor.predict();
+
+        return predictions;
+    }
+
+    /**
+     * Score data points using an anomaly detection model.
+     *
+     * @param tenantId tenant id
+     * @param userName tenant user name
+     * @param modelId id of the anomaly detection model
+     * @param data data points to be scored
+     * @param minPercentile min percentile value of the returned cluster boundaries
+     * @param maxPercentile max percentile value of the returned cluster boundaries
+     * @return the cluster, distance and percentile rank of each data point and the cluster boundaries of the model
+     * @throws MLModelHandlerException
+     */
+    public AnomalyScores getAnomalyScores(int tenantId, String userName, long modelId, List<String[]> data,
+            int minPercentile, int maxPercentile) throws MLModelHandlerException {
+
+        if (minPercentile < 1 || maxPercentile > 100 || minPercentile > maxPercentile) {
+            throw new MLModelHandlerException(String.format("Invalid percentile range: [%s, %s]", minPercentile,
+                    maxPercentile));
+        }
+
+        MLModel builtModel = retrieveModelForPrediction(tenantId, userName, modelId, data);
+
+        Predictor predictor = new Predictor(modelId, builtModel, data);
+        AnomalyScores anomalyScores = predictor.score(minPercentile, maxPercentile);
+
+        log.info(String.format("Anomaly scoring of %s data points from model [id] %s was successful.", data.size(),
+                modelId));
+        return anomalyScores;
+    }
+
+    /**
+     * Validate the model and the data to be predicted and retrieve the built model.
+     */
+    private MLModel retrieveModelForPrediction(int tenantId, String userName, long modelId, List<String[]> data)
+            throws MLModelHandlerException {
+
         if (!isValidModelId(tenantId, userName, modelId)) {
             String msg = String.format("Failed to build the model. Invalid model id: %s for tenant: %s and user: %s",
                     modelId, tenantId, userName);
@@ -622,19 +1243,21 @@ public class MLModelHandler {
                 }
             }
         }
-
-        // predict
-        Predictor predictor = new Predictor(modelId, builtModel, data, percentile, skipDecoding);
-        List<?> predictions = predictor.predict();
-
-        return predictions;
+        return builtModel;
     }
 
     public List<?> getProductRecommendations(int tenantId, String userName, long modelId, int userId, int noOfProducts)
             throws MLModelHandlerException {
 
-        MatrixFactorizationModel model = getMatrixFactorizationModel(tenantId, userName, modelId);
-        List<?> recommendations = CollaborativeFiltering.recommendProducts(model, userId, noOfProducts);
+        TopNTable topNTable = getTopNTable(tenantId, userName, modelId);
+        if (topNTable != null && noOfProducts <= topNTable.getN()) {
+            int[] productIds = topNTable.getProducts(userId);
+            if (productIds != null) {
+                return head(productIds, noOfProducts);
+            }
+        }
+        FactorStore factorStore = getFactorStore(tenantId, userName, modelId);
+        List<?> recommendations = factorStore.recommendProducts(userId, noOfProducts);
 
         log.info(String.format("Recommendations from model [id] %s was successful.", modelId));
         return recommendations;
@@ -644,15 +1267,247 @@ public class MLModelHandler {
     public List<?> getUserRecommendations(int tenantId, String userName, long modelId, int productId, int noOfUsers)
             throws MLModelHandlerException {
 
-        MatrixFactorizationModel model = getMatrixFactorizationModel(tenantId, userName, modelId);
-        List<?> recommendations = CollaborativeFiltering.recommendUsers(model, productId, noOfUsers);
+        TopNTable topNTable = getTopNTable(tenantId, userName, modelId);
+        if (topNTable != null && noOfUsers <= topNTable.getN()) {
+            int[] userIds = topNTable.getUsers(productId);
+            if (userIds != null) {
+                return head(userIds, noOfUsers);
+            }
+        }
+        FactorStore factorStore = getFactorStore(tenantId, userName, modelId);
+        List<?> recommendations = factorStore.recommendUsers(productId, noOfUsers);
 
         log.info(String.format("Recommendations from model [id] %s was successful.", modelId));
         return recommendations;
 
     }
 
-    private MatrixFactorizationModel getMatrixFactorizationModel(int tenantId, String userName, long modelId)
+    private static List<Integer> head(int[] ids, int n) {
+        int count = Math.max(0, Math.min(n, ids.length));
+        List<Integer> head = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            head.add(ids[i]);
+        }
+        return head;
+    }
+
+    /**
+     * Get the top N recommendations materialised when the model was built, if any. Ids missing from the table, and
+     * requests for more than N recommendations, are scored live, as are all the requests once ratings were folded into
+     * the model, on this node or on another.
+     *
+     * @return the memory-mapped table, or null if the model has none
+     */
+    private TopNTable getTopNTable(int tenantId, String userName, long modelId) throws MLModelHandlerException {
+        if (!isValidModelId(tenantId, userName, modelId)) {
+            String msg = String.format("Failed to build the model. Invalid model id: %s for tenant: %s and user: %s",
+                    modelId, tenantId, userName);
+            throw new MLModelHandlerException(msg);
+        }
+        TopNTable topNTable = null;
+        try {
+            if (databaseService.getModelVersion(modelId) != 0) {
+                // the table was materialised from the factors the model was built with
+                topNTableCache.put(modelId, null);
+                return null;
+            }
+            synchronized (topNTableCache) {
+                if (topNTableCache.containsKey(modelId)) {
+                    return topNTableCache.get(modelId);
+                }
+            }
+            MLStorage storage = databaseService.getModelStorage(modelId);
+            if (storage != null && DatasetType.FILE.getValue().equals(storage.getType())) {
+                File file = new File(storage.getLocation() + TopNTable.FILE_EXTENSION);
+                if (file.isFile()) {
+                    topNTable = TopNTable.open(file);
+                }
+            }
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelHandlerException(e.getMessage(), e);
+        } catch (IOException e) {
+            log.warn(String.format("Failed to load top N recommendations of model [id] %s, recommendations will be "
+                    + "scored live: %s", modelId, e.getMessage()));
+        }
+        topNTableCache.put(modelId, topNTable);
+        return topNTable;
+    }
+
+    /**
+     * Get recommended products for a batch of users. Users are scored in blocks against the product factors of the
+     * model while the recommendations are written out.
+     *
+     * @param userIds ids of the users, or null for all the users of the model
+     * @param noOfProducts number of products to recommend per user
+     * @return recommendations to be written as newline delimited JSON
+     * @throws MLModelHandlerException if the model is not a recommendation model or a user is unknown
+     */
+    public BatchRecommendations getProductRecommendations(int tenantId, String userName, long modelId,
+            List<Integer> userIds, int noOfProducts) throws MLModelHandlerException {
+
+        if (noOfProducts <= 0) {
+            throw new MLModelHandlerException("Invalid number of products: " + noOfProducts);
+        }
+        FactorStore factorStore = getFactorStore(tenantId, userName, modelId);
+        int[] ids = null;
+        if (userIds != null) {
+            ids = new int[userIds.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = userIds.get(i);
+                if (!factorStore.containsUser(ids[i])) {
+                    throw new MLModelHandlerException("Invalid user id: " + ids[i]);
+                }
+            }
+        }
+        return new BatchRecommendations(factorStore, ids, noOfProducts);
+    }
+
+    /**
+     * Export recommended products for all the users of a model asynchronously, as a Spark job which scores each
+     * partition of users block-wise against broadcast product factors. Recommendations are saved as newline
+     * delimited JSON text files in a directory beside the model, which holds a _SUCCESS file once complete.
+     *
+     * @param noOfProducts number of products to recommend per user
+     * @return the directory the recommendations are written to
+     * @throws MLModelHandlerException if the model is not a recommendation model or its storage does not support
+     *             exports
+     */
+    public String exportProductRecommendations(int tenantId, String userName, long modelId, int noOfProducts)
+            throws MLModelHandlerException {
+
+        if (noOfProducts <= 0) {
+            throw new MLModelHandlerException("Invalid number of products: " + noOfProducts);
+        }
+        FactorStore factorStore = getFactorStore(tenantId, userName, modelId);
+        try {
+            MLStorage storage = databaseService.getModelStorage(modelId);
+            if (storage == null) {
+                throw new MLModelHandlerException("Invalid model ID: " + modelId);
+            }
+            String outPath = storage.getLocation() + ".recommendations." + MLUtils.getDate();
+            if (DatasetType.FILE.getValue().equals(storage.getType())) {
+                outPath = new File(outPath).toURI().toString();
+            } else if (DatasetType.HDFS.getValue().equals(storage.getType())) {
+                if (!outPath.startsWith("hdfs://")) {
+                    String hdfsUrl = MLCoreServiceValueHolder.getInstance().getHdfsUrl();
+                    outPath = (hdfsUrl != null ? hdfsUrl : "hdfs://localhost:9000") + outPath;
+                }
+            } else {
+                throw new MLModelHandlerException(String.format(
+                        "Cannot export recommendations of model [id] %s to storage type %s.", modelId,
+                        storage.getType()));
+            }
+            threadExecutor.execute(new RecommendationExporter(modelId, factorStore, noOfProducts, outPath), tenantId,
+                    BlockingExecutor.Priority.NORMAL);
+            log.info(String.format("Export of recommendations of model [id] %s to %s was submitted.", modelId,
+                    outPath));
+            return outPath;
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelHandlerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fold new ratings into a recommendation model without retraining it. The factors of the rating users, or of the
+     * rated products, are solved against the fixed factors of the other side in a copy of the cached factors, which
+     * keep serving recommendations until the updated model is persisted. The model is persisted by advancing its
+     * version in the database, so that of two nodes folding ratings into the model at once the second reloads the
+     * model and retries, and other nodes reload their cached copy. A model in file storage is then replaced atomically
+     * by renaming a temporary file over it. Top N recommendations materialised for the model are discarded, since
+     * they no longer match its factors.
+     *
+     * @param ratings new ratings
+     * @param foldInProducts whether to solve the factors of the rated products instead of the rating users
+     * @return number of users, or products, whose factors were solved
+     * @throws MLModelHandlerException if the model is not a recommendation model, a rating refers to an id unknown to
+     *             the side which is held fixed, or the updated model cannot be persisted, e.g. while other nodes keep
+     *             folding ratings into it
+     */
+    public int foldInRatings(int tenantId, String userName, long modelId, List<MLRating> ratings,
+            boolean foldInProducts) throws MLModelHandlerException {
+
+        if (ratings == null || ratings.isEmpty()) {
+            throw new MLModelHandlerException("No ratings to fold into model [id] " + modelId);
+        }
+        if (!isValidModelId(tenantId, userName, modelId)) {
+            throw new MLModelHandlerException(String.format(
+                    "Failed to fold ratings in. Invalid model id: %s for tenant: %s and user: %s", modelId, tenantId,
+                    userName));
+        }
+        Object foldInLock = new Object();
+        Object existingLock = foldInLocks.putIfAbsent(modelId, foldInLock);
+        synchronized (existingLock != null ? existingLock : foldInLock) {
+            try {
+                MLModelData modelData = databaseService.getModel(tenantId, userName, modelId);
+                Workflow facts = databaseService.getWorkflow(modelData.getAnalysisId());
+                Map<String, String> hyperParameters = facts.getHyperParameters();
+                double lambda = Double.parseDouble(hyperParameters.get(MLConstants.LAMBDA));
+                boolean implicit = MLConstants.RECOMMENDATION_ALGORITHM.COLLABORATIVE_FILTERING_IMPLICIT.toString()
+                        .equals(facts.getAlgorithmName());
+                double alpha = implicit ? Double.parseDouble(hyperParameters.get(MLConstants.ALPHA)) : 0;
+
+                List<Rating> newRatings = new ArrayList<Rating>(ratings.size());
+                for (MLRating rating : ratings) {
+                    newRatings.add(new Rating(rating.getUserId(), rating.getProductId(), rating.getRating()));
+                }
+                MLStorage storage = databaseService.getModelStorage(modelId);
+                if (storage == null) {
+                    throw new MLModelHandlerException("Invalid model ID: " + modelId);
+                }
+                long t1 = System.currentTimeMillis();
+                for (int attempt = 1; attempt <= FOLD_IN_ATTEMPTS; attempt++) {
+                    long version = databaseService.getModelVersion(modelId);
+                    MLModel model = getRecommendationModel(modelId, version);
+                    FactorStore current = getFactorStore(model, modelId);
+                    if (current.getVersion() != version) {
+                        if (attempt < FOLD_IN_ATTEMPTS) {
+                            // another node advanced the version and is still replacing the persisted model
+                            Thread.sleep(FOLD_IN_RETRY_INTERVAL);
+                            continue;
+                        }
+                        // the node replacing it failed, its fold-in was never acknowledged
+                        log.warn(String.format("Persisted model [id] %s is behind its version %s, folding ratings "
+                                + "into version %s.", modelId, version, current.getVersion()));
+                    }
+                    FactorStore factorStore = current.copy();
+                    int solved = foldInProducts ? factorStore.foldInProducts(newRatings, lambda, alpha, implicit)
+                            : factorStore.foldInUsers(newRatings, lambda, alpha, implicit);
+                    factorStore.setVersion(version + 1);
+                    MLModel updated = new MLModel(model);
+                    updated.setModel(new MLMatrixFactorizationModel(factorStore));
+                    if (!replaceModel(modelId, storage, updated, version)) {
+                        log.info(String.format("Model [id] %s was rewritten by another node, folding the ratings "
+                                + "into it again.", modelId));
+                        continue;
+                    }
+
+                    recommendationModelCache.put(modelId, updated);
+                    topNTableCache.put(modelId, null);
+                    if (DatasetType.FILE.getValue().equals(storage.getType())) {
+                        File topNFile = new File(storage.getLocation() + TopNTable.FILE_EXTENSION);
+                        if (topNFile.isFile() && !topNFile.delete()) {
+                            log.warn("Failed to delete stale top N recommendations " + topNFile);
+                        }
+                    }
+                    log.info(String.format("Folded %s ratings into the factors of %s %s of model [id] %s in %s ms.",
+                            ratings.size(), solved, foldInProducts ? "products" : "users", modelId,
+                            System.currentTimeMillis() - t1));
+                    return solved;
+                }
+                throw new MLModelHandlerException(String.format(
+                        "Failed to fold ratings into model [id] %s, other nodes kept rewriting it. Please retry.",
+                        modelId));
+            } catch (DatabaseHandlerException | IOException | MLOutputAdapterException e) {
+                throw new MLModelHandlerException("Failed to fold ratings into model [id] " + modelId + ": "
+                        + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MLModelHandlerException("Interrupted while folding ratings into model [id] " + modelId, e);
+            }
+        }
+    }
+
+    private FactorStore getFactorStore(int tenantId, String userName, long modelId)
             throws MLModelHandlerException {
         if (!isValidModelId(tenantId, userName, modelId)) {
             String msg = String.format("Failed to build the model. Invalid model id: %s for tenant: %s and user: %s",
@@ -660,8 +1515,63 @@ public class MLModelHandler {
             throw new MLModelHandlerException(msg);
         }
 
-        MLModel builtModel = retrieveModel(modelId);
+        try {
+            return getFactorStore(getRecommendationModel(modelId, databaseService.getModelVersion(modelId)), modelId);
+        } catch (DatabaseHandlerException e) {
+            throw new MLModelHandlerException(e.getMessage(), e);
+        }
+    }
 
+    /**
+     * Get a recommendation model from the cache if its factors are at the given version, loading it otherwise. A model
+     * loaded while another node replaces it may be behind the version, and is then loaded again on its next use.
+     */
+    private MLModel getRecommendationModel(long modelId, long version) throws MLModelHandlerException {
+        MLModel model = recommendationModelCache.get(modelId);
+        if (model != null && getFactorStore(model, modelId).getVersion() == version) {
+            return model;
+        }
+        model = retrieveModel(modelId);
+        // only recommendation models are cached
+        getFactorStore(model, modelId);
+        recommendationModelCache.put(modelId, model);
+        return model;
+    }
+
+    /**
+     * Persist a model rewritten in place, if no other node rewrote it since it was read at the given version. A model
+     * in file storage is written to a temporary file first, which then replaces the model by an atomic rename, so
+     * that it is never read half written.
+     *
+     * @return whether the model was persisted, false if another node advanced its version
+     */
+    private boolean replaceModel(long modelId, MLStorage storage, MLModel model, long version)
+            throws DatabaseHandlerException, IOException, MLOutputAdapterException {
+        if (!DatasetType.FILE.getValue().equals(storage.getType())) {
+            if (!databaseService.advanceModelVersion(modelId, version)) {
+                return false;
+            }
+            writeModel(storage.getType(), storage.getLocation(), model);
+            return true;
+        }
+        File target = new File(storage.getLocation());
+        File temp = new File(target.getParentFile(), target.getName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            writeModel(storage.getType(), temp.getPath(), model);
+            if (!databaseService.advanceModelVersion(modelId, version)) {
+                return false;
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            if (temp.exists() && !temp.delete()) {
+                log.warn("Failed to delete temporary model file " + temp);
+            }
+        }
+    }
+
+    private static FactorStore getFactorStore(MLModel builtModel, long modelId) throws MLModelHandlerException {
         //validate if retrieved model is a MatrixFactorizationModel
         if (!(builtModel.getModel() instanceof MLMatrixFactorizationModel)) {
             String msg =
@@ -669,12 +1579,13 @@ public class MLModelHandler {
                             + "Recommendation algorithm.", modelId);
             throw new MLModelHandlerException(msg);
         }
-        //get recommendations
-        MatrixFactorizationModel model = ((MLMatrixFactorizationModel) builtModel.getModel()).getModel();
-        return model;
+        return ((MLMatrixFactorizationModel) builtModel.getModel()).getFactorStore();
     }
 
     private void persistModel(long modelId, String modelName, MLModel model) throws MLModelBuilderException {
+        checkBuildOwner(modelId);
+        recommendationModelCache.remove(modelId);
+        topNTableCache.remove(modelId);
         try {
             MLStorage storage = databaseService.getModelStorage(modelId);
             if (storage == null) {
@@ -724,23 +1635,33 @@ public class MLModelHandler {
                 outputAdapterDl.write(outPath + "_dl", isDl);
             }
 
-            MLIOFactory ioFactory = new MLIOFactory(mlProperties);
-            MLOutputAdapter outputAdapter = ioFactory.getOutputAdapter(storageType + MLConstants.OUT_SUFFIX);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(model);
-            oos.flush();
-            oos.close();
-            InputStream is = new ByteArrayInputStream(baos.toByteArray());
-            // adapter will write the model and close the stream.
-            outputAdapter.write(outPath, is);
-            databaseService.updateModelStorage(modelId, storageType, outPath);
+            writeModel(storageType, outPath, model);
+            String owner = getBuildOwner();
+            if (owner == null) {
+                databaseService.updateModelStorage(modelId, storageType, outPath);
+            } else if (!databaseService.updateModelStorage(modelId, storageType, outPath, owner)) {
+                throw new MLModelBuilderException("The build has been claimed by another node.");
+            }
             log.info(String.format("Successfully persisted the model [id] %s", modelId));
         } catch (Exception e) {
             throw new MLModelBuilderException("Failed to persist the model [id] " + modelId + ". " + e.getMessage(), e);
         }
     }
 
+    private void writeModel(String storageType, String outPath, MLModel model) throws IOException,
+            MLOutputAdapterException {
+        MLIOFactory ioFactory = new MLIOFactory(mlProperties);
+        MLOutputAdapter outputAdapter = ioFactory.getOutputAdapter(storageType + MLConstants.OUT_SUFFIX);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(model);
+        oos.flush();
+        oos.close();
+        InputStream is = new ByteArrayInputStream(baos.toByteArray());
+        // adapter will write the model and close the stream.
+        outputAdapter.write(outPath, is);
+    }
+
     private List<Integer> getNewToOldIndicesList(SortedMap<Integer, String> includedFeatures) {
         List<Integer> indicesList = new ArrayList<Integer>();
         for (int featureIdx : includedFeatures.keySet()) {
@@ -896,11 +1817,13 @@ public class MLModelHandler {
             String columnSeparator = ColumnSeparatorFactory.getColumnSeparator(dataType);
             // get header line
             String headerRow = databaseService.getFeatureNamesInOrder(datasetId, columnSeparator);
-            Pattern pattern = MLUtils.getPatternFromDelimiter(columnSeparator);
             // get selected feature indices
             List<Integer> featureIndices = new ArrayList<Integer>();
+            int[] columns = new int[features.size()];
             for (String feature : features) {
-                featureIndices.add(MLUtils.getFeatureIndex(feature, headerRow, columnSeparator));
+                int featureIndex = MLUtils.getFeatureIndex(feature, headerRow, columnSeparator);
+                columns[featureIndices.size()] = featureIndex;
+                featureIndices.add(featureIndex);
             }
             JavaRDD<org.apache.spark.mllib.linalg.Vector> featureVectors = null;
 
@@ -908,7 +1831,9 @@ public class MLModelHandler {
                     .getSampleSize();
             double sampleFraction = sampleSize / (lines.count() - 1);
             HeaderFilter headerFilter = new HeaderFilter.Builder().header(headerRow).build();
-            LineToTokens lineToTokens = new LineToTokens.Builder().separator(pattern).build();
+            // only the selected features are tokenized and checked for missing values
+            LineToTokens lineToTokens = new LineToTokens.Builder().separator(columnSeparator).columns(columns)
+                    .build();
             MissingValuesFilter missingValuesFilter = new MissingValuesFilter.Builder().build();
             TokensToVectors tokensToVectors = new TokensToVectors.Builder().indices(featureIndices).build();
 
@@ -1035,6 +1960,45 @@ public class MLModelHandler {
         }
     }
 
+    class RecommendationExporter implements Runnable {
+
+        private long modelId;
+        private FactorStore factorStore;
+        private int noOfProducts;
+        private String outPath;
+
+        public RecommendationExporter(long modelId, FactorStore factorStore, int noOfProducts, String outPath) {
+            this.modelId = modelId;
+            this.factorStore = factorStore;
+            this.noOfProducts = noOfProducts;
+            this.outPath = outPath;
+        }
+
+        @Override
+        public void run() {
+            long t1 = System.currentTimeMillis();
+            Broadcast<BlockedTopKScorer> scorer = null;
+            try {
+                JavaSparkContext sparkContext = MLCoreServiceValueHolder.getInstance().getSparkContext();
+                scorer = sparkContext.broadcast(factorStore.getProductScorer(noOfProducts));
+                int partitions = Math.max(sparkContext.defaultParallelism(), factorStore.getNumberOfUsers()
+                        / RECOMMENDATION_EXPORT_PARTITION_SIZE);
+                sparkContext.parallelize(factorStore.getUserFeaturesList(), partitions)
+                        .mapPartitions(new FactorsToRecommendations.Builder().scorer(scorer).build())
+                        .saveAsTextFile(outPath);
+                log.info(String.format("Exported recommendations of model [id] %s to %s in %s seconds.", modelId,
+                        outPath, (double) (System.currentTimeMillis() - t1) / 1000));
+            } catch (Exception e) {
+                log.error(String.format("Failed to export recommendations of model [id] %s to %s", modelId,
+                        outPath), e);
+            } finally {
+                if (scorer != null) {
+                    scorer.unpersist();
+                }
+            }
+        }
+    }
+
     class ModelBuilder implements Runnable {
 
         private long id;
@@ -1044,6 +2008,7 @@ public class MLModelHandler {
         private String username;
         private String emailNotificationEndpoint = MLCoreServiceValueHolder.getInstance()
                 .getEmailNotificationEndpoint();
+        private final BuildProgressTracker progressTracker;
 
         public ModelBuilder(long modelId, MLModelConfigurationContext context) {
             id = modelId;
@@ -1052,6 +2017,8 @@ public class MLModelHandler {
             tenantId = carbonContext.getTenantId();
             tenantDomain = carbonContext.getTenantDomain();
             username = carbonContext.getUsername();
+            progressTracker = new BuildProgressTracker(modelId, ctxt.getFacts().getAlgorithmName(),
+                    ctxt.getSparkContext(), databaseService);
         }
 
         @Override
@@ -1059,6 +2026,7 @@ public class MLModelHandler {
             org.wso2.carbon.metrics.manager.Timer timer = MetricManager.timer(Level.INFO,
                     "org.wso2.carbon.ml.model-building-time."+ctxt.getFacts().getAlgorithmName());
             Context context = timer.start();
+            String status = MLConstants.MODEL_STATUS_FAILED;
             String[] emailTemplateParameters = new String[2];
             try {
                 long t1 = System.currentTimeMillis();
@@ -1068,18 +2036,25 @@ public class MLModelHandler {
                 PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
                 PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
 
+                if (!updateBuildState(id, MLConstants.BUILD_STATE_RUNNING)) {
+                    throw new MLModelBuilderException("The build has been claimed by another node.");
+                }
+                progressTracker.start();
                 String algorithmType = ctxt.getFacts().getAlgorithmClass();
                 List<Map<String, Integer>> encodings = SparkModelUtils.buildEncodings(ctxt);
                 ctxt.setEncodings(encodings);
 
                 // gets the model builder
                 MLModelBuilder modelBuilder = ModelBuilderFactory.getModelBuilder(algorithmType, ctxt);
+                modelBuilder.setProgressTracker(progressTracker);
                 // pre-process and build the model
                 MLModel model = modelBuilder.build();
                 log.info(String.format("Successfully built the model [id] %s in %s seconds.", id,
                         (double) (System.currentTimeMillis() - t1) / 1000));
 
+                progressTracker.startStage(MLConstants.MODEL_BUILD_STAGE_PERSISTING);
                 persistModel(id, ctxt.getModel().getName(), model);
+                status = MLConstants.MODEL_STATUS_COMPLETE;
 
                 if (emailNotificationEndpoint != null) {
 
@@ -1087,30 +2062,111 @@ public class MLModelHandler {
                     EmailNotificationSender.sendModelBuildingCompleteNotification(emailNotificationEndpoint,
                             emailTemplateParameters);
                 }
-            } catch (MLInputValidationException e) {
+            } catch (Exception e) {
+                // the spark jobs of a cancelled build fail, and so does whatever was waiting for them
+                if (progressTracker.isCancelled()) {
+                    status = MLConstants.MODEL_STATUS_CANCELLED;
+                    log.info(String.format("Build of model [id] %s was cancelled.", id));
+                    try {
+                        updateBuildStatus(id, MLConstants.MODEL_STATUS_CANCELLED);
+                    } catch (DatabaseHandlerException e1) {
+                        log.error(String.format("Failed to update the status of model [id] %s ", id), e1);
+                    }
+                    return;
+                }
                 log.error(String.format("Failed to build the model [id] %s ", id), e);
                 try {
-                    databaseService.updateModelStatus(id, MLConstants.MODEL_STATUS_FAILED);
-                    databaseService.updateModelError(id, e.getMessage() + "\n" + ctxt.getFacts().toString());
-                    emailTemplateParameters[1] = getLink(ctxt, MLConstants.MODEL_STATUS_FAILED);
+                    if (updateBuildStatus(id, MLConstants.MODEL_STATUS_FAILED)) {
+                        databaseService.updateModelError(id, e.getMessage() + "\n" + ctxt.getFacts().toString());
+                        emailTemplateParameters[1] = getLink(ctxt, MLConstants.MODEL_STATUS_FAILED);
+                    }
                 } catch (DatabaseHandlerException e1) {
                     log.error(String.format("Failed to update the status of model [id] %s ", id), e1);
                 }
                 EmailNotificationSender.sendModelBuildingFailedNotification(emailNotificationEndpoint,
                         emailTemplateParameters);
-            } catch (MLModelBuilderException e) {
-                log.error(String.format("Failed to build the model [id] %s ", id), e);
+            } finally {
+                progressTracker.finish(status);
+                updateBuildState(id, status);
+                endBuild(id);
+                context.stop();
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+    }
+
+    /**
+     * Runs a hyperparameter sweep and persists the best candidate.
+     */
+    class SweepRunner implements Runnable {
+
+        private final long id;
+        private final MLModelConfigurationContext ctxt;
+        private final HyperParameterSweep sweep;
+        private final MLSweepLeaderboard leaderboard;
+        private final int tenantId;
+        private final String tenantDomain;
+        private final BuildProgressTracker progressTracker;
+
+        public SweepRunner(long modelId, MLModelConfigurationContext context, HyperParameterSweep sweep,
+                MLSweepLeaderboard leaderboard) {
+            this.id = modelId;
+            this.ctxt = context;
+            this.sweep = sweep;
+            this.leaderboard = leaderboard;
+            CarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            this.tenantId = carbonContext.getTenantId();
+            this.tenantDomain = carbonContext.getTenantDomain();
+            this.progressTracker = new BuildProgressTracker(modelId, context.getFacts().getAlgorithmName(),
+                    context.getSparkContext(), databaseService);
+        }
+
+        @Override
+        public void run() {
+            String status = MLConstants.MODEL_STATUS_FAILED;
+            try {
+                long t1 = System.currentTimeMillis();
+                // Set tenant info in the carbon context
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
+
+                if (!updateBuildState(id, MLConstants.BUILD_STATE_RUNNING)) {
+                    throw new MLModelBuilderException("The build has been claimed by another node.");
+                }
+                progressTracker.start();
+                ctxt.setEncodings(SparkModelUtils.buildEncodings(ctxt));
+                // the candidates are pre-processed, fitted and evaluated together
+                progressTracker.startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
+                sweep.run(progressTracker);
+                log.info(String.format("Successfully swept the hyperparameters of model [id] %s in %s seconds.", id,
+                        (double) (System.currentTimeMillis() - t1) / 1000));
+
+                progressTracker.startStage(MLConstants.MODEL_BUILD_STAGE_PERSISTING);
+                checkBuildOwner(id);
+                databaseService.updateModelSummary(id, sweep.getBestSummary());
+                persistModel(id, ctxt.getModel().getName(), sweep.getBestModel());
+                leaderboard.setStatus(MLConstants.MODEL_STATUS_COMPLETE);
+                status = MLConstants.MODEL_STATUS_COMPLETE;
+            } catch (MLModelBuilderException | DatabaseHandlerException | RuntimeException e) {
+                if (progressTracker.isCancelled()) {
+                    status = MLConstants.MODEL_STATUS_CANCELLED;
+                    log.info(String.format("Hyperparameter sweep of model [id] %s was cancelled.", id));
+                } else {
+                    log.error(String.format("Failed to sweep the hyperparameters of model [id] %s ", id), e);
+                }
+                leaderboard.setStatus(status);
                 try {
-                    databaseService.updateModelStatus(id, MLConstants.MODEL_STATUS_FAILED);
-                    databaseService.updateModelError(id, e.getMessage() + "\n" + ctxt.getFacts().toString());
-                    emailTemplateParameters[1] = getLink(ctxt, MLConstants.MODEL_STATUS_FAILED);
+                    if (updateBuildStatus(id, status) && !progressTracker.isCancelled()) {
+                        databaseService.updateModelError(id, e.getMessage() + "\n" + ctxt.getFacts().toString());
+                    }
                 } catch (DatabaseHandlerException e1) {
                     log.error(String.format("Failed to update the status of model [id] %s ", id), e1);
                 }
-                EmailNotificationSender.sendModelBuildingFailedNotification(emailNotificationEndpoint,
-                        emailTemplateParameters);
             } finally {
-                context.stop();
+                progressTracker.finish(status);
+                updateBuildState(id, status);
+                endBuild(id);
                 PrivilegedCarbonContext.endTenantFlow();
             }
         }
@@ -22,7 +22,6 @@ import java.util.*;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.spark.mllib.classification.ClassificationModel;
-import org.apache.spark.mllib.clustering.KMeansModel;
 import org.apache.spark.mllib.linalg.DenseVector;
 import org.apache.spark.mllib.linalg.Vector;
 import org.apache.spark.mllib.regression.GeneralizedLinearModel;
@@ -36,6 +35,8 @@ import org.wso2.carbon.ml.commons.constants.MLConstants.ANOMALY_DETECTION_ALGORI
 import org.wso2.carbon.ml.commons.constants.MLConstants.DEEPLEARNING_ALGORITHM;
 import org.wso2.carbon.ml.commons.constants.MLConstants.SUPERVISED_ALGORITHM;
 import org.wso2.carbon.ml.commons.constants.MLConstants.UNSUPERVISED_ALGORITHM;
+import org.wso2.carbon.ml.commons.domain.AnomalyScore;
+import org.wso2.carbon.ml.commons.domain.AnomalyScores;
 import org.wso2.carbon.ml.commons.domain.Feature;
 import org.wso2.carbon.ml.commons.domain.MLModel;
 import org.wso2.carbon.ml.core.exceptions.AlgorithmNameException;
@@ -43,6 +44,8 @@ import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
 import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
 import org.wso2.carbon.ml.core.factories.AlgorithmType;
 import org.wso2.carbon.ml.core.spark.models.*;
+import org.wso2.carbon.ml.core.spark.models.ext.AnomalyDetectionModel;
+import org.wso2.carbon.ml.core.spark.models.ext.CentroidIndex;
 import org.wso2.carbon.ml.core.spark.transformations.BasicEncoder;
 import org.wso2.carbon.ml.core.spark.transformations.Normalization;
 import org.wso2.carbon.ml.core.utils.DeeplearningModelUtils;
@@ -179,11 +182,11 @@ public class Predictor {
             switch (unsupervised_algorithm) {
             case K_MEANS:
                 List<Integer> predictions = new ArrayList<Integer>();
-                KMeansModel kMeansModel = ((MLKMeansModel) model.getModel()).getModel();
+                CentroidIndex centroidIndex = ((MLKMeansModel) model.getModel()).getCentroidIndex();
                 for (Vector vector : dataToBePredicted) {
                     Context context = startTimer(timer);
 
-                    int predictedData = kMeansModel.predict(vector);
+                    int predictedData = centroidIndex.assign(vector).getCluster();
                     predictions.add(predictedData);
 
                     stopTimer(context);
@@ -208,29 +211,13 @@ public class Predictor {
                 List<String> predictions = new ArrayList<String>();
                 MLAnomalyDetectionModel mLAnomalyDetectionModel = (MLAnomalyDetectionModel) model.getModel();
 
-                Normalization normalization = null;
-                if (model.getNormalization()) {
-                    normalization = new Normalization.Builder()
-                            .minMax(model.getFeatures(), model.getSummaryStatsOfFeatures()).build();
-                }
+                Normalization normalization = getNormalization();
 
                 for (Vector vector : dataToBePredicted) {
 
                     Context context = startTimer(timer);
 
-                    if (model.getNormalization()) {
-                        double[] data = vector.toArray();
-                        double[] normalizedData;
-
-                        try {
-                            normalizedData = normalization.call(data);
-                        } catch (MLModelBuilderException e) {
-                            log.warn("Data normalization failed for data: " + Arrays.toString(data) + " Cause: "
-                                    + e.getMessage());
-                            normalizedData = data;
-                        }
-                        vector = new DenseVector(normalizedData);
-                    }
+                    vector = normalize(normalization, vector);
 
                     String predictedValue = mLAnomalyDetectionModel.getModel().predict(vector, percentileValue);
                     predictions.add(predictedValue);
@@ -284,6 +271,66 @@ public class Predictor {
         }
     }
 
+    /**
+     * Score the data against an anomaly detection model, returning the closest cluster, the distance to it and the
+     * distance's percentile rank within the cluster for each data point, along with the cluster boundaries of the
+     * given percentile range.
+     *
+     * @param minPercentile min percentile value of the cluster boundaries
+     * @param maxPercentile max percentile value of the cluster boundaries
+     * @return {@link AnomalyScores} of the data
+     * @throws MLModelHandlerException
+     */
+    public AnomalyScores score(int minPercentile, int maxPercentile) throws MLModelHandlerException {
+        if (AlgorithmType.ANOMALY_DETECTION != AlgorithmType.getAlgorithmType(model.getAlgorithmClass())) {
+            throw new MLModelHandlerException(String.format(
+                    "Anomaly scores are not supported for model [id] %s of algorithm %s", id,
+                    model.getAlgorithmName()));
+        }
+        AnomalyDetectionModel anomalyDetectionModel = ((MLAnomalyDetectionModel) model.getModel()).getModel();
+        org.wso2.carbon.metrics.manager.Timer timer = getTimer(model.getAlgorithmName());
+        Normalization normalization = getNormalization();
+
+        List<AnomalyScore> scores = new ArrayList<AnomalyScore>(dataToBePredicted.size());
+        Context context = startTimer(timer);
+        for (Vector vector : dataToBePredicted) {
+            scores.add(anomalyDetectionModel.score(normalize(normalization, vector)));
+        }
+        stopTimer(context);
+
+        AnomalyScores anomalyScores = new AnomalyScores();
+        anomalyScores.setScores(scores);
+        anomalyScores.setClusterPercentileDistances(anomalyDetectionModel.getPercentileDistances(minPercentile,
+                maxPercentile));
+        return anomalyScores;
+    }
+
+    private Normalization getNormalization() {
+        if (!model.getNormalization()) {
+            return null;
+        }
+        if (model.getNormalizationMaxValues() != null && model.getNormalizationMinValues() != null) {
+            return new Normalization.Builder()
+                    .minMax(model.getNormalizationMaxValues(), model.getNormalizationMinValues()).build();
+        }
+        // models built without precomputed min/max values
+        return new Normalization.Builder().minMax(model.getFeatures(), model.getSummaryStatsOfFeatures()).build();
+    }
+
+    private Vector normalize(Normalization normalization, Vector vector) {
+        if (normalization == null) {
+            return vector;
+        }
+        // vectors to be predicted are dense vectors built from their own arrays, so they are normalized in place
+        double[] data = vector.toArray();
+        try {
+            return new DenseVector(normalization.call(data));
+        } catch (MLModelBuilderException e) {
+            log.warn("Data normalization failed for data: " + Arrays.toString(data) + " Cause: " + e.getMessage());
+            return vector;
+        }
+    }
+
     private void stopTimer(Context context) {
         if (context != null) {
             context.stop();
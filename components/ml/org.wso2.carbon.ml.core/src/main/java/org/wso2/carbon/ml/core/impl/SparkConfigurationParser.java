@@ -25,7 +25,10 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 
 import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoSerializer;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
 import org.wso2.carbon.ml.core.exceptions.SparkConfigurationParserException;
+import org.wso2.carbon.ml.core.spark.MLKryoRegistrator;
 import org.wso2.carbon.ml.core.spark.SparkProperty;
 import org.wso2.carbon.ml.core.spark.SparkSettings;
 
@@ -54,6 +57,11 @@ public class SparkConfigurationParser {
             for (SparkProperty sparkProperty : sparkSettings.getProperties()) {
                 sparkConf.set(sparkProperty.getName(), sparkProperty.getProperty());
             }
+            // register the ML classes with Kryo, unless another registrator is configured
+            if (KryoSerializer.class.getName().equals(sparkConf.get(MLConstants.SPARK_SERIALIZER, null))
+                    && !sparkConf.contains(MLConstants.SPARK_KRYO_REGISTRATOR)) {
+                sparkConf.set(MLConstants.SPARK_KRYO_REGISTRATOR, MLKryoRegistrator.class.getName());
+            }
             return sparkConf;
         } catch (JAXBException e) {
             throw new SparkConfigurationParserException("An error occurred while parsing: " + sparkConfigXML + ": " +
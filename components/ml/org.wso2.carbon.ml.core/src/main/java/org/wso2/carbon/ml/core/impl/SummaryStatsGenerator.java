@@ -100,6 +100,13 @@ public class SummaryStatsGenerator implements Runnable {
         this.samplePoints.setGenerated(false);
         // extract the sample points and generate summary stats
         try {
+            // the columnar copy of the dataset is stored first, so that the sample is taken from it
+            try {
+                datasetProcessor.storeColumnar();
+            } catch (MLDataProcessingException e) {
+                logger.warn(String.format("Failed to store the columnar copy of dataset version %s: %s",
+                        datasetVersionId, e.getMessage()), e);
+            }
             this.samplePoints = datasetProcessor.takeSample();
             this.samplePoints.setGenerated(true);
             this.headerMap = samplePoints.getHeader();
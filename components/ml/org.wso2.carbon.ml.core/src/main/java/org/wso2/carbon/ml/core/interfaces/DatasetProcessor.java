@@ -70,6 +70,15 @@ public abstract class DatasetProcessor {
      * @throws MLDataProcessingException
      */
     public abstract SamplePoints takeSample() throws MLDataProcessingException;
+
+    /**
+     * Store a columnar copy of the processed dataset for later jobs to read. Dataset processors which support it
+     * override this; by default nothing is stored.
+     *
+     * @throws MLDataProcessingException
+     */
+    public void storeColumnar() throws MLDataProcessingException {
+    }
     
     public void handleValidationException(String msg) throws MLInputValidationException {
         log.error(msg);
@@ -19,9 +19,17 @@ package org.wso2.carbon.ml.core.interfaces;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.spark.api.java.JavaRDD;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
 import org.wso2.carbon.ml.commons.domain.MLModel;
+import org.wso2.carbon.ml.commons.domain.ModelSummary;
 import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+import org.wso2.carbon.ml.core.spark.BuildProgressTracker;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
+import org.wso2.carbon.ml.core.spark.summary.WarmStartMetrics;
+import org.wso2.carbon.ml.core.spark.summary.WarmStartSummary;
+import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 
 /**
  * All Model Builders should extend this class.
@@ -30,6 +38,7 @@ public abstract class MLModelBuilder {
 
     private static final Log log = LogFactory.getLog(MLModelBuilder.class);
     private MLModelConfigurationContext context = null;
+    private BuildProgressTracker progressTracker = null;
 
     public MLModelBuilder(MLModelConfigurationContext context) {
         this.setContext(context);
@@ -46,6 +55,69 @@ public abstract class MLModelBuilder {
         log.error(msg, e);
     }
 
+    /**
+     * @return a persistence manager for the intermediate data of a build, at the configured storage level, reported
+     *         in the progress of the build if it is tracked
+     */
+    protected PersistenceManager newPersistenceManager() {
+        PersistenceManager persistence = new PersistenceManager(context.getSparkContext(), MLCoreServiceValueHolder
+                .getInstance().getStorageLevel(), "Model [id] " + context.getModelId());
+        if (progressTracker != null) {
+            progressTracker.track(persistence);
+        }
+        return persistence;
+    }
+
+    /**
+     * Start a stage of the build, if its progress is tracked.
+     *
+     * @param stage one of the model building stages of {@link org.wso2.carbon.ml.commons.constants.MLConstants}
+     * @throws MLModelBuilderException if the build has been cancelled
+     */
+    protected void startStage(String stage) throws MLModelBuilderException {
+        if (progressTracker != null) {
+            progressTracker.startStage(stage);
+        }
+    }
+
+    /**
+     * Count the rows of the pre-processed data as they are computed, if the progress of the build is tracked.
+     *
+     * @param data pre-processed data
+     * @return the data, to be used in place of the given one
+     */
+    protected <T> JavaRDD<T> countRows(JavaRDD<T> data) {
+        return progressTracker != null ? progressTracker.countRows(data) : data;
+    }
+
+    /**
+     * Compute persisted data ahead of the training stage, rather than by its first training job, so that
+     * pre-processing is timed on its own.
+     *
+     * @param data persisted data the training stage reads
+     */
+    protected void materialize(JavaRDD<?> data) {
+        data.count();
+    }
+
+    /**
+     * Report what warm-starting the build from a previous model saved, if it was warm-started and its training
+     * stage is over.
+     *
+     * @param summary summary of the built model
+     */
+    protected void reportWarmStart(ModelSummary summary) {
+        if (context.getWarmStartModel() == null || !(summary instanceof WarmStartSummary)) {
+            return;
+        }
+        WarmStartSummary warmStartSummary = (WarmStartSummary) summary;
+        Long trainingTime = progressTracker != null ? progressTracker.getProgress().getStageTimes()
+                .get(MLConstants.MODEL_BUILD_STAGE_TRAINING) : null;
+        warmStartSummary.setWarmStartMetrics(new WarmStartMetrics(context.getWarmStartModelId(), warmStartSummary
+                .getIterations(), context.getWarmStartModelIterations(), trainingTime, context
+                .getWarmStartModelTrainingTime()));
+    }
+
     public MLModelConfigurationContext getContext() {
         return context;
     }
@@ -54,4 +126,16 @@ public abstract class MLModelBuilder {
         this.context = context;
     }
 
+    public BuildProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    /**
+     * @param progressTracker tracker of the progress of the build, null for fits that are not builds of their own,
+     *            e.g. the folds of a cross-validation or the candidates of a hyperparameter sweep
+     */
+    public void setProgressTracker(BuildProgressTracker progressTracker) {
+        this.progressTracker = progressTracker;
+    }
+
 }
@@ -17,10 +17,13 @@
  */
 package org.wso2.carbon.ml.core.internal;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
 import java.util.Properties;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.spark.SparkConf;
@@ -35,9 +38,13 @@ import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
 import org.wso2.carbon.ml.commons.constants.MLConstants;
 import org.wso2.carbon.ml.commons.domain.config.MLConfiguration;
+import org.wso2.carbon.ml.core.impl.BuildLeaseManager;
 import org.wso2.carbon.ml.core.impl.H2OConfigurationParser;
 import org.wso2.carbon.ml.core.impl.H2OServer;
+import org.wso2.carbon.ml.core.impl.MLIOFactory;
 import org.wso2.carbon.ml.core.impl.SparkConfigurationParser;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
+import org.wso2.carbon.ml.core.spark.PreprocessedDataCache;
 import org.wso2.carbon.ml.core.utils.BlockingExecutor;
 import org.wso2.carbon.ml.core.utils.ComputeClasspath;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
@@ -61,6 +68,7 @@ import org.wso2.carbon.utils.NetworkUtils;
 public class MLCoreDS {
 
     private static final Log log = LogFactory.getLog(MLCoreDS.class);
+    private static final String SPARK_SCHEDULER_ALLOCATION_FILE = "spark.scheduler.allocation.file";
     private OutputEventAdapterService emailAdapterService;
 
     protected void activate(ComponentContext context) {
@@ -101,7 +109,63 @@ public class MLCoreDS {
                     // use the default
                 }
             }
-            valueHolder.setThreadExecutor(new BlockingExecutor(poolSize, poolQueueSize));
+            int maxRunningPerTenant = BlockingExecutor.getDefaultMaxRunningPerTenant(poolSize);
+            String maxRunningPerTenantStr = mlProperties
+                    .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_THREAD_POOL_TENANT_MAX_RUNNING);
+            if (maxRunningPerTenantStr != null) {
+                try {
+                    maxRunningPerTenant = Math.max(1, Integer.parseInt(maxRunningPerTenantStr));
+                } catch (Exception ignore) {
+                    // use the default
+                }
+            }
+            int highPriorityThreads = BlockingExecutor.getDefaultHighPriorityThreads(poolSize);
+            String highPriorityThreadsStr = mlProperties
+                    .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_THREAD_POOL_HIGH_PRIORITY_THREADS);
+            if (highPriorityThreadsStr != null) {
+                try {
+                    highPriorityThreads = Math.min(poolSize - 1,
+                            Math.max(0, Integer.parseInt(highPriorityThreadsStr)));
+                } catch (Exception ignore) {
+                    // use the default
+                }
+            }
+            BlockingExecutor threadExecutor = new BlockingExecutor(poolSize, poolQueueSize, maxRunningPerTenant,
+                    highPriorityThreads);
+            String tenantWeightsStr = mlProperties
+                    .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_THREAD_POOL_TENANT_WEIGHTS);
+            if (tenantWeightsStr != null && !tenantWeightsStr.trim().isEmpty()) {
+                // comma separated <tenant id>:<weight> pairs
+                for (String tenantWeight : tenantWeightsStr.split(",")) {
+                    String[] pair = tenantWeight.trim().split(":");
+                    try {
+                        threadExecutor.setTenantWeight(Integer.parseInt(pair[0].trim()),
+                                Integer.parseInt(pair[1].trim()));
+                    } catch (Exception e) {
+                        log.warn("Ignoring invalid tenant weight of the ML thread pool: " + tenantWeight);
+                    }
+                }
+            }
+            valueHolder.setThreadExecutor(threadExecutor);
+
+            String sweepParallelismStr = mlProperties
+                    .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_SWEEP_MAX_PARALLELISM);
+            if (sweepParallelismStr != null) {
+                try {
+                    valueHolder.setMaxSweepParallelism(Math.max(1, Integer.parseInt(sweepParallelismStr)));
+                } catch (Exception ignore) {
+                    // use the default
+                }
+            }
+            String sweepCandidatesStr = mlProperties
+                    .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_SWEEP_MAX_CANDIDATES);
+            if (sweepCandidatesStr != null) {
+                try {
+                    valueHolder.setMaxSweepCandidates(Math.max(1, Integer.parseInt(sweepCandidatesStr)));
+                } catch (Exception ignore) {
+                    // use the default
+                }
+            }
 
             // Checks whether ML spark context disabling JVM option is set
             if (System.getProperty(MLConstants.DISABLE_ML_SPARK_CONTEXT_JVM_OPT) != null) {
@@ -135,6 +199,18 @@ public class MLCoreDS {
                         ServerConfiguration.getInstance().getFirstProperty("Ports.Offset"));
                 int sparkUIPort = Integer.parseInt(portOffset) + Integer.parseInt(sparkConf.get("spark.ui.port"));
                 sparkConf.set("spark.ui.port", String.valueOf(sparkUIPort));
+                // weights of the tenants in their spark scheduler pools, unless pools are configured already
+                if (!sparkConf.contains(SPARK_SCHEDULER_ALLOCATION_FILE)) {
+                    try {
+                        File allocations = File.createTempFile("ml-fairscheduler", ".xml");
+                        allocations.deleteOnExit();
+                        FileUtils.writeStringToFile(allocations, threadExecutor.getSchedulerAllocations(),
+                                org.wso2.carbon.ml.core.utils.MLConstants.UTF_8);
+                        sparkConf.set(SPARK_SCHEDULER_ALLOCATION_FILE, allocations.getAbsolutePath());
+                    } catch (IOException e) {
+                        log.warn("Failed to write the spark scheduler pools of the tenants: " + e.getMessage(), e);
+                    }
+                }
                 valueHolder.setSparkConf(sparkConf);
 
                 // create a new java spark context
@@ -145,6 +221,40 @@ public class MLCoreDS {
                         .set("fs.file.impl", org.apache.hadoop.fs.LocalFileSystem.class.getName());
 
                 valueHolder.setSparkContext(sparkContext);
+
+                // cache of pre-processed training data, kept in the dataset storage
+                String cacheSizeStr = mlProperties
+                        .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_PREPROCESSED_DATA_CACHE_SIZE);
+                long cacheSize = 1024;
+                if (cacheSizeStr != null) {
+                    try {
+                        cacheSize = Long.parseLong(cacheSizeStr);
+                    } catch (Exception ignore) {
+                        // use the default
+                    }
+                }
+                if (cacheSize > 0) {
+                    String cacheDirectory = new MLIOFactory(mlProperties)
+                            .getTargetPath(PreprocessedDataCache.DIRECTORY_NAME);
+                    if (!"hdfs".equals(mlConfig.getDatasetStorage().getStorageType())) {
+                        cacheDirectory = new File(cacheDirectory).toURI().toString();
+                    }
+                    valueHolder.setPreprocessedDataCache(new PreprocessedDataCache(cacheDirectory,
+                            cacheSize * 1024 * 1024));
+                }
+
+                valueHolder.setColumnarDatasetStorage(Boolean.parseBoolean(mlProperties
+                        .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_COLUMNAR_DATASET_STORAGE)));
+
+                String storageLevel = mlProperties
+                        .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_STORAGE_LEVEL);
+                if (storageLevel != null) {
+                    try {
+                        valueHolder.setStorageLevel(PersistenceManager.storageLevel(storageLevel.trim()));
+                    } catch (IllegalArgumentException e) {
+                        log.warn(e.getMessage() + ", using " + valueHolder.getStorageLevel().description());
+                    }
+                }
             }
 
             // Retrieving H2O configurations
@@ -195,6 +305,27 @@ public class MLCoreDS {
             // set the ml.url property which will be used to print in the console by the ML jaggery app.
             configContextService.getServerConfigContext().setProperty("ml.url",
                     "https://" + hostName + ":" + (httpsProxyPort != -1 ? httpsProxyPort : httpsPort) + "/ml");
+
+            // recover the builds interrupted by a restart, and claim those of failed nodes
+            if (valueHolder.isSparkContextEnabled()) {
+                String nodeId = mlProperties.getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_NODE_ID);
+                if (nodeId == null || nodeId.trim().isEmpty()) {
+                    nodeId = hostName + ":" + httpsPort;
+                }
+                String leaseDurationStr = mlProperties
+                        .getProperty(org.wso2.carbon.ml.core.utils.MLConstants.ML_BUILD_LEASE_DURATION);
+                int leaseDuration = 60;
+                if (leaseDurationStr != null) {
+                    try {
+                        leaseDuration = Integer.parseInt(leaseDurationStr);
+                    } catch (Exception ignore) {
+                        // use the default
+                    }
+                }
+                BuildLeaseManager buildLeaseManager = new BuildLeaseManager(nodeId.trim(), leaseDuration * 1000L);
+                valueHolder.setBuildLeaseManager(buildLeaseManager);
+                buildLeaseManager.start();
+            }
             
             // ML metrices
             MetricManager.gauge(Level.INFO, "org.wso2.carbon.ml.thread-pool-active-count", activeCountGauge);
@@ -218,7 +349,7 @@ public class MLCoreDS {
         @Override
         public Integer getValue() {
             // Return a value
-            return MLCoreServiceValueHolder.getInstance().getThreadExecutor().getQueue().size();
+            return MLCoreServiceValueHolder.getInstance().getThreadExecutor().getQueueSize();
         }
     };
 
@@ -227,6 +358,9 @@ public class MLCoreDS {
         if (emailAdapterService != null) {
             emailAdapterService.destroy("TestEmailAdapter");
         }
+        if (MLCoreServiceValueHolder.getInstance().getBuildLeaseManager() != null) {
+            MLCoreServiceValueHolder.getInstance().getBuildLeaseManager().stop();
+        }
         if (MLCoreServiceValueHolder.getInstance().getSparkContext() != null) {
             MLCoreServiceValueHolder.getInstance().getSparkContext().close();
         }
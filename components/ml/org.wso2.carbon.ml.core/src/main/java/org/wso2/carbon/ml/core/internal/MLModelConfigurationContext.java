@@ -24,6 +24,7 @@ import java.util.SortedMap;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.wso2.carbon.ml.commons.domain.MLModel;
 import org.wso2.carbon.ml.commons.domain.MLModelData;
 import org.wso2.carbon.ml.commons.domain.Workflow;
 
@@ -33,6 +34,7 @@ import org.wso2.carbon.ml.commons.domain.Workflow;
 public class MLModelConfigurationContext {
 
     private long modelId;
+    private long datasetVersionId;
     private MLModelData model;
     private Workflow facts;
     private JavaSparkContext sparkContext;
@@ -58,6 +60,25 @@ public class MLModelConfigurationContext {
      * Value - feature name
      */
     private SortedMap<Integer,String> includedFeaturesMap;
+    /**
+     * Whether the pre-processed training data was read from the
+     * {@link org.wso2.carbon.ml.core.spark.PreprocessedDataCache}
+     */
+    private boolean preprocessedDataCacheHit;
+    /**
+     * Path of the {@link org.wso2.carbon.ml.core.spark.ColumnarDataset} copy of the dataset, null if there is none
+     */
+    private String columnarDatasetPath;
+    /**
+     * Built model whose parameters the build starts from, null to build from scratch
+     */
+    private MLModel warmStartModel;
+    private long warmStartModelId;
+    /**
+     * Number of iterations and milliseconds of training of the build of the warm-start model, null if not known
+     */
+    private Integer warmStartModelIterations;
+    private Long warmStartModelTrainingTime;
     
     public long getModelId() {
         return modelId;
@@ -65,6 +86,12 @@ public class MLModelConfigurationContext {
     public void setModelId(long modelId) {
         this.modelId = modelId;
     }
+    public long getDatasetVersionId() {
+        return datasetVersionId;
+    }
+    public void setDatasetVersionId(long datasetVersionId) {
+        this.datasetVersionId = datasetVersionId;
+    }
     public Workflow getFacts() {
         return facts;
     }
@@ -142,4 +169,40 @@ public class MLModelConfigurationContext {
     public void setResponseIndex(int responseIndex) {
         this.responseIndex = responseIndex;
     }
+    public boolean isPreprocessedDataCacheHit() {
+        return preprocessedDataCacheHit;
+    }
+    public void setPreprocessedDataCacheHit(boolean preprocessedDataCacheHit) {
+        this.preprocessedDataCacheHit = preprocessedDataCacheHit;
+    }
+    public String getColumnarDatasetPath() {
+        return columnarDatasetPath;
+    }
+    public void setColumnarDatasetPath(String columnarDatasetPath) {
+        this.columnarDatasetPath = columnarDatasetPath;
+    }
+    public MLModel getWarmStartModel() {
+        return warmStartModel;
+    }
+    public void setWarmStartModel(MLModel warmStartModel) {
+        this.warmStartModel = warmStartModel;
+    }
+    public long getWarmStartModelId() {
+        return warmStartModelId;
+    }
+    public void setWarmStartModelId(long warmStartModelId) {
+        this.warmStartModelId = warmStartModelId;
+    }
+    public Integer getWarmStartModelIterations() {
+        return warmStartModelIterations;
+    }
+    public void setWarmStartModelIterations(Integer warmStartModelIterations) {
+        this.warmStartModelIterations = warmStartModelIterations;
+    }
+    public Long getWarmStartModelTrainingTime() {
+        return warmStartModelTrainingTime;
+    }
+    public void setWarmStartModelTrainingTime(Long warmStartModelTrainingTime) {
+        this.warmStartModelTrainingTime = warmStartModelTrainingTime;
+    }
 }
@@ -0,0 +1,469 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.spark.Accumulable;
+import org.apache.spark.AccumulableParam;
+import org.apache.spark.SparkJobInfo;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function2;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer.Context;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.commons.domain.MLModelBuildProgress;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+import org.wso2.carbon.ml.database.DatabaseService;
+import org.wso2.carbon.ml.database.exceptions.DatabaseHandlerException;
+
+import scala.Tuple2;
+import water.Job;
+
+/**
+ * Tracks a model build through its stages: pre-processing, training, evaluation and persisting. The time spent in
+ * each stage is recorded in a timer per algorithm and stage, the Spark jobs of the build are tagged with a job group
+ * of the model so that their job and stage ids can be looked up, and the rows of the pre-processed data are counted
+ * as they are computed. The progress is saved to the database whenever a stage starts and when the build ends, outside
+ * the lock of the tracker so that a slow database holds up neither cancellation nor progress requests. The bytes the
+ * persisted intermediate data of the build took and the partitions of it that were recomputed are reported as their
+ * RDDs are released.
+ * <p>
+ * A build is cancelled by cancelling its job group, with its tasks interrupted, and its H2O job, if any. The build
+ * then fails at its next spark job, or at the start of its next stage at the latest.
+ */
+public class BuildProgressTracker {
+
+    private static final Log log = LogFactory.getLog(BuildProgressTracker.class);
+    private static final String STAGE_TIMER = "org.wso2.carbon.ml.model-building-stage-time.";
+
+    private final long modelId;
+    private final String algorithmName;
+    private final JavaSparkContext sparkContext;
+    private final DatabaseService databaseService;
+    private final String jobGroup;
+    private final Accumulable<HashMap<Long, Long>, Tuple2<Long, Long>> rows;
+    private final Object saveLock = new Object();
+    private final Stages stages = new Stages();
+    // ids seen so far, as spark only retains the most recent jobs and stages
+    private final TreeSet<Integer> jobIds = new TreeSet<Integer>();
+    private final TreeSet<Integer> stageIds = new TreeSet<Integer>();
+    private final List<PersistenceManager> persistenceManagers = new ArrayList<PersistenceManager>();
+    private int percentage;
+    private Context stageTimer;
+    private Thread buildThread;
+    private Job<?> h2oJob;
+    // sequence of the progress snapshots, guarded by this
+    private long snapshots;
+    // sequence of the last saved snapshot, guarded by saveLock
+    private long savedSnapshot = -1;
+
+    /**
+     * @param modelId id of the model being built
+     * @param algorithmName algorithm of the model, to name the stage timers by
+     * @param sparkContext spark context of the build
+     * @param databaseService database service to save the progress with
+     */
+    public BuildProgressTracker(long modelId, String algorithmName, JavaSparkContext sparkContext,
+            DatabaseService databaseService) {
+        this.modelId = modelId;
+        this.algorithmName = algorithmName;
+        this.sparkContext = sparkContext;
+        this.databaseService = databaseService;
+        this.jobGroup = jobGroup(modelId);
+        this.rows = sparkContext.accumulable(new HashMap<Long, Long>(), new RowCounts());
+    }
+
+    /**
+     * @param modelId id of a model
+     * @return the spark job group the jobs of the build of the model are tagged with
+     */
+    public static String jobGroup(long modelId) {
+        return "ml.model." + modelId;
+    }
+
+    /**
+     * Tag the spark jobs submitted from the calling thread, and from the threads it starts, with the job group of the
+     * model, and start pre-processing.
+     *
+     * @throws MLModelBuilderException if the build has been cancelled
+     */
+    public void start() throws MLModelBuilderException {
+        buildThread = Thread.currentThread();
+        sparkContext.setJobGroup(jobGroup, "Model [id] " + modelId, true);
+        startStage(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING);
+    }
+
+    /**
+     * End the current stage, if any, and start the given one.
+     *
+     * @param stage one of the model building stages of {@link MLConstants}
+     * @throws MLModelBuilderException if the build has been cancelled
+     */
+    public void startStage(String stage) throws MLModelBuilderException {
+        MLModelBuildProgress progress;
+        long snapshot;
+        synchronized (this) {
+            endStage();
+            if (!stages.start(stage, System.currentTimeMillis())) {
+                throw new MLModelBuilderException("Build of model [id] " + modelId + " was cancelled.");
+            }
+            this.percentage = percentage(stage);
+            stageTimer = MetricManager.timer(Level.INFO, STAGE_TIMER + algorithmName + "." + stage.toLowerCase())
+                    .start();
+            progress = getProgress();
+            snapshot = snapshots++;
+        }
+        save(progress, snapshot);
+    }
+
+    /**
+     * End the current stage and save the final progress of the build. If called from the thread the build was started
+     * from, the thread is untagged.
+     *
+     * @param status final status of the build, e.g. {@link MLConstants#MODEL_STATUS_COMPLETE}
+     */
+    public void finish(String status) {
+        MLModelBuildProgress progress;
+        long snapshot;
+        synchronized (this) {
+            endStage();
+            stages.finish(status, System.currentTimeMillis());
+            if (MLConstants.MODEL_STATUS_COMPLETE.equals(status)) {
+                percentage = 100;
+            }
+            progress = getProgress();
+            snapshot = snapshots++;
+        }
+        save(progress, snapshot);
+        log.info(String.format("Model [id] %s: %s after %s rows, stage times %s ms, spark jobs %s.", modelId, status,
+                progress.getRowsProcessed(), progress.getStageTimes(), progress.getSparkJobIds()));
+        if (Thread.currentThread() == buildThread) {
+            sparkContext.clearJobGroup();
+        }
+    }
+
+    /**
+     * Cancel the build: its running spark jobs and H2O job are cancelled and it fails at the start of its next stage.
+     *
+     * @return whether the build was cancelled, false if it has been cancelled already or has ended
+     */
+    public synchronized boolean cancel() {
+        if (!stages.cancel()) {
+            return false;
+        }
+        sparkContext.cancelJobGroup(jobGroup);
+        if (h2oJob != null) {
+            h2oJob.cancel();
+        }
+        log.info(String.format("Cancelled the spark jobs%s of model [id] %s.", h2oJob != null ? " and H2O job "
+                + h2oJob._key : "", modelId));
+        return true;
+    }
+
+    /**
+     * @return whether the build has been cancelled
+     */
+    public synchronized boolean isCancelled() {
+        return stages.isCancelled();
+    }
+
+    /**
+     * Register the H2O job of the build, to be cancelled with it.
+     *
+     * @param job H2O job training the model
+     */
+    public synchronized void setH2OJob(Job<?> job) {
+        h2oJob = job;
+        if (stages.isCancelled()) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Report what the given persistence manager cached and recomputed in the progress of the build.
+     *
+     * @param persistence persistence manager of the intermediate data of the build
+     */
+    public synchronized void track(PersistenceManager persistence) {
+        persistenceManagers.add(persistence);
+    }
+
+    /**
+     * Count the rows of the given data as they are computed. Each partition is counted once, however many times it is
+     * computed, e.g. when its cached blocks are evicted, its task is retried or the folds of a cross-validation read
+     * it again. A task reports the count of its partition when it ends rather than per row, so the count grows by
+     * partitions and costs the driver one update per task.
+     *
+     * @param data data to count the rows of, usually the pre-processed data
+     * @return the data, to be used in place of the given one
+     */
+    public <T> JavaRDD<T> countRows(JavaRDD<T> data) {
+        return data.mapPartitionsWithIndex(new CountRows<T>(rows, data.id()), true);
+    }
+
+    /**
+     * @return the progress of the build so far
+     */
+    public synchronized MLModelBuildProgress getProgress() {
+        MLModelBuildProgress progress = new MLModelBuildProgress();
+        progress.setModelId(modelId);
+        progress.setStage(stages.getStage());
+        progress.setPercentage(percentage);
+        progress.setRowsProcessed(RowCounts.total(rows.value()));
+        progress.setStageTimes(stages.getTimes(System.currentTimeMillis()));
+        long cachedBytes = 0;
+        long recomputations = 0;
+        for (PersistenceManager persistence : persistenceManagers) {
+            cachedBytes += persistence.getCachedBytes();
+            recomputations += persistence.getRecomputations();
+        }
+        progress.setCachedBytes(cachedBytes);
+        progress.setRecomputedPartitions(recomputations);
+        updateSparkIds();
+        progress.setSparkJobIds(new ArrayList<Integer>(jobIds));
+        progress.setSparkStageIds(new ArrayList<Integer>(stageIds));
+        return progress;
+    }
+
+    private void endStage() {
+        if (stageTimer != null) {
+            stageTimer.stop();
+            stageTimer = null;
+        }
+        stages.end(System.currentTimeMillis());
+    }
+
+    private void save(MLModelBuildProgress progress, long snapshot) {
+        synchronized (saveLock) {
+            // a later snapshot has been saved already
+            if (snapshot < savedSnapshot) {
+                return;
+            }
+            savedSnapshot = snapshot;
+            try {
+                databaseService.updateModelProgress(modelId, progress);
+            } catch (DatabaseHandlerException e) {
+                // the build carries on without its progress being saved
+                log.warn(String.format("Failed to save the progress of model [id] %s: %s", modelId, e.getMessage()),
+                        e);
+            }
+        }
+    }
+
+    private void updateSparkIds() {
+        for (int jobId : sparkContext.statusTracker().getJobIdsForGroup(jobGroup)) {
+            jobIds.add(jobId);
+            SparkJobInfo jobInfo = sparkContext.statusTracker().getJobInfo(jobId);
+            if (jobInfo != null) {
+                for (int stageId : jobInfo.stageIds()) {
+                    stageIds.add(stageId);
+                }
+            }
+        }
+    }
+
+    private static int percentage(String stage) {
+        if (MLConstants.MODEL_BUILD_STAGE_TRAINING.equals(stage)) {
+            return 20;
+        } else if (MLConstants.MODEL_BUILD_STAGE_EVALUATION.equals(stage)) {
+            return 70;
+        } else if (MLConstants.MODEL_BUILD_STAGE_PERSISTING.equals(stage)) {
+            return 90;
+        }
+        return 0;
+    }
+
+    /**
+     * The stages a build went through and the time spent in each, and whether it was cancelled or has ended.
+     */
+    static class Stages {
+
+        private final Map<String, Long> times = new LinkedHashMap<String, Long>();
+        private String stage = MLConstants.MODEL_STATUS_NOT_STARTED;
+        private long startTime = -1;
+        private boolean cancelled;
+        private boolean ended;
+
+        /**
+         * End the current stage, if any, and start the given one, unless the build has been cancelled.
+         *
+         * @return whether the stage was started
+         */
+        boolean start(String stage, long time) {
+            if (cancelled) {
+                return false;
+            }
+            end(time);
+            this.stage = stage;
+            startTime = time;
+            return true;
+        }
+
+        /**
+         * End the current stage, if any.
+         */
+        void end(long time) {
+            if (startTime < 0) {
+                return;
+            }
+            Long previous = times.get(stage);
+            times.put(stage, (previous == null ? 0 : previous) + time - startTime);
+            startTime = -1;
+        }
+
+        /**
+         * End the build with the given status.
+         */
+        void finish(String status, long time) {
+            end(time);
+            stage = status;
+            ended = true;
+        }
+
+        /**
+         * @return whether the build was cancelled, false if it has been cancelled already or has ended
+         */
+        boolean cancel() {
+            if (cancelled || ended) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        String getStage() {
+            return stage;
+        }
+
+        /**
+         * @return time spent in each stage so far, including the current one
+         */
+        Map<String, Long> getTimes(long time) {
+            Map<String, Long> stageTimes = new LinkedHashMap<String, Long>(times);
+            if (startTime >= 0) {
+                Long previous = stageTimes.get(stage);
+                stageTimes.put(stage, (previous == null ? 0 : previous) + time - startTime);
+            }
+            return stageTimes;
+        }
+    }
+
+    /**
+     * Rows counted per partition of the counted data, so that a partition computed again replaces its count.
+     */
+    static class RowCounts implements AccumulableParam<HashMap<Long, Long>, Tuple2<Long, Long>> {
+
+        private static final long serialVersionUID = 4404880313547224364L;
+
+        /**
+         * @return key of the given partition of an RDD
+         */
+        static long partition(int rddId, int partition) {
+            return ((long) rddId << 32) | partition;
+        }
+
+        /**
+         * @return number of rows of the counted partitions
+         */
+        static long total(Map<Long, Long> counts) {
+            long total = 0;
+            for (long count : counts.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public HashMap<Long, Long> addAccumulator(HashMap<Long, Long> counts, Tuple2<Long, Long> count) {
+            counts.put(count._1(), count._2());
+            return counts;
+        }
+
+        @Override
+        public HashMap<Long, Long> addInPlace(HashMap<Long, Long> counts, HashMap<Long, Long> other) {
+            // a new map, as the progress of the build reads the counts while tasks end
+            HashMap<Long, Long> merged = new HashMap<Long, Long>(counts);
+            merged.putAll(other);
+            return merged;
+        }
+
+        @Override
+        public HashMap<Long, Long> zero(HashMap<Long, Long> counts) {
+            return new HashMap<Long, Long>();
+        }
+    }
+
+    /**
+     * Passes the records of a partition through, counting them.
+     */
+    private static class CountRows<T> implements Function2<Integer, Iterator<T>, Iterator<T>> {
+
+        private static final long serialVersionUID = -7218372290471845203L;
+        private final Accumulable<HashMap<Long, Long>, Tuple2<Long, Long>> rows;
+        private final int rddId;
+
+        private CountRows(Accumulable<HashMap<Long, Long>, Tuple2<Long, Long>> rows, int rddId) {
+            this.rows = rows;
+            this.rddId = rddId;
+        }
+
+        @Override
+        public Iterator<T> call(final Integer partition, final Iterator<T> records) {
+            return new Iterator<T>() {
+                private long count;
+                private boolean counted;
+
+                @Override
+                public boolean hasNext() {
+                    boolean hasNext = records.hasNext();
+                    if (!hasNext && !counted) {
+                        rows.add(new Tuple2<Long, Long>(RowCounts.partition(rddId, partition), count));
+                        counted = true;
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public T next() {
+                    count++;
+                    return records.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
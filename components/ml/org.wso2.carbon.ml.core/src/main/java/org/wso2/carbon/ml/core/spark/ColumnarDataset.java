@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.DataFrame;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.SaveMode;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.wso2.carbon.ml.core.exceptions.MLDataProcessingException;
+import org.wso2.carbon.ml.core.spark.transformations.HeaderFilter;
+import org.wso2.carbon.ml.core.spark.transformations.LineToTokens;
+
+/**
+ * Columnar, typed copy of a CSV/TSV dataset, stored as Parquet next to the dataset. Jobs reading it only read the
+ * columns they need, and get numbers without parsing text.
+ * <p>
+ * A column is stored as longs or doubles only if every value in it reads back as the same text, so that categorical
+ * values keep their encodings; otherwise it is stored as strings. Empty values of number columns are stored as nulls.
+ * Columns are named by their index (c0, c1, ...), and the header line is not stored.
+ */
+public class ColumnarDataset {
+
+    public static final String PATH_SUFFIX = ".parquet";
+
+    private static final Log log = LogFactory.getLog(ColumnarDataset.class);
+    private static final String SUCCESS_MARKER = "_SUCCESS";
+    private static final String COLUMN_PREFIX = "c";
+
+    // column types, a column takes the type of its values if they all have the same one
+    static final int EMPTY = 0;
+    static final int LONG = 1;
+    static final int DOUBLE = 2;
+    static final int STRING = 3;
+
+    private ColumnarDataset() {
+    }
+
+    /**
+     * @param datasetPath path of a CSV/TSV dataset
+     * @return path of the columnar copy of the dataset
+     */
+    public static String getPath(String datasetPath) {
+        return datasetPath + PATH_SUFFIX;
+    }
+
+    /**
+     * @param sparkContext spark context whose Hadoop configuration is used
+     * @param columnarPath path of a columnar dataset
+     * @return whether the columnar dataset has been completely written
+     */
+    public static boolean exists(JavaSparkContext sparkContext, String columnarPath) {
+        Path path = new Path(columnarPath);
+        try {
+            FileSystem fileSystem = FileSystem.get(path.toUri(), sparkContext.hadoopConfiguration());
+            return fileSystem.exists(new Path(path, SUCCESS_MARKER));
+        } catch (IOException e) {
+            log.warn(String.format("Failed to look up the columnar dataset %s: %s", columnarPath, e.getMessage()), e);
+            return false;
+        }
+    }
+
+    /**
+     * Write the columnar copy of a dataset to {@link #getPath(String)}, replacing any earlier attempt. The dataset is
+     * read twice: once to find the type of each column and once to write it.
+     *
+     * @param sparkContext spark context to run the conversion with
+     * @param datasetPath path of the CSV/TSV dataset
+     * @param columnSeparator column separator of the dataset
+     * @param containsHeader whether the first line of the dataset is a header
+     * @throws MLDataProcessingException if the dataset cannot be converted
+     */
+    public static void write(JavaSparkContext sparkContext, String datasetPath, String columnSeparator,
+            boolean containsHeader) throws MLDataProcessingException {
+        JavaRDD<String[]> tokens = null;
+        try {
+            JavaRDD<String> lines = sparkContext.textFile(datasetPath);
+            if (containsHeader) {
+                lines = lines.filter(new HeaderFilter.Builder().header(lines.first()).build());
+            }
+            tokens = lines.map(new LineToTokens.Builder().separator(columnSeparator).build()).cache();
+            int[] types = tokens.aggregate(new int[0], new AddRowTypes(), new MergeColumnTypes());
+
+            List<StructField> fields = new ArrayList<StructField>();
+            for (int i = 0; i < types.length; i++) {
+                fields.add(DataTypes.createStructField(COLUMN_PREFIX + i, toDataType(types[i]), true));
+            }
+            JavaRDD<Row> rows = tokens.map(new TokensToRow(types));
+            String columnarPath = getPath(datasetPath);
+            new SQLContext(sparkContext).createDataFrame(rows, DataTypes.createStructType(fields)).write()
+                    .mode(SaveMode.Overwrite).parquet(columnarPath);
+            log.info(String.format("Columnar dataset %s written with column types %s", columnarPath,
+                    Arrays.toString(types)));
+        } catch (Exception e) {
+            throw new MLDataProcessingException(String.format("Failed to write the columnar copy of the dataset %s: %s",
+                    datasetPath, e.getMessage()), e);
+        } finally {
+            if (tokens != null) {
+                tokens.unpersist();
+            }
+        }
+    }
+
+    /**
+     * Read some columns of a columnar dataset. Only those columns are read from storage.
+     *
+     * @param sparkContext spark context to read the dataset with
+     * @param columnarPath path of the columnar dataset
+     * @param columns indices of the columns to read
+     * @return rows holding the given columns, in the given order
+     */
+    public static JavaRDD<Row> read(JavaSparkContext sparkContext, String columnarPath, int[] columns) {
+        DataFrame dataFrame = new SQLContext(sparkContext).read().parquet(columnarPath);
+        Column[] selected = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            selected[i] = dataFrame.col(COLUMN_PREFIX + columns[i]);
+        }
+        return dataFrame.select(selected).javaRDD();
+    }
+
+    /**
+     * Take a random sample of the rows of a columnar dataset.
+     *
+     * @param sparkContext spark context to read the dataset with
+     * @param columnarPath path of the columnar dataset
+     * @param size number of rows to take
+     * @return the values of the sampled rows as text, as they were read from the CSV/TSV dataset
+     */
+    public static List<String[]> takeSample(JavaSparkContext sparkContext, String columnarPath, int size) {
+        List<Row> rows = new SQLContext(sparkContext).read().parquet(columnarPath).javaRDD().takeSample(false, size);
+        List<String[]> sample = new ArrayList<String[]>(rows.size());
+        for (Row row : rows) {
+            String[] tokens = new String[row.length()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = toToken(row.get(i));
+            }
+            sample.add(tokens);
+        }
+        return sample;
+    }
+
+    /**
+     * @param value value of a columnar dataset
+     * @return the text the value was read from
+     */
+    public static String toToken(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * @return type of a value, {@link #LONG} or {@link #DOUBLE} only if the number reads back as the same text
+     */
+    static int typeOf(String token) {
+        if (token == null || token.isEmpty()) {
+            return EMPTY;
+        }
+        char first = token.charAt(0);
+        if (first != '-' && first != 'N' && first != 'I' && (first < '0' || first > '9')) {
+            // cannot be a number
+            return STRING;
+        }
+        try {
+            if (Long.toString(Long.parseLong(token)).equals(token)) {
+                return LONG;
+            }
+        } catch (NumberFormatException ignored) {
+            // not a long
+        }
+        try {
+            if (Double.toString(Double.parseDouble(token)).equals(token)) {
+                return DOUBLE;
+            }
+        } catch (NumberFormatException ignored) {
+            // not a double
+        }
+        return STRING;
+    }
+
+    /**
+     * @return type of a column holding values of both types
+     */
+    static int mergeTypes(int type1, int type2) {
+        if (type1 == type2 || type2 == EMPTY) {
+            return type1;
+        }
+        if (type1 == EMPTY) {
+            return type2;
+        }
+        // longs and doubles do not share a text form, e.g. 1 would read back as 1.0
+        return STRING;
+    }
+
+    private static DataType toDataType(int type) {
+        switch (type) {
+        case LONG:
+            return DataTypes.LongType;
+        case DOUBLE:
+            return DataTypes.DoubleType;
+        default:
+            return DataTypes.StringType;
+        }
+    }
+
+    /**
+     * Merges the types of the values of a row into the column types found so far.
+     */
+    static class AddRowTypes implements Function2<int[], String[], int[]> {
+
+        private static final long serialVersionUID = 6131942530921770329L;
+
+        @Override
+        public int[] call(int[] types, String[] tokens) {
+            int[] merged = types.length < tokens.length ? Arrays.copyOf(types, tokens.length) : types;
+            for (int i = 0; i < tokens.length; i++) {
+                merged[i] = mergeTypes(merged[i], typeOf(tokens[i]));
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Merges the column types of two partitions.
+     */
+    static class MergeColumnTypes implements Function2<int[], int[], int[]> {
+
+        private static final long serialVersionUID = -3265227164713425716L;
+
+        @Override
+        public int[] call(int[] types1, int[] types2) {
+            int[] merged = Arrays.copyOf(types1, Math.max(types1.length, types2.length));
+            for (int i = 0; i < types2.length; i++) {
+                merged[i] = mergeTypes(merged[i], types2[i]);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Decodes the values of a row into the column types, missing values of short rows being nulls.
+     */
+    static class TokensToRow implements Function<String[], Row> {
+
+        private static final long serialVersionUID = -8402741535829173626L;
+        private final int[] types;
+
+        TokensToRow(int[] types) {
+            this.types = types;
+        }
+
+        @Override
+        public Row call(String[] tokens) {
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length && i < tokens.length; i++) {
+                String token = tokens[i];
+                if (types[i] == STRING) {
+                    values[i] = token;
+                } else if (token != null && !token.isEmpty()) {
+                    // not a conditional expression, which would turn longs into doubles
+                    if (types[i] == LONG) {
+                        values[i] = Long.valueOf(token);
+                    } else {
+                        values[i] = Double.valueOf(token);
+                    }
+                }
+            }
+            return RowFactory.create(values);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.apache.spark.mllib.linalg.DenseVector;
+import org.apache.spark.mllib.linalg.SparseVector;
+import org.apache.spark.mllib.recommendation.Rating;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.apache.spark.serializer.KryoRegistrator;
+import org.wso2.carbon.ml.commons.domain.ClusterPoint;
+import org.wso2.carbon.ml.core.spark.algorithms.EvaluationMetrics;
+import org.wso2.carbon.ml.core.spark.models.MLAnomalyDetectionModel;
+import org.wso2.carbon.ml.core.spark.models.MLClassificationModel;
+import org.wso2.carbon.ml.core.spark.models.MLDecisionTreeModel;
+import org.wso2.carbon.ml.core.spark.models.MLDeeplearningModel;
+import org.wso2.carbon.ml.core.spark.models.MLGeneralizedLinearModel;
+import org.wso2.carbon.ml.core.spark.models.MLKMeansModel;
+import org.wso2.carbon.ml.core.spark.models.MLMatrixFactorizationModel;
+import org.wso2.carbon.ml.core.spark.models.MLRandomForestModel;
+import org.wso2.carbon.ml.core.spark.models.ext.AnomalyDetectionModel;
+import org.wso2.carbon.ml.core.spark.models.ext.CentroidIndex;
+import org.wso2.carbon.ml.core.spark.recommendation.BlockedTopKScorer;
+import org.wso2.carbon.ml.core.spark.recommendation.FactorStore;
+import org.wso2.carbon.ml.core.spark.recommendation.IdIndex;
+import org.wso2.carbon.ml.core.spark.recommendation.MipsIndex;
+import org.wso2.carbon.ml.core.spark.recommendation.RecommendationEvaluator;
+import org.wso2.carbon.ml.core.spark.recommendation.RecommendationMetrics;
+import org.wso2.carbon.ml.core.spark.summary.PredictedVsActual;
+import org.wso2.carbon.ml.core.spark.summary.TestResultDataPoint;
+import org.wso2.carbon.ml.core.spark.transformations.AnomalyRowsFilter;
+import org.wso2.carbon.ml.core.spark.transformations.AssignFolds;
+import org.wso2.carbon.ml.core.spark.transformations.BasicEncoder;
+import org.wso2.carbon.ml.core.spark.transformations.DiscardedRowsFilter;
+import org.wso2.carbon.ml.core.spark.transformations.DoubleArrayToLabeledPoint;
+import org.wso2.carbon.ml.core.spark.transformations.DoubleArrayToVector;
+import org.wso2.carbon.ml.core.spark.transformations.FactorsToMetrics;
+import org.wso2.carbon.ml.core.spark.transformations.FactorsToRecommendations;
+import org.wso2.carbon.ml.core.spark.transformations.FactorsToTopN;
+import org.wso2.carbon.ml.core.spark.transformations.FoldFilter;
+import org.wso2.carbon.ml.core.spark.transformations.HeaderFilter;
+import org.wso2.carbon.ml.core.spark.transformations.ImplicitDataToRating;
+import org.wso2.carbon.ml.core.spark.transformations.LineToTokens;
+import org.wso2.carbon.ml.core.spark.transformations.LinesToLabeledPoints;
+import org.wso2.carbon.ml.core.spark.transformations.LinesToVectors;
+import org.wso2.carbon.ml.core.spark.transformations.MeanImputation;
+import org.wso2.carbon.ml.core.spark.transformations.MissingValuesFilter;
+import org.wso2.carbon.ml.core.spark.transformations.NormalRowsFilter;
+import org.wso2.carbon.ml.core.spark.transformations.Normalization;
+import org.wso2.carbon.ml.core.spark.transformations.RemoveDiscardedFeatures;
+import org.wso2.carbon.ml.core.spark.transformations.RemoveResponseColumn;
+import org.wso2.carbon.ml.core.spark.transformations.RowTransformer;
+import org.wso2.carbon.ml.core.spark.transformations.RowsToLabeledPoints;
+import org.wso2.carbon.ml.core.spark.transformations.RowsToLines;
+import org.wso2.carbon.ml.core.spark.transformations.RowsToVectors;
+import org.wso2.carbon.ml.core.spark.transformations.StringArrayToDoubleArray;
+import org.wso2.carbon.ml.core.spark.transformations.StringArrayToRating;
+import org.wso2.carbon.ml.core.spark.transformations.TokensToVectors;
+import org.wso2.carbon.ml.core.spark.transformations.VectorToCentroidAssignment;
+import org.wso2.carbon.ml.core.utils.LineTokenizer;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+
+/**
+ * Registers the classes of ML which Spark serializes with Kryo, i.e. cached and shuffled records, task results and
+ * broadcast values, so that Kryo writes a registration id instead of the class name with every object. Classes are
+ * registered in a fixed order, since the ids have to match on the driver and the executors.
+ * <p>
+ * Spark serializes the transformations themselves with Java serialization, as part of the task closures. They are
+ * registered for when they are broadcast or kept in records, e.g. a {@link RowTransformer}.
+ */
+public class MLKryoRegistrator implements KryoRegistrator {
+
+    /**
+     * Records of the RDDs of model builds, results collected from them and broadcast values.
+     */
+    static final Class<?>[] DATA_CLASSES = { LabeledPoint.class, DenseVector.class, SparseVector.class,
+            Rating.class, double[].class, int[].class, long[].class, boolean[].class, String[].class, String[][].class,
+            Object[].class, ArrayList.class, HashMap.class, ClusterPoint.class, PredictedVsActual.class,
+            TestResultDataPoint.class, CentroidIndex.class, CentroidIndex.Assignment.class,
+            AnomalyDetectionModel.class, IdIndex.class, BlockedTopKScorer.class, MipsIndex.class, FactorStore.class,
+            RecommendationEvaluator.class, RecommendationMetrics.class, EvaluationMetrics.class };
+
+    static final Class<?>[] TRANSFORMATION_CLASSES = { AnomalyRowsFilter.class, AssignFolds.class,
+            BasicEncoder.class, DiscardedRowsFilter.class, DoubleArrayToLabeledPoint.class, DoubleArrayToVector.class,
+            FactorsToMetrics.class, FactorsToRecommendations.class, FactorsToTopN.class, FoldFilter.class,
+            HeaderFilter.class, ImplicitDataToRating.class, LineTokenizer.class, LineToTokens.class,
+            LinesToLabeledPoints.class, LinesToVectors.class, MeanImputation.class, MissingValuesFilter.class,
+            NormalRowsFilter.class, Normalization.class, RemoveDiscardedFeatures.class, RemoveResponseColumn.class,
+            RowTransformer.class, RowsToLabeledPoints.class, RowsToLines.class, RowsToVectors.class,
+            StringArrayToDoubleArray.class, StringArrayToRating.class, TokensToVectors.class,
+            VectorToCentroidAssignment.class };
+
+    /**
+     * Deployable models, which are Externalizable and keep their own wire format.
+     */
+    static final Class<?>[] MODEL_CLASSES = { MLAnomalyDetectionModel.class, MLClassificationModel.class,
+            MLDecisionTreeModel.class, MLDeeplearningModel.class, MLGeneralizedLinearModel.class, MLKMeansModel.class,
+            MLMatrixFactorizationModel.class, MLRandomForestModel.class };
+
+    @Override
+    public void registerClasses(Kryo kryo) {
+        for (Class<?> type : DATA_CLASSES) {
+            kryo.register(type);
+        }
+        for (Class<?> type : TRANSFORMATION_CLASSES) {
+            kryo.register(type);
+        }
+        JavaSerializer javaSerializer = new JavaSerializer();
+        for (Class<?> type : MODEL_CLASSES) {
+            kryo.register(type, javaSerializer);
+        }
+    }
+}
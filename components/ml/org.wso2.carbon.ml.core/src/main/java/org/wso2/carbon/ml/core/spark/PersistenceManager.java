@@ -0,0 +1,179 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.spark.Accumulator;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.storage.RDDInfo;
+import org.apache.spark.storage.StorageLevel;
+
+/**
+ * Persists the intermediate RDDs of a model build that are read more than once, at a configured storage level, and
+ * releases them once their last consumer has run. It also reports, per build, the bytes each RDD took in the block
+ * store and how many of its partitions were recomputed, i.e. computed again after being evicted or lost.
+ */
+public class PersistenceManager {
+
+    private static final Log log = LogFactory.getLog(PersistenceManager.class);
+
+    private final JavaSparkContext sparkContext;
+    private final StorageLevel storageLevel;
+    private final String buildName;
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+    private long cachedBytes;
+    private long recomputations;
+
+    /**
+     * @param sparkContext spark context of the build
+     * @param storageLevel storage level to persist at
+     * @param buildName name of the build in the report, e.g. "model [id] 1"
+     */
+    public PersistenceManager(JavaSparkContext sparkContext, StorageLevel storageLevel, String buildName) {
+        this.sparkContext = sparkContext;
+        this.storageLevel = storageLevel;
+        this.buildName = buildName;
+    }
+
+    /**
+     * Persist an RDD until it is released.
+     *
+     * @param name name of the RDD, unique within the build
+     * @param rdd RDD to persist
+     * @return the persisted RDD, to be used in place of the given one
+     */
+    public synchronized <T> JavaRDD<T> persist(String name, JavaRDD<T> rdd) {
+        release(name);
+        Accumulator<Integer> computations = sparkContext.accumulator(0);
+        JavaRDD<T> persisted = rdd.mapPartitions(new CountComputations<T>(computations), true).persist(storageLevel);
+        persisted.setName(buildName + " " + name);
+        entries.put(name, new Entry(persisted, computations));
+        return persisted;
+    }
+
+    /**
+     * Unpersist an RDD after its last consumer has run, and record what it cost.
+     *
+     * @param name name the RDD was persisted with
+     */
+    public synchronized void release(String name) {
+        Entry entry = entries.remove(name);
+        if (entry == null) {
+            return;
+        }
+        long bytes = 0;
+        for (RDDInfo info : sparkContext.sc().getRDDStorageInfo()) {
+            if (info.id() == entry.rdd.id()) {
+                bytes = info.memSize() + info.diskSize();
+            }
+        }
+        int partitions = entry.rdd.partitions().size();
+        int recomputed = recomputations(entry.computations.value(), partitions);
+        cachedBytes += bytes;
+        recomputations += recomputed;
+        entry.rdd.unpersist(false);
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Released %s of %s: %s bytes cached, %s of %s partitions recomputed.", name,
+                    buildName, bytes, recomputed, partitions));
+        }
+    }
+
+    /**
+     * Release all the RDDs still persisted and log what the build cached and recomputed.
+     */
+    public synchronized void releaseAll() {
+        for (String name : entries.keySet().toArray(new String[entries.size()])) {
+            release(name);
+        }
+        log.info(String.format("%s cached %s bytes at %s, %s partitions were recomputed.", buildName, cachedBytes,
+                storageLevel.description(), recomputations));
+    }
+
+    /**
+     * @return bytes cached by the RDDs released so far
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return partitions of the RDDs released so far which were computed more than once
+     */
+    public synchronized long getRecomputations() {
+        return recomputations;
+    }
+
+    /**
+     * @param name name of a storage level, e.g. MEMORY_AND_DISK_SER or MEMORY_ONLY_2
+     * @return the storage level
+     * @throws IllegalArgumentException if there is no storage level of the given name
+     */
+    public static StorageLevel storageLevel(String name) {
+        return StorageLevel.fromString(name);
+    }
+
+    /**
+     * @param computations times the partitions of an RDD were computed
+     * @param partitions partitions of the RDD
+     * @return partitions computed more than once, none if some were never computed
+     */
+    static int recomputations(int computations, int partitions) {
+        return Math.max(0, computations - partitions);
+    }
+
+    private static class Entry {
+        private final JavaRDD<?> rdd;
+        private final Accumulator<Integer> computations;
+
+        private Entry(JavaRDD<?> rdd, Accumulator<Integer> computations) {
+            this.rdd = rdd;
+            this.computations = computations;
+        }
+    }
+
+    /**
+     * Passes the records of a partition through, counting how many times partitions are computed.
+     */
+    private static class CountComputations<T> implements FlatMapFunction<Iterator<T>, T> {
+
+        private static final long serialVersionUID = 4430561781370227148L;
+        private final Accumulator<Integer> computations;
+
+        private CountComputations(Accumulator<Integer> computations) {
+            this.computations = computations;
+        }
+
+        @Override
+        public Iterable<T> call(final Iterator<T> records) {
+            computations.add(1);
+            return new Iterable<T>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return records;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.wso2.carbon.ml.commons.domain.Feature;
+import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+
+/**
+ * Keeps the pre-processed training data of a model (e.g. its labeled points) as object files in the dataset storage,
+ * so that the models built on the same dataset version with the same pre-processing read it back instead of
+ * re-reading and re-processing the raw dataset. Entries are keyed by a hash of the dataset version and everything in
+ * the workflow the pre-processing depends on. When the entries outgrow the configured size, the least recently used
+ * ones are evicted.
+ */
+public class PreprocessedDataCache {
+
+    public static final String DIRECTORY_NAME = "preprocessed";
+
+    private static final Log log = LogFactory.getLog(PreprocessedDataCache.class);
+    private static final String SUCCESS_MARKER = "_SUCCESS";
+    private static final String TEMPORARY_PREFIX = "_tmp-";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * @param directory directory holding the entries, a local path or a Hadoop file system URI
+     * @param maxBytes maximum total size of the entries
+     */
+    public PreprocessedDataCache(String directory, long maxBytes) {
+        this.directory = new Path(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Key of the pre-processed data of a model.
+     *
+     * @param context configuration context of the model
+     * @param type type of the pre-processed records, as pre-processing differs between model builders
+     * @return hex encoded hash identifying the pre-processed data
+     */
+    public static String key(MLModelConfigurationContext context, Class<?> type) {
+        StringBuilder description = new StringBuilder();
+        description.append(type.getName()).append('\n');
+        description.append(context.getDatasetVersionId()).append('\n');
+        description.append(context.getColumnSeparator()).append('\n');
+        description.append(context.getHeaderRow()).append('\n');
+        description.append(context.getResponseIndex()).append('\n');
+        description.append(context.getNewToOldIndicesList()).append('\n');
+        List<Feature> features = new ArrayList<Feature>(context.getFacts().getFeatures());
+        Collections.sort(features, new Comparator<Feature>() {
+            @Override
+            public int compare(Feature feature1, Feature feature2) {
+                return feature1.getIndex() - feature2.getIndex();
+            }
+        });
+        for (Feature feature : features) {
+            description.append(feature.getIndex()).append(',').append(feature.getName()).append(',')
+                    .append(feature.getType()).append(',').append(feature.isInclude()).append(',')
+                    .append(feature.getImputeOption()).append('\n');
+        }
+        if (context.getEncodings() != null) {
+            for (Map<String, Integer> encoding : context.getEncodings()) {
+                description.append(new TreeMap<String, Integer>(encoding)).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.toString().getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest) {
+                key.append(String.format("%02x", b & 0xff));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read a cached entry, marking it as recently used.
+     *
+     * @param sparkContext spark context to read the entry with
+     * @param key key of the entry
+     * @return the cached records, or null if the entry does not exist or cannot be read
+     */
+    public <T> JavaRDD<T> get(JavaSparkContext sparkContext, String key) {
+        Path entry = new Path(directory, key);
+        try {
+            FileSystem fileSystem = getFileSystem(sparkContext);
+            if (!fileSystem.exists(new Path(entry, SUCCESS_MARKER))) {
+                return null;
+            }
+            fileSystem.setTimes(entry, System.currentTimeMillis(), -1);
+            log.info(String.format("Reading pre-processed data from %s", entry));
+            return sparkContext.objectFile(entry.toString());
+        } catch (IOException e) {
+            log.warn(String.format("Failed to read pre-processed data from %s: %s", entry, e.getMessage()), e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the given records to the cache and evict least recently used entries if the cache has grown beyond its
+     * size. This computes the records.
+     *
+     * @param sparkContext spark context to read the entry back with
+     * @param key key of the entry
+     * @param records records to cache
+     * @return the records read back from the cache, or the given records if they could not be cached
+     */
+    public <T> JavaRDD<T> put(JavaSparkContext sparkContext, String key, JavaRDD<T> records) {
+        Path entry = new Path(directory, key);
+        Path temporary = new Path(directory, TEMPORARY_PREFIX + key + "-" + UUID.randomUUID());
+        FileSystem fileSystem = null;
+        try {
+            fileSystem = getFileSystem(sparkContext);
+            records.saveAsObjectFile(temporary.toString());
+            if (!commit(fileSystem, temporary, entry)) {
+                return records;
+            }
+            evict(fileSystem, key);
+            return sparkContext.objectFile(entry.toString());
+        } catch (IOException e) {
+            log.warn(String.format("Failed to cache pre-processed data in %s: %s", entry, e.getMessage()), e);
+            return records;
+        } finally {
+            // left behind if the records failed to be written, or if another build wrote the entry first
+            if (fileSystem != null) {
+                try {
+                    fileSystem.delete(temporary, true);
+                } catch (IOException e) {
+                    log.warn(String.format("Failed to delete %s: %s", temporary, e.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Move a written entry into place, unless another build has written the same entry meanwhile, in which case the
+     * entry of that build is kept.
+     *
+     * @param fileSystem file system of the cache directory
+     * @param temporary directory the entry was written to
+     * @param entry directory of the entry
+     * @return whether a complete entry is in place
+     */
+    boolean commit(FileSystem fileSystem, Path temporary, Path entry) throws IOException {
+        // renaming onto an existing directory would move the written entry into it
+        if (!fileSystem.exists(entry) && fileSystem.rename(temporary, entry)) {
+            Path nested = new Path(entry, temporary.getName());
+            if (!fileSystem.exists(nested)) {
+                return true;
+            }
+            // the entry was created between the check and the rename
+            fileSystem.delete(nested, true);
+        }
+        return fileSystem.exists(new Path(entry, SUCCESS_MARKER));
+    }
+
+    /**
+     * Delete least recently used entries until the total size of the entries is within the limit.
+     *
+     * @param fileSystem file system of the cache directory
+     * @param keep key of the entry which should not be evicted
+     */
+    synchronized void evict(FileSystem fileSystem, String keep) throws IOException {
+        FileStatus[] entries = fileSystem.listStatus(directory);
+        if (entries == null) {
+            return;
+        }
+        Arrays.sort(entries, new Comparator<FileStatus>() {
+            @Override
+            public int compare(FileStatus entry1, FileStatus entry2) {
+                return Long.compare(entry1.getModificationTime(), entry2.getModificationTime());
+            }
+        });
+        long[] sizes = new long[entries.length];
+        long totalBytes = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (!entries[i].getPath().getName().startsWith(TEMPORARY_PREFIX)) {
+                sizes[i] = fileSystem.getContentSummary(entries[i].getPath()).getLength();
+                totalBytes += sizes[i];
+            }
+        }
+        for (int i = 0; i < entries.length && totalBytes > maxBytes; i++) {
+            String name = entries[i].getPath().getName();
+            if (name.equals(keep) || name.startsWith(TEMPORARY_PREFIX)) {
+                continue;
+            }
+            if (fileSystem.delete(entries[i].getPath(), true)) {
+                totalBytes -= sizes[i];
+                log.info(String.format("Evicted pre-processed data %s of %s bytes.", name, sizes[i]));
+            }
+        }
+    }
+
+    private FileSystem getFileSystem(JavaSparkContext sparkContext) throws IOException {
+        URI uri = directory.toUri();
+        return FileSystem.get(uri, sparkContext.hadoopConfiguration());
+    }
+}
@@ -24,11 +24,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.math3.ml.distance.EuclideanDistance;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.mllib.clustering.*;
 import org.apache.spark.mllib.linalg.Vector;
 import org.wso2.carbon.ml.core.spark.models.ext.AnomalyDetectionModel;
+import org.wso2.carbon.ml.core.spark.models.ext.CentroidIndex;
+import org.wso2.carbon.ml.core.spark.transformations.VectorToCentroidAssignment;
 
 public class AnomalyDetection implements Serializable {
 
@@ -49,9 +50,8 @@ public class AnomalyDetection implements Serializable {
         KMeansModel kMeansModel = org.apache.spark.mllib.clustering.KMeans.train(trainData.rdd(), noOfClusters,
                 noOfIterations);
 
-        // convert predicted clusters JAVARDD into a List
-        List<Integer> predictedClusters = kMeansModel.predict(trainData).collect();
         Vector[] clusterCenters = kMeansModel.clusterCenters();
+        CentroidIndex centroidIndex = new CentroidIndex(clusterCenters);
 
         // creating the distance Map to store the distances of each points with their cluster centers
         Map<Integer, List<Double>> distancesMap = new HashMap<Integer, List<Double>>();
@@ -63,23 +63,18 @@ public class AnomalyDetection implements Serializable {
             distancesMap.put(clusterIndex, distancesList);
         }
 
-        // convert data JAVARDD into a List
-        List<Vector> dataList = trainData.collect();
-        // creating the EuclideanDistance Object
-        EuclideanDistance distance = new EuclideanDistance();
+        // assigning each data point to its cluster center and calculating the distance in a single pass
+        VectorToCentroidAssignment vectorToCentroidAssignment = new VectorToCentroidAssignment.Builder()
+                .index(centroidIndex).build();
+        List<CentroidIndex.Assignment> assignments = trainData.map(vectorToCentroidAssignment).collect();
 
-        // calculating and storing the distances of each data point to it's cluster center
-        for (int i = 0; i < dataList.size(); i++) {
-
-            int clusterIndex = predictedClusters.get(i);
-            double[] dataPoint = dataList.get(i).toArray();
-            double[] clusterCenter = clusterCenters[clusterIndex].toArray();
-            List<Double> distanceList = distancesMap.get(clusterIndex);
-            double distanceBetweenDataPointAndItsClusterCenter = distance.compute(dataPoint, clusterCenter);
-            distanceList.add(distanceBetweenDataPointAndItsClusterCenter);
+        // storing the distances of each data point to it's cluster center
+        for (CentroidIndex.Assignment assignment : assignments) {
+            distancesMap.get(assignment.getCluster()).add(assignment.getDistance());
         }
 
         anomalyDetectionModel.setkMeansModel(kMeansModel);
+        anomalyDetectionModel.setCentroidIndex(centroidIndex);
         anomalyDetectionModel.setClusterIndexToDistancesListMap(distancesMap);
         anomalyDetectionModel.setNormalLabel(newNormalLabel);
         anomalyDetectionModel.setAnomalyLabel(newAnomalyLabel);
@@ -30,6 +30,7 @@ import org.wso2.carbon.ml.core.interfaces.MLModelBuilder;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
 import org.wso2.carbon.ml.core.spark.MulticlassConfusionMatrix;
 import org.wso2.carbon.ml.core.spark.MulticlassMetrics;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
 import org.wso2.carbon.ml.core.spark.models.MLAnomalyDetectionModel;
 import org.wso2.carbon.ml.core.spark.models.ext.AnomalyDetectionModel;
 import org.wso2.carbon.ml.core.spark.summary.AnomalyDetectionModelSummary;
@@ -51,55 +52,43 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
     }
 
     private JavaRDD<Vector> preProcess(MLConstants.ANOMALY_DETECTION_ALGORITHM algorithm,
-            MLConstants.ANOMALY_DETECTION_DATA_TYPE dataType) throws MLModelBuilderException {
+            MLConstants.ANOMALY_DETECTION_DATA_TYPE dataType, Normalization normalization)
+            throws MLModelBuilderException {
 
         MLModelConfigurationContext context = getContext();
         Workflow workflow = context.getFacts();
 
         HeaderFilter headerFilter = new HeaderFilter.Builder().init(context).build();
-        LineToTokens lineToTokens = new LineToTokens.Builder().init(context).build();
         DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().init(context).build();
         RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder().init(context).build();
         MeanImputation meanImputation = new MeanImputation.Builder().init(context).build();
-        StringArrayToDoubleArray stringArrayToDoubleArray = new StringArrayToDoubleArray.Builder().build();
-        DoubleArrayToVector doubleArrayToVector = new DoubleArrayToVector.Builder().build();
-        RemoveResponseColumn removeResponseColumn = new RemoveResponseColumn();
 
-        JavaRDD<String> lines = context.getLines().cache();
-
-        JavaRDD<String[]> tokens = lines.filter(headerFilter).map(lineToTokens).filter(discardedRowsFilter);
+        RowTransformer.Builder rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(context.getColumnSeparator()).discardedRowsFilter(discardedRowsFilter)
+                .removeDiscardedFeatures(removeDiscardedFeatures).meanImputation(meanImputation)
+                .normalization(normalization);
 
         if (dataType != null) {
             switch (dataType) {
             case NORMAL:
                 AnomalyRowsFilter anomalyRowsFilter = new AnomalyRowsFilter.Builder().init(context).build();
-                tokens = tokens.filter(anomalyRowsFilter);
+                rowTransformer.rowsFilter(anomalyRowsFilter);
                 break;
             case ANOMALOUS:
                 NormalRowsFilter normalRowsFilter = new NormalRowsFilter.Builder().init(context).build();
-                tokens = tokens.filter(normalRowsFilter);
+                rowTransformer.rowsFilter(normalRowsFilter);
                 break;
             default:
                 throw new AlgorithmNameException("Incorrect data type: " + workflow.getAlgorithmName());
             }
         }
 
-        JavaRDD<String[]> stringArray = tokens.map(removeDiscardedFeatures);
-
         if (algorithm == MLConstants.ANOMALY_DETECTION_ALGORITHM.K_MEANS_ANOMALY_DETECTION_WITH_LABELED_DATA) {
-            stringArray = stringArray.map(removeResponseColumn);
-        }
-
-        JavaRDD<double[]> doubleArray = stringArray.map(meanImputation).map(stringArrayToDoubleArray);
-
-        if (workflow.getNormalization()) {
-            Normalization normalization = new Normalization.Builder().init(context).build();
-            doubleArray.map(normalization);
+            rowTransformer.removeResponseColumn(true);
         }
 
-        JavaRDD<Vector> vectors = doubleArray.map(doubleArrayToVector);
-
-        return vectors;
+        LinesToVectors linesToVectors = new LinesToVectors.Builder().rowTransformer(rowTransformer.build()).build();
+        return context.getLines().mapPartitions(linesToVectors);
     }
 
     /**
@@ -108,6 +97,7 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
     public MLModel build() throws MLModelBuilderException {
         MLModelConfigurationContext context = getContext();
         DatabaseService databaseService = MLCoreServiceValueHolder.getInstance().getDatabaseService();
+        PersistenceManager persistence = newPersistenceManager();
         try {
             Workflow workflow = context.getFacts();
             long modelId = context.getModelId();
@@ -125,6 +115,14 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
             mlModel.setNewToOldIndicesList(context.getNewToOldIndicesList());
             mlModel.setSummaryStatsOfFeatures(context.getSummaryStatsOfFeatures());
 
+            // min/max values are computed once and shared by training and prediction
+            Normalization normalization = null;
+            if (workflow.getNormalization()) {
+                normalization = new Normalization.Builder().init(context).build();
+                mlModel.setNormalizationMinValues(normalization.getMin());
+                mlModel.setNormalizationMaxValues(normalization.getMax());
+            }
+
             SortedMap<Integer, String> includedFeatures = MLUtils.getIncludedFeaturesAfterReordering(workflow,
                     context.getNewToOldIndicesList(), context.getResponseIndex());
             // build a machine learning model according to user selected algorithm
@@ -137,7 +135,10 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
             case K_MEANS_ANOMALY_DETECTION_WITH_UNLABELED_DATA:
                 mlModel.setResponseIndex(-1);
                 // gets the pre-processed dataset for unlabeled data
-                JavaRDD<Vector> data = preProcess(anomaly_detection_algorithm, null).cache();
+                JavaRDD<Vector> data = persistence.persist("data",
+                        countRows(preProcess(anomaly_detection_algorithm, null, normalization)));
+                materialize(data);
+                startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
 
                 summaryModel = buildUnlabeledDataAnomalyDetectionModel(modelId, data, workflow, mlModel,
                         includedFeatures);
@@ -147,23 +148,22 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
                 mlModel.setResponseIndex(context.getResponseIndex());
                 // gets the pre-processed dataset for labeled data
                 anomaly_detection_data_type = MLConstants.ANOMALY_DETECTION_DATA_TYPE.NORMAL;
-                JavaRDD<Vector> normalData = preProcess(anomaly_detection_algorithm, anomaly_detection_data_type)
-                        .cache();
+                // read by both the training sample and the subtraction of the testing data
+                JavaRDD<Vector> normalData = persistence.persist("normalData", countRows(preProcess(
+                        anomaly_detection_algorithm, anomaly_detection_data_type, normalization)));
+                normalData.count();
                 JavaRDD<Vector> normalTrainData = normalData
                         .sample(false, workflow.getTrainDataFraction(), MLConstants.RANDOM_SEED).cache();
                 JavaRDD<Vector> normalTestData = normalData.subtract(normalTrainData).cache();
-                // remove from cache
-                normalData.unpersist();
 
                 anomaly_detection_data_type = MLConstants.ANOMALY_DETECTION_DATA_TYPE.ANOMALOUS;
-                JavaRDD<Vector> anomalyData = preProcess(anomaly_detection_algorithm, anomaly_detection_data_type)
-                        .cache();
+                JavaRDD<Vector> anomalyData = countRows(preProcess(anomaly_detection_algorithm,
+                        anomaly_detection_data_type, normalization));
                 double testDataFraction = (1 - workflow.getTrainDataFraction());
                 JavaRDD<Vector> anomalyTestData = anomalyData.sample(false, testDataFraction, MLConstants.RANDOM_SEED)
                         .cache();
-                // remove from cache
-                anomalyData.unpersist();
 
+                startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
                 summaryModel = buildLabeledDataAnomalyDetectionModel(modelId, normalTrainData, normalTestData,
                         anomalyTestData, workflow, mlModel, includedFeatures);
                 break;
@@ -179,6 +179,8 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
         } catch (DatabaseHandlerException e) {
             throw new MLModelBuilderException(
                     "An error occurred while building anomaly detection machine learning model: " + e.getMessage(), e);
+        } finally {
+            persistence.releaseAll();
         }
     }
 
@@ -209,9 +211,6 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
                     Integer.parseInt(hyperParameters.get(MLConstants.NUM_OF_NORMAL_CLUSTERS)),
                     Integer.parseInt(hyperParameters.get(MLConstants.MAX_ITERATIONS)), newNormalLabel, newAnomalyLabel);
 
-            // remove from cache
-            data.unpersist();
-
             // creating the model summary object
             AnomalyDetectionModelSummary anomalyDetectionModelSummary = new AnomalyDetectionModelSummary();
             // creating the model object
@@ -274,6 +273,7 @@ public class AnomalyDetectionModelBuilder extends MLModelBuilder {
             mlModel.setModel(MLAnomalyDetectionModel);
 
             // evaluating the model using test data
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
             // calculating the evaluation results for each percentile of defined range
             int maxRange = System.getProperty(MLConstants.MAX_PERCENTILE_CONF) == null ? MLConstants.MAX_PERCENTILE
                     : Integer.parseInt(System.getProperty(MLConstants.MAX_PERCENTILE_CONF));
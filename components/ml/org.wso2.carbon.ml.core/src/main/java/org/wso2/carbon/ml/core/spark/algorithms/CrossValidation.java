@@ -0,0 +1,219 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.ml.commons.domain.MLModel;
+import org.wso2.carbon.ml.commons.domain.ModelSummary;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+import org.wso2.carbon.ml.core.factories.AlgorithmType;
+import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+import org.wso2.carbon.ml.core.spark.BuildProgressTracker;
+import org.wso2.carbon.ml.core.spark.summary.ClassClassificationAndRegressionModelSummary;
+import org.wso2.carbon.ml.core.spark.summary.CrossValidationMetrics;
+import org.wso2.carbon.ml.core.spark.summary.ProbabilisticClassificationModelSummary;
+import org.wso2.carbon.ml.core.spark.transformations.AssignFolds;
+import org.wso2.carbon.ml.core.spark.transformations.FoldFilter;
+import org.wso2.carbon.ml.core.utils.BlockingExecutor;
+import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
+
+/**
+ * K-fold cross-validation of a supervised Spark algorithm. Folds are assigned once, by a hash of each row, and
+ * persisted serialized; the k fits run concurrently on the ML thread pool of the tenant, and their jobs in the Spark
+ * FAIR scheduler pool of the tenant, while the caller goes on building the model itself. The fits are tagged with the
+ * job group of the model, so that they are cancelled with its build.
+ */
+public class CrossValidation {
+
+    /**
+     * Maximum number of folds.
+     */
+    public static final int MAX_FOLDS = 20;
+    private static final String JOB_GROUP_ID = "spark.jobGroup.id";
+    private static final String JOB_DESCRIPTION = "spark.job.description";
+    private static final String JOB_INTERRUPT_ON_CANCEL = "spark.job.interruptOnCancel";
+
+    private final MLModelConfigurationContext context;
+    private final int folds;
+    private final int tenantId;
+    private final ModelSummary[] summaries;
+    private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean stopped;
+    private JavaPairRDD<Integer, LabeledPoint> foldedData;
+    private Runnable coordinator;
+    private boolean submitted;
+
+    /**
+     * @param context context of the model
+     * @param folds number of folds, from 2 to {@link #MAX_FOLDS}
+     */
+    public CrossValidation(MLModelConfigurationContext context, int folds) {
+        this.context = context;
+        this.folds = folds;
+        this.tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        this.summaries = new ModelSummary[folds];
+    }
+
+    /**
+     * Validate the number of folds of a model.
+     *
+     * @param folds number of folds, 0 if the model is not cross-validated
+     * @throws MLModelBuilderException if the number of folds is neither 0 nor from 2 to {@link #MAX_FOLDS}
+     */
+    public static void validateFolds(int folds) throws MLModelBuilderException {
+        if (folds != 0 && (folds < 2 || folds > MAX_FOLDS)) {
+            throw new MLModelBuilderException(String.format(
+                    "Number of cross-validation folds should be from 2 to %s: %s", MAX_FOLDS, folds));
+        }
+    }
+
+    /**
+     * Start fitting the folds of the given data.
+     *
+     * @param labeledPoints pre-processed data
+     */
+    public void start(JavaRDD<LabeledPoint> labeledPoints) {
+        foldedData = labeledPoints.mapToPair(new AssignFolds.Builder().folds(folds).build()).persist(
+                MLCoreServiceValueHolder.getInstance().getStorageLevel());
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < folds; i++) {
+            tasks.add(fit(i));
+        }
+        final BlockingExecutor executor = MLCoreServiceValueHolder.getInstance().getThreadExecutor();
+        coordinator = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.runAll(tasks, tenantId, folds);
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, e);
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        // run by the caller when it finishes, if the queue of the tenant is full
+        submitted = executor.tryExecute(coordinator, tenantId, BlockingExecutor.Priority.NORMAL);
+    }
+
+    private Runnable fit(final int fold) {
+        final JavaSparkContext sparkContext = context.getSparkContext();
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (stopped) {
+                    return;
+                }
+                // run in the scheduler pool of the tenant, set by the executor
+                String[] previous = { sparkContext.getLocalProperty(JOB_GROUP_ID),
+                        sparkContext.getLocalProperty(JOB_DESCRIPTION),
+                        sparkContext.getLocalProperty(JOB_INTERRUPT_ON_CANCEL) };
+                sparkContext.setJobGroup(BuildProgressTracker.jobGroup(context.getModelId()),
+                        "Cross-validation of model [id] " + context.getModelId(), true);
+                try {
+                    JavaRDD<LabeledPoint> trainingData = foldedData.filter(
+                            new FoldFilter.Builder().training(fold).build()).values();
+                    JavaRDD<LabeledPoint> testingData = foldedData.filter(
+                            new FoldFilter.Builder().testing(fold).build()).values();
+                    summaries[fold] = new SupervisedSparkModelBuilder(context).fit(context.getFacts(),
+                            new MLModel(), trainingData, testingData);
+                } catch (MLModelBuilderException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    sparkContext.setLocalProperty(JOB_GROUP_ID, previous[0]);
+                    sparkContext.setLocalProperty(JOB_DESCRIPTION, previous[1]);
+                    sparkContext.setLocalProperty(JOB_INTERRUPT_ON_CANCEL, previous[2]);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wait for the folds to be fitted and aggregate their metrics.
+     *
+     * @return metrics of the folds
+     * @throws MLModelBuilderException if a fold cannot be fitted
+     */
+    public CrossValidationMetrics finish() throws MLModelBuilderException {
+        try {
+            BlockingExecutor executor = MLCoreServiceValueHolder.getInstance().getThreadExecutor();
+            if (!submitted || executor.cancel(coordinator)) {
+                coordinator.run();
+            }
+            done.await();
+            if (failure.get() instanceof InterruptedException) {
+                throw (InterruptedException) failure.get();
+            } else if (failure.get() != null) {
+                throw new MLModelBuilderException("Failed to cross-validate model [id] " + context.getModelId()
+                        + ": " + failure.get().getMessage(), failure.get());
+            }
+            boolean regression = AlgorithmType.NUMERICAL_PREDICTION.getValue().equals(
+                    context.getFacts().getAlgorithmClass());
+            double[] accuracies = new double[folds];
+            double[] meanSquaredErrors = regression ? new double[folds] : null;
+            for (int i = 0; i < folds; i++) {
+                ModelSummary summary = summaries[i];
+                if (summary instanceof ClassClassificationAndRegressionModelSummary) {
+                    accuracies[i] = ((ClassClassificationAndRegressionModelSummary) summary).getModelAccuracy();
+                    if (regression) {
+                        meanSquaredErrors[i] = ((ClassClassificationAndRegressionModelSummary) summary)
+                                .getMeanSquaredError();
+                    }
+                } else if (summary instanceof ProbabilisticClassificationModelSummary) {
+                    accuracies[i] = ((ProbabilisticClassificationModelSummary) summary).getModelAccuracy();
+                }
+            }
+            return new CrossValidationMetrics(accuracies, meanSquaredErrors);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MLModelBuilderException("Interrupted while cross-validating model [id] "
+                    + context.getModelId(), e);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stop fitting the folds, if they are still being fitted, and release the folds. Folds which have not started are
+     * skipped, and the running Spark jobs of the build are cancelled.
+     */
+    public void stop() {
+        if (coordinator != null && done.getCount() > 0) {
+            stopped = true;
+            if (submitted) {
+                MLCoreServiceValueHolder.getInstance().getThreadExecutor().cancel(coordinator);
+            }
+            context.getSparkContext().cancelJobGroup(BuildProgressTracker.jobGroup(context.getModelId()));
+        }
+        if (foldedData != null) {
+            foldedData.unpersist();
+        }
+    }
+}
@@ -37,7 +37,9 @@ import org.wso2.carbon.ml.core.exceptions.AlgorithmNameException;
 import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
 import org.wso2.carbon.ml.core.spark.models.MLDeeplearningModel;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
 import org.wso2.carbon.ml.core.spark.summary.DeeplearningModelSummary;
+import org.wso2.carbon.ml.core.spark.summary.PreprocessedDataSummary;
 import org.wso2.carbon.ml.core.utils.DeeplearningModelUtils;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 import org.wso2.carbon.ml.core.utils.MLUtils;
@@ -66,6 +68,7 @@ public class DeeplearningModelBuilder extends SupervisedSparkModelBuilder {
         JavaSparkContext sparkContext = null;
         DatabaseService databaseService = MLCoreServiceValueHolder.getInstance().getDatabaseService();
         MLModel mlModel = new MLModel();
+        PersistenceManager persistence = newPersistenceManager();
 
         try {
             sparkContext = context.getSparkContext();
@@ -78,7 +81,8 @@ public class DeeplearningModelBuilder extends SupervisedSparkModelBuilder {
                     context.getNewToOldIndicesList(), responseIndex);
 
             // gets the pre-processed dataset
-            JavaRDD<LabeledPoint> labeledPoints = preProcess().cache();
+            JavaRDD<LabeledPoint> labeledPoints = persistence.persist("labeledPoints", countRows(preProcess()));
+            materialize(labeledPoints);
 
             JavaRDD<LabeledPoint>[] dataSplit = labeledPoints.randomSplit(
                     new double[] { workflow.getTrainDataFraction(), 1 - workflow.getTrainDataFraction() },
@@ -97,6 +101,7 @@ public class DeeplearningModelBuilder extends SupervisedSparkModelBuilder {
 
             ModelSummary summaryModel = null;
 
+            startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
             DEEPLEARNING_ALGORITHM deeplearningAlgorithm = DEEPLEARNING_ALGORITHM.valueOf(workflow.getAlgorithmName());
             switch (deeplearningAlgorithm) {
             case STACKED_AUTOENCODERS:
@@ -109,13 +114,17 @@ public class DeeplearningModelBuilder extends SupervisedSparkModelBuilder {
                 throw new AlgorithmNameException("Incorrect algorithm name");
             }
 
+            if (summaryModel instanceof PreprocessedDataSummary) {
+                ((PreprocessedDataSummary) summaryModel).setPreprocessedDataCacheHit(context
+                        .isPreprocessedDataCacheHit());
+            }
             databaseService.updateModelSummary(modelId, summaryModel);
             return mlModel;
         } catch (DatabaseHandlerException e) {
             throw new MLModelBuilderException(
                     "An error occurred while building supervised machine learning model: " + e.getMessage(), e);
         } finally {
-            // do something finally
+            persistence.releaseAll();
         }
     }
 
@@ -154,7 +163,7 @@ public class DeeplearningModelBuilder extends SupervisedSparkModelBuilder {
                     stringArrToIntArr(hyperParameters.get(MLConstants.LAYER_SIZES)),
                     hyperParameters.get(MLConstants.ACTIVATION_TYPE),
                     Integer.parseInt(hyperParameters.get(MLConstants.EPOCHS)), workflow.getResponseVariable(),
-                    getContext().getModel().getName(), mlModel, modelID);
+                    getContext().getModel().getName(), mlModel, modelID, getProgressTracker());
 
             if (deeplearningModel == null) {
                 throw new MLModelBuilderException("DeeplearningModel is Null.");
@@ -166,6 +175,7 @@ public class DeeplearningModelBuilder extends SupervisedSparkModelBuilder {
             testingData.cache();
 
             // make predictions with the trained model
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
             JavaPairRDD<Double, Double> predictionsAndLabels = saeClassifier
                     .test(sparkContext, deeplearningModel, testingData, mlModel).cache();
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.io.Serializable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.DoubleFunction;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.optimization.GradientDescent;
+import org.apache.spark.mllib.regression.GeneralizedLinearAlgorithm;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
+import org.apache.spark.mllib.regression.LabeledPoint;
+
+/**
+ * Trains a generalized linear model by stochastic gradient descent in chunks of iterations, each chunk warm-started
+ * from the weights of the previous one, and evaluates the loss on a held-out validation slice of the training data
+ * after each chunk. Training stops once the validation loss has not improved by the relative tolerance for the
+ * given number of chunks in a row, or the maximum number of iterations is reached, and the model with the lowest
+ * validation loss is kept.
+ * <p>
+ * The step size of gradient descent decays with the iteration number within a chunk, so that each chunk starts
+ * again with the initial step size. The chunks should hence not be too short.
+ */
+public class EarlyStopping implements Serializable {
+
+    private static final long serialVersionUID = 2468519723418004398L;
+    private static final Log log = LogFactory.getLog(EarlyStopping.class);
+
+    /**
+     * Loss of a prediction margin, matching the gradient the model is trained with.
+     */
+    public enum Loss {
+        LOGISTIC, HINGE, SQUARED
+    }
+
+    private final double validationFraction;
+    private final double tolerance;
+    private final int patience;
+    private final int chunkSize;
+    private final long seed;
+    private int iterations;
+    private double validationLoss = Double.NaN;
+
+    private EarlyStopping(Builder builder) {
+        this.validationFraction = builder.validationFraction;
+        this.tolerance = builder.tolerance;
+        this.patience = builder.patience;
+        this.chunkSize = builder.chunkSize;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * Train a model with early stopping.
+     *
+     * @param algorithm algorithm to train with, its regularization and mini batch fraction already set
+     * @param optimizer gradient descent optimizer of the algorithm
+     * @param trainingData training data, of which the validation slice is held out
+     * @param maxIterations maximum number of iterations
+     * @param loss loss the model is trained to minimize
+     * @param initialWeights weights to start from, e.g. those of a previous model, or null to start from zero
+     * @return model with the lowest validation loss
+     */
+    public <M extends GeneralizedLinearModel> M train(GeneralizedLinearAlgorithm<M> algorithm,
+            GradientDescent optimizer, JavaRDD<LabeledPoint> trainingData, int maxIterations, Loss loss,
+            Vector initialWeights) {
+        JavaRDD<LabeledPoint>[] splits = trainingData.randomSplit(new double[] { 1 - validationFraction,
+                validationFraction }, seed);
+        JavaRDD<LabeledPoint> training = splits[0];
+        JavaRDD<LabeledPoint> validation = splits[1];
+
+        if (validation.isEmpty()) {
+            // an empty validation slice cannot tell when to stop, so that training runs to the end
+            log.warn("The validation slice is empty, training for " + maxIterations + " iterations.");
+            optimizer.setNumIterations(maxIterations);
+            iterations = maxIterations;
+            validationLoss = Double.NaN;
+            return initialWeights == null ? algorithm.run(training.rdd()) : algorithm.run(training.rdd(),
+                    initialWeights);
+        }
+
+        Monitor monitor = new Monitor(tolerance, patience);
+        M model = null;
+        M best = null;
+        int bestIterations = 0;
+        int iterationsRun = 0;
+        Vector weights = initialWeights;
+        while (iterationsRun < maxIterations && !monitor.isExhausted()) {
+            int chunk = Math.min(chunkSize, maxIterations - iterationsRun);
+            optimizer.setNumIterations(chunk);
+            model = weights == null ? algorithm.run(training.rdd()) : algorithm.run(training.rdd(), weights);
+            weights = model.weights();
+            iterationsRun += chunk;
+
+            double chunkLoss = validation.mapToDouble(new MarginLoss(model.weights(), model.intercept(), loss))
+                    .mean();
+            if (monitor.update(chunkLoss)) {
+                best = model;
+                bestIterations = iterationsRun;
+            }
+        }
+        if (best == null) {
+            log.warn(String.format("The validation loss was not finite after any of %s iterations, keeping the last "
+                    + "model.", iterationsRun));
+            best = model;
+            bestIterations = iterationsRun;
+        }
+        iterations = bestIterations;
+        validationLoss = monitor.getBestLoss();
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Early stopping ran %s of %s iterations, keeping the model of iteration %s "
+                    + "with validation loss %s.", iterationsRun, maxIterations, bestIterations, validationLoss));
+        }
+        return best;
+    }
+
+    /**
+     * @return number of iterations the last trained model was trained for
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return mean validation loss of the last trained model
+     */
+    public double getValidationLoss() {
+        return validationLoss;
+    }
+
+    /**
+     * Tracks the validation loss of the chunks and tells when to stop. A NaN or infinite loss, e.g. of a diverged
+     * model, does not improve on the best loss.
+     */
+    static class Monitor {
+
+        private final double tolerance;
+        private final int patience;
+        private double bestLoss = Double.NaN;
+        private int chunksWithoutImprovement;
+
+        Monitor(double tolerance, int patience) {
+            this.tolerance = tolerance;
+            this.patience = patience;
+        }
+
+        /**
+         * @return whether the loss of a chunk improves on the best loss so far by the relative tolerance
+         */
+        boolean update(double loss) {
+            boolean finite = !Double.isNaN(loss) && !Double.isInfinite(loss);
+            if (finite && (Double.isNaN(bestLoss) || loss < bestLoss - tolerance * Math.abs(bestLoss))) {
+                bestLoss = loss;
+                chunksWithoutImprovement = 0;
+                return true;
+            }
+            chunksWithoutImprovement++;
+            return false;
+        }
+
+        /**
+         * @return whether the loss has not improved for the given number of chunks in a row
+         */
+        boolean isExhausted() {
+            return chunksWithoutImprovement >= patience;
+        }
+
+        /**
+         * @return best loss so far, NaN if no loss was finite
+         */
+        double getBestLoss() {
+            return bestLoss;
+        }
+    }
+
+    /**
+     * Loss of a labeled point under a model, labels of classification models being 0 or 1.
+     */
+    static class MarginLoss implements DoubleFunction<LabeledPoint> {
+
+        private static final long serialVersionUID = -7346178326018765091L;
+        private final double[] weights;
+        private final double intercept;
+        private final Loss loss;
+
+        MarginLoss(Vector weights, double intercept, Loss loss) {
+            this.weights = weights.toArray();
+            this.intercept = intercept;
+            this.loss = loss;
+        }
+
+        @Override
+        public double call(LabeledPoint point) {
+            double[] features = point.features().toArray();
+            double margin = intercept;
+            for (int i = 0; i < weights.length; i++) {
+                margin += weights[i] * features[i];
+            }
+            return loss(margin, point.label(), loss);
+        }
+
+        static double loss(double margin, double label, Loss loss) {
+            switch (loss) {
+            case LOGISTIC:
+                // log(1 + exp(-y margin)) with y in {-1, 1}, without overflowing
+                double z = -(2 * label - 1) * margin;
+                return z > 0 ? z + Math.log1p(Math.exp(-z)) : Math.log1p(Math.exp(z));
+            case HINGE:
+                return Math.max(0, 1 - (2 * label - 1) * margin);
+            default:
+                double error = margin - label;
+                return error * error / 2;
+            }
+        }
+    }
+
+    public static class Builder {
+        private double validationFraction = 0.1;
+        private double tolerance = 1e-4;
+        private int patience = 3;
+        private int chunkSize = 10;
+        private long seed = 12345;
+
+        /**
+         * @param validationFraction fraction of the training data held out to evaluate the loss on
+         */
+        public Builder validationFraction(double validationFraction) {
+            this.validationFraction = validationFraction;
+            return this;
+        }
+
+        /**
+         * @param tolerance relative decrease of the validation loss below which a chunk does not improve the model
+         */
+        public Builder tolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * @param patience number of chunks in a row without improvement after which training stops
+         */
+        public Builder patience(int patience) {
+            this.patience = patience;
+            return this;
+        }
+
+        /**
+         * @param chunkSize number of iterations between evaluations of the validation loss
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public EarlyStopping build() {
+            if (validationFraction <= 0 || validationFraction >= 1) {
+                throw new IllegalArgumentException("Validation fraction should be between 0 and 1: "
+                        + validationFraction);
+            }
+            if (patience < 1 || chunkSize < 1) {
+                throw new IllegalArgumentException("Patience and chunk size should be positive: " + patience + ", "
+                        + chunkSize);
+            }
+            return new EarlyStopping(this);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.spark.mllib.linalg.Vector;
+import org.wso2.carbon.ml.core.spark.summary.PredictedVsActual;
+import org.wso2.carbon.ml.core.spark.summary.TestResultDataPoint;
+
+/**
+ * Evaluation metrics of a supervised model, accumulated per partition of the test data and merged, so that a
+ * single pass over the test data gives all of them:
+ * <ul>
+ * <li>error metrics: misclassification rate, mean squared error and mean absolute error,</li>
+ * <li>the confusion matrix of classification models,</li>
+ * <li>ROC and precision-recall curves of binary classification models, from the number of positive and negative
+ * test points in each of a fixed number of score bins,</li>
+ * <li>a uniform sample of the test points with their predictions, or their scores for binary classification
+ * models, kept in a reservoir.</li>
+ * </ul>
+ */
+public class EvaluationMetrics implements Serializable {
+
+    private static final long serialVersionUID = -2209816164366478283L;
+
+    private final int sampleSize;
+    private final boolean classification;
+    private final boolean probabilities;
+    private long count;
+    private long misclassified;
+    private double sumOfSquaredErrors;
+    private double sumOfAbsoluteErrors;
+    // actual label -> predicted label -> number of test points
+    private final HashMap<Double, HashMap<Double, Long>> confusion = new HashMap<Double, HashMap<Double, Long>>();
+    // number of positive and negative test points per score bin, lowest scores first
+    private final long[] positives;
+    private final long[] negatives;
+    private final ArrayList<TestResultDataPoint> sample = new ArrayList<TestResultDataPoint>();
+    private transient Random random;
+
+    /**
+     * @param sampleSize number of test points to sample
+     * @param classification whether to build a confusion matrix of the predictions
+     * @param bins number of score bins of the ROC and precision-recall curves, 0 for models without scores
+     * @param probabilities whether the scores are probabilities, otherwise they are squashed into [0, 1] by the
+     *            logistic function before binning
+     */
+    public EvaluationMetrics(int sampleSize, boolean classification, int bins, boolean probabilities) {
+        this.sampleSize = sampleSize;
+        this.classification = classification;
+        this.probabilities = probabilities;
+        this.positives = new long[bins];
+        this.negatives = new long[bins];
+    }
+
+    /**
+     * Add a test point.
+     *
+     * @param prediction predicted value
+     * @param score score the prediction was made from, only used if there are score bins, in which case it is the
+     *            value sampled, so that the sample can be thresholded again
+     * @param label actual value
+     * @param features feature values of the test point
+     */
+    public void add(double prediction, double score, double label, Vector features) {
+        count++;
+        double error = prediction - label;
+        sumOfSquaredErrors += error * error;
+        sumOfAbsoluteErrors += Math.abs(error);
+        if (classification) {
+            if (prediction != label) {
+                misclassified++;
+            }
+            HashMap<Double, Long> predictions = confusion.get(label);
+            if (predictions == null) {
+                predictions = new HashMap<Double, Long>();
+                confusion.put(label, predictions);
+            }
+            Long predicted = predictions.get(prediction);
+            predictions.put(prediction, predicted == null ? 1L : predicted + 1);
+        }
+        if (positives.length > 0) {
+            if (label > 0) {
+                positives[bin(score)]++;
+            } else {
+                negatives[bin(score)]++;
+            }
+        }
+        // binary classifiers sample the raw score, probability or margin, rather than the predicted class
+        double sampled = positives.length > 0 ? score : prediction;
+        // reservoir sampling: the n-th point replaces a sampled one with probability sampleSize / n
+        if (sample.size() < sampleSize) {
+            sample.add(testResult(sampled, label, features));
+        } else if (sampleSize > 0) {
+            long slot = (long) (random().nextDouble() * count);
+            if (slot < sampleSize) {
+                sample.set((int) slot, testResult(sampled, label, features));
+            }
+        }
+    }
+
+    public EvaluationMetrics merge(EvaluationMetrics other) {
+        mergeSample(other);
+        count += other.count;
+        misclassified += other.misclassified;
+        sumOfSquaredErrors += other.sumOfSquaredErrors;
+        sumOfAbsoluteErrors += other.sumOfAbsoluteErrors;
+        for (Map.Entry<Double, HashMap<Double, Long>> actual : other.confusion.entrySet()) {
+            HashMap<Double, Long> predictions = confusion.get(actual.getKey());
+            if (predictions == null) {
+                confusion.put(actual.getKey(), new HashMap<Double, Long>(actual.getValue()));
+                continue;
+            }
+            for (Map.Entry<Double, Long> predicted : actual.getValue().entrySet()) {
+                Long current = predictions.get(predicted.getKey());
+                predictions.put(predicted.getKey(), current == null ? predicted.getValue() : current
+                        + predicted.getValue());
+            }
+        }
+        for (int i = 0; i < positives.length; i++) {
+            positives[i] += other.positives[i];
+            negatives[i] += other.negatives[i];
+        }
+        return this;
+    }
+
+    /**
+     * Merge two uniform samples into a uniform sample of the union of their test points, taking each point from
+     * one sample or the other in proportion to the number of test points not yet drawn from each.
+     */
+    private void mergeSample(EvaluationMetrics other) {
+        List<TestResultDataPoint> mine = new ArrayList<TestResultDataPoint>(sample);
+        List<TestResultDataPoint> theirs = new ArrayList<TestResultDataPoint>(other.sample);
+        Collections.shuffle(mine, random());
+        Collections.shuffle(theirs, random());
+        long myRemaining = count;
+        long theirRemaining = other.count;
+        int size = (int) Math.min(sampleSize, count + other.count);
+        sample.clear();
+        int mineTaken = 0;
+        int theirsTaken = 0;
+        while (sample.size() < size) {
+            boolean takeMine = theirsTaken == theirs.size() || (mineTaken < mine.size()
+                    && random().nextDouble() * (myRemaining + theirRemaining) < myRemaining);
+            if (takeMine) {
+                sample.add(mine.get(mineTaken++));
+                myRemaining--;
+            } else {
+                sample.add(theirs.get(theirsTaken++));
+                theirRemaining--;
+            }
+        }
+    }
+
+    private int bin(double score) {
+        double probability = probabilities ? score : 1 / (1 + Math.exp(-score));
+        int bin = (int) (probability * positives.length);
+        return Math.max(0, Math.min(positives.length - 1, bin));
+    }
+
+    private Random random() {
+        if (random == null) {
+            random = new Random();
+        }
+        return random;
+    }
+
+    private static TestResultDataPoint testResult(double prediction, double label, Vector features) {
+        PredictedVsActual predictedVsActual = new PredictedVsActual();
+        predictedVsActual.setPredicted(prediction);
+        predictedVsActual.setActual(label);
+        TestResultDataPoint testResult = new TestResultDataPoint();
+        testResult.setPredictedVsActual(predictedVsActual);
+        testResult.setFeatureValues(features.toArray());
+        return testResult;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return fraction of misclassified test points
+     */
+    public double getError() {
+        return count == 0 ? 0 : (double) misclassified / count;
+    }
+
+    public double getMeanSquaredError() {
+        return count == 0 ? 0 : sumOfSquaredErrors / count;
+    }
+
+    public double getMeanAbsoluteError() {
+        return count == 0 ? 0 : sumOfAbsoluteErrors / count;
+    }
+
+    /**
+     * @return actual and predicted labels, in ascending order
+     */
+    public double[] getLabels() {
+        TreeSet<Double> labels = new TreeSet<Double>(confusion.keySet());
+        for (HashMap<Double, Long> predictions : confusion.values()) {
+            labels.addAll(predictions.keySet());
+        }
+        double[] sorted = new double[labels.size()];
+        int i = 0;
+        for (Double label : labels) {
+            sorted[i++] = label;
+        }
+        return sorted;
+    }
+
+    /**
+     * @return number of test points of each actual label (row) predicted as each label (column), in the order of
+     *         {@link #getLabels()}
+     */
+    public double[][] getConfusionMatrix() {
+        double[] labels = getLabels();
+        double[][] matrix = new double[labels.length][labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            HashMap<Double, Long> predictions = confusion.get(labels[i]);
+            if (predictions == null) {
+                continue;
+            }
+            for (int j = 0; j < labels.length; j++) {
+                Long predicted = predictions.get(labels[j]);
+                matrix[i][j] = predicted == null ? 0 : predicted;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @return (false positive rate, true positive rate) points of the ROC curve, from (0, 0) to (1, 1)
+     */
+    public List<double[]> getRoc() {
+        long totalPositives = sum(positives);
+        long totalNegatives = sum(negatives);
+        List<double[]> roc = new ArrayList<double[]>();
+        roc.add(new double[] { 0, 0 });
+        long truePositives = 0;
+        long falsePositives = 0;
+        for (int i = positives.length - 1; i >= 0; i--) {
+            if (positives[i] == 0 && negatives[i] == 0) {
+                continue;
+            }
+            truePositives += positives[i];
+            falsePositives += negatives[i];
+            roc.add(new double[] { rate(falsePositives, totalNegatives), rate(truePositives, totalPositives) });
+        }
+        roc.add(new double[] { 1, 1 });
+        return roc;
+    }
+
+    /**
+     * @return (recall, precision) points of the precision-recall curve, starting at recall 0
+     */
+    public List<double[]> getPr() {
+        long totalPositives = sum(positives);
+        List<double[]> pr = new ArrayList<double[]>();
+        long truePositives = 0;
+        long falsePositives = 0;
+        for (int i = positives.length - 1; i >= 0; i--) {
+            if (positives[i] == 0 && negatives[i] == 0) {
+                continue;
+            }
+            truePositives += positives[i];
+            falsePositives += negatives[i];
+            double precision = rate(truePositives, truePositives + falsePositives);
+            if (pr.isEmpty()) {
+                pr.add(new double[] { 0, precision });
+            }
+            pr.add(new double[] { rate(truePositives, totalPositives), precision });
+        }
+        return pr;
+    }
+
+    /**
+     * @return area under the ROC curve, by the trapezoidal rule
+     */
+    public double getAreaUnderRoc() {
+        return area(getRoc());
+    }
+
+    /**
+     * @return area under the precision-recall curve, by the trapezoidal rule
+     */
+    public double getAreaUnderPr() {
+        return area(getPr());
+    }
+
+    public List<TestResultDataPoint> getSample() {
+        return sample;
+    }
+
+    private static double area(List<double[]> curve) {
+        double area = 0;
+        for (int i = 1; i < curve.size(); i++) {
+            double[] previous = curve.get(i - 1);
+            double[] point = curve.get(i);
+            area += (point[0] - previous[0]) * (point[1] + previous[1]) / 2;
+        }
+        return area;
+    }
+
+    private static double rate(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}
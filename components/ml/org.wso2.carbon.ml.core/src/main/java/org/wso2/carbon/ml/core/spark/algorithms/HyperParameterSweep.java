@@ -0,0 +1,382 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.wso2.carbon.ml.commons.domain.MLHyperParameterSweep;
+import org.wso2.carbon.ml.commons.domain.MLModel;
+import org.wso2.carbon.ml.commons.domain.MLSweepCandidate;
+import org.wso2.carbon.ml.commons.domain.MLSweepLeaderboard;
+import org.wso2.carbon.ml.commons.domain.ModelSummary;
+import org.wso2.carbon.ml.commons.domain.Workflow;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+import org.wso2.carbon.ml.core.factories.AlgorithmType;
+import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+import org.wso2.carbon.ml.core.spark.BuildProgressTracker;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
+import org.wso2.carbon.ml.core.spark.summary.ClassClassificationAndRegressionModelSummary;
+import org.wso2.carbon.ml.core.spark.summary.ProbabilisticClassificationModelSummary;
+import org.wso2.carbon.ml.core.utils.BlockingExecutor;
+import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
+
+/**
+ * Sweeps the hyperparameters of a supervised Spark algorithm. The data is pre-processed and split once, and the
+ * candidate configurations are fitted concurrently on the cached splits, on the ML thread pool of the tenant and in
+ * the Spark FAIR scheduler pool of the tenant, so that a sweep gets no larger share of the cluster than any other
+ * build of the tenant. The leaderboard is published as snapshots of the candidates, which are
+ * safe to read while the sweep goes on. With early stopping, candidates are raced by successive halving: all of them
+ * are fitted on a small sample of the training data, and only the best 1/eta of them go on to a sample eta times
+ * larger, until the survivors are fitted on all the training data.
+ */
+public class HyperParameterSweep {
+
+    private static final Log log = LogFactory.getLog(HyperParameterSweep.class);
+    public static final String ACCURACY = "Accuracy";
+    public static final String MEAN_SQUARED_ERROR = "MeanSquaredError";
+
+    private final MLModelConfigurationContext context;
+    private final MLHyperParameterSweep sweep;
+    private final MLSweepLeaderboard leaderboard;
+    private final int tenantId;
+    private final boolean lowerIsBetter;
+    private final List<MLSweepCandidate> candidates = new ArrayList<MLSweepCandidate>();
+    private MLModel bestModel;
+    private ModelSummary bestSummary;
+    private Double bestMetric;
+
+    /**
+     * @param context context of the model the best candidate is built as
+     * @param sweep values to try per hyperparameter and how to search them
+     * @param leaderboard leaderboard to publish the candidates to, as they are fitted
+     * @param tenantId tenant the candidates are fitted for
+     */
+    public HyperParameterSweep(MLModelConfigurationContext context, MLHyperParameterSweep sweep,
+            MLSweepLeaderboard leaderboard, int tenantId) {
+        this.context = context;
+        this.sweep = sweep;
+        this.leaderboard = leaderboard;
+        this.tenantId = tenantId;
+        this.lowerIsBetter = AlgorithmType.NUMERICAL_PREDICTION.getValue().equals(
+                context.getFacts().getAlgorithmClass());
+        leaderboard.setMetricName(lowerIsBetter ? MEAN_SQUARED_ERROR : ACCURACY);
+        leaderboard.setLowerIsBetter(lowerIsBetter);
+
+        Map<String, String> base = context.getFacts().getHyperParameters();
+        List<Map<String, String>> configurations = MLHyperParameterSweep.RANDOM_SEARCH.equals(sweep.getSearchType())
+                ? randomCandidates(base, sweep.getHyperParameters(), sweep.getNumberOfCandidates(), sweep.getSeed())
+                : gridCandidates(base, sweep.getHyperParameters());
+        for (Map<String, String> configuration : configurations) {
+            MLSweepCandidate candidate = new MLSweepCandidate();
+            candidate.setHyperParameters(configuration);
+            candidates.add(candidate);
+        }
+        publish();
+    }
+
+    /**
+     * Run the sweep.
+     *
+     * @param progressTracker tracker of the build of the sweep, to report the cached data in, or null
+     * @throws MLModelBuilderException if the data cannot be pre-processed or none of the candidates can be fitted
+     */
+    public void run(BuildProgressTracker progressTracker) throws MLModelBuilderException {
+        SupervisedSparkModelBuilder splitter = new SupervisedSparkModelBuilder(context);
+        PersistenceManager persistence = new PersistenceManager(context.getSparkContext(), MLCoreServiceValueHolder
+                .getInstance().getStorageLevel(), "Sweep of model [id] " + context.getModelId());
+        if (progressTracker != null) {
+            progressTracker.track(persistence);
+        }
+        JavaRDD<LabeledPoint>[] dataSplit = splitter.split(persistence);
+        // read by every iteration of the candidates of the last rung
+        JavaRDD<LabeledPoint> trainingData = persistence.persist("trainingData", dataSplit[0]);
+        JavaRDD<LabeledPoint> testingData = dataSplit[1].cache();
+        try {
+            double[] fractions = sweep.isEarlyStopping() ? trainingFractions(candidates.size(),
+                    sweep.getReductionFactor()) : new double[] { 1 };
+            List<MLSweepCandidate> survivors = new ArrayList<MLSweepCandidate>(candidates);
+            for (int rung = 0; rung < fractions.length; rung++) {
+                boolean lastRung = rung == fractions.length - 1;
+                String rungName = "rung" + rung;
+                JavaRDD<LabeledPoint> rungData = lastRung ? trainingData : persistence.persist(rungName,
+                        trainingData.sample(false, fractions[rung], sweep.getSeed() + rung));
+                try {
+                    fitAll(survivors, rungData, testingData, fractions[rung], lastRung);
+                } finally {
+                    persistence.release(rungName);
+                }
+                rank(survivors, lowerIsBetter);
+                if (!lastRung) {
+                    // failed candidates are ranked last and not retried
+                    int keep = (survivors.size() + sweep.getReductionFactor() - 1) / sweep.getReductionFactor();
+                    List<MLSweepCandidate> next = new ArrayList<MLSweepCandidate>();
+                    for (MLSweepCandidate candidate : survivors) {
+                        if (MLSweepCandidate.STATUS_COMPLETED.equals(candidate.getStatus())) {
+                            if (next.size() < keep) {
+                                next.add(candidate);
+                            } else {
+                                candidate.setStatus(MLSweepCandidate.STATUS_STOPPED);
+                            }
+                        }
+                    }
+                    survivors = next;
+                }
+                publish();
+            }
+        } finally {
+            testingData.unpersist();
+            persistence.releaseAll();
+        }
+        if (bestModel == null) {
+            throw new MLModelBuilderException(String.format("None of the %s candidates of model [id] %s could be "
+                    + "fitted.", candidates.size(), context.getModelId()));
+        }
+    }
+
+    /**
+     * @return the best candidate fitted on all the training data, null before {@link #run(BuildProgressTracker)}
+     */
+    public MLModel getBestModel() {
+        return bestModel;
+    }
+
+    /**
+     * @return summary of {@link #getBestModel()}
+     */
+    public ModelSummary getBestSummary() {
+        return bestSummary;
+    }
+
+    private void fitAll(List<MLSweepCandidate> survivors, final JavaRDD<LabeledPoint> trainingData,
+            final JavaRDD<LabeledPoint> testingData, final double fraction, final boolean keepBest)
+            throws MLModelBuilderException {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (final MLSweepCandidate candidate : survivors) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Workflow workflow = (Workflow) SerializationUtils.clone(context.getFacts());
+                        workflow.setHyperParameters(candidate.getHyperParameters());
+                        SupervisedSparkModelBuilder builder = new SupervisedSparkModelBuilder(context);
+                        MLModel mlModel = new MLModel();
+                        ModelSummary summary = builder.fit(workflow, mlModel, trainingData, testingData);
+                        Double metric = metricOf(summary);
+                        candidate.setMetric(metric);
+                        candidate.setTrainingFraction(fraction);
+                        candidate.setStatus(MLSweepCandidate.STATUS_COMPLETED);
+                        if (keepBest) {
+                            offer(mlModel, summary, metric);
+                        }
+                    } catch (MLModelBuilderException | RuntimeException e) {
+                        log.warn(String.format("Failed to fit candidate %s of model [id] %s: %s",
+                                candidate.getHyperParameters(), context.getModelId(), e.getMessage()));
+                        candidate.setMetric(null);
+                        candidate.setStatus(MLSweepCandidate.STATUS_FAILED);
+                        candidate.setError(e.getMessage());
+                    }
+                }
+            });
+        }
+        MLCoreServiceValueHolder valueHolder = MLCoreServiceValueHolder.getInstance();
+        BlockingExecutor executor = valueHolder.getThreadExecutor();
+        int parallelism = Math.max(1, Math.min(sweep.getParallelism(), valueHolder.getMaxSweepParallelism()));
+        try {
+            executor.runAll(tasks, tenantId, parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MLModelBuilderException("Interrupted while sweeping model [id] " + context.getModelId(), e);
+        } catch (RuntimeException e) {
+            throw new MLModelBuilderException("Failed to sweep model [id] " + context.getModelId(), e);
+        }
+    }
+
+    private synchronized void offer(MLModel mlModel, ModelSummary summary, Double metric) {
+        if (metric != null && (bestMetric == null || compare(metric, bestMetric, lowerIsBetter) < 0)) {
+            bestModel = mlModel;
+            bestSummary = summary;
+            bestMetric = metric;
+        }
+    }
+
+    private Double metricOf(ModelSummary summary) {
+        double metric = Double.NaN;
+        if (summary instanceof ClassClassificationAndRegressionModelSummary) {
+            ClassClassificationAndRegressionModelSummary classificationAndRegressionSummary =
+                    (ClassClassificationAndRegressionModelSummary) summary;
+            metric = lowerIsBetter ? classificationAndRegressionSummary.getMeanSquaredError()
+                    : classificationAndRegressionSummary.getModelAccuracy();
+        } else if (summary instanceof ProbabilisticClassificationModelSummary) {
+            metric = ((ProbabilisticClassificationModelSummary) summary).getModelAccuracy();
+        }
+        return Double.isNaN(metric) || Double.isInfinite(metric) ? null : metric;
+    }
+
+    private void publish() {
+        List<MLSweepCandidate> snapshot = new ArrayList<MLSweepCandidate>();
+        for (MLSweepCandidate candidate : candidates) {
+            snapshot.add(copy(candidate));
+        }
+        rank(snapshot, lowerIsBetter);
+        leaderboard.setCandidates(Collections.unmodifiableList(snapshot));
+    }
+
+    private static MLSweepCandidate copy(MLSweepCandidate candidate) {
+        MLSweepCandidate copy = new MLSweepCandidate();
+        copy.setHyperParameters(candidate.getHyperParameters());
+        copy.setMetric(candidate.getMetric());
+        copy.setTrainingFraction(candidate.getTrainingFraction());
+        copy.setStatus(candidate.getStatus());
+        copy.setError(candidate.getError());
+        return copy;
+    }
+
+    /**
+     * Number of candidates a sweep tries, without generating them.
+     *
+     * @param sweep values to try per hyperparameter and how to search them
+     * @return number of candidates, at most {@link Integer#MAX_VALUE}
+     */
+    public static long countCandidates(MLHyperParameterSweep sweep) {
+        long combinations = combinations(sweep.getHyperParameters());
+        return MLHyperParameterSweep.RANDOM_SEARCH.equals(sweep.getSearchType()) ? Math.min(combinations,
+                Math.max(0, sweep.getNumberOfCandidates())) : combinations;
+    }
+
+    private static long combinations(Map<String, List<String>> values) {
+        long combinations = 1;
+        for (List<String> hyperParameterValues : values.values()) {
+            int size = hyperParameterValues == null ? 0 : hyperParameterValues.size();
+            combinations = Math.min(combinations * size, Integer.MAX_VALUE);
+        }
+        return combinations;
+    }
+
+    /**
+     * Every combination of the given values, in the order of the hyperparameter names.
+     *
+     * @param base hyperparameters of the analysis
+     * @param values values to try per hyperparameter
+     * @return the base hyperparameters with each combination of values
+     */
+    public static List<Map<String, String>> gridCandidates(Map<String, String> base, Map<String, List<String>> values) {
+        List<Map<String, String>> candidates = new ArrayList<Map<String, String>>();
+        candidates.add(new LinkedHashMap<String, String>(base));
+        for (Map.Entry<String, List<String>> entry : new TreeMap<String, List<String>>(values).entrySet()) {
+            List<Map<String, String>> expanded = new ArrayList<Map<String, String>>();
+            for (Map<String, String> candidate : candidates) {
+                for (String value : entry.getValue()) {
+                    Map<String, String> hyperParameters = new LinkedHashMap<String, String>(candidate);
+                    hyperParameters.put(entry.getKey(), value);
+                    expanded.add(hyperParameters);
+                }
+            }
+            candidates = expanded;
+        }
+        return candidates;
+    }
+
+    /**
+     * Distinct random combinations of the given values, or every combination if there are not more than the number
+     * asked for.
+     *
+     * @param base hyperparameters of the analysis
+     * @param values values to try per hyperparameter
+     * @param size number of combinations
+     * @param seed random seed
+     * @return the base hyperparameters with each combination of values
+     */
+    public static List<Map<String, String>> randomCandidates(Map<String, String> base,
+            Map<String, List<String>> values, int size, long seed) {
+        Map<String, List<String>> sortedValues = new TreeMap<String, List<String>>(values);
+        if (combinations(sortedValues) <= size) {
+            return gridCandidates(base, values);
+        }
+        Random random = new Random(seed);
+        Set<Map<String, String>> candidates = new LinkedHashSet<Map<String, String>>();
+        while (candidates.size() < size) {
+            Map<String, String> hyperParameters = new LinkedHashMap<String, String>(base);
+            for (Map.Entry<String, List<String>> entry : sortedValues.entrySet()) {
+                hyperParameters.put(entry.getKey(), entry.getValue().get(random.nextInt(entry.getValue().size())));
+            }
+            candidates.add(hyperParameters);
+        }
+        return new ArrayList<Map<String, String>>(candidates);
+    }
+
+    /**
+     * Fractions of the training data each round of successive halving fits its candidates on: eta^-r, ..., 1/eta, 1
+     * where r is the number of times the candidates can be reduced by eta.
+     *
+     * @param size number of candidates
+     * @param reductionFactor eta, the factor by which candidates are reduced per round
+     * @return fractions of the training data, the last one being 1
+     */
+    public static double[] trainingFractions(int size, int reductionFactor) {
+        int rounds = 0;
+        if (reductionFactor > 1) {
+            for (long remaining = reductionFactor; remaining <= size; remaining *= reductionFactor) {
+                rounds++;
+            }
+        }
+        double[] fractions = new double[rounds + 1];
+        fractions[rounds] = 1;
+        for (int i = rounds - 1; i >= 0; i--) {
+            fractions[i] = fractions[i + 1] / reductionFactor;
+        }
+        return fractions;
+    }
+
+    /**
+     * Sort candidates best first: candidates fitted on more training data first, then by metric. Candidates without
+     * a metric go last.
+     */
+    static void rank(List<MLSweepCandidate> candidates, final boolean lowerIsBetter) {
+        Collections.sort(candidates, new Comparator<MLSweepCandidate>() {
+            @Override
+            public int compare(MLSweepCandidate first, MLSweepCandidate second) {
+                if (first.getMetric() == null || second.getMetric() == null) {
+                    return first.getMetric() == null ? (second.getMetric() == null ? 0 : 1) : -1;
+                }
+                if (first.getTrainingFraction() != second.getTrainingFraction()) {
+                    return Double.compare(second.getTrainingFraction(), first.getTrainingFraction());
+                }
+                return HyperParameterSweep.compare(first.getMetric(), second.getMetric(), lowerIsBetter);
+            }
+        });
+    }
+
+    private static int compare(double first, double second, boolean lowerIsBetter) {
+        return lowerIsBetter ? Double.compare(first, second) : Double.compare(second, first);
+    }
+}
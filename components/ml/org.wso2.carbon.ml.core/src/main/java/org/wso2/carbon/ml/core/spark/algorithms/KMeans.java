@@ -56,6 +56,23 @@ public class KMeans implements Serializable {
         return org.apache.spark.mllib.clustering.KMeans.train(data.rdd(), noOfClusters, noOfIterations);
     }
 
+    /**
+     * This method trains a k-means clustering model starting from the cluster centres of a previous model
+     *
+     * @param data           Training data as a JavaRDD of Vectors
+     * @param noOfClusters   Number of clusters, that of the initial model
+     * @param noOfIterations Maximum number of iterations to run
+     * @param initialModel   Model whose cluster centres to start from, or null to pick them with k-means||
+     * @return {@link org.apache.spark.mllib.clustering.KMeansModel} object
+     */
+    public KMeansModel train(JavaRDD<Vector> data, int noOfClusters, int noOfIterations, KMeansModel initialModel) {
+        if (initialModel == null) {
+            return train(data, noOfClusters, noOfIterations);
+        }
+        return new org.apache.spark.mllib.clustering.KMeans().setK(noOfClusters).setMaxIterations(noOfIterations)
+                .setInitialModel(initialModel).run(data.rdd());
+    }
+
     /**
      * This method applies a kmeans model to a given dataset
      *
@@ -20,6 +20,8 @@ package org.wso2.carbon.ml.core.spark.algorithms;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
 import org.apache.spark.mllib.regression.LabeledPoint;
 import org.apache.spark.mllib.regression.LinearRegressionModel;
 import org.apache.spark.mllib.regression.LinearRegressionWithSGD;
@@ -46,6 +48,38 @@ public class LinearRegression implements Serializable {
                 miniBatchFraction);
     }
 
+    /**
+     * This method uses stochastic gradient descent (SGD) algorithm to train a linear regression model, optionally
+     * warm-started from a previous model and stopping early once the loss on a validation slice of the training
+     * dataset stops improving
+     *
+     * @param trainingDataset       Training dataset as a JavaRDD of LabeledPoints
+     * @param noOfIterations        Maximum number of iterarations
+     * @param initialLearningRate   Initial learning rate (SGD step size)
+     * @param miniBatchFraction     SGD minibatch fraction
+     * @param earlyStopping         Early stopping settings, holding the number of iterations used once trained,
+     *                              or null to run all the iterations
+     * @param initialModel          Model to start from, e.g. a previous model of the same features, or null to
+     *                              start from zero weights
+     * @return                      Linear regression model
+     */
+    public LinearRegressionModel train(JavaRDD<LabeledPoint> trainingDataset, int noOfIterations,
+            double initialLearningRate, double miniBatchFraction, EarlyStopping earlyStopping,
+            GeneralizedLinearModel initialModel) {
+        LinearRegressionWithSGD linearRegressionWithSGD = new LinearRegressionWithSGD();
+        linearRegressionWithSGD.optimizer().setStepSize(initialLearningRate).setMiniBatchFraction(miniBatchFraction);
+        Vector initialWeights = initialModel == null ? null : initialModel.weights();
+        if (earlyStopping != null) {
+            return earlyStopping.train(linearRegressionWithSGD, linearRegressionWithSGD.optimizer(), trainingDataset,
+                    noOfIterations, EarlyStopping.Loss.SQUARED, initialWeights);
+        }
+        linearRegressionWithSGD.optimizer().setNumIterations(noOfIterations);
+        if (initialWeights == null) {
+            return linearRegressionWithSGD.run(trainingDataset.rdd());
+        }
+        return linearRegressionWithSGD.run(trainingDataset.rdd(), initialWeights);
+    }
+
     /**
      * Linear regression train - overload method with 1 parameter
      *
@@ -23,14 +23,18 @@ import org.apache.spark.api.java.function.Function;
 import org.apache.spark.mllib.classification.LogisticRegressionModel;
 import org.apache.spark.mllib.classification.LogisticRegressionWithLBFGS;
 import org.apache.spark.mllib.classification.LogisticRegressionWithSGD;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.linalg.Vectors;
 import org.apache.spark.mllib.optimization.L1Updater;
 import org.apache.spark.mllib.optimization.SquaredL2Updater;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
 import org.apache.spark.mllib.regression.LabeledPoint;
 import org.wso2.carbon.ml.commons.constants.MLConstants;
 
 import scala.Tuple2;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 public class LogisticRegression implements Serializable {
 
@@ -51,6 +55,30 @@ public class LogisticRegression implements Serializable {
     public LogisticRegressionModel trainWithSGD(JavaRDD<LabeledPoint> trainingDataset, double initialLearningRate,
             int noOfIterations, String regularizationType, double regularizationParameter,
             double dataFractionPerSGDIteration) {
+        return trainWithSGD(trainingDataset, initialLearningRate, noOfIterations, regularizationType,
+                regularizationParameter, dataFractionPerSGDIteration, null, null);
+    }
+
+    /**
+     * This method uses stochastic gradient descent (SGD) algorithm to train a logistic regression model,
+     * optionally warm-started from a previous model and stopping early once the loss on a validation slice of the
+     * training dataset stops improving
+     *
+     * @param trainingDataset               Training dataset as a JavaRDD of labeled points
+     * @param noOfIterations                Maximum no of iterations
+     * @param initialLearningRate           Initial learning rate
+     * @param regularizationType            Regularization type : L1 or L2
+     * @param regularizationParameter       Regularization parameter
+     * @param dataFractionPerSGDIteration   Data fraction per SGD iteration
+     * @param earlyStopping                 Early stopping settings, holding the number of iterations used once
+     *                                      trained, or null to run all the iterations
+     * @param initialModel                  Model to start from, e.g. a previous model of the same features, or
+     *                                      null to start from zero weights
+     * @return                              Logistic regression model
+     */
+    public LogisticRegressionModel trainWithSGD(JavaRDD<LabeledPoint> trainingDataset, double initialLearningRate,
+            int noOfIterations, String regularizationType, double regularizationParameter,
+            double dataFractionPerSGDIteration, EarlyStopping earlyStopping, GeneralizedLinearModel initialModel) {
         LogisticRegressionWithSGD lrSGD = new LogisticRegressionWithSGD(initialLearningRate, noOfIterations, 
                 regularizationParameter, dataFractionPerSGDIteration);
         if (MLConstants.L1.equals(regularizationType)) {
@@ -58,6 +86,19 @@ public class LogisticRegression implements Serializable {
         } else if (MLConstants.L2.equals(regularizationType)) {
             lrSGD.optimizer().setUpdater(new SquaredL2Updater());
         }
+        if (earlyStopping != null || initialModel != null) {
+            // a warm start resets the intercept, so that it is learnt as the weight of a constant feature instead
+            JavaRDD<LabeledPoint> withBias = trainingDataset.map(new AppendBias());
+            Vector initialWeights = initialModel != null ? biasWeights(initialModel) : null;
+            LogisticRegressionModel model;
+            if (earlyStopping != null) {
+                model = earlyStopping.train(lrSGD, lrSGD.optimizer(), withBias, noOfIterations,
+                        EarlyStopping.Loss.LOGISTIC, initialWeights);
+            } else {
+                model = lrSGD.run(withBias.rdd(), initialWeights);
+            }
+            return withIntercept(model);
+        }
         lrSGD.setIntercept(true);
         return lrSGD.run(trainingDataset.rdd());
     }
@@ -102,4 +143,42 @@ public class LogisticRegression implements Serializable {
                 }
         );
     }
+
+    /**
+     * @param model model with an intercept
+     * @return weights of the model for feature vectors with a constant feature of 1 appended, the intercept being
+     *         the weight of that feature
+     */
+    static Vector biasWeights(GeneralizedLinearModel model) {
+        double[] weights = model.weights().toArray();
+        double[] withBias = Arrays.copyOf(weights, weights.length + 1);
+        withBias[weights.length] = model.intercept();
+        return Vectors.dense(withBias);
+    }
+
+    /**
+     * @param model model trained on feature vectors with a constant feature of 1 appended, and no intercept
+     * @return the model for the feature vectors without the constant feature, its weight being the intercept
+     */
+    static LogisticRegressionModel withIntercept(LogisticRegressionModel model) {
+        double[] weights = model.weights().toArray();
+        return new LogisticRegressionModel(Vectors.dense(Arrays.copyOf(weights, weights.length - 1)),
+                weights[weights.length - 1]);
+    }
+
+    /**
+     * Appends a constant feature of 1 to a labeled point.
+     */
+    static class AppendBias implements Function<LabeledPoint, LabeledPoint> {
+
+        private static final long serialVersionUID = 3914532061862412275L;
+
+        @Override
+        public LabeledPoint call(LabeledPoint point) {
+            double[] features = point.features().toArray();
+            double[] withBias = Arrays.copyOf(features, features.length + 1);
+            withBias[features.length] = 1;
+            return new LabeledPoint(point.label(), Vectors.dense(withBias));
+        }
+    }
 }
@@ -2,6 +2,8 @@ package org.wso2.carbon.ml.core.spark.algorithms;
 
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
 import org.apache.spark.mllib.regression.LabeledPoint;
 import org.apache.spark.mllib.regression.RidgeRegressionModel;
 import org.apache.spark.mllib.regression.RidgeRegressionWithSGD;
@@ -28,6 +30,40 @@ public class RidgeRegression implements Serializable {
                 regularizationParameter, miniBatchFraction);
     }
 
+    /**
+     * This method uses stochastic gradient descent (SGD) algorithm to train a ridge regression model, optionally
+     * warm-started from a previous model and stopping early once the loss on a validation slice of the training
+     * dataset stops improving
+     *
+     * @param trainingDataset           Training dataset as a JavaRDD of LabeledPoints
+     * @param noOfIterations            Maximum number of iterarations
+     * @param initialLearningRate       Initial learning rate (SGD step size)
+     * @param regularizationParameter   Regularization parameter
+     * @param miniBatchFraction         SGD minibatch fraction
+     * @param earlyStopping             Early stopping settings, holding the number of iterations used once trained,
+     *                                  or null to run all the iterations
+     * @param initialModel              Model to start from, e.g. a previous model of the same features, or null
+     *                                  to start from zero weights
+     * @return                          Ridge regression model
+     */
+    public RidgeRegressionModel train(JavaRDD<LabeledPoint> trainingDataset, int noOfIterations,
+            double initialLearningRate, double regularizationParameter, double miniBatchFraction,
+            EarlyStopping earlyStopping, GeneralizedLinearModel initialModel) {
+        RidgeRegressionWithSGD ridgeRegressionWithSGD = new RidgeRegressionWithSGD();
+        ridgeRegressionWithSGD.optimizer().setStepSize(initialLearningRate).setRegParam(regularizationParameter)
+                .setMiniBatchFraction(miniBatchFraction);
+        Vector initialWeights = initialModel == null ? null : initialModel.weights();
+        if (earlyStopping != null) {
+            return earlyStopping.train(ridgeRegressionWithSGD, ridgeRegressionWithSGD.optimizer(), trainingDataset,
+                    noOfIterations, EarlyStopping.Loss.SQUARED, initialWeights);
+        }
+        ridgeRegressionWithSGD.optimizer().setNumIterations(noOfIterations);
+        if (initialWeights == null) {
+            return ridgeRegressionWithSGD.run(trainingDataset.rdd());
+        }
+        return ridgeRegressionWithSGD.run(trainingDataset.rdd(), initialWeights);
+    }
+
     /**
      * This method applies ridge regression using a given model and a dataset
      *
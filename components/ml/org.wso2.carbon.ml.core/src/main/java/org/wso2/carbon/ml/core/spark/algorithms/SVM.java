@@ -22,8 +22,10 @@ import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.mllib.classification.SVMModel;
 import org.apache.spark.mllib.classification.SVMWithSGD;
+import org.apache.spark.mllib.linalg.Vector;
 import org.apache.spark.mllib.optimization.L1Updater;
 import org.apache.spark.mllib.optimization.SquaredL2Updater;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
 import org.apache.spark.mllib.regression.LabeledPoint;
 import org.wso2.carbon.ml.commons.constants.MLConstants;
 
@@ -47,6 +49,30 @@ public class SVM implements Serializable {
      */
     public SVMModel train(JavaRDD<LabeledPoint> trainingDataset, int noOfIterations, String regularizationType,
             double regularizationParameter, double initialLearningRate, double miniBatchFraction) {
+        return train(trainingDataset, noOfIterations, regularizationType, regularizationParameter,
+                initialLearningRate, miniBatchFraction, null, null);
+    }
+
+    /**
+     * This method uses stochastic gradient descent (SGD) algorithm to train a support vector machine (SVM) model,
+     * optionally warm-started from a previous model and stopping early once the loss on a validation slice of the
+     * training dataset stops improving.
+     *
+     * @param trainingDataset         Training dataset as a JavaRDD of LabeledPoints
+     * @param noOfIterations          Maximum number of iterarations
+     * @param regularizationType      Regularization type: L1 or L2
+     * @param regularizationParameter Regularization parameter
+     * @param initialLearningRate     Initial learning rate (SGD step size)
+     * @param miniBatchFraction       SGD minibatch fraction
+     * @param earlyStopping           Early stopping settings, holding the number of iterations used once trained,
+     *                                or null to run all the iterations
+     * @param initialModel            Model to start from, e.g. a previous model of the same features, or null to
+     *                                start from zero weights
+     * @return                        SVM model
+     */
+    public SVMModel train(JavaRDD<LabeledPoint> trainingDataset, int noOfIterations, String regularizationType,
+            double regularizationParameter, double initialLearningRate, double miniBatchFraction,
+            EarlyStopping earlyStopping, GeneralizedLinearModel initialModel) {
         SVMWithSGD svmWithSGD = new SVMWithSGD();
         if (regularizationType.equals(MLConstants.L1)) {
             svmWithSGD.optimizer().setUpdater(new L1Updater()).setRegParam(regularizationParameter);
@@ -55,7 +81,15 @@ public class SVM implements Serializable {
         }
         svmWithSGD.optimizer().setNumIterations(noOfIterations).setStepSize(initialLearningRate)
                 .setMiniBatchFraction(miniBatchFraction);
-        return svmWithSGD.run(trainingDataset.rdd());
+        Vector initialWeights = initialModel == null ? null : initialModel.weights();
+        if (earlyStopping != null) {
+            return earlyStopping.train(svmWithSGD, svmWithSGD.optimizer(), trainingDataset, noOfIterations,
+                    EarlyStopping.Loss.HINGE, initialWeights);
+        }
+        if (initialWeights == null) {
+            return svmWithSGD.run(trainingDataset.rdd());
+        }
+        return svmWithSGD.run(trainingDataset.rdd(), initialWeights);
     }
 
     /**
@@ -23,13 +23,15 @@ import java.util.*;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.spark.api.java.JavaDoubleRDD;
-import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
-import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.Function;
-import org.apache.spark.mllib.evaluation.BinaryClassificationMetrics;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.mllib.classification.NaiveBayesModel;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
 import org.apache.spark.mllib.regression.LabeledPoint;
+import org.apache.spark.mllib.tree.model.DecisionTreeModel;
+import org.apache.spark.mllib.tree.model.RandomForestModel;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -43,10 +45,10 @@ import org.wso2.carbon.ml.core.spark.summary.ProbabilisticClassificationModelSum
 import org.wso2.carbon.ml.core.spark.summary.TestResultDataPoint;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 
-import scala.Tuple2;
-
 public class SparkModelUtils {
     private static final Log log = LogFactory.getLog(SparkModelUtils.class);
+    // number of score bins of the ROC and precision-recall curves
+    private static final int ROC_BINS = 1000;
 
     /**
      * Private constructor to prevent any other class from instantiating.
@@ -54,214 +56,214 @@ public class SparkModelUtils {
     private SparkModelUtils() {
     }
 
+    /**
+     * Evaluate a classification model in a single pass over the test data.
+     *
+     * @param testingData test data
+     * @param scorer predicts the class of a test point
+     * @return confusion matrix, error and a sample of the test points
+     */
+    public static EvaluationMetrics evaluateClassification(JavaRDD<LabeledPoint> testingData,
+            Function<Vector, Double> scorer) {
+        return evaluate(testingData, scorer, null, new EvaluationMetrics(getSampleSize(), true, 0, false));
+    }
+
+    /**
+     * Evaluate a binary classification model in a single pass over the test data.
+     *
+     * @param testingData test data
+     * @param scorer scores a test point, a test point being predicted positive if its score is above the threshold
+     * @param threshold threshold of the model
+     * @param probabilities whether the scores are probabilities
+     * @return confusion matrix, error, binned ROC and precision-recall curves and a sample of the test points
+     */
+    public static EvaluationMetrics evaluateBinaryClassification(JavaRDD<LabeledPoint> testingData,
+            Function<Vector, Double> scorer, double threshold, boolean probabilities) {
+        return evaluate(testingData, scorer, threshold, new EvaluationMetrics(getSampleSize(), true, ROC_BINS,
+                probabilities));
+    }
+
+    /**
+     * Evaluate a regression model in a single pass over the test data.
+     *
+     * @param testingData test data
+     * @param scorer predicts the value of a test point
+     * @return errors and a sample of the test points
+     */
+    public static EvaluationMetrics evaluateRegression(JavaRDD<LabeledPoint> testingData,
+            Function<Vector, Double> scorer) {
+        return evaluate(testingData, scorer, null, new EvaluationMetrics(getSampleSize(), false, 0, false));
+    }
+
+    private static EvaluationMetrics evaluate(JavaRDD<LabeledPoint> testingData, Function<Vector, Double> scorer,
+            Double threshold, EvaluationMetrics metrics) {
+        return testingData.treeAggregate(metrics, new AddTestPoint(scorer, threshold), new MergeEvaluationMetrics());
+    }
+
+    private static int getSampleSize() {
+        return MLCoreServiceValueHolder.getInstance().getSummaryStatSettings().getSampleSize();
+    }
+
+    /**
+     * @return scorer of a linear model, the score of a classifier whose threshold is cleared
+     */
+    public static Function<Vector, Double> scorer(final GeneralizedLinearModel model) {
+        return new Function<Vector, Double>() {
+            private static final long serialVersionUID = 3870461262212564738L;
+
+            @Override
+            public Double call(Vector features) {
+                return model.predict(features);
+            }
+        };
+    }
+
+    public static Function<Vector, Double> scorer(final NaiveBayesModel model) {
+        return new Function<Vector, Double>() {
+            private static final long serialVersionUID = -5537340839281713745L;
+
+            @Override
+            public Double call(Vector features) {
+                return model.predict(features);
+            }
+        };
+    }
+
+    public static Function<Vector, Double> scorer(final DecisionTreeModel model) {
+        return new Function<Vector, Double>() {
+            private static final long serialVersionUID = 1209433167512734196L;
+
+            @Override
+            public Double call(Vector features) {
+                return model.predict(features);
+            }
+        };
+    }
+
+    public static Function<Vector, Double> scorer(final RandomForestModel model) {
+        return new Function<Vector, Double>() {
+            private static final long serialVersionUID = -8121864412907651375L;
+
+            @Override
+            public Double call(Vector features) {
+                return model.predict(features);
+            }
+        };
+    }
+
     /**
      * A utility method to generate probabilistic classification model summary
      *
-     * @param scoresAndLabels   Tuple2 containing scores and labels
-     * @return                  Probabilistic classification model summary
+     * @param metrics   evaluation metrics of the model
+     * @return          Probabilistic classification model summary
      */
-    public static ProbabilisticClassificationModelSummary generateProbabilisticClassificationModelSummary(JavaSparkContext sparkContext,
-                                                                                                          JavaRDD<LabeledPoint> testingData,
-                                                                                                          JavaRDD<Tuple2<Object, Object>> scoresAndLabels) {
-        int sampleSize = MLCoreServiceValueHolder.getInstance().getSummaryStatSettings().getSampleSize();
+    public static ProbabilisticClassificationModelSummary generateProbabilisticClassificationModelSummary(
+            EvaluationMetrics metrics) {
         ProbabilisticClassificationModelSummary probabilisticClassificationModelSummary =
                 new ProbabilisticClassificationModelSummary();
-        // store predictions and actuals
-        List<PredictedVsActual> predictedVsActuals = new ArrayList<PredictedVsActual>();
         DecimalFormat decimalFormat = new DecimalFormat(MLConstants.DECIMAL_FORMAT);
-        for (Tuple2<Object, Object> scoreAndLabel : scoresAndLabels.cache().take(sampleSize)) {
-            PredictedVsActual predictedVsActual = new PredictedVsActual();
-            predictedVsActual.setPredicted(Double.parseDouble(decimalFormat.format(scoreAndLabel._1())));
-            predictedVsActual.setActual(Double.parseDouble(decimalFormat.format(scoreAndLabel._2())));
-            predictedVsActuals.add(predictedVsActual);
-            if (log.isTraceEnabled()) {
-                log.trace("Predicted: "+predictedVsActual.getPredicted() + " ------ Actual: "+predictedVsActual.getActual());
-            }
-        }
-        
-        // generate binary classification metrics
-        BinaryClassificationMetrics metrics = new BinaryClassificationMetrics(JavaRDD.toRDD(scoresAndLabels));
-        
-        scoresAndLabels.unpersist();
-        
-        // create a list of feature values
-        List<double[]> features = new ArrayList<double[]>();
-        for (LabeledPoint labeledPoint : testingData.take(sampleSize)) {
-            if(labeledPoint != null && labeledPoint.features() != null) {
-                double[] rowFeatures = labeledPoint.features().toArray();
-                features.add(rowFeatures);
-            }
-        }
-        // create a list of feature values with predicted vs. actuals
-        List<TestResultDataPoint> testResultDataPoints = new ArrayList<TestResultDataPoint>();
-        for(int i = 0; i < features.size(); i++) {
-            TestResultDataPoint testResultDataPoint = new TestResultDataPoint();
-            testResultDataPoint.setPredictedVsActual(predictedVsActuals.get(i));
-            testResultDataPoint.setFeatureValues(features.get(i));
-            testResultDataPoints.add(testResultDataPoint);
-        }
-        // covert List to JavaRDD
-        JavaRDD<TestResultDataPoint> testResultDataPointsJavaRDD = sparkContext.parallelize(testResultDataPoints)
-                .cache();
-        // collect RDD as a sampled list
-        List<TestResultDataPoint> testResultDataPointsSample;
-        if(testResultDataPointsJavaRDD.count() > sampleSize) {
-            testResultDataPointsSample = testResultDataPointsJavaRDD.takeSample(true, sampleSize);
-        }
-        else {
-            testResultDataPointsSample = testResultDataPointsJavaRDD.collect();
-        }
-        
-        // remove from cache
-        testResultDataPointsJavaRDD.unpersist();
-        
-        probabilisticClassificationModelSummary.setTestResultDataPointsSample(testResultDataPointsSample);
-        // store AUC
-        probabilisticClassificationModelSummary.setAuc(metrics.areaUnderROC());
-        // store ROC data points
-        JavaRDD<Tuple2<Object, Object>> rocRdd = metrics.roc().toJavaRDD().cache();
-        List<Tuple2<Object, Object>> rocData = rocRdd.collect();
-        JSONArray rocPoints = new JSONArray();
-        for (int i = 0; i < rocData.size(); i += 1) {
-            JSONArray point = new JSONArray();
-            point.put(decimalFormat.format(rocData.get(i)._1()));
-            point.put(decimalFormat.format(rocData.get(i)._2()));
-            rocPoints.put(point);
-        }
-        rocRdd.unpersist();
-        probabilisticClassificationModelSummary.setRoc(rocPoints.toString());
+        probabilisticClassificationModelSummary.setTestResultDataPointsSample(format(metrics.getSample(),
+                decimalFormat));
+        probabilisticClassificationModelSummary.setAuc(metrics.getAreaUnderRoc());
+        probabilisticClassificationModelSummary.setRoc(toJson(metrics.getRoc(), decimalFormat));
+        probabilisticClassificationModelSummary.setPr(toJson(metrics.getPr(), decimalFormat));
         return probabilisticClassificationModelSummary;
     }
 
     /**
      * A utility method to generate regression model summary
      *
-     * @param predictionsAndLabels  Tuple2 containing predicted and actual values
-     * @return                      Regression model summary
+     * @param metrics   evaluation metrics of the model
+     * @return          Regression model summary
      */
-    public static ClassClassificationAndRegressionModelSummary generateRegressionModelSummary(JavaSparkContext sparkContext,
-                                                                                              JavaRDD<LabeledPoint> testingData,
-                                                                                              JavaRDD<Tuple2<Double, Double>> predictionsAndLabels) {
-        int sampleSize = MLCoreServiceValueHolder.getInstance().getSummaryStatSettings().getSampleSize();
+    public static ClassClassificationAndRegressionModelSummary generateRegressionModelSummary(
+            EvaluationMetrics metrics) {
         ClassClassificationAndRegressionModelSummary regressionModelSummary =
                 new ClassClassificationAndRegressionModelSummary();
-        // store predictions and actuals
-        List<PredictedVsActual> predictedVsActuals = new ArrayList<PredictedVsActual>();
         DecimalFormat decimalFormat = new DecimalFormat(MLConstants.DECIMAL_FORMAT);
-        for (Tuple2<Double, Double> scoreAndLabel : predictionsAndLabels.take(sampleSize)) {
-            PredictedVsActual predictedVsActual = new PredictedVsActual();
-            predictedVsActual.setPredicted(Double.parseDouble(decimalFormat.format(scoreAndLabel._1())));
-            predictedVsActual.setActual(Double.parseDouble(decimalFormat.format(scoreAndLabel._2())));
-            predictedVsActuals.add(predictedVsActual);
-        }
-        // create a list of feature values
-        List<double[]> features = new ArrayList<double[]>();
-        for (LabeledPoint labeledPoint : testingData.take(sampleSize)) {
-            if(labeledPoint != null && labeledPoint.features() != null) {
-                double[] rowFeatures = labeledPoint.features().toArray();
-                features.add(rowFeatures);
-            }
-        }
-        // create a list of feature values with predicted vs. actuals
-        List<TestResultDataPoint> testResultDataPoints = new ArrayList<TestResultDataPoint>();
-        for(int i = 0; i < features.size(); i++) {
-            TestResultDataPoint testResultDataPoint = new TestResultDataPoint();
-            testResultDataPoint.setPredictedVsActual(predictedVsActuals.get(i));
-            testResultDataPoint.setFeatureValues(features.get(i));
-            testResultDataPoints.add(testResultDataPoint);
-        }
-        // covert List to JavaRDD
-        JavaRDD<TestResultDataPoint> testResultDataPointsJavaRDD = sparkContext.parallelize(testResultDataPoints);
-        // collect RDD as a sampled list
-        List<TestResultDataPoint> testResultDataPointsSample;
-        if(testResultDataPointsJavaRDD.count() > sampleSize) {
-            testResultDataPointsSample = testResultDataPointsJavaRDD.takeSample(true, sampleSize);
-        }
-        else {
-            testResultDataPointsSample = testResultDataPointsJavaRDD.collect();
-        }
-        
-        testResultDataPointsJavaRDD.unpersist();
-        
-        regressionModelSummary.setTestResultDataPointsSample(testResultDataPointsSample);
-        // calculate mean squared error (MSE)
-        double meanSquaredError = new JavaDoubleRDD(predictionsAndLabels.map(
-                new Function<Tuple2<Double, Double>, Object>() {
-                    private static final long serialVersionUID = -162193633199074816L;
-
-                    public Object call(Tuple2<Double, Double> pair) {
-                        return Math.pow(pair._1() - pair._2(), 2.0);
-                    }
-                }
-        ).rdd()).mean();
-        regressionModelSummary.setError(meanSquaredError);
+        regressionModelSummary.setTestResultDataPointsSample(format(metrics.getSample(), decimalFormat));
+        regressionModelSummary.setError(metrics.getMeanSquaredError());
+        regressionModelSummary.setMeanSquaredError(metrics.getMeanSquaredError());
         return regressionModelSummary;
     }
 
     /**
      * A utility method to generate class classification model summary
      *
-     * @param predictionsAndLabels Predictions and actual labels
+     * @param metrics evaluation metrics of the model
      * @return Class classification model summary
      */
-    public static ClassClassificationAndRegressionModelSummary getClassClassificationModelSummary(JavaSparkContext sparkContext,
-                                                                                                  JavaRDD<LabeledPoint> testingData,
-                                                                                                  JavaPairRDD<Double, Double> predictionsAndLabels) {
-        int sampleSize = MLCoreServiceValueHolder.getInstance().getSummaryStatSettings().getSampleSize();
+    public static ClassClassificationAndRegressionModelSummary getClassClassificationModelSummary(
+            EvaluationMetrics metrics) {
         ClassClassificationAndRegressionModelSummary classClassificationModelSummary = new
                 ClassClassificationAndRegressionModelSummary();
-        // store predictions and actuals
-        List<PredictedVsActual> predictedVsActuals = new ArrayList<PredictedVsActual>();
-        for (Tuple2<Double, Double> scoreAndLabel : predictionsAndLabels.take(sampleSize)) {
-            PredictedVsActual predictedVsActual = new PredictedVsActual();
-            predictedVsActual.setPredicted(scoreAndLabel._1());
-            predictedVsActual.setActual(scoreAndLabel._2());
-            predictedVsActuals.add(predictedVsActual);
-        }
-        // create a list of feature values
-        List<double[]> features = new ArrayList<double[]>();
-        for (LabeledPoint labeledPoint : testingData.take(sampleSize)) {
-            if(labeledPoint != null && labeledPoint.features() != null) {
-                double[] rowFeatures = labeledPoint.features().toArray();
-                features.add(rowFeatures);
+        classClassificationModelSummary.setTestResultDataPointsSample(metrics.getSample());
+        classClassificationModelSummary.setError(metrics.getError());
+        return classClassificationModelSummary;
+    }
+
+    private static List<TestResultDataPoint> format(List<TestResultDataPoint> testResults,
+            DecimalFormat decimalFormat) {
+        for (TestResultDataPoint testResult : testResults) {
+            PredictedVsActual predictedVsActual = testResult.getPredictedVsActual();
+            predictedVsActual.setPredicted(Double.parseDouble(decimalFormat.format(predictedVsActual.getPredicted())));
+            predictedVsActual.setActual(Double.parseDouble(decimalFormat.format(predictedVsActual.getActual())));
+            if (log.isTraceEnabled()) {
+                log.trace("Predicted: " + predictedVsActual.getPredicted() + " ------ Actual: "
+                        + predictedVsActual.getActual());
             }
         }
-        // create a list of feature values with predicted vs. actuals
-        List<TestResultDataPoint> testResultDataPoints = new ArrayList<TestResultDataPoint>();
-        for(int i = 0; i < features.size(); i++) {
-            TestResultDataPoint testResultDataPoint = new TestResultDataPoint();
-            testResultDataPoint.setPredictedVsActual(predictedVsActuals.get(i));
-            testResultDataPoint.setFeatureValues(features.get(i));
-            testResultDataPoints.add(testResultDataPoint);
+        return testResults;
+    }
+
+    private static String toJson(List<double[]> curve, DecimalFormat decimalFormat) {
+        JSONArray points = new JSONArray();
+        for (double[] point : curve) {
+            JSONArray jsonPoint = new JSONArray();
+            jsonPoint.put(decimalFormat.format(point[0]));
+            jsonPoint.put(decimalFormat.format(point[1]));
+            points.put(jsonPoint);
         }
-        // covert List to JavaRDD
-        JavaRDD<TestResultDataPoint> testResultDataPointsJavaRDD = sparkContext.parallelize(testResultDataPoints).cache();
-        // collect RDD as a sampled list
-        List<TestResultDataPoint> testResultDataPointsSample;
-        if(testResultDataPointsJavaRDD.count() > sampleSize) {
-            testResultDataPointsSample = testResultDataPointsJavaRDD.takeSample(true, sampleSize);
+        return points.toString();
+    }
+
+    /**
+     * Adds a test point, with the prediction of a model, to the evaluation metrics of a partition.
+     */
+    private static class AddTestPoint implements Function2<EvaluationMetrics, LabeledPoint, EvaluationMetrics> {
+
+        private static final long serialVersionUID = 4497466254961807341L;
+        private final Function<Vector, Double> scorer;
+        private final Double threshold;
+
+        AddTestPoint(Function<Vector, Double> scorer, Double threshold) {
+            this.scorer = scorer;
+            this.threshold = threshold;
         }
-        else {
-            testResultDataPointsSample = testResultDataPointsJavaRDD.collect();
+
+        @Override
+        public EvaluationMetrics call(EvaluationMetrics metrics, LabeledPoint point) throws Exception {
+            double score = scorer.call(point.features());
+            double prediction = threshold == null ? score : (score > threshold ? 1.0 : 0.0);
+            metrics.add(prediction, score, point.label(), point.features());
+            return metrics;
         }
-        
-        testResultDataPointsJavaRDD.unpersist();
-        
-        classClassificationModelSummary.setTestResultDataPointsSample(testResultDataPointsSample);
-        // calculate test error
-        double error = 1.0 * predictionsAndLabels.filter(new Function<Tuple2<Double, Double>, Boolean>() {
-            private static final long serialVersionUID = -3063364114286182333L;
+    }
 
-            @Override
-            public Boolean call(Tuple2<Double, Double> pl) {
-                return !pl._1().equals(pl._2());
-            }
-        }).count() / predictionsAndLabels.count();
-        
-        classClassificationModelSummary.setError(error);
-        return classClassificationModelSummary;
+    /**
+     * Merges the evaluation metrics of two partitions.
+     */
+    private static class MergeEvaluationMetrics implements
+            Function2<EvaluationMetrics, EvaluationMetrics, EvaluationMetrics> {
+
+        private static final long serialVersionUID = -6519187795468394152L;
+
+        @Override
+        public EvaluationMetrics call(EvaluationMetrics metrics1, EvaluationMetrics metrics2) {
+            return metrics1.merge(metrics2);
+        }
     }
-    
+
     /**
      * Build the encodings against each categorical feature.
      * @return a list of encodings - last value of the list represent the encodings for the response variable.
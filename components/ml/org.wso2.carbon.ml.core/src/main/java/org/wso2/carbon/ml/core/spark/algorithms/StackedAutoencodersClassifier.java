@@ -33,11 +33,14 @@ import org.apache.spark.mllib.regression.LabeledPoint;
 import org.wso2.carbon.ml.commons.domain.Feature;
 import org.wso2.carbon.ml.commons.domain.MLModel;
 import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+import org.wso2.carbon.ml.core.spark.BuildProgressTracker;
 import org.wso2.carbon.ml.core.utils.DeeplearningModelUtils;
 
 import scala.Tuple2;
 import water.DKV;
+import water.Job;
 import water.Key;
+import water.Keyed;
 import water.Scope;
 import water.fvec.Frame;
 import water.fvec.Vec;
@@ -67,13 +70,19 @@ public class StackedAutoencodersClassifier implements Serializable {
      * @param epochs Number of epochs to train
      * @param responseColumn Name of the response column
      * @param modelName Name of the model
+     * @param progressTracker Tracker of the build to register the H2O job with, so that it is cancelled with the
+     *            build, or null
      * @return DeepLearningModel
      */
     public DeepLearningModel train(JavaRDD<LabeledPoint> trainData, int batchSize, int[] layerSizes,
-            String activationType, int epochs, String responseColumn, String modelName, MLModel mlModel, long modelID) {
+            String activationType, int epochs, String responseColumn, String modelName, MLModel mlModel, long modelID,
+            BuildProgressTracker progressTracker) {
         // build stacked autoencoder by training the model with training data
 
         double trainingFraction = 1;
+        Frame frame = null;
+        Frame[] splits = null;
+        Key modelKey = null;
         try {
             Scope.enter();
             if (trainData != null) {
@@ -86,7 +95,7 @@ public class StackedAutoencodersClassifier implements Serializable {
                 }
                 names[numberOfFeatures] = mlModel.getResponseVariable();
 
-                Frame frame = DeeplearningModelUtils.javaRDDToFrame(names, trainData);
+                frame = DeeplearningModelUtils.javaRDDToFrame(names, trainData);
 
                 // H2O uses default C<x> for column header
                 // String classifColName = "C" + frame.numCols();
@@ -101,7 +110,7 @@ public class StackedAutoencodersClassifier implements Serializable {
                 // barrier onExCompletion for hex.deeplearning.DeepLearning$DeepLearningDriver@78ec854
                 double[] ratios = new double[] { trainingFraction, 1 - trainingFraction };
                 @SuppressWarnings("unchecked")
-                Frame[] splits = ShuffleSplitFrame.shuffleSplitFrame(frame, generateNumKeys(frame._key, ratios.length),
+                splits = ShuffleSplitFrame.shuffleSplitFrame(frame, generateNumKeys(frame._key, ratios.length),
                         ratios, 123456789);
 
                 Frame trainFrame = splits[0];
@@ -117,7 +126,8 @@ public class StackedAutoencodersClassifier implements Serializable {
                 String dlModelName = modelName.replace('.', '_').replace('-', '_');
 
                 // populate model parameters
-                deeplearningParameters._model_id = Key.make(dlModelName + "_dl");
+                modelKey = Key.make(dlModelName + "_dl");
+                deeplearningParameters._model_id = modelKey;
                 deeplearningParameters._train = trainFrame._key;
                 deeplearningParameters._valid = vframe._key;
                 deeplearningParameters._response_column = classifColName; // last column is the response
@@ -156,7 +166,11 @@ public class StackedAutoencodersClassifier implements Serializable {
                 }
 
                 try {
-                    dlModel = deeplearning.trainModel().get();
+                    Job<DeepLearningModel> job = deeplearning.trainModel();
+                    if (progressTracker != null) {
+                        progressTracker.setH2OJob(job);
+                    }
+                    dlModel = job.get();
                     if (log.isDebugEnabled()) {
                         log.debug("Successfully finished Training deeplearning model.");
                     }
@@ -171,6 +185,18 @@ public class StackedAutoencodersClassifier implements Serializable {
             log.error("Failed to train the deeplearning model [id] " + modelID + ". " + ex.getMessage());
         } finally {
             Scope.exit();
+            // the frames are not needed once the model is trained, nor is the model if training did not complete
+            if (frame != null) {
+                frame.remove();
+            }
+            if (splits != null) {
+                for (Frame split : splits) {
+                    split.remove();
+                }
+            }
+            if (dlModel == null && modelKey != null) {
+                Keyed.remove(modelKey);
+            }
         }
 
         return dlModel;
@@ -222,21 +248,31 @@ public class StackedAutoencodersClassifier implements Serializable {
         names[numberOfFeatures] = mlModel.getResponseVariable();
 
         Frame testData = DeeplearningModelUtils.javaRDDToFrame(names, test);
-        Frame testDataWithoutLabels = testData.subframe(0, testData.numCols() - 1);
-        int numRows = (int) testDataWithoutLabels.numRows();
-        Vec predictionsVector = deeplearningModel.score(testDataWithoutLabels).vec(0);
-        double[] predictionValues = new double[numRows];
-        for (int i = 0; i < numRows; i++) {
-            predictionValues[i] = predictionsVector.at(i);
-        }
-        Vec labelsVector = testData.vec(testData.numCols() - 1);
-        double[] labels = new double[numRows];
-        for (int i = 0; i < numRows; i++) {
-            labels[i] = labelsVector.at(i);
+        Frame predictions = null;
+        double[] predictionValues;
+        double[] labels;
+        try {
+            Frame testDataWithoutLabels = testData.subframe(0, testData.numCols() - 1);
+            int numRows = (int) testDataWithoutLabels.numRows();
+            predictions = deeplearningModel.score(testDataWithoutLabels);
+            Vec predictionsVector = predictions.vec(0);
+            predictionValues = new double[numRows];
+            for (int i = 0; i < numRows; i++) {
+                predictionValues[i] = predictionsVector.at(i);
+            }
+            Vec labelsVector = testData.vec(testData.numCols() - 1);
+            labels = new double[numRows];
+            for (int i = 0; i < numRows; i++) {
+                labels[i] = labelsVector.at(i);
+            }
+        } finally {
+            Scope.exit();
+            testData.remove();
+            if (predictions != null) {
+                predictions.remove();
+            }
         }
 
-        Scope.exit();
-
         ArrayList<Tuple2<Double, Double>> tupleList = new ArrayList<Tuple2<Double, Double>>();
         for (int i = 0; i < labels.length; i++) {
             tupleList.add(new Tuple2<Double, Double>(predictionValues[i], labels[i]));
@@ -18,6 +18,7 @@
 
 package org.wso2.carbon.ml.core.spark.algorithms;
 
+import java.io.Externalizable;
 import java.text.DecimalFormat;
 import java.util.*;
 
@@ -28,8 +29,8 @@ import org.apache.spark.mllib.classification.LogisticRegressionModel;
 import org.apache.spark.mllib.classification.NaiveBayesModel;
 import org.apache.spark.mllib.classification.SVMModel;
 import org.apache.spark.mllib.evaluation.MulticlassMetrics;
-import org.apache.spark.mllib.evaluation.RegressionMetrics;
 import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.regression.GeneralizedLinearModel;
 import org.apache.spark.mllib.regression.LabeledPoint;
 import org.apache.spark.mllib.regression.LassoModel;
 import org.apache.spark.mllib.regression.LinearRegressionModel;
@@ -46,12 +47,17 @@ import org.wso2.carbon.ml.core.factories.AlgorithmType;
 import org.wso2.carbon.ml.core.interfaces.MLModelBuilder;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
 import org.wso2.carbon.ml.core.spark.MulticlassConfusionMatrix;
+import org.wso2.carbon.ml.core.spark.ColumnarDataset;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
+import org.wso2.carbon.ml.core.spark.PreprocessedDataCache;
 import org.wso2.carbon.ml.core.spark.models.MLClassificationModel;
 import org.wso2.carbon.ml.core.spark.models.MLDecisionTreeModel;
 import org.wso2.carbon.ml.core.spark.models.MLGeneralizedLinearModel;
 import org.wso2.carbon.ml.core.spark.models.MLRandomForestModel;
 import org.wso2.carbon.ml.core.spark.summary.ClassClassificationAndRegressionModelSummary;
+import org.wso2.carbon.ml.core.spark.summary.CrossValidationSummary;
 import org.wso2.carbon.ml.core.spark.summary.FeatureImportance;
+import org.wso2.carbon.ml.core.spark.summary.PreprocessedDataSummary;
 import org.wso2.carbon.ml.core.spark.summary.ProbabilisticClassificationModelSummary;
 import org.wso2.carbon.ml.core.spark.transformations.*;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
@@ -71,28 +77,41 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
     }
     
     public JavaRDD<LabeledPoint> preProcess() throws MLModelBuilderException {
-        JavaRDD<String> lines = null;
-        try {
-            MLModelConfigurationContext context = getContext();
-            HeaderFilter headerFilter = new HeaderFilter.Builder().init(context).build();
-            LineToTokens lineToTokens = new LineToTokens.Builder().init(context).build();
-            DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().init(context).build();
-            RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder().init(context)
-                    .build();
-            BasicEncoder basicEncoder = new BasicEncoder.Builder().init(context).build();
-            MeanImputation meanImputation = new MeanImputation.Builder().init(context).build();
-            StringArrayToDoubleArray stringArrayToDoubleArray = new StringArrayToDoubleArray.Builder().build();
-            DoubleArrayToLabeledPoint doubleArrayToLabeledPoint = new DoubleArrayToLabeledPoint.Builder().build();
-
-            lines = context.getLines().cache();
-            return lines.filter(headerFilter).map(lineToTokens).filter(discardedRowsFilter)
-                    .map(removeDiscardedFeatures).map(basicEncoder).map(meanImputation).map(stringArrayToDoubleArray)
-                    .map(doubleArrayToLabeledPoint);
-        } finally {
-            if (lines != null) {
-                lines.unpersist();
+        MLModelConfigurationContext context = getContext();
+        // models of an analysis usually share their pre-processed data
+        PreprocessedDataCache cache = MLCoreServiceValueHolder.getInstance().getPreprocessedDataCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = PreprocessedDataCache.key(context, LabeledPoint.class);
+            JavaRDD<LabeledPoint> labeledPoints = cache.get(context.getSparkContext(), cacheKey);
+            if (labeledPoints != null) {
+                context.setPreprocessedDataCacheHit(true);
+                return labeledPoints;
             }
         }
+        HeaderFilter headerFilter = new HeaderFilter.Builder().init(context).build();
+        DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().init(context).build();
+        RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder().init(context).build();
+        BasicEncoder basicEncoder = new BasicEncoder.Builder().init(context).build();
+        MeanImputation meanImputation = new MeanImputation.Builder().init(context).build();
+        RowTransformer rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(context.getColumnSeparator()).discardedRowsFilter(discardedRowsFilter)
+                .removeDiscardedFeatures(removeDiscardedFeatures).basicEncoder(basicEncoder)
+                .meanImputation(meanImputation).build();
+
+        JavaRDD<LabeledPoint> labeledPoints;
+        if (context.getColumnarDatasetPath() != null) {
+            // only the columns the model needs are read, as typed values
+            RowsToLabeledPoints rowsToLabeledPoints = new RowsToLabeledPoints.Builder().rowTransformer(
+                    rowTransformer).build();
+            labeledPoints = ColumnarDataset.read(context.getSparkContext(), context.getColumnarDatasetPath(),
+                    rowTransformer.getRequiredColumns()).mapPartitions(rowsToLabeledPoints);
+        } else {
+            LinesToLabeledPoints linesToLabeledPoints = new LinesToLabeledPoints.Builder().rowTransformer(
+                    rowTransformer).build();
+            labeledPoints = context.getLines().mapPartitions(linesToLabeledPoints);
+        }
+        return cache == null ? labeledPoints : cache.put(context.getSparkContext(), cacheKey, labeledPoints);
     }
 
     /**
@@ -100,117 +119,184 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
      */
     public MLModel build() throws MLModelBuilderException {
         MLModelConfigurationContext context = getContext();
-        JavaSparkContext sparkContext = null;
         DatabaseService databaseService = MLCoreServiceValueHolder.getInstance().getDatabaseService();
         MLModel mlModel = new MLModel();
+        CrossValidation crossValidation = null;
+        PersistenceManager persistence = newPersistenceManager();
         try {
-            sparkContext = context.getSparkContext();
-            Workflow workflow = context.getFacts();
-            long modelId = context.getModelId();
-
-            // Verify validity of response variable
-            String typeOfResponseVariable = getTypeOfResponseVariable(workflow.getResponseVariable(),
-                    workflow.getFeatures());
-
-            if (typeOfResponseVariable == null) {
-                throw new MLModelBuilderException("Type of response variable cannot be null for supervised learning "
-                        + "algorithms.");
-            }
-
-            // Stops model building if a categorical attribute is used with numerical prediction
-            if (workflow.getAlgorithmClass().equals(AlgorithmType.NUMERICAL_PREDICTION.getValue())
-                    && typeOfResponseVariable.equals(FeatureType.CATEGORICAL)) {
-                throw new MLModelBuilderException("Categorical attribute " + workflow.getResponseVariable()
-                        + " cannot be used as the response variable of the Numerical Prediction algorithm: "
-                        + workflow.getAlgorithmName());
+            validateResponseVariable();
+            int folds = context.getFacts().getCrossValidationFolds();
+            CrossValidation.validateFolds(folds);
+            // read by both splits and the cross-validation folds, until the build ends
+            JavaRDD<LabeledPoint> labeledPoints = persistence.persist("labeledPoints", countRows(preProcess()));
+            materialize(labeledPoints);
+            JavaRDD<LabeledPoint>[] dataSplit = split(labeledPoints);
+
+            // cross-validate, if asked to, while the model is built
+            if (folds > 0) {
+                crossValidation = new CrossValidation(context, folds);
+                crossValidation.start(labeledPoints);
             }
 
-            // generate train and test datasets by converting tokens to labeled points
-            int responseIndex = context.getResponseIndex();
-            SortedMap<Integer, String> includedFeatures = MLUtils.getIncludedFeaturesAfterReordering(workflow,
-                    context.getNewToOldIndicesList(), responseIndex);
-
-            // gets the pre-processed dataset
-            JavaRDD<LabeledPoint> labeledPoints = preProcess().cache();
-            
-            JavaRDD<LabeledPoint>[] dataSplit = labeledPoints.randomSplit(
-                    new double[] { workflow.getTrainDataFraction(), 1 - workflow.getTrainDataFraction() },
-                    MLConstants.RANDOM_SEED);
-            
-            // remove from cache
-            labeledPoints.unpersist();
-            
-            JavaRDD<LabeledPoint> trainingData = dataSplit[0].cache();
+            startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
+            // read by every iteration of the training, rather than sampled from the pre-processed data each time
+            JavaRDD<LabeledPoint> trainingData = persistence.persist("trainingData", dataSplit[0]);
             JavaRDD<LabeledPoint> testingData = dataSplit[1];
-            // create a deployable MLModel object
-            mlModel.setAlgorithmName(workflow.getAlgorithmName());
-            mlModel.setAlgorithmClass(workflow.getAlgorithmClass());
-            mlModel.setFeatures(workflow.getIncludedFeatures());
-            mlModel.setResponseVariable(workflow.getResponseVariable());
-            mlModel.setEncodings(context.getEncodings());
-            mlModel.setNewToOldIndicesList(context.getNewToOldIndicesList());
-            mlModel.setResponseIndex(responseIndex);
-
-            ModelSummary summaryModel = null;
-            Map<Integer, Integer> categoricalFeatureInfo;
-
-            // build a machine learning model according to user selected algorithm
-            SUPERVISED_ALGORITHM supervisedAlgorithm = SUPERVISED_ALGORITHM.valueOf(workflow.getAlgorithmName());
-            switch (supervisedAlgorithm) {
-            case LOGISTIC_REGRESSION:
-                summaryModel = buildLogisticRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures, true);
-                break;
-            case LOGISTIC_REGRESSION_LBFGS:
-                summaryModel = buildLogisticRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures, false);
-                break;
-            case DECISION_TREE:
-                categoricalFeatureInfo = getCategoricalFeatureInfo(context.getEncodings());
-                summaryModel = buildDecisionTreeModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures, categoricalFeatureInfo);
-                break;
-            case RANDOM_FOREST_CLASSIFICATION:
-                categoricalFeatureInfo = getCategoricalFeatureInfo(context.getEncodings());
-                summaryModel = buildRandomForestClassificationModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures, categoricalFeatureInfo);
-                break;
-            case SVM:
-                summaryModel = buildSVMModel(sparkContext, modelId, trainingData, testingData, workflow, mlModel,
-                        includedFeatures);
-                break;
-            case NAIVE_BAYES:
-                summaryModel = buildNaiveBayesModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures);
-                break;
-            case LINEAR_REGRESSION:
-                summaryModel = buildLinearRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures);
-                break;
-            case RIDGE_REGRESSION:
-                summaryModel = buildRidgeRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures);
-                break;
-            case LASSO_REGRESSION:
-                summaryModel = buildLassoRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures);
-                break;
-            case RANDOM_FOREST_REGRESSION:
-                categoricalFeatureInfo = getCategoricalFeatureInfo(context.getEncodings());
-                summaryModel = buildRandomForestRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
-                        mlModel, includedFeatures, categoricalFeatureInfo);
-                break;
-            default:
-                throw new AlgorithmNameException("Incorrect algorithm name");
+            ModelSummary summaryModel;
+            try {
+                summaryModel = fit(context.getFacts(), mlModel, trainingData, testingData);
+            } finally {
+                persistence.release("trainingData");
+            }
+            if (crossValidation != null && summaryModel instanceof CrossValidationSummary) {
+                ((CrossValidationSummary) summaryModel).setCrossValidationMetrics(crossValidation.finish());
             }
+            reportWarmStart(summaryModel);
 
             // persist model summary
-            databaseService.updateModelSummary(modelId, summaryModel);
+            databaseService.updateModelSummary(context.getModelId(), summaryModel);
             return mlModel;
         } catch (DatabaseHandlerException e) {
             throw new MLModelBuilderException("An error occurred while building supervised machine learning model: "
                     + e.getMessage(), e);
+        } finally {
+            if (crossValidation != null) {
+                crossValidation.stop();
+            }
+            persistence.releaseAll();
+        }
+    }
+
+    /**
+     * Validate the response variable and split the pre-processed data into training and testing data.
+     *
+     * @param persistence persistence manager to persist the pre-processed data with, until it is released
+     * @return training data followed by testing data
+     * @throws MLModelBuilderException
+     */
+    public JavaRDD<LabeledPoint>[] split(PersistenceManager persistence) throws MLModelBuilderException {
+        validateResponseVariable();
+        return split(persistence.persist("labeledPoints", preProcess()));
+    }
+
+    private void validateResponseVariable() throws MLModelBuilderException {
+        Workflow workflow = getContext().getFacts();
+
+        // Verify validity of response variable
+        String typeOfResponseVariable = getTypeOfResponseVariable(workflow.getResponseVariable(),
+                workflow.getFeatures());
+
+        if (typeOfResponseVariable == null) {
+            throw new MLModelBuilderException("Type of response variable cannot be null for supervised learning "
+                    + "algorithms.");
+        }
+
+        // Stops model building if a categorical attribute is used with numerical prediction
+        if (workflow.getAlgorithmClass().equals(AlgorithmType.NUMERICAL_PREDICTION.getValue())
+                && typeOfResponseVariable.equals(FeatureType.CATEGORICAL)) {
+            throw new MLModelBuilderException("Categorical attribute " + workflow.getResponseVariable()
+                    + " cannot be used as the response variable of the Numerical Prediction algorithm: "
+                    + workflow.getAlgorithmName());
+        }
+    }
+
+    /**
+     * Split persisted pre-processed data. The splits are sampled from it on every pass, so it should stay persisted
+     * until both have been consumed.
+     */
+    private JavaRDD<LabeledPoint>[] split(JavaRDD<LabeledPoint> labeledPoints) {
+        Workflow workflow = getContext().getFacts();
+        return labeledPoints.randomSplit(
+                new double[] { workflow.getTrainDataFraction(), 1 - workflow.getTrainDataFraction() },
+                MLConstants.RANDOM_SEED);
+    }
+
+    /**
+     * Fit a model of the given workflow on the training data and evaluate it on the testing data. Nothing is
+     * persisted, so that the same splits can be used to fit many workflows, e.g. in a hyperparameter sweep.
+     *
+     * @param workflow workflow of the model, the facts of the context or a copy with other hyperparameters
+     * @param mlModel deployable model to fill
+     * @param trainingData training data
+     * @param testingData testing data
+     * @return summary of the model
+     * @throws MLModelBuilderException
+     */
+    public ModelSummary fit(Workflow workflow, MLModel mlModel, JavaRDD<LabeledPoint> trainingData,
+            JavaRDD<LabeledPoint> testingData) throws MLModelBuilderException {
+        MLModelConfigurationContext context = getContext();
+        JavaSparkContext sparkContext = context.getSparkContext();
+        long modelId = context.getModelId();
+        int responseIndex = context.getResponseIndex();
+        SortedMap<Integer, String> includedFeatures = MLUtils.getIncludedFeaturesAfterReordering(workflow,
+                context.getNewToOldIndicesList(), responseIndex);
+
+        // create a deployable MLModel object
+        mlModel.setAlgorithmName(workflow.getAlgorithmName());
+        mlModel.setAlgorithmClass(workflow.getAlgorithmClass());
+        mlModel.setFeatures(workflow.getIncludedFeatures());
+        mlModel.setResponseVariable(workflow.getResponseVariable());
+        mlModel.setEncodings(context.getEncodings());
+        mlModel.setNewToOldIndicesList(context.getNewToOldIndicesList());
+        mlModel.setResponseIndex(responseIndex);
+
+        ModelSummary summaryModel = null;
+        Map<Integer, Integer> categoricalFeatureInfo;
+
+        // build a machine learning model according to user selected algorithm
+        SUPERVISED_ALGORITHM supervisedAlgorithm = SUPERVISED_ALGORITHM.valueOf(workflow.getAlgorithmName());
+        switch (supervisedAlgorithm) {
+        case LOGISTIC_REGRESSION:
+            summaryModel = buildLogisticRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures, true);
+            break;
+        case LOGISTIC_REGRESSION_LBFGS:
+            summaryModel = buildLogisticRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures, false);
+            break;
+        case DECISION_TREE:
+            categoricalFeatureInfo = getCategoricalFeatureInfo(context.getEncodings());
+            summaryModel = buildDecisionTreeModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures, categoricalFeatureInfo);
+            break;
+        case RANDOM_FOREST_CLASSIFICATION:
+            categoricalFeatureInfo = getCategoricalFeatureInfo(context.getEncodings());
+            summaryModel = buildRandomForestClassificationModel(sparkContext, modelId, trainingData, testingData,
+                    workflow, mlModel, includedFeatures, categoricalFeatureInfo);
+            break;
+        case SVM:
+            summaryModel = buildSVMModel(sparkContext, modelId, trainingData, testingData, workflow, mlModel,
+                    includedFeatures);
+            break;
+        case NAIVE_BAYES:
+            summaryModel = buildNaiveBayesModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures);
+            break;
+        case LINEAR_REGRESSION:
+            summaryModel = buildLinearRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures);
+            break;
+        case RIDGE_REGRESSION:
+            summaryModel = buildRidgeRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures);
+            break;
+        case LASSO_REGRESSION:
+            summaryModel = buildLassoRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures);
+            break;
+        case RANDOM_FOREST_REGRESSION:
+            categoricalFeatureInfo = getCategoricalFeatureInfo(context.getEncodings());
+            summaryModel = buildRandomForestRegressionModel(sparkContext, modelId, trainingData, testingData, workflow,
+                    mlModel, includedFeatures, categoricalFeatureInfo);
+            break;
+        default:
+            throw new AlgorithmNameException("Incorrect algorithm name");
+        }
+
+        if (summaryModel instanceof PreprocessedDataSummary) {
+            ((PreprocessedDataSummary) summaryModel).setPreprocessedDataCacheHit(context.isPreprocessedDataCacheHit());
         }
+        return summaryModel;
     }
 
     private String getTypeOfResponseVariable(String responseVariable, List<Feature> features){
@@ -254,6 +340,7 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
             Map<String, String> hyperParameters = workflow.getHyperParameters();
             LogisticRegressionModel logisticRegressionModel;
             String algorithmName;
+            Integer iterations = null;
 
             int noOfClasses = getNoOfClasses(mlModel);
 
@@ -265,22 +352,22 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
                             + "two distinct values in response variable.");
                 }
 
+                EarlyStopping earlyStopping = getEarlyStopping(hyperParameters);
+                iterations = Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS));
                 logisticRegressionModel = logisticRegression.trainWithSGD(trainingData,
-                        Double.parseDouble(hyperParameters.get(MLConstants.LEARNING_RATE)),
-                        Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS)),
+                        Double.parseDouble(hyperParameters.get(MLConstants.LEARNING_RATE)), iterations,
                         hyperParameters.get(MLConstants.REGULARIZATION_TYPE),
                         Double.parseDouble(hyperParameters.get(MLConstants.REGULARIZATION_PARAMETER)),
-                        Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)));
+                        Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)), earlyStopping,
+                        getWarmStartModel());
+                if (earlyStopping != null) {
+                    iterations = earlyStopping.getIterations();
+                }
             } else {
                 algorithmName = SUPERVISED_ALGORITHM.LOGISTIC_REGRESSION_LBFGS.toString();
                 logisticRegressionModel = logisticRegression.trainWithLBFGS(trainingData,
                         hyperParameters.get(MLConstants.REGULARIZATION_TYPE), noOfClasses);
             }
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
 
             Vector weights = logisticRegressionModel.weights();
             if (!isValidWeights(weights)) {
@@ -288,32 +375,27 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
                         + vectorToString(weights));
             }
 
-            // getting scores and labels without clearing threshold to get confusion matrix
-            JavaRDD<Tuple2<Object, Object>> scoresAndLabelsThresholded = logisticRegression.test(
-                    logisticRegressionModel, testingData);
-            MulticlassMetrics multiclassMetrics = new MulticlassMetrics(JavaRDD.toRDD(scoresAndLabelsThresholded));
-            MulticlassConfusionMatrix multiclassConfusionMatrix = getMulticlassConfusionMatrix(multiclassMetrics,
-                    mlModel);
-
-            // clearing the threshold value to get a probability as the output of the prediction
+            // clearing the threshold value to get a probability as the output of the prediction, the predicted
+            // class being derived from it with the threshold in the same pass
+            double threshold = (Double) logisticRegressionModel.getThreshold().get();
             logisticRegressionModel.clearThreshold();
-            JavaRDD<Tuple2<Object, Object>> scoresAndLabels = logisticRegression.test(logisticRegressionModel,
-                    testingData);
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateBinaryClassification(testingData,
+                    SparkModelUtils.scorer(logisticRegressionModel), threshold, true);
             ProbabilisticClassificationModelSummary probabilisticClassificationModelSummary = SparkModelUtils
-                    .generateProbabilisticClassificationModelSummary(sparkContext, testingData, scoresAndLabels);
+                    .generateProbabilisticClassificationModelSummary(metrics);
             mlModel.setModel(new MLClassificationModel(logisticRegressionModel));
-            
-            // remove from cache
-            testingData.unpersist();
 
             List<FeatureImportance> featureWeights = getFeatureWeights(includedFeatures, logisticRegressionModel
                     .weights().toArray());
             probabilisticClassificationModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             probabilisticClassificationModelSummary.setFeatureImportance(featureWeights);
             probabilisticClassificationModelSummary.setAlgorithm(algorithmName);
+            probabilisticClassificationModelSummary.setIterations(iterations);
 
-            probabilisticClassificationModelSummary.setMulticlassConfusionMatrix(multiclassConfusionMatrix);
-            Double modelAccuracy = getModelAccuracy(multiclassMetrics);
+            probabilisticClassificationModelSummary.setMulticlassConfusionMatrix(getMulticlassConfusionMatrix(
+                    metrics, mlModel));
+            Double modelAccuracy = getModelAccuracy(metrics);
             probabilisticClassificationModelSummary.setModelAccuracy(modelAccuracy);
             probabilisticClassificationModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
@@ -324,6 +406,50 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
         }
     }
 
+    /**
+     * Get the early stopping settings of an SGD algorithm
+     *
+     * @param hyperParameters Hyperparameters of the algorithm
+     * @return Early stopping settings, or null if all the iterations are to be run
+     */
+    private EarlyStopping getEarlyStopping(Map<String, String> hyperParameters) {
+        if (!Boolean.parseBoolean(hyperParameters.get(MLConstants.EARLY_STOPPING))) {
+            return null;
+        }
+        EarlyStopping.Builder builder = new EarlyStopping.Builder();
+        if (hyperParameters.get(MLConstants.VALIDATION_FRACTION) != null) {
+            builder.validationFraction(Double.parseDouble(hyperParameters.get(MLConstants.VALIDATION_FRACTION)));
+        }
+        if (hyperParameters.get(MLConstants.EARLY_STOPPING_TOLERANCE) != null) {
+            builder.tolerance(Double.parseDouble(hyperParameters.get(MLConstants.EARLY_STOPPING_TOLERANCE)));
+        }
+        if (hyperParameters.get(MLConstants.EARLY_STOPPING_PATIENCE) != null) {
+            builder.patience(Integer.parseInt(hyperParameters.get(MLConstants.EARLY_STOPPING_PATIENCE)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the generalized linear model the build is warm-started from
+     *
+     * @return Model to start from, or null to train from scratch
+     */
+    private GeneralizedLinearModel getWarmStartModel() {
+        MLModel warmStartModel = getContext().getWarmStartModel();
+        if (warmStartModel == null) {
+            return null;
+        }
+        Externalizable model = warmStartModel.getModel();
+        if (model instanceof MLGeneralizedLinearModel) {
+            return ((MLGeneralizedLinearModel) model).getModel();
+        }
+        if (model instanceof MLClassificationModel
+                && ((MLClassificationModel) model).getModel() instanceof GeneralizedLinearModel) {
+            return (GeneralizedLinearModel) ((MLClassificationModel) model).getModel();
+        }
+        return null;
+    }
+
     private int getNoOfClasses(MLModel mlModel) {
         if (mlModel.getEncodings() == null) {
             return -1;
@@ -355,32 +481,21 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
                     categoricalFeatureInfo, hyperParameters.get(MLConstants.IMPURITY),
                     Integer.parseInt(hyperParameters.get(MLConstants.MAX_DEPTH)),
                     Integer.parseInt(hyperParameters.get(MLConstants.MAX_BINS)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
-            JavaPairRDD<Double, Double> predictionsAndLabels = decisionTree.test(decisionTreeModel, testingData)
-                    .cache();
+
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateClassification(testingData,
+                    SparkModelUtils.scorer(decisionTreeModel));
             ClassClassificationAndRegressionModelSummary classClassificationAndRegressionModelSummary = SparkModelUtils
-                    .getClassClassificationModelSummary(sparkContext, testingData, predictionsAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .getClassClassificationModelSummary(metrics);
+
             mlModel.setModel(new MLDecisionTreeModel(decisionTreeModel));
 
             classClassificationAndRegressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             classClassificationAndRegressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.DECISION_TREE.toString());
 
-            MulticlassMetrics multiclassMetrics = getMulticlassMetrics(sparkContext, predictionsAndLabels);
-            
-            predictionsAndLabels.unpersist();
-            
             classClassificationAndRegressionModelSummary.setMulticlassConfusionMatrix(getMulticlassConfusionMatrix(
-                    multiclassMetrics, mlModel));
-            Double modelAccuracy = getModelAccuracy(multiclassMetrics);
+                    metrics, mlModel));
+            Double modelAccuracy = getModelAccuracy(metrics);
             classClassificationAndRegressionModelSummary.setModelAccuracy(modelAccuracy);
             classClassificationAndRegressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
@@ -406,31 +521,21 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
                     Integer.parseInt(hyperParameters.get(MLConstants.MAX_DEPTH)),
                     Integer.parseInt(hyperParameters.get(MLConstants.MAX_BINS)),
                     Integer.parseInt(hyperParameters.get(MLConstants.SEED)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
-            JavaPairRDD<Double, Double> predictionsAndLabels = randomForestClassifier.test(randomForestModel, testingData).cache();
+
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateClassification(testingData,
+                    SparkModelUtils.scorer(randomForestModel));
             ClassClassificationAndRegressionModelSummary classClassificationAndRegressionModelSummary = SparkModelUtils
-                    .getClassClassificationModelSummary(sparkContext, testingData, predictionsAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .getClassClassificationModelSummary(metrics);
+
             mlModel.setModel(new MLRandomForestModel(randomForestModel));
 
             classClassificationAndRegressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             classClassificationAndRegressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.RANDOM_FOREST_CLASSIFICATION.toString());
 
-            MulticlassMetrics multiclassMetrics = getMulticlassMetrics(sparkContext, predictionsAndLabels);
-            
-            predictionsAndLabels.unpersist();
-            
             classClassificationAndRegressionModelSummary.setMulticlassConfusionMatrix(getMulticlassConfusionMatrix(
-                    multiclassMetrics, mlModel));
-            Double modelAccuracy = getModelAccuracy(multiclassMetrics);
+                    metrics, mlModel));
+            Double modelAccuracy = getModelAccuracy(metrics);
             classClassificationAndRegressionModelSummary.setModelAccuracy(modelAccuracy);
             classClassificationAndRegressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
@@ -456,29 +561,17 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
                     Integer.parseInt(hyperParameters.get(MLConstants.MAX_BINS)),
                     Integer.parseInt(hyperParameters.get(MLConstants.SEED)));
 
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-
-            JavaPairRDD<Double, Double> predictionsAndLabels = randomForestRegression.test(randomForestModel, testingData).cache();
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateRegression(testingData,
+                    SparkModelUtils.scorer(randomForestModel));
             ClassClassificationAndRegressionModelSummary regressionModelSummary = SparkModelUtils
-                    .getClassClassificationModelSummary(sparkContext, testingData, predictionsAndLabels);
-
-            // remove from cache
-            testingData.unpersist();
+                    .generateRegressionModelSummary(metrics);
 
             mlModel.setModel(new MLRandomForestModel(randomForestModel));
 
             regressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             regressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.RANDOM_FOREST_REGRESSION.toString());
 
-            RegressionMetrics regressionMetrics = getRegressionMetrics(sparkContext, predictionsAndLabels);
-
-            predictionsAndLabels.unpersist();
-
-            Double meanSquaredError = regressionMetrics.meanSquaredError();
-            regressionModelSummary.setMeanSquaredError(meanSquaredError);
             regressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
             return regressionModelSummary;
@@ -512,46 +605,44 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
         try {
             SVM svm = new SVM();
             Map<String, String> hyperParameters = workflow.getHyperParameters();
-            SVMModel svmModel = svm.train(trainingData, Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS)),
+            EarlyStopping earlyStopping = getEarlyStopping(hyperParameters);
+            int iterations = Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS));
+            SVMModel svmModel = svm.train(trainingData, iterations,
                     hyperParameters.get(MLConstants.REGULARIZATION_TYPE),
                     Double.parseDouble(hyperParameters.get(MLConstants.REGULARIZATION_PARAMETER)),
                     Double.parseDouble(hyperParameters.get(MLConstants.LEARNING_RATE)),
-                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
+                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)), earlyStopping,
+                    getWarmStartModel());
+            if (earlyStopping != null) {
+                iterations = earlyStopping.getIterations();
+            }
+
             Vector weights = svmModel.weights();
             if (!isValidWeights(weights)) {
                 throw new MLModelBuilderException("Weights of the model generated are null or infinity. [Weights] "
                         + vectorToString(weights));
             }
 
-            // getting scores and labels without clearing threshold to get confusion matrix
-            JavaRDD<Tuple2<Object, Object>> scoresAndLabelsThresholded = svm.test(svmModel, testingData);
-            MulticlassMetrics multiclassMetrics = new MulticlassMetrics(JavaRDD.toRDD(scoresAndLabelsThresholded));
-            MulticlassConfusionMatrix multiclassConfusionMatrix = getMulticlassConfusionMatrix(multiclassMetrics,
-                    mlModel);
-
+            // clearing the threshold value to get the margin as the output of the prediction
+            double threshold = (Double) svmModel.getThreshold().get();
             svmModel.clearThreshold();
-            JavaRDD<Tuple2<Object, Object>> scoresAndLabels = svm.test(svmModel, testingData);
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateBinaryClassification(testingData,
+                    SparkModelUtils.scorer(svmModel), threshold, false);
             ProbabilisticClassificationModelSummary probabilisticClassificationModelSummary = SparkModelUtils
-                    .generateProbabilisticClassificationModelSummary(sparkContext, testingData, scoresAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .generateProbabilisticClassificationModelSummary(metrics);
+
             mlModel.setModel(new MLClassificationModel(svmModel));
 
             List<FeatureImportance> featureWeights = getFeatureWeights(includedFeatures, svmModel.weights().toArray());
             probabilisticClassificationModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             probabilisticClassificationModelSummary.setFeatureImportance(featureWeights);
             probabilisticClassificationModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.SVM.toString());
+            probabilisticClassificationModelSummary.setIterations(iterations);
 
-            probabilisticClassificationModelSummary.setMulticlassConfusionMatrix(multiclassConfusionMatrix);
-            Double modelAccuracy = getModelAccuracy(multiclassMetrics);
+            probabilisticClassificationModelSummary.setMulticlassConfusionMatrix(getMulticlassConfusionMatrix(
+                    metrics, mlModel));
+            Double modelAccuracy = getModelAccuracy(metrics);
             probabilisticClassificationModelSummary.setModelAccuracy(modelAccuracy);
             probabilisticClassificationModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
@@ -578,29 +669,27 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
         try {
             LinearRegression linearRegression = new LinearRegression();
             Map<String, String> hyperParameters = workflow.getHyperParameters();
-            LinearRegressionModel linearRegressionModel = linearRegression.train(trainingData,
-                    Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS)),
+            EarlyStopping earlyStopping = getEarlyStopping(hyperParameters);
+            int iterations = Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS));
+            LinearRegressionModel linearRegressionModel = linearRegression.train(trainingData, iterations,
                     Double.parseDouble(hyperParameters.get(MLConstants.LEARNING_RATE)),
-                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
+                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)), earlyStopping,
+                    getWarmStartModel());
+            if (earlyStopping != null) {
+                iterations = earlyStopping.getIterations();
+            }
+
             Vector weights = linearRegressionModel.weights();
             if (!isValidWeights(weights)) {
                 throw new MLModelBuilderException("Weights of the model generated are null or infinity. [Weights] "
                         + vectorToString(weights));
             }
-            JavaRDD<Tuple2<Double, Double>> predictionsAndLabels = linearRegression.test(linearRegressionModel,
-                    testingData).cache();
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateRegression(testingData,
+                    SparkModelUtils.scorer(linearRegressionModel));
             ClassClassificationAndRegressionModelSummary regressionModelSummary = SparkModelUtils
-                    .generateRegressionModelSummary(sparkContext, testingData, predictionsAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .generateRegressionModelSummary(metrics);
+
             mlModel.setModel(new MLGeneralizedLinearModel(linearRegressionModel));
 
             List<FeatureImportance> featureWeights = getFeatureWeights(includedFeatures, linearRegressionModel
@@ -608,13 +697,8 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
             regressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             regressionModelSummary.setFeatureImportance(featureWeights);
             regressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.LINEAR_REGRESSION.toString());
+            regressionModelSummary.setIterations(iterations);
 
-            RegressionMetrics regressionMetrics = getRegressionMetrics(sparkContext, predictionsAndLabels);
-            
-            predictionsAndLabels.unpersist();
-            
-            Double meanSquaredError = regressionMetrics.meanSquaredError();
-            regressionModelSummary.setMeanSquaredError(meanSquaredError);
             regressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
             return regressionModelSummary;
@@ -641,44 +725,37 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
         try {
             RidgeRegression ridgeRegression = new RidgeRegression();
             Map<String, String> hyperParameters = workflow.getHyperParameters();
-            RidgeRegressionModel ridgeRegressionModel = ridgeRegression.train(trainingData,
-                    Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS)),
+            EarlyStopping earlyStopping = getEarlyStopping(hyperParameters);
+            int iterations = Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS));
+            RidgeRegressionModel ridgeRegressionModel = ridgeRegression.train(trainingData, iterations,
                     Double.parseDouble(hyperParameters.get(MLConstants.LEARNING_RATE)),
                     Double.parseDouble(hyperParameters.get(MLConstants.REGULARIZATION_PARAMETER)),
-                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
+                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)), earlyStopping,
+                    getWarmStartModel());
+            if (earlyStopping != null) {
+                iterations = earlyStopping.getIterations();
+            }
+
             Vector weights = ridgeRegressionModel.weights();
             if (!isValidWeights(weights)) {
                 throw new MLModelBuilderException("Weights of the model generated are null or infinity. [Weights] "
                         + vectorToString(weights));
             }
-            JavaRDD<Tuple2<Double, Double>> predictionsAndLabels = ridgeRegression.test(ridgeRegressionModel,
-                    testingData).cache();
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateRegression(testingData,
+                    SparkModelUtils.scorer(ridgeRegressionModel));
             ClassClassificationAndRegressionModelSummary regressionModelSummary = SparkModelUtils
-                    .generateRegressionModelSummary(sparkContext, testingData, predictionsAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .generateRegressionModelSummary(metrics);
+
             mlModel.setModel(new MLGeneralizedLinearModel(ridgeRegressionModel));
 
             List<FeatureImportance> featureWeights = getFeatureWeights(includedFeatures, ridgeRegressionModel.weights()
                     .toArray());
             regressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             regressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.RIDGE_REGRESSION.toString());
+            regressionModelSummary.setIterations(iterations);
             regressionModelSummary.setFeatureImportance(featureWeights);
 
-            RegressionMetrics regressionMetrics = getRegressionMetrics(sparkContext, predictionsAndLabels);
-            
-            predictionsAndLabels.unpersist();
-            
-            Double meanSquaredError = regressionMetrics.meanSquaredError();
-            regressionModelSummary.setMeanSquaredError(meanSquaredError);
             regressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
             return regressionModelSummary;
@@ -705,43 +782,36 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
         try {
             LassoRegression lassoRegression = new LassoRegression();
             Map<String, String> hyperParameters = workflow.getHyperParameters();
-            LassoModel lassoModel = lassoRegression.train(trainingData,
-                    Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS)),
+            EarlyStopping earlyStopping = getEarlyStopping(hyperParameters);
+            int iterations = Integer.parseInt(hyperParameters.get(MLConstants.ITERATIONS));
+            LassoModel lassoModel = lassoRegression.train(trainingData, iterations,
                     Double.parseDouble(hyperParameters.get(MLConstants.LEARNING_RATE)),
                     Double.parseDouble(hyperParameters.get(MLConstants.REGULARIZATION_PARAMETER)),
-                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
+                    Double.parseDouble(hyperParameters.get(MLConstants.SGD_DATA_FRACTION)), earlyStopping,
+                    getWarmStartModel());
+            if (earlyStopping != null) {
+                iterations = earlyStopping.getIterations();
+            }
+
             Vector weights = lassoModel.weights();
             if (!isValidWeights(weights)) {
                 throw new MLModelBuilderException("Weights of the model generated are null or infinity. [Weights] "
                         + vectorToString(weights));
             }
-            JavaRDD<Tuple2<Double, Double>> predictionsAndLabels = lassoRegression.test(lassoModel, testingData)
-                    .cache();
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateRegression(testingData,
+                    SparkModelUtils.scorer(lassoModel));
             ClassClassificationAndRegressionModelSummary regressionModelSummary = SparkModelUtils
-                    .generateRegressionModelSummary(sparkContext, testingData, predictionsAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .generateRegressionModelSummary(metrics);
+
             mlModel.setModel(new MLGeneralizedLinearModel(lassoModel));
 
             List<FeatureImportance> featureWeights = getFeatureWeights(includedFeatures, lassoModel.weights().toArray());
             regressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             regressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.LASSO_REGRESSION.toString());
+            regressionModelSummary.setIterations(iterations);
             regressionModelSummary.setFeatureImportance(featureWeights);
 
-            RegressionMetrics regressionMetrics = getRegressionMetrics(sparkContext, predictionsAndLabels);
-            
-            predictionsAndLabels.unpersist();
-            
-            Double meanSquaredError = regressionMetrics.meanSquaredError();
-            regressionModelSummary.setMeanSquaredError(meanSquaredError);
             regressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
             return regressionModelSummary;
@@ -770,32 +840,21 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
             NaiveBayesClassifier naiveBayesClassifier = new NaiveBayesClassifier();
             NaiveBayesModel naiveBayesModel = naiveBayesClassifier.train(trainingData,
                     Double.parseDouble(hyperParameters.get(MLConstants.LAMBDA)));
-            
-            // remove from cache
-            trainingData.unpersist();
-            // add test data to cache
-            testingData.cache();
-            
-            JavaPairRDD<Double, Double> predictionsAndLabels = naiveBayesClassifier.test(naiveBayesModel, testingData)
-                    .cache();
+
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
+            EvaluationMetrics metrics = SparkModelUtils.evaluateClassification(testingData,
+                    SparkModelUtils.scorer(naiveBayesModel));
             ClassClassificationAndRegressionModelSummary classClassificationAndRegressionModelSummary = SparkModelUtils
-                    .getClassClassificationModelSummary(sparkContext, testingData, predictionsAndLabels);
-            
-            // remove from cache
-            testingData.unpersist();
-            
+                    .getClassClassificationModelSummary(metrics);
+
             mlModel.setModel(new MLClassificationModel(naiveBayesModel));
 
             classClassificationAndRegressionModelSummary.setFeatures(includedFeatures.values().toArray(new String[0]));
             classClassificationAndRegressionModelSummary.setAlgorithm(SUPERVISED_ALGORITHM.NAIVE_BAYES.toString());
 
-            MulticlassMetrics multiclassMetrics = getMulticlassMetrics(sparkContext, predictionsAndLabels);
-            
-            predictionsAndLabels.unpersist();
-            
             classClassificationAndRegressionModelSummary.setMulticlassConfusionMatrix(getMulticlassConfusionMatrix(
-                    multiclassMetrics, mlModel));
-            Double modelAccuracy = getModelAccuracy(multiclassMetrics);
+                    metrics, mlModel));
+            Double modelAccuracy = getModelAccuracy(metrics);
             classClassificationAndRegressionModelSummary.setModelAccuracy(modelAccuracy);
             classClassificationAndRegressionModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 
@@ -854,93 +913,60 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
      * @param multiclassMetrics Multiclass metric object
      */
     protected MulticlassConfusionMatrix getMulticlassConfusionMatrix(MulticlassMetrics multiclassMetrics, MLModel mlModel) {
-        MulticlassConfusionMatrix multiclassConfusionMatrix = new MulticlassConfusionMatrix();
-        if (multiclassMetrics != null) {
-            int size = multiclassMetrics.confusionMatrix().numCols();
-            double[] matrixArray = multiclassMetrics.confusionMatrix().toArray();
-            double[][] matrix = new double[size][size];
-            // set values of matrix into a 2D array
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    matrix[i][j] = matrixArray[(j * size) + i];
-                }
-            }
-            multiclassConfusionMatrix.setMatrix(matrix);
-
-            List<Map<String, Integer>> encodings = mlModel.getEncodings();
-            // decode only if encodings are available
-            if(encodings != null) {
-                // last index is response variable encoding
-                Map<String, Integer> encodingMap = encodings.get(encodings.size() - 1);
-                List<String> decodedLabels = new ArrayList<String>();
-                for (double label : multiclassMetrics.labels()) {
-                    Integer labelInt = (int) label;
-                    String decodedLabel = MLUtils.getKeyByValue(encodingMap, labelInt);
-                    if(decodedLabel != null) {
-                        decodedLabels.add(decodedLabel);
-                    }
-                    else {
-                        continue;
-                    }
-                }
-                multiclassConfusionMatrix.setLabels(decodedLabels);
-            }
-            else {
-                List<String> labelList = toStringList(multiclassMetrics.labels());
-                multiclassConfusionMatrix.setLabels(labelList);
+        if (multiclassMetrics == null) {
+            return new MulticlassConfusionMatrix();
+        }
+        int size = multiclassMetrics.confusionMatrix().numCols();
+        double[] matrixArray = multiclassMetrics.confusionMatrix().toArray();
+        double[][] matrix = new double[size][size];
+        // set values of matrix into a 2D array
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                matrix[i][j] = matrixArray[(j * size) + i];
             }
-
-            multiclassConfusionMatrix.setSize(size);
         }
-        return multiclassConfusionMatrix;
+        return getMulticlassConfusionMatrix(matrix, multiclassMetrics.labels(), mlModel);
     }
 
     /**
-     * This method gets regression metrics for a given set of prediction and label values
+     * This method returns multiclass confusion matrix for given evaluation metrics
      *
-     * @param sparkContext JavaSparkContext
-     * @param predictionsAndLabels Prediction and label values RDD
+     * @param metrics Evaluation metrics of a classification model
      */
-    private RegressionMetrics getRegressionMetrics(JavaSparkContext sparkContext,
-            JavaRDD<Tuple2<Double, Double>> predictionsAndLabels) {
-        List<Tuple2<Double, Double>> predictionsAndLabelsDoubleList = predictionsAndLabels.collect();
-        List<Tuple2<Object, Object>> predictionsAndLabelsObjectList = new ArrayList<Tuple2<Object, Object>>();
-        for (Tuple2<Double, Double> predictionsAndLabel : predictionsAndLabelsDoubleList) {
-            Object prediction = predictionsAndLabel._1;
-            Object label = predictionsAndLabel._2;
-            Tuple2<Object, Object> tupleElement = new Tuple2<Object, Object>(prediction, label);
-            predictionsAndLabelsObjectList.add(tupleElement);
-        }
-        JavaRDD<Tuple2<Object, Object>> predictionsAndLabelsJavaRDD = sparkContext
-                .parallelize(predictionsAndLabelsObjectList).cache();
-        RDD<Tuple2<Object, Object>> scoresAndLabelsRDD = JavaRDD.toRDD(predictionsAndLabelsJavaRDD);
-        predictionsAndLabelsJavaRDD.unpersist();
-        RegressionMetrics regressionMetrics = new RegressionMetrics(scoresAndLabelsRDD);
-        return regressionMetrics;
+    protected MulticlassConfusionMatrix getMulticlassConfusionMatrix(EvaluationMetrics metrics, MLModel mlModel) {
+        return getMulticlassConfusionMatrix(metrics.getConfusionMatrix(), metrics.getLabels(), mlModel);
     }
 
-    /**
-     * This method gets regression metrics for a given set of prediction and label values directly from Java RDD
-     *
-     * @param sparkContext JavaSparkContext
-     * @param predictionsAndLabels Prediction and label values RDD
-     */
-    private RegressionMetrics getRegressionMetrics(JavaSparkContext sparkContext,
-                                                   JavaPairRDD<Double, Double> predictionsAndLabels) {
-        List<Tuple2<Double, Double>> predictionsAndLabelsDoubleList = predictionsAndLabels.collect();
-        List<Tuple2<Object, Object>> predictionsAndLabelsObjectList = new ArrayList<Tuple2<Object, Object>>();
-        for (Tuple2<Double, Double> predictionsAndLabel : predictionsAndLabelsDoubleList) {
-            Object prediction = predictionsAndLabel._1;
-            Object label = predictionsAndLabel._2;
-            Tuple2<Object, Object> tupleElement = new Tuple2<Object, Object>(prediction, label);
-            predictionsAndLabelsObjectList.add(tupleElement);
+    private MulticlassConfusionMatrix getMulticlassConfusionMatrix(double[][] matrix, double[] labels,
+            MLModel mlModel) {
+        MulticlassConfusionMatrix multiclassConfusionMatrix = new MulticlassConfusionMatrix();
+        multiclassConfusionMatrix.setMatrix(matrix);
+
+        List<Map<String, Integer>> encodings = mlModel.getEncodings();
+        // decode only if encodings are available
+        if(encodings != null) {
+            // last index is response variable encoding
+            Map<String, Integer> encodingMap = encodings.get(encodings.size() - 1);
+            List<String> decodedLabels = new ArrayList<String>();
+            for (double label : labels) {
+                Integer labelInt = (int) label;
+                String decodedLabel = MLUtils.getKeyByValue(encodingMap, labelInt);
+                if(decodedLabel != null) {
+                    decodedLabels.add(decodedLabel);
+                }
+                else {
+                    continue;
+                }
+            }
+            multiclassConfusionMatrix.setLabels(decodedLabels);
         }
-        JavaRDD<Tuple2<Object, Object>> predictionsAndLabelsJavaRDD = sparkContext
-                .parallelize(predictionsAndLabelsObjectList).cache();
-        RDD<Tuple2<Object, Object>> scoresAndLabelsRDD = JavaRDD.toRDD(predictionsAndLabelsJavaRDD);
-        predictionsAndLabelsJavaRDD.unpersist();
-        RegressionMetrics regressionMetrics = new RegressionMetrics(scoresAndLabelsRDD);
-        return regressionMetrics;
+        else {
+            List<String> labelList = toStringList(labels);
+            multiclassConfusionMatrix.setLabels(labelList);
+        }
+
+        multiclassConfusionMatrix.setSize(matrix.length);
+        return multiclassConfusionMatrix;
     }
 
     /**
@@ -965,6 +991,17 @@ public class SupervisedSparkModelBuilder extends MLModelBuilder {
         return Double.parseDouble(decimalFormat.format(modelAccuracy*100));
     }
 
+    /**
+     * This method gets model accuracy from given evaluation metrics
+     *
+     * @param metrics Evaluation metrics of a classification model
+     */
+    protected Double getModelAccuracy(EvaluationMetrics metrics) {
+        DecimalFormat decimalFormat = new DecimalFormat(MLConstants.DECIMAL_FORMAT);
+        double modelAccuracy = metrics.getCount() > 0 ? 1 - metrics.getError() : 0.0;
+        return Double.parseDouble(decimalFormat.format(modelAccuracy * 100));
+    }
+
     /**
      * This summation of a given double array
      *
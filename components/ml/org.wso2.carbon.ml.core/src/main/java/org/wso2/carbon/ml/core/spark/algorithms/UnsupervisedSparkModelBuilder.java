@@ -31,16 +31,20 @@ import org.wso2.carbon.ml.core.exceptions.AlgorithmNameException;
 import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
 import org.wso2.carbon.ml.core.interfaces.MLModelBuilder;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+import org.wso2.carbon.ml.core.spark.ColumnarDataset;
+import org.wso2.carbon.ml.core.spark.PersistenceManager;
+import org.wso2.carbon.ml.core.spark.PreprocessedDataCache;
 import org.wso2.carbon.ml.core.spark.models.MLKMeansModel;
 import org.wso2.carbon.ml.core.spark.summary.ClusterModelSummary;
+import org.wso2.carbon.ml.core.spark.summary.PreprocessedDataSummary;
 import org.wso2.carbon.ml.core.spark.transformations.BasicEncoder;
 import org.wso2.carbon.ml.core.spark.transformations.DiscardedRowsFilter;
-import org.wso2.carbon.ml.core.spark.transformations.DoubleArrayToVector;
 import org.wso2.carbon.ml.core.spark.transformations.HeaderFilter;
-import org.wso2.carbon.ml.core.spark.transformations.LineToTokens;
+import org.wso2.carbon.ml.core.spark.transformations.LinesToVectors;
 import org.wso2.carbon.ml.core.spark.transformations.MeanImputation;
 import org.wso2.carbon.ml.core.spark.transformations.RemoveDiscardedFeatures;
-import org.wso2.carbon.ml.core.spark.transformations.StringArrayToDoubleArray;
+import org.wso2.carbon.ml.core.spark.transformations.RowTransformer;
+import org.wso2.carbon.ml.core.spark.transformations.RowsToVectors;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 import org.wso2.carbon.ml.core.utils.MLUtils;
 import org.wso2.carbon.ml.database.DatabaseService;
@@ -62,28 +66,39 @@ public class UnsupervisedSparkModelBuilder extends MLModelBuilder {
     }
     
     private JavaRDD<Vector> preProcess() throws MLModelBuilderException {
-        JavaRDD<String> lines = null;
-        try {
-            MLModelConfigurationContext context = getContext();
-            HeaderFilter headerFilter = new HeaderFilter.Builder().init(context).build();
-            LineToTokens lineToTokens = new LineToTokens.Builder().init(context).build();
-            DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().init(context).build();
-            RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder().init(context)
-                    .build();
-            BasicEncoder basicEncoder = new BasicEncoder.Builder().init(context).build();
-            MeanImputation meanImputation = new MeanImputation.Builder().init(context).build();
-            StringArrayToDoubleArray stringArrayToDoubleArray = new StringArrayToDoubleArray.Builder().build();
-            DoubleArrayToVector doubleArrayToVector = new DoubleArrayToVector.Builder().build();
-
-            lines = context.getLines().cache();
-            return lines.filter(headerFilter).map(lineToTokens).filter(discardedRowsFilter)
-                    .map(removeDiscardedFeatures).map(basicEncoder).map(meanImputation).map(stringArrayToDoubleArray)
-                    .map(doubleArrayToVector);
-        } finally {
-            if (lines != null) {
-                lines.unpersist();
+        MLModelConfigurationContext context = getContext();
+        // models of an analysis usually share their pre-processed data
+        PreprocessedDataCache cache = MLCoreServiceValueHolder.getInstance().getPreprocessedDataCache();
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = PreprocessedDataCache.key(context, Vector.class);
+            JavaRDD<Vector> vectors = cache.get(context.getSparkContext(), cacheKey);
+            if (vectors != null) {
+                context.setPreprocessedDataCacheHit(true);
+                return vectors;
             }
         }
+        HeaderFilter headerFilter = new HeaderFilter.Builder().init(context).build();
+        DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().init(context).build();
+        RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder().init(context).build();
+        BasicEncoder basicEncoder = new BasicEncoder.Builder().init(context).build();
+        MeanImputation meanImputation = new MeanImputation.Builder().init(context).build();
+        RowTransformer rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(context.getColumnSeparator()).discardedRowsFilter(discardedRowsFilter)
+                .removeDiscardedFeatures(removeDiscardedFeatures).basicEncoder(basicEncoder)
+                .meanImputation(meanImputation).build();
+
+        JavaRDD<Vector> vectors;
+        if (context.getColumnarDatasetPath() != null) {
+            // only the columns the model needs are read, as typed values
+            RowsToVectors rowsToVectors = new RowsToVectors.Builder().rowTransformer(rowTransformer).build();
+            vectors = ColumnarDataset.read(context.getSparkContext(), context.getColumnarDatasetPath(),
+                    rowTransformer.getRequiredColumns()).mapPartitions(rowsToVectors);
+        } else {
+            LinesToVectors linesToVectors = new LinesToVectors.Builder().rowTransformer(rowTransformer).build();
+            vectors = context.getLines().mapPartitions(linesToVectors);
+        }
+        return cache == null ? vectors : cache.put(context.getSparkContext(), cacheKey, vectors);
     }
 
     /**
@@ -92,6 +107,7 @@ public class UnsupervisedSparkModelBuilder extends MLModelBuilder {
     public MLModel build() throws MLModelBuilderException {
         MLModelConfigurationContext context = getContext();
         DatabaseService databaseService = MLCoreServiceValueHolder.getInstance().getDatabaseService();
+        PersistenceManager persistence = newPersistenceManager();
         try {
             Workflow workflow = context.getFacts();
             long modelId = context.getModelId();
@@ -101,14 +117,14 @@ public class UnsupervisedSparkModelBuilder extends MLModelBuilder {
                             context.getResponseIndex());
 
             // gets the pre-processed dataset
-            JavaRDD<Vector> data = preProcess().cache();
+            JavaRDD<Vector> data = countRows(preProcess());
             JavaRDD<Vector>[] dataSplit = data.randomSplit(
                     new double[] { workflow.getTrainDataFraction(), 1 - workflow.getTrainDataFraction() },
                     MLConstants.RANDOM_SEED);
-            
-            data.unpersist();
-            
-            JavaRDD<Vector> trainingData = dataSplit[0].cache();
+
+            // read by every k-means iteration and by the sampling of the cluster points
+            JavaRDD<Vector> trainingData = persistence.persist("trainingData", dataSplit[0]);
+            materialize(trainingData);
             JavaRDD<Vector> testingData = null;
             if (dataSplit.length > 1) {
                 testingData = dataSplit[1];
@@ -125,21 +141,30 @@ public class UnsupervisedSparkModelBuilder extends MLModelBuilder {
 
 
             // build a machine learning model according to user selected algorithm
+            startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
             UNSUPERVISED_ALGORITHM unsupervised_algorithm = UNSUPERVISED_ALGORITHM.valueOf(workflow.getAlgorithmName());
             switch (unsupervised_algorithm) {
             case K_MEANS:
-                summaryModel = buildKMeansModel(modelId, trainingData, testingData, workflow, mlModel,includedFeatures);
+                summaryModel = buildKMeansModel(modelId, trainingData, testingData, workflow, mlModel,
+                        includedFeatures, persistence);
                 break;
             default:
                 throw new AlgorithmNameException("Incorrect algorithm name: " + workflow.getAlgorithmName()
                         + " for model id: " + modelId);
             }
             // persist model summary
+            if (summaryModel instanceof PreprocessedDataSummary) {
+                ((PreprocessedDataSummary) summaryModel).setPreprocessedDataCacheHit(context
+                        .isPreprocessedDataCacheHit());
+            }
+            reportWarmStart(summaryModel);
             databaseService.updateModelSummary(modelId, summaryModel);
             return mlModel;
         } catch (DatabaseHandlerException e) {
             throw new MLModelBuilderException("An error occurred while building unsupervised machine learning model: "
                     + e.getMessage(), e);
+        } finally {
+            persistence.releaseAll();
         }
     }
 
@@ -151,16 +176,20 @@ public class UnsupervisedSparkModelBuilder extends MLModelBuilder {
      * @param testingData Testing data as a JavaRDD of LabeledPoints
      * @param workflow Machine learning workflow
      * @param mlModel Deployable machine learning model
+     * @param persistence Persistence manager of the build
      * @throws MLModelBuilderException
      */
     private ModelSummary buildKMeansModel(long modelID, JavaRDD<Vector> trainingData, JavaRDD<Vector> testingData,
-            Workflow workflow, MLModel mlModel, SortedMap<Integer, String> includedFeatures) throws MLModelBuilderException {
+            Workflow workflow, MLModel mlModel, SortedMap<Integer, String> includedFeatures,
+            PersistenceManager persistence) throws MLModelBuilderException {
         try {
             Map<String, String> hyperParameters = workflow.getHyperParameters();
             KMeans kMeans = new KMeans();
+            MLModel warmStartModel = getContext().getWarmStartModel();
             KMeansModel kMeansModel = kMeans.train(trainingData,
                     Integer.parseInt(hyperParameters.get(MLConstants.NUM_CLUSTERS)),
-                    Integer.parseInt(hyperParameters.get(MLConstants.MAX_ITERATIONS)));
+                    Integer.parseInt(hyperParameters.get(MLConstants.MAX_ITERATIONS)),
+                    warmStartModel != null ? ((MLKMeansModel) warmStartModel.getModel()).getModel() : null);
 
             // add test data to cache - test data is not used as of now
 //            if (testingData != null) {
@@ -168,28 +197,30 @@ public class UnsupervisedSparkModelBuilder extends MLModelBuilder {
 //            }
 
             // generating data for summary clusters
+            startStage(MLConstants.MODEL_BUILD_STAGE_EVALUATION);
             double sampleSize = (double) MLCoreServiceValueHolder.getInstance().getSummaryStatSettings()
                     .getSampleSize();
 
             double sampleFraction;
-            if(trainingData.count() != 1) { //avoiding division by 0
-                sampleFraction = sampleSize / (trainingData.count() - 1);
+            long count = trainingData.count();
+            if(count != 1) { //avoiding division by 0
+                sampleFraction = sampleSize / (count - 1);
             } else{
-                sampleFraction = sampleSize / (trainingData.count());
+                sampleFraction = sampleSize / count;
             }
             JavaRDD<Vector> sampleData = null;
 
             if (sampleFraction >= 1.0) {
                 sampleData = trainingData;
             } else { // Use randomly selected sample fraction of rows if number of records is > sample fraction
-                sampleData = trainingData.sample(false, sampleFraction);
+                // read twice by the zip below
+                sampleData = persistence.persist("sampleData", trainingData.sample(false, sampleFraction));
             }
 
-            trainingData.unpersist(); // since no more used
-            sampleData.cache();
-
             // Populate cluster points list with predicted clusters and features
             List<Tuple2<Integer, Vector>> kMeansPredictions = kMeansModel.predict(sampleData).zip(sampleData).collect();
+            persistence.release("sampleData");
+            persistence.release("trainingData");
             List<ClusterPoint> clusterPoints = new ArrayList<ClusterPoint>();
 
             for (Tuple2<Integer, org.apache.spark.mllib.linalg.Vector> kMeansPrediction : kMeansPredictions) {
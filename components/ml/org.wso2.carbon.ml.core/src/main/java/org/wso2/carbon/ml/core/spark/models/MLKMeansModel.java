@@ -26,12 +26,15 @@ import org.apache.spark.mllib.clustering.KMeansModel;
 import org.apache.spark.mllib.pmml.PMMLExportable;
 import org.wso2.carbon.ml.core.exceptions.MLPmmlExportException;
 import org.wso2.carbon.ml.core.interfaces.PMMLModelContainer;
+import org.wso2.carbon.ml.core.spark.models.ext.CentroidIndex;
 
 /**
  * Wraps Spark's {@link KMeansModel} model.
  */
 public class MLKMeansModel implements Externalizable, PMMLModelContainer {
     private KMeansModel model;
+    // derived from the cluster centers, hence not written with the model
+    private transient CentroidIndex centroidIndex;
 
     public MLKMeansModel() {
     }
@@ -68,6 +71,17 @@ public class MLKMeansModel implements Externalizable, PMMLModelContainer {
 
     public void setModel(KMeansModel model) {
         this.model = model;
+        this.centroidIndex = null;
+    }
+
+    /**
+     * @return nearest centroid index over the cluster centers of this model
+     */
+    public CentroidIndex getCentroidIndex() {
+        if (centroidIndex == null) {
+            centroidIndex = new CentroidIndex(model.clusterCenters());
+        }
+        return centroidIndex;
     }
 
     @Override
@@ -22,18 +22,23 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.spark.mllib.recommendation.MatrixFactorizationModel;
 import org.apache.spark.rdd.RDD;
+import org.wso2.carbon.ml.core.spark.recommendation.FactorStore;
+import org.wso2.carbon.ml.core.spark.recommendation.MipsIndex;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 
 import scala.Tuple2;
 
+import java.io.EOFException;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.io.OptionalDataException;
 import java.util.List;
 
 /**
- * Wraps Spark's {@link MatrixFactorizationModel}
+ * Wraps Spark's {@link MatrixFactorizationModel}. A de-serialized model holds its factors in a {@link FactorStore},
+ * recommendations are served from it and the Spark model (and its RDDs) is only re-created when asked for.
  */
 public class MLMatrixFactorizationModel implements Externalizable {
 
@@ -41,6 +46,7 @@ public class MLMatrixFactorizationModel implements Externalizable {
     private static final Log log = LogFactory.getLog(MLMatrixFactorizationModel.class);
 
     private MatrixFactorizationModel model;
+    private transient FactorStore factorStore;
 
     public MLMatrixFactorizationModel() {
 
@@ -50,12 +56,26 @@ public class MLMatrixFactorizationModel implements Externalizable {
         this.model = model;
     }
 
+    public MLMatrixFactorizationModel(FactorStore factorStore) {
+        this.factorStore = factorStore;
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         // can't save the whole MatrixFactorizationModel, hence saving relevant attributes separately.
-        out.writeInt(model.rank());
-        out.writeObject(model.userFeatures().toJavaRDD().collect());
-        out.writeObject(model.productFeatures().toJavaRDD().collect());
+        if (factorStore != null) {
+            out.writeInt(factorStore.getRank());
+            out.writeObject(factorStore.getUserFeaturesList());
+            out.writeObject(factorStore.getProductFeaturesList());
+            out.writeObject(factorStore.getMipsIndex());
+            out.writeLong(factorStore.getVersion());
+        } else {
+            out.writeInt(model.rank());
+            out.writeObject(model.userFeatures().toJavaRDD().collect());
+            out.writeObject(model.productFeatures().toJavaRDD().collect());
+            out.writeObject(null);
+            out.writeLong(0);
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("Rank, user features and product features of MatrixFactorizationModel were serialized "
@@ -70,24 +90,52 @@ public class MLMatrixFactorizationModel implements Externalizable {
         List<Tuple2<Object, double[]>> userFeaturesList = (List<Tuple2<Object, double[]>>) in.readObject();
         List<Tuple2<Object, double[]>> productFeaturesList = (List<Tuple2<Object, double[]>>) in.readObject();
 
-        MLCoreServiceValueHolder valueHolder = MLCoreServiceValueHolder.getInstance();
-        RDD<Tuple2<Object, double[]>> userFeatures = valueHolder.getSparkContext().parallelize(userFeaturesList).rdd();
-        RDD<Tuple2<Object, double[]>> productFeatures = valueHolder.getSparkContext().parallelize(productFeaturesList)
-                .rdd();
-        model = new MatrixFactorizationModel(rank, userFeatures, productFeatures);
+        factorStore = new FactorStore(rank, userFeaturesList, productFeaturesList);
+        model = null;
+        try {
+            factorStore.setMipsIndex((MipsIndex) in.readObject());
+            factorStore.setVersion(in.readLong());
+        } catch (OptionalDataException e) {
+            // models saved before the approximate index was introduced end with the product features
+            if (!e.eof) {
+                throw e;
+            }
+        } catch (EOFException e) {
+            // models saved before ratings could be folded in end with the approximate index
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("Rank, user features and product features were de-serialized successfully and loaded "
-                    + "MatrixFactorizationModel.");
+                    + "into a factor store.");
         }
     }
 
-    public MatrixFactorizationModel getModel() {
+    public synchronized MatrixFactorizationModel getModel() {
+        if (model == null && factorStore != null) {
+            MLCoreServiceValueHolder valueHolder = MLCoreServiceValueHolder.getInstance();
+            RDD<Tuple2<Object, double[]>> userFeatures = valueHolder.getSparkContext()
+                    .parallelize(factorStore.getUserFeaturesList()).rdd();
+            RDD<Tuple2<Object, double[]>> productFeatures = valueHolder.getSparkContext()
+                    .parallelize(factorStore.getProductFeaturesList()).rdd();
+            model = new MatrixFactorizationModel(factorStore.getRank(), userFeatures, productFeatures);
+        }
         return model;
     }
 
-    public void setModel(MatrixFactorizationModel model) {
+    public synchronized void setModel(MatrixFactorizationModel model) {
         this.model = model;
+        this.factorStore = null;
+    }
+
+    /**
+     * @return factors of the model held in memory, collected from the Spark model on first use
+     */
+    public synchronized FactorStore getFactorStore() {
+        if (factorStore == null) {
+            factorStore = new FactorStore(model.rank(), model.userFeatures().toJavaRDD().collect(),
+                    model.productFeatures().toJavaRDD().collect());
+        }
+        return factorStore;
     }
 
 }
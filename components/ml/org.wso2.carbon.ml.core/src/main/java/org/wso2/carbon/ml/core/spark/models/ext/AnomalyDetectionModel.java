@@ -17,14 +17,16 @@
  */
 package org.wso2.carbon.ml.core.spark.models.ext;
 
-import org.apache.commons.math3.ml.distance.EuclideanDistance;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.mllib.clustering.KMeansModel;
 import org.apache.spark.mllib.linalg.Vector;
+import org.wso2.carbon.ml.commons.domain.AnomalyScore;
+import org.wso2.carbon.ml.core.spark.transformations.VectorToCentroidAssignment;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +42,10 @@ public class AnomalyDetectionModel implements Serializable {
     private Map<Integer, List<Double>> clusterIndexToDistancesListMap;
     private String normalLabel;
     private String anomalyLabel;
+    // not available in models built before the index was introduced, hence built lazily when missing
+    private CentroidIndex centroidIndex;
+    // derived from clusterIndexToDistancesListMap on first use
+    private transient double[][] sortedDistances;
 
     public KMeansModel getkMeansModel() {
         return kMeansModel;
@@ -47,6 +53,18 @@ public class AnomalyDetectionModel implements Serializable {
 
     public void setkMeansModel(KMeansModel kMeansModel) {
         this.kMeansModel = kMeansModel;
+        this.centroidIndex = null;
+    }
+
+    public CentroidIndex getCentroidIndex() {
+        if (centroidIndex == null) {
+            centroidIndex = new CentroidIndex(kMeansModel.clusterCenters());
+        }
+        return centroidIndex;
+    }
+
+    public void setCentroidIndex(CentroidIndex centroidIndex) {
+        this.centroidIndex = centroidIndex;
     }
 
     public Map<Integer, List<Double>> getClusterIndexToDistancesListMap() {
@@ -55,6 +73,7 @@ public class AnomalyDetectionModel implements Serializable {
 
     public void setClusterIndexToDistancesListMap(Map<Integer, List<Double>> clusterIndexTodistancesListMap) {
         this.clusterIndexToDistancesListMap = clusterIndexTodistancesListMap;
+        this.sortedDistances = null;
     }
 
     public String getNormalLabel() {
@@ -82,15 +101,10 @@ public class AnomalyDetectionModel implements Serializable {
      */
     public String predict(Vector data, double percentile) {
 
-        String predictions;
-        int predictedCluster = kMeansModel.predict(data);
-
-        int clusterIndex = predictedCluster;
-        double clusterBoundary = getPercentileDistance(percentile, clusterIndex);
-
-        predictions = getPredictedValue(data, clusterIndex, clusterBoundary);
+        CentroidIndex.Assignment assignment = getCentroidIndex().assign(data);
+        double clusterBoundary = getPercentileDistance(percentile, assignment.getCluster());
 
-        return predictions;
+        return getPredictedValue(assignment.getDistance(), clusterBoundary);
     }
 
     /**
@@ -102,12 +116,10 @@ public class AnomalyDetectionModel implements Serializable {
      */
     public List<String> predict(JavaRDD<Vector> data, double percentile) {
 
-        // convert data JAVARDD into a List
-        List<Vector> dataList = data.collect();
-        List<Integer> predictedClusters = kMeansModel.predict(data).collect();
+        List<CentroidIndex.Assignment> assignments = assign(data);
         Map<Integer, Double> percentilesMap = getPercentileDistancesMap(percentile);
 
-        List<String> predictions = getPredictionsList(dataList, predictedClusters, percentilesMap);
+        List<String> predictions = getPredictionsList(assignments, percentilesMap);
 
         return predictions;
     }
@@ -128,14 +140,13 @@ public class AnomalyDetectionModel implements Serializable {
          */
         Map<Integer, String> percentileToPredictionMap = new HashMap<Integer, String>();
 
-        int predictedCluster = kMeansModel.predict(data);
+        CentroidIndex.Assignment assignment = getCentroidIndex().assign(data);
 
         for (int percentile = minPercentile; percentile <= maxPercentile; percentile++) {
 
-            int clusterIndex = predictedCluster;
-            double clusterBoundary = getPercentileDistance(percentile, clusterIndex);
+            double clusterBoundary = getPercentileDistance(percentile, assignment.getCluster());
 
-            String prediction = getPredictedValue(data, clusterIndex, clusterBoundary);
+            String prediction = getPredictedValue(assignment.getDistance(), clusterBoundary);
             percentileToPredictionMap.put(percentile, prediction);
         }
 
@@ -157,31 +168,103 @@ public class AnomalyDetectionModel implements Serializable {
          * value : predictions List
          */
         Map<Integer, List<String>> percentileToPredictionsListMap = new HashMap<Integer, List<String>>();
-        // convert data JAVARDD into a List
-        List<Vector> dataList = data.collect();
-        List<Integer> predictedClusters = kMeansModel.predict(data).collect();
+        List<CentroidIndex.Assignment> assignments = assign(data);
 
         for (int percentile = minPercentile; percentile <= maxPercentile; percentile++) {
 
             Map<Integer, Double> percentilesMap = getPercentileDistancesMap(percentile);
-            List<String> predictionsList = getPredictionsList(dataList, predictedClusters, percentilesMap);
+            List<String> predictionsList = getPredictionsList(assignments, percentilesMap);
             percentileToPredictionsListMap.put(percentile, predictionsList);
         }
 
         return percentileToPredictionsListMap;
     }
 
-    private List<String> getPredictionsList(List<Vector> dataList, List<Integer> predictedClusters,
+    /**
+     * This method scores a data point against the anomaly detection model
+     *
+     * @param data a single data point as a Vector
+     * @return the closest cluster, the distance to its center and the percentile rank of that distance among the
+     *         training data points of the cluster
+     */
+    public AnomalyScore score(Vector data) {
+
+        CentroidIndex.Assignment assignment = getCentroidIndex().assign(data);
+        double percentileRank = getPercentileRank(assignment.getCluster(), assignment.getDistance());
+
+        return new AnomalyScore(assignment.getCluster(), assignment.getDistance(), percentileRank);
+    }
+
+    /**
+     * This method is to get the cluster boundary distances for a range of percentile values
+     *
+     * @param minPercentile min percentile value of the range
+     * @param maxPercentile max percentile value of the range
+     * @return Map<Integer, Map<Integer, Double>> key:cluster index value:(key:percentile value:distance value)
+     */
+    public Map<Integer, Map<Integer, Double>> getPercentileDistances(int minPercentile, int maxPercentile) {
+
+        Map<Integer, Map<Integer, Double>> clusterToPercentileDistancesMap =
+                new HashMap<Integer, Map<Integer, Double>>();
+        Percentile percentile = new Percentile();
+
+        for (int clusterIndex = 0; clusterIndex < clusterIndexToDistancesListMap.size(); clusterIndex++) {
+
+            Map<Integer, Double> percentileDistancesMap = new HashMap<Integer, Double>();
+            percentile.setData(getSortedDistances()[clusterIndex]);
+            for (int percentileValue = minPercentile; percentileValue <= maxPercentile; percentileValue++) {
+                percentileDistancesMap.put(percentileValue, percentile.evaluate(percentileValue));
+            }
+            clusterToPercentileDistancesMap.put(clusterIndex, percentileDistancesMap);
+        }
+
+        return clusterToPercentileDistancesMap;
+    }
+
+    /**
+     * This method is to get the percentage of training data points of a cluster which are not further away from the
+     * cluster center than the given distance
+     */
+    private double getPercentileRank(int clusterIndex, double distance) {
+
+        double[] distances = getSortedDistances()[clusterIndex];
+        if (distances.length == 0) {
+            return 100.0;
+        }
+        // index of the first distance greater than the given distance
+        int low = 0;
+        int high = distances.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (distances[mid] <= distance) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return 100.0 * low / distances.length;
+    }
+
+    /**
+     * This method assigns each data point to its closest cluster, computing the distance in the same pass
+     */
+    private List<CentroidIndex.Assignment> assign(JavaRDD<Vector> data) {
+
+        VectorToCentroidAssignment vectorToCentroidAssignment = new VectorToCentroidAssignment.Builder()
+                .index(getCentroidIndex()).build();
+        return data.map(vectorToCentroidAssignment).collect();
+    }
+
+    private List<String> getPredictionsList(List<CentroidIndex.Assignment> assignments,
             Map<Integer, Double> percentilesMap) {
 
         List<String> predictionsList = new ArrayList<String>();
 
-        for (int i = 0; i < dataList.size(); i++) {
+        for (CentroidIndex.Assignment assignment : assignments) {
 
-            int clusterIndex = predictedClusters.get(i);
-            double clusterBoundary = percentilesMap.get(clusterIndex);
+            double clusterBoundary = percentilesMap.get(assignment.getCluster());
 
-            String prediction = getPredictedValue(dataList.get(i), clusterIndex, clusterBoundary);
+            String prediction = getPredictedValue(assignment.getDistance(), clusterBoundary);
             predictionsList.add(prediction);
         }
 
@@ -189,17 +272,11 @@ public class AnomalyDetectionModel implements Serializable {
     }
 
     /**
-     * This method is to predict the label of a given data point
+     * This method is to predict the label of a given data point using its distance to the closest cluster center
      */
-    private String getPredictedValue(Vector dataPointVector, int clusterIndex, double clusterBoundary) {
+    private String getPredictedValue(double distance, double clusterBoundary) {
 
         String prediction;
-        EuclideanDistance euclideanDistance = new EuclideanDistance();
-        Vector[] clusterCenters = kMeansModel.clusterCenters();
-
-        double[] dataPoint = dataPointVector.toArray();
-        double[] clusterCenter = clusterCenters[clusterIndex].toArray();
-        double distance = euclideanDistance.compute(clusterCenter, dataPoint);
 
         if (distance > clusterBoundary) {
             prediction = anomalyLabel;
@@ -212,30 +289,21 @@ public class AnomalyDetectionModel implements Serializable {
 
     /**
      * This method is to get the percentile distances map
-     * key : percentile value
+     * key : cluster index
      * value : distance value
-     * This will return cluster boundary distance values with respect to each percentile
+     * This will return cluster boundary distance values of each cluster with respect to the given percentile
      */
     private Map<Integer, Double> getPercentileDistancesMap(double percentileValue) {
 
-        // Get a DescriptiveStatistics instance
-        DescriptiveStatistics stats = new DescriptiveStatistics();
         /*
-         * key : percentile value
+         * key : cluster index
          * value : distance value
          */
         Map<Integer, Double> percentilesMap = new HashMap<Integer, Double>();
 
         // calculating percentile distance of each cluster
         for (int clusterIndex = 0; clusterIndex < clusterIndexToDistancesListMap.size(); clusterIndex++) {
-
-            for (double distance : clusterIndexToDistancesListMap.get(clusterIndex)) {
-                stats.addValue(distance);
-            }
-
-            double percentileDistance = stats.getPercentile(percentileValue);
-            percentilesMap.put(clusterIndex, percentileDistance);
-            stats.clear();
+            percentilesMap.put(clusterIndex, getPercentileDistance(percentileValue, clusterIndex));
         }
 
         return percentilesMap;
@@ -246,16 +314,27 @@ public class AnomalyDetectionModel implements Serializable {
      */
     private double getPercentileDistance(double percentileValue, int clusterIndex) {
 
-        // Get a DescriptiveStatistics instance
-        DescriptiveStatistics stats = new DescriptiveStatistics();
+        // same estimation as DescriptiveStatistics#getPercentile, over the cached distances
+        return new Percentile().evaluate(getSortedDistances()[clusterIndex], percentileValue);
+    }
 
-        // calculating percentile distance
-        for (double distance : clusterIndexToDistancesListMap.get(clusterIndex)) {
-            stats.addValue(distance);
+    /**
+     * This method is to get the distances of the training data points to their cluster centers, sorted per cluster
+     */
+    private double[][] getSortedDistances() {
+
+        if (sortedDistances == null) {
+            double[][] distances = new double[clusterIndexToDistancesListMap.size()][];
+            for (int clusterIndex = 0; clusterIndex < distances.length; clusterIndex++) {
+                List<Double> distancesList = clusterIndexToDistancesListMap.get(clusterIndex);
+                distances[clusterIndex] = new double[distancesList.size()];
+                for (int i = 0; i < distances[clusterIndex].length; i++) {
+                    distances[clusterIndex][i] = distancesList.get(i);
+                }
+                Arrays.sort(distances[clusterIndex]);
+            }
+            sortedDistances = distances;
         }
-        double percentileDistance = stats.getPercentile(percentileValue);
-        stats.clear();
-
-        return percentileDistance;
+        return sortedDistances;
     }
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.models.ext;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.spark.mllib.linalg.Vector;
+
+/**
+ * Nearest centroid index over a fixed set of cluster centers. Returns the closest cluster and the Euclidean distance
+ * to it in a single pass, pruning candidate centers with triangle inequality bounds:
+ * <ul>
+ * <li>centers are visited outwards from the one whose norm is closest to the point's norm, and a direction is
+ * abandoned once | ||x|| - ||c|| | exceeds the best distance found so far,</li>
+ * <li>the search stops as soon as the best distance is below half the distance from the best center to its nearest
+ * neighbouring center (Hamerly bound),</li>
+ * <li>partial squared distances are abandoned as soon as they exceed the best squared distance.</li>
+ * </ul>
+ * Ties are broken towards the lower cluster index, as in Spark's k-means prediction.
+ */
+public class CentroidIndex implements Serializable {
+
+    private static final long serialVersionUID = -3617920435628561537L;
+
+    private final int dimension;
+    // centers laid out row-wise in norm order
+    private final double[] centers;
+    private final double[] norms;
+    private final int[] clusterIndices;
+    // half the distance from each (norm ordered) center to its closest other center
+    private final double[] halfNeighbourDistances;
+
+    public CentroidIndex(Vector[] clusterCenters) {
+        this(toArrays(clusterCenters));
+    }
+
+    public CentroidIndex(double[][] clusterCenters) {
+        int k = clusterCenters.length;
+        if (k == 0) {
+            throw new IllegalArgumentException("At least one cluster center is required.");
+        }
+        dimension = clusterCenters[0].length;
+
+        final double[] unorderedNorms = new double[k];
+        Integer[] order = new Integer[k];
+        for (int i = 0; i < k; i++) {
+            if (clusterCenters[i].length != dimension) {
+                throw new IllegalArgumentException(String.format(
+                        "Cluster center %s has %s dimensions, expected %s.", i, clusterCenters[i].length, dimension));
+            }
+            unorderedNorms[i] = norm(clusterCenters[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(unorderedNorms[a], unorderedNorms[b]);
+            }
+        });
+
+        centers = new double[k * dimension];
+        norms = new double[k];
+        clusterIndices = new int[k];
+        for (int i = 0; i < k; i++) {
+            System.arraycopy(clusterCenters[order[i]], 0, centers, i * dimension, dimension);
+            norms[i] = unorderedNorms[order[i]];
+            clusterIndices[i] = order[i];
+        }
+
+        halfNeighbourDistances = new double[k];
+        Arrays.fill(halfNeighbourDistances, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < k; i++) {
+            for (int j = i + 1; j < k; j++) {
+                double half = Math.sqrt(squaredDistance(centers, i * dimension, centers, j * dimension, dimension,
+                        Double.POSITIVE_INFINITY)) / 2;
+                if (half < halfNeighbourDistances[i]) {
+                    halfNeighbourDistances[i] = half;
+                }
+                if (half < halfNeighbourDistances[j]) {
+                    halfNeighbourDistances[j] = half;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the closest cluster center to a given point.
+     *
+     * @param point data point as a Vector
+     * @return the closest cluster and its distance to the point
+     */
+    public Assignment assign(Vector point) {
+        return assign(point.toArray());
+    }
+
+    /**
+     * Find the closest cluster center to a given point.
+     *
+     * @param point data point
+     * @return the closest cluster and its distance to the point
+     */
+    public Assignment assign(double[] point) {
+        if (point.length != dimension) {
+            throw new IllegalArgumentException(String.format("Data point has %s dimensions, expected %s.",
+                    point.length, dimension));
+        }
+        int k = norms.length;
+        double pointNorm = norm(point);
+
+        // start from the center with the closest norm
+        int start = Arrays.binarySearch(norms, pointNorm);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        if (start == k || (start > 0 && pointNorm - norms[start - 1] < norms[start] - pointNorm)) {
+            start--;
+        }
+
+        int best = start;
+        double bestSquared = squaredDistance(point, 0, centers, start * dimension, dimension,
+                Double.POSITIVE_INFINITY);
+        double bestDistance = Math.sqrt(bestSquared);
+
+        int lower = start - 1;
+        int upper = start + 1;
+        while ((lower >= 0 || upper < k) && bestDistance >= halfNeighbourDistances[best]) {
+            int candidate;
+            // expand towards the side whose next center norm is closer to the point's norm
+            if (upper >= k || (lower >= 0 && pointNorm - norms[lower] <= norms[upper] - pointNorm)) {
+                candidate = lower--;
+                if (pointNorm - norms[candidate] > bestDistance) {
+                    lower = -1;
+                    continue;
+                }
+            } else {
+                candidate = upper++;
+                if (norms[candidate] - pointNorm > bestDistance) {
+                    upper = k;
+                    continue;
+                }
+            }
+            double squared = squaredDistance(point, 0, centers, candidate * dimension, dimension, bestSquared);
+            if (squared < bestSquared
+                    || (squared == bestSquared && clusterIndices[candidate] < clusterIndices[best])) {
+                best = candidate;
+                bestSquared = squared;
+                bestDistance = Math.sqrt(squared);
+            }
+        }
+        return new Assignment(clusterIndices[best], bestDistance);
+    }
+
+    /**
+     * Euclidean distance from a point to the center of a given cluster.
+     *
+     * @param point data point
+     * @param clusterIndex index of the cluster
+     * @return distance to the cluster center
+     */
+    public double distance(double[] point, int clusterIndex) {
+        for (int i = 0; i < clusterIndices.length; i++) {
+            if (clusterIndices[i] == clusterIndex) {
+                return Math.sqrt(squaredDistance(point, 0, centers, i * dimension, dimension,
+                        Double.POSITIVE_INFINITY));
+            }
+        }
+        throw new IllegalArgumentException("Invalid cluster index: " + clusterIndex);
+    }
+
+    public int getNumberOfClusters() {
+        return norms.length;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Squared distance between two rows, abandoned once it exceeds the given limit.
+     */
+    private static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length, double limit) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+            // check every few dimensions to keep the inner loop tight
+            if ((i & 7) == 7 && sum > limit) {
+                return sum;
+            }
+        }
+        return sum;
+    }
+
+    private static double norm(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value * value;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static double[][] toArrays(Vector[] vectors) {
+        double[][] arrays = new double[vectors.length][];
+        for (int i = 0; i < vectors.length; i++) {
+            arrays[i] = vectors[i].toArray();
+        }
+        return arrays;
+    }
+
+    /**
+     * Closest cluster of a data point together with its distance to the cluster center.
+     */
+    public static class Assignment implements Serializable {
+
+        private static final long serialVersionUID = 2893126874210498113L;
+
+        private final int cluster;
+        private final double distance;
+
+        public Assignment(int cluster, double distance) {
+            this.cluster = cluster;
+            this.distance = distance;
+        }
+
+        public int getCluster() {
+            return cluster;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+}
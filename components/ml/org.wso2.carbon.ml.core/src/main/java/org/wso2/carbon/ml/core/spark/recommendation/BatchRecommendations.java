@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+
+/**
+ * Product recommendations for a batch of (already validated) users, computed while they are written out so that
+ * results are streamed rather than held in memory.
+ */
+public class BatchRecommendations {
+
+    private final FactorStore factorStore;
+    private final int[] userIds;
+    private final int numberOfProducts;
+
+    /**
+     * @param factorStore factors of the recommendation model
+     * @param userIds users to recommend products to, or null for all the users of the model
+     * @param numberOfProducts number of products to recommend per user
+     */
+    public BatchRecommendations(FactorStore factorStore, int[] userIds, int numberOfProducts) {
+        this.factorStore = factorStore;
+        this.userIds = userIds;
+        this.numberOfProducts = numberOfProducts;
+    }
+
+    /**
+     * Write the recommendations as newline delimited JSON, one line per user.
+     *
+     * @param writer writer to write to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public void write(Writer writer) throws IOException {
+        try {
+            factorStore.recommendProducts(userIds, numberOfProducts, new RecommendationLinesWriter(writer,
+                    RecommendationLinesWriter.USER_ID, RecommendationLinesWriter.PRODUCT_IDS));
+        } catch (MLModelHandlerException e) {
+            // users are validated before the batch is created
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Iterator;
+
+import scala.Tuple2;
+
+/**
+ * Finds the top k candidates (e.g. products) of many queries (e.g. users) at once by dot product of their factors.
+ * Queries are scored in blocks against blocks of candidate rows, so that a block of candidate factors stays in cache
+ * while it is multiplied with every query of the block, and four candidates are scored per pass over a query row.
+ * Each query keeps its own {@link BoundedTopK}.
+ */
+public class BlockedTopKScorer implements Serializable {
+
+    private static final long serialVersionUID = -4928307712461209653L;
+
+    // number of queries whose heaps are kept while a block of candidates is scored
+    public static final int QUERY_BLOCK_SIZE = 64;
+    // number of candidate rows scored against a block of queries, ~100KB of factors for rank 50
+    private static final int CANDIDATE_BLOCK_SIZE = 256;
+
+    private final int rank;
+    private final double[] candidateFactors;
+    private final int[] candidateIds;
+    private final int k;
+
+    /**
+     * Receives the top k of a query, best first. Arrays are reused between calls.
+     */
+    public interface ResultHandler {
+        void handle(int queryId, int[] ids, double[] scores, int count) throws IOException;
+    }
+
+    /**
+     * @param rank number of factors per row
+     * @param candidateFactors candidate factors laid out row-wise
+     * @param candidateIndex ids of the candidate rows
+     * @param k number of candidates to find per query
+     */
+    public BlockedTopKScorer(int rank, double[] candidateFactors, IdIndex candidateIndex, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of results cannot be negative: " + k);
+        }
+        this.rank = rank;
+        this.candidateFactors = candidateFactors;
+        this.candidateIds = candidateIndex.getIds();
+        this.k = Math.min(k, candidateIds.length);
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Find the top k candidates of the given queries.
+     *
+     * @param queryIds ids of the queries
+     * @param queryFactors query factors laid out row-wise, at least count * rank long
+     * @param count number of queries to score
+     * @param handler receives the result of each query, in query order
+     * @throws IOException if the handler fails
+     */
+    public void score(int[] queryIds, double[] queryFactors, int count, ResultHandler handler) throws IOException {
+        int candidates = candidateIds.length;
+        BoundedTopK[] topKs = new BoundedTopK[Math.min(QUERY_BLOCK_SIZE, count)];
+        for (int i = 0; i < topKs.length; i++) {
+            topKs[i] = new BoundedTopK(k);
+        }
+        int[] ids = new int[k];
+        double[] scores = new double[k];
+
+        for (int queryStart = 0; queryStart < count; queryStart += QUERY_BLOCK_SIZE) {
+            int queryEnd = Math.min(queryStart + QUERY_BLOCK_SIZE, count);
+            for (int candidateStart = 0; candidateStart < candidates; candidateStart += CANDIDATE_BLOCK_SIZE) {
+                int candidateEnd = Math.min(candidateStart + CANDIDATE_BLOCK_SIZE, candidates);
+                for (int query = queryStart; query < queryEnd; query++) {
+                    scoreBlock(queryFactors, query * rank, candidateStart, candidateEnd, topKs[query - queryStart]);
+                }
+            }
+            for (int query = queryStart; query < queryEnd; query++) {
+                int found = topKs[query - queryStart].drain(ids, scores);
+                handler.handle(queryIds[query], ids, scores, found);
+            }
+        }
+    }
+
+    /**
+     * Find the top k candidates of (id, factors) pairs, e.g. a partition of the user features of a
+     * MatrixFactorizationModel, copying them into blocks of contiguous rows as they are read.
+     *
+     * @param factors query ids and factors
+     * @param handler receives the result of each query, in query order
+     * @throws IOException if the handler fails
+     */
+    public void score(Iterator<Tuple2<Object, double[]>> factors, ResultHandler handler) throws IOException {
+        int[] ids = new int[QUERY_BLOCK_SIZE];
+        double[] block = new double[QUERY_BLOCK_SIZE * rank];
+        int count = 0;
+        while (factors.hasNext()) {
+            Tuple2<Object, double[]> factor = factors.next();
+            ids[count] = (Integer) factor._1();
+            System.arraycopy(factor._2(), 0, block, count * rank, rank);
+            if (++count == QUERY_BLOCK_SIZE) {
+                score(ids, block, count, handler);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            score(ids, block, count, handler);
+        }
+    }
+
+    /**
+     * Offer the candidate rows [start, end) scored against one query row, four candidates per pass over the query.
+     */
+    private void scoreBlock(double[] queryFactors, int queryOffset, int start, int end, BoundedTopK topK) {
+        int candidate = start;
+        for (; candidate + 3 < end; candidate += 4) {
+            int offset0 = candidate * rank;
+            int offset1 = offset0 + rank;
+            int offset2 = offset1 + rank;
+            int offset3 = offset2 + rank;
+            double sum0 = 0;
+            double sum1 = 0;
+            double sum2 = 0;
+            double sum3 = 0;
+            for (int i = 0; i < rank; i++) {
+                double value = queryFactors[queryOffset + i];
+                sum0 += value * candidateFactors[offset0 + i];
+                sum1 += value * candidateFactors[offset1 + i];
+                sum2 += value * candidateFactors[offset2 + i];
+                sum3 += value * candidateFactors[offset3 + i];
+            }
+            topK.offer(candidateIds[candidate], sum0);
+            topK.offer(candidateIds[candidate + 1], sum1);
+            topK.offer(candidateIds[candidate + 2], sum2);
+            topK.offer(candidateIds[candidate + 3], sum3);
+        }
+        for (; candidate < end; candidate++) {
+            topK.offer(candidateIds[candidate],
+                    FactorStore.dot(queryFactors, queryOffset, candidateFactors, candidate * rank, rank));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+/**
+ * Keeps the k highest scored ids offered to it, using a min-heap of primitive arrays whose root is the weakest of
+ * the current top k. Equal scores are ranked by the lower id first. Instances can be reused via {@link #clear()}.
+ */
+public class BoundedTopK {
+
+    private final int k;
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    public BoundedTopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of results cannot be negative: " + k);
+        }
+        this.k = k;
+        this.ids = new int[k];
+        this.scores = new double[k];
+    }
+
+    /**
+     * Offer a scored id.
+     *
+     * @return true if the id is currently among the top k
+     */
+    public boolean offer(int id, double score) {
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || !isBetter(score, id, scores[0], ids[0])) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Lowest score currently in the top k, or negative infinity while fewer than k ids have been offered.
+     */
+    public double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the top ids, best first. The heap is emptied.
+     */
+    public int[] drainIds() {
+        int[] sortedIds = new int[size];
+        while (size > 0) {
+            sortedIds[size - 1] = ids[0];
+            removeRoot();
+        }
+        return sortedIds;
+    }
+
+    /**
+     * Drain the top ids and their scores, best first.
+     *
+     * @param sortedIds array to fill with the ids, at least {@link #size()} long
+     * @param sortedScores array to fill with the scores, at least {@link #size()} long
+     * @return number of results
+     */
+    public int drain(int[] sortedIds, double[] sortedScores) {
+        int count = size;
+        while (size > 0) {
+            sortedIds[size - 1] = ids[0];
+            sortedScores[size - 1] = scores[0];
+            removeRoot();
+        }
+        return count;
+    }
+
+    private void removeRoot() {
+        size--;
+        ids[0] = ids[size];
+        scores[0] = scores[size];
+        siftDown(0);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBetter(scores[parent], ids[parent], scores[index], ids[index])) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int weakest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && isBetter(scores[weakest], ids[weakest], scores[left], ids[left])) {
+                weakest = left;
+            }
+            if (right < size && isBetter(scores[weakest], ids[weakest], scores[right], ids[right])) {
+                weakest = right;
+            }
+            if (weakest == index) {
+                return;
+            }
+            swap(index, weakest);
+            index = weakest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    private static boolean isBetter(double score, int id, double otherScore, int otherId) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+}
@@ -18,14 +18,21 @@
 
 package org.wso2.carbon.ml.core.spark.recommendation;
 
-import org.apache.spark.api.java.JavaDoubleRDD;
+import org.apache.spark.HashPartitioner;
+import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
-import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.api.java.function.PairFunction;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.mllib.recommendation.ALS;
 import org.apache.spark.mllib.recommendation.MatrixFactorizationModel;
 import org.apache.spark.mllib.recommendation.Rating;
+import org.apache.spark.rdd.RDD;
 import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+import org.wso2.carbon.ml.core.spark.models.MLMatrixFactorizationModel;
+import org.wso2.carbon.ml.core.spark.transformations.FactorsToMetrics;
 
 import scala.Tuple2;
 
@@ -75,50 +82,55 @@ public class CollaborativeFiltering implements Serializable{
 		                         confidenceParameter);
 	}
 	
-	public JavaDoubleRDD test(final MatrixFactorizationModel model, JavaRDD<Rating> testData) {
-		// Evaluate the model on rating data
-	    JavaRDD<Tuple2<Object, Object>> userProducts = testData.map(
-	      new Function<Rating, Tuple2<Object, Object>>() {
+	/**
+	 * Evaluates a model on rating data in a single pass. Test ratings are keyed by user and partitioned like the user
+	 * factors of the model, so each partition of user factors is zipped with the test ratings of its users, without
+	 * shuffling the factors or joining predictions back. The product factors are broadcast.
+	 *
+	 * @param model     Matrix factorization model
+	 * @param testData  Test dataset as a JavaRDD of Ratings
+	 * @param k         Number of products ranked per user for precision@k and MAP@k
+	 * @return          Mean squared error and ranking metrics of the model
+	 * @throws Exception If failed to evaluate the model
+	 */
+	public RecommendationMetrics test(MLMatrixFactorizationModel model, JavaRDD<Rating> testData, int k)
+			throws Exception {
+		JavaSparkContext sparkContext = JavaSparkContext.fromSparkContext(testData.context());
+		RDD<Tuple2<Object, double[]>> userFeatures = model.getModel().userFeatures();
+		JavaPairRDD<Object, double[]> userFactors = JavaPairRDD.fromJavaRDD(userFeatures.toJavaRDD());
+		Partitioner partitioner;
+		if (userFeatures.partitioner().isDefined()) {
+			// factors trained by ALS are hash partitioned by id
+			partitioner = userFeatures.partitioner().get();
+		} else {
+			partitioner = new HashPartitioner(userFeatures.partitions().length);
+			userFactors = userFactors.partitionBy(partitioner);
+		}
+		JavaPairRDD<Integer, Rating> ratingsByUser = testData.mapToPair(new PairFunction<Rating, Integer, Rating>() {
 			private static final long serialVersionUID = -3264552286094314165L;
 
-			public Tuple2<Object, Object> call(Rating r) {
-	          return new Tuple2<Object, Object>(r.user(), r.product());
-	        }
-	      }
-	    );
-	    JavaPairRDD<Tuple2<Integer, Integer>, Double> predictions = JavaPairRDD.fromJavaRDD(
-	      model.predict(JavaRDD.toRDD(userProducts)).toJavaRDD().map(
-	        new Function<Rating, Tuple2<Tuple2<Integer, Integer>, Double>>() {
+			@Override
+			public Tuple2<Integer, Rating> call(Rating rating) {
+				return new Tuple2<Integer, Rating>(rating.user(), rating);
+			}
+		}).partitionBy(partitioner);
+
+		Broadcast<RecommendationEvaluator> evaluator =
+				sparkContext.broadcast(new RecommendationEvaluator(model.getFactorStore(), k));
+		try {
+			JavaRDD<RecommendationMetrics> metrics = userFactors.zipPartitions(ratingsByUser,
+					new FactorsToMetrics.Builder().evaluator(evaluator).build());
+			return metrics.reduce(new Function2<RecommendationMetrics, RecommendationMetrics, RecommendationMetrics>() {
 				private static final long serialVersionUID = -2499038680234103588L;
 
-			public Tuple2<Tuple2<Integer, Integer>, Double> call(Rating r){
-	            return new Tuple2<Tuple2<Integer, Integer>, Double>(
-	              new Tuple2<Integer, Integer>(r.user(), r.product()), r.rating());
-	          }
-	        }
-	    ));
-	    JavaRDD<Tuple2<Double, Double>> ratesAndPreds = 
-	      JavaPairRDD.fromJavaRDD(testData.map(
-	        new Function<Rating, Tuple2<Tuple2<Integer, Integer>, Double>>() {
-				private static final long serialVersionUID = 4113775238540885102L;
-
-			public Tuple2<Tuple2<Integer, Integer>, Double> call(Rating r){
-	            return new Tuple2<Tuple2<Integer, Integer>, Double>(
-	              new Tuple2<Integer, Integer>(r.user(), r.product()), r.rating());
-	          }
-	        }
-	    )).join(predictions).values();
-	    JavaDoubleRDD ratingsOfTestData = JavaDoubleRDD.fromRDD(ratesAndPreds.map(
-	      new Function<Tuple2<Double, Double>, Object>() {
-			private static final long serialVersionUID = -5530552459744897905L;
-
-			public Object call(Tuple2<Double, Double> pair) {
-	          Double err = pair._1() - pair._2();
-	          return err * err;
-	        }
-	      }
-	    ).rdd());
-		return ratingsOfTestData;
+				@Override
+				public RecommendationMetrics call(RecommendationMetrics metrics, RecommendationMetrics other) {
+					return metrics.merge(other);
+				}
+			});
+		} finally {
+			evaluator.unpersist();
+		}
 	}
 
 	/**
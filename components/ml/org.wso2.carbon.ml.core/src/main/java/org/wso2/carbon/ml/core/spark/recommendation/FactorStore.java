@@ -0,0 +1,707 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.spark.mllib.recommendation.Rating;
+import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+
+import scala.Tuple2;
+
+/**
+ * In-heap copy of the user and product factors of a matrix factorization model. Factors are held row-wise in
+ * contiguous primitive arrays and ids are resolved to rows through {@link IdIndex}, so recommendations are scored
+ * locally without running Spark jobs. Results match {@code MatrixFactorizationModel#recommendProducts} and
+ * {@code MatrixFactorizationModel#recommendUsers}: highest dot product first, equal scores ordered by id. When a
+ * {@link MipsIndex} is set, products are recommended approximately through it instead.
+ * <p>
+ * New ratings can be folded into the store without retraining: the factors of the rated users (or products) are
+ * solved by regularised least squares against the fixed factors of the other side, as one half-step of ALS. Reads
+ * share a lock which a fold-in holds exclusively. A fold-in replaces the factor arrays rather than updating them, so
+ * that scorers, and callers of {@link #getUserFactors()} and {@link #getProductFactors()}, keep a consistent snapshot
+ * without holding the lock. The arrays are thus never written once set, and {@link #copy()} shares them.
+ */
+public class FactorStore implements Serializable {
+
+    private static final long serialVersionUID = 3906328172395407816L;
+
+    private final int rank;
+    private final IdIndex userIndex;
+    private final IdIndex productIndex;
+    // rows beyond the size of the index are spare capacity for folded in ids
+    private double[] userFactors;
+    private double[] productFactors;
+    private MipsIndex mipsIndex;
+    // version of the persisted model these factors were read from or written to, 0 until ratings are folded in
+    private long version;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FactorStore(int rank, List<Tuple2<Object, double[]>> userFeatures,
+            List<Tuple2<Object, double[]>> productFeatures) {
+        this.rank = rank;
+        this.userIndex = new IdIndex(userFeatures.size());
+        this.productIndex = new IdIndex(productFeatures.size());
+        this.userFactors = toRows(rank, userFeatures, userIndex);
+        this.productFactors = toRows(rank, productFeatures, productIndex);
+    }
+
+    private FactorStore(FactorStore other) {
+        this.rank = other.rank;
+        this.userIndex = new IdIndex(other.userIndex);
+        this.productIndex = new IdIndex(other.productIndex);
+        this.userFactors = other.userFactors;
+        this.productFactors = other.productFactors;
+        this.mipsIndex = other.mipsIndex;
+        this.version = other.version;
+    }
+
+    /**
+     * Copy of this store which ratings can be folded into while this one keeps serving recommendations, e.g. until
+     * the fold-in is persisted.
+     */
+    public FactorStore copy() {
+        lock.readLock().lock();
+        try {
+            return new FactorStore(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public int getNumberOfUsers() {
+        lock.readLock().lock();
+        try {
+            return userIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getNumberOfProducts() {
+        lock.readLock().lock();
+        try {
+            return productIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public MipsIndex getMipsIndex() {
+        return mipsIndex;
+    }
+
+    /**
+     * @param mipsIndex approximate index over the product factors of this store, or null to recommend products
+     *            exactly
+     */
+    public void setMipsIndex(MipsIndex mipsIndex) {
+        lock.writeLock().lock();
+        try {
+            this.mipsIndex = mipsIndex;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public IdIndex getUserIndex() {
+        return userIndex;
+    }
+
+    public IdIndex getProductIndex() {
+        return productIndex;
+    }
+
+    /**
+     * @return user factors laid out row-wise, {@link #getRank()} values per row in {@link #getUserIndex()} order,
+     *         possibly followed by spare rows
+     */
+    public double[] getUserFactors() {
+        return userFactors;
+    }
+
+    /**
+     * @return product factors laid out row-wise, {@link #getRank()} values per row in {@link #getProductIndex()}
+     *         order, possibly followed by spare rows
+     */
+    public double[] getProductFactors() {
+        return productFactors;
+    }
+
+    public boolean containsUser(int userId) {
+        lock.readLock().lock();
+        try {
+            return userIndex.getRow(userId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsProduct(int productId) {
+        lock.readLock().lock();
+        try {
+            return productIndex.getRow(productId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param k number of products to find per user
+     * @return a scorer of a snapshot of the current product factors, unaffected by later fold-ins
+     */
+    public BlockedTopKScorer getProductScorer(int k) {
+        lock.readLock().lock();
+        try {
+            return new BlockedTopKScorer(rank, productFactors, productIndex, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param k number of users to find per product
+     * @return a scorer of a snapshot of the current user factors, unaffected by later fold-ins
+     */
+    public BlockedTopKScorer getUserScorer(int k) {
+        lock.readLock().lock();
+        try {
+            return new BlockedTopKScorer(rank, userFactors, userIndex, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the factors of a given user, or null if the user is unknown
+     */
+    public double[] getUserFeatures(int userId) {
+        lock.readLock().lock();
+        try {
+            return getFeatures(userIndex, userFactors, userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the factors of a given product, or null if the product is unknown
+     */
+    public double[] getProductFeatures(int productId) {
+        lock.readLock().lock();
+        try {
+            return getFeatures(productIndex, productFactors, productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Predict the rating of a user for a product.
+     *
+     * @param userId user id
+     * @param productId product id
+     * @return predicted rating
+     * @throws MLModelHandlerException if the user or the product is unknown
+     */
+    public double predict(int userId, int productId) throws MLModelHandlerException {
+        lock.readLock().lock();
+        try {
+            int userRow = userIndex.getRow(userId);
+            if (userRow < 0) {
+                throw new MLModelHandlerException("Invalid user id: " + userId);
+            }
+            int productRow = productIndex.getRow(productId);
+            if (productRow < 0) {
+                throw new MLModelHandlerException("Invalid product id: " + productId);
+            }
+            return dot(userFactors, userRow * rank, productFactors, productRow * rank, rank);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method recommends products for a given user, through the approximate index when one is set.
+     *
+     * @param userId The user to recommend products to
+     * @param numberOfProducts Number of products to return
+     * @return List of productIds recommended to a given user
+     * @throws MLModelHandlerException if the user is unknown
+     */
+    public List<Integer> recommendProducts(int userId, int numberOfProducts) throws MLModelHandlerException {
+        lock.readLock().lock();
+        try {
+            if (mipsIndex == null) {
+                return recommendProductsExactly(userId, numberOfProducts);
+            }
+            int userRow = userIndex.getRow(userId);
+            if (userRow < 0) {
+                throw new MLModelHandlerException("Invalid user id: " + userId);
+            }
+            return toList(mipsIndex.search(userFactors, userRow * rank, numberOfProducts,
+                    mipsIndex.getSearchBreadth()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method recommends products for a given user, scoring every product.
+     *
+     * @param userId The user to recommend products to
+     * @param numberOfProducts Number of products to return
+     * @return List of productIds recommended to a given user
+     * @throws MLModelHandlerException if the user is unknown
+     */
+    public List<Integer> recommendProductsExactly(int userId, int numberOfProducts) throws MLModelHandlerException {
+        lock.readLock().lock();
+        try {
+            int userRow = userIndex.getRow(userId);
+            if (userRow < 0) {
+                throw new MLModelHandlerException("Invalid user id: " + userId);
+            }
+            BoundedTopK topK = new BoundedTopK(Math.min(numberOfProducts, productIndex.size()));
+            score(userFactors, userRow * rank, productFactors, productIndex, topK);
+            return toList(topK.drainIds());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method recommends products for a batch of users, scoring blocks of users against the product factors.
+     * The lock is only held while the factors of a block of users are copied, so that slow handlers do not hold
+     * back fold-ins.
+     *
+     * @param userIds The users to recommend products to, or null for all the users
+     * @param numberOfProducts Number of products to return per user
+     * @param handler receives the productIds recommended to each user, in the order of the given users
+     * @throws MLModelHandlerException if a user is unknown, checked before any recommendation is made
+     * @throws IOException if the handler fails
+     */
+    public void recommendProducts(int[] userIds, int numberOfProducts, BlockedTopKScorer.ResultHandler handler)
+            throws MLModelHandlerException, IOException {
+        BlockedTopKScorer scorer = getProductScorer(numberOfProducts);
+        int[] userRows;
+        lock.readLock().lock();
+        try {
+            if (userIds == null) {
+                userIds = userIndex.getIds();
+            }
+            userRows = new int[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                userRows[i] = userIndex.getRow(userIds[i]);
+                if (userRows[i] < 0) {
+                    throw new MLModelHandlerException("Invalid user id: " + userIds[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // copy the factors of the requested users into blocks of contiguous rows
+        int blockSize = BlockedTopKScorer.QUERY_BLOCK_SIZE;
+        int[] ids = new int[blockSize];
+        double[] block = new double[blockSize * rank];
+        for (int start = 0; start < userIds.length; start += blockSize) {
+            int count = Math.min(blockSize, userIds.length - start);
+            lock.readLock().lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    ids[i] = userIds[start + i];
+                    System.arraycopy(userFactors, userRows[start + i] * rank, block, i * rank, rank);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            scorer.score(ids, block, count, handler);
+        }
+    }
+
+    /**
+     * This method recommends users for a given product. (i.e. the users who are most likely to be interested in the
+     * given product.
+     *
+     * @param productId The product to recommend users to
+     * @param numberOfUsers Number of users to return
+     * @return List of userIds recommended to a given product
+     * @throws MLModelHandlerException if the product is unknown
+     */
+    public List<Integer> recommendUsers(int productId, int numberOfUsers) throws MLModelHandlerException {
+        lock.readLock().lock();
+        try {
+            int productRow = productIndex.getRow(productId);
+            if (productRow < 0) {
+                throw new MLModelHandlerException("Invalid product id: " + productId);
+            }
+            BoundedTopK topK = new BoundedTopK(Math.min(numberOfUsers, userIndex.size()));
+            score(productFactors, productRow * rank, userFactors, userIndex, topK);
+            return toList(topK.drainIds());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fold new ratings into the user factors, solving the factors of every rated user against the fixed product
+     * factors. Unknown users are added to the store.
+     *
+     * @param ratings ratings of known products
+     * @param lambda regularization parameter of the model
+     * @param alpha confidence parameter of the model, if it was trained on implicit feedback
+     * @param implicit whether the model was trained on implicit feedback
+     * @return number of users whose factors were solved
+     * @throws MLModelHandlerException if a product is unknown or the factors of a user cannot be solved, in which
+     *             case the store is left unchanged
+     */
+    public int foldInUsers(List<Rating> ratings, double lambda, double alpha, boolean implicit)
+            throws MLModelHandlerException {
+        lock.writeLock().lock();
+        try {
+            userFactors = foldIn(ratings, true, userIndex, userFactors, productIndex, productFactors, lambda, alpha,
+                    implicit);
+            return countIds(ratings, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fold new ratings into the product factors, solving the factors of every rated product against the fixed user
+     * factors. Unknown products are added to the store, and the approximate index, which does not cover them, is
+     * dropped.
+     *
+     * @param ratings ratings by known users
+     * @param lambda regularization parameter of the model
+     * @param alpha confidence parameter of the model, if it was trained on implicit feedback
+     * @param implicit whether the model was trained on implicit feedback
+     * @return number of products whose factors were solved
+     * @throws MLModelHandlerException if a user is unknown or the factors of a product cannot be solved, in which
+     *             case the store is left unchanged
+     */
+    public int foldInProducts(List<Rating> ratings, double lambda, double alpha, boolean implicit)
+            throws MLModelHandlerException {
+        lock.writeLock().lock();
+        try {
+            productFactors = foldIn(ratings, false, productIndex, productFactors, userIndex, userFactors, lambda,
+                    alpha, implicit);
+            mipsIndex = null;
+            return countIds(ratings, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Solve the factors x of each rated id against the fixed factors Y of the ids it rated, minimising
+     * sum((r - x.y)^2) + lambda * n * |x - x0|^2 as ALS does with n ratings, where x0 is the current factors of a
+     * known id and 0 for a new one. For implicit feedback, the confidence weighted preferences of the rated ids are
+     * fitted over all the fixed ids, as in Hu, Koren and Volinsky.
+     *
+     * @return a copy of the factors with the solved ones, grown if ids were added
+     */
+    private double[] foldIn(List<Rating> ratings, boolean byUser, IdIndex index, double[] factors,
+            IdIndex fixedIndex, double[] fixedFactors, double lambda, double alpha, boolean implicit)
+            throws MLModelHandlerException {
+        if (lambda < 0) {
+            throw new MLModelHandlerException("Invalid lambda: " + lambda);
+        }
+        Map<Integer, List<Rating>> ratingsById = new LinkedHashMap<Integer, List<Rating>>();
+        for (Rating rating : ratings) {
+            int id = byUser ? rating.user() : rating.product();
+            int fixedId = byUser ? rating.product() : rating.user();
+            if (fixedIndex.getRow(fixedId) < 0) {
+                throw new MLModelHandlerException((byUser ? "Invalid product id: " : "Invalid user id: ") + fixedId);
+            }
+            List<Rating> idRatings = ratingsById.get(id);
+            if (idRatings == null) {
+                idRatings = new ArrayList<Rating>();
+                ratingsById.put(id, idRatings);
+            }
+            idRatings.add(rating);
+        }
+
+        // Y^T Y over all the fixed factors, shared by every id for implicit feedback
+        double[] gram = implicit ? gram(fixedFactors, fixedIndex.size()) : null;
+        double[] solved = new double[ratingsById.size() * rank];
+        double[] a = new double[rank * rank];
+        int offset = 0;
+        for (Map.Entry<Integer, List<Rating>> entry : ratingsById.entrySet()) {
+            if (implicit) {
+                System.arraycopy(gram, 0, a, 0, a.length);
+            } else {
+                Arrays.fill(a, 0);
+            }
+            for (Rating rating : entry.getValue()) {
+                int fixedOffset = fixedIndex.getRow(byUser ? rating.product() : rating.user()) * rank;
+                double weight = 1;
+                double target = rating.rating();
+                if (implicit) {
+                    double confidence = 1 + alpha * Math.abs(rating.rating());
+                    weight = confidence - 1;
+                    target = rating.rating() > 0 ? confidence : 0;
+                }
+                for (int i = 0; i < rank; i++) {
+                    double value = fixedFactors[fixedOffset + i];
+                    solved[offset + i] += target * value;
+                    for (int j = 0; j <= i; j++) {
+                        a[i * rank + j] += weight * value * fixedFactors[fixedOffset + j];
+                    }
+                }
+            }
+            double regularization = lambda * entry.getValue().size();
+            int row = index.getRow(entry.getKey());
+            for (int i = 0; i < rank; i++) {
+                a[i * rank + i] += regularization;
+                if (row >= 0) {
+                    solved[offset + i] += regularization * factors[row * rank + i];
+                }
+            }
+            if (!choleskySolve(a, solved, offset, rank)) {
+                throw new MLModelHandlerException(String.format(
+                        "Cannot solve the factors of %s id %s from %s ratings with lambda %s.", byUser ? "user"
+                                : "product", entry.getKey(), entry.getValue().size(), lambda));
+            }
+            offset += rank;
+        }
+
+        // every id is solved before the store is changed
+        int size = index.size();
+        for (Integer id : ratingsById.keySet()) {
+            if (index.getRow(id) < 0) {
+                size++;
+            }
+        }
+        int capacity = size * rank > factors.length ? Math.max(size, index.size() + index.size() / 2) * rank
+                : factors.length;
+        factors = Arrays.copyOf(factors, capacity);
+        offset = 0;
+        for (Integer id : ratingsById.keySet()) {
+            System.arraycopy(solved, offset, factors, index.add(id) * rank, rank);
+            offset += rank;
+        }
+        return factors;
+    }
+
+    /**
+     * @return the lower triangle of Y^T Y of the given rows, row-major
+     */
+    private double[] gram(double[] factors, int rows) {
+        double[] gram = new double[rank * rank];
+        for (int row = 0; row < rows; row++) {
+            int offset = row * rank;
+            for (int i = 0; i < rank; i++) {
+                double value = factors[offset + i];
+                for (int j = 0; j <= i; j++) {
+                    gram[i * rank + j] += value * factors[offset + j];
+                }
+            }
+        }
+        return gram;
+    }
+
+    /**
+     * Solve A x = b in place by Cholesky decomposition, given the lower triangle of a symmetric positive definite A.
+     *
+     * @return false if A is not positive definite
+     */
+    static boolean choleskySolve(double[] a, double[] b, int bOffset, int n) {
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[j * n + k] * a[j * n + k];
+            }
+            if (diagonal <= 0) {
+                return false;
+            }
+            diagonal = Math.sqrt(diagonal);
+            a[j * n + j] = diagonal;
+            for (int i = j + 1; i < n; i++) {
+                double value = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    value -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = value / diagonal;
+            }
+        }
+        // forward substitution with L, then back substitution with L^T
+        for (int i = 0; i < n; i++) {
+            double value = b[bOffset + i];
+            for (int k = 0; k < i; k++) {
+                value -= a[i * n + k] * b[bOffset + k];
+            }
+            b[bOffset + i] = value / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double value = b[bOffset + i];
+            for (int k = i + 1; k < n; k++) {
+                value -= a[k * n + i] * b[bOffset + k];
+            }
+            b[bOffset + i] = value / a[i * n + i];
+        }
+        return true;
+    }
+
+    private static int countIds(List<Rating> ratings, boolean byUser) {
+        Set<Integer> ids = new HashSet<Integer>();
+        for (Rating rating : ratings) {
+            ids.add(byUser ? rating.user() : rating.product());
+        }
+        return ids.size();
+    }
+
+    /**
+     * Measure the recall@k of the approximate index: the average fraction of the exact top k products of a user
+     * which the index finds, over a random sample of users.
+     *
+     * @param k number of products recommended per user
+     * @param numberOfUsers number of users to sample
+     * @param seed seed of the sample
+     * @return recall@k, 1 if no index is set
+     */
+    public double measureRecall(int k, int numberOfUsers, long seed) throws MLModelHandlerException {
+        if (mipsIndex == null || userIndex.size() == 0 || k <= 0) {
+            return 1;
+        }
+        Random random = new Random(seed);
+        int samples = Math.min(numberOfUsers, userIndex.size());
+        double recall = 0;
+        for (int i = 0; i < samples; i++) {
+            int userId = userIndex.getId(random.nextInt(userIndex.size()));
+            List<Integer> exact = recommendProductsExactly(userId, k);
+            if (exact.isEmpty()) {
+                recall += 1;
+                continue;
+            }
+            List<Integer> approximate = recommendProducts(userId, k);
+            int found = 0;
+            for (Integer productId : approximate) {
+                if (exact.contains(productId)) {
+                    found++;
+                }
+            }
+            recall += (double) found / exact.size();
+        }
+        return recall / samples;
+    }
+
+    /**
+     * @return user factors as (user id, factors) pairs, in the form held by Spark's MatrixFactorizationModel
+     */
+    public List<Tuple2<Object, double[]>> getUserFeaturesList() {
+        lock.readLock().lock();
+        try {
+            return toFeatures(rank, userFactors, userIndex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return product factors as (product id, factors) pairs, in the form held by Spark's MatrixFactorizationModel
+     */
+    public List<Tuple2<Object, double[]>> getProductFeaturesList() {
+        lock.readLock().lock();
+        try {
+            return toFeatures(rank, productFactors, productIndex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Offer every row of the candidate factors, scored against the query row, to the given top k.
+     */
+    private void score(double[] queryFactors, int queryOffset, double[] candidateFactors, IdIndex candidateIndex,
+            BoundedTopK topK) {
+        int candidates = candidateIndex.size();
+        for (int row = 0; row < candidates; row++) {
+            topK.offer(candidateIndex.getId(row), dot(queryFactors, queryOffset, candidateFactors, row * rank, rank));
+        }
+    }
+
+    private double[] getFeatures(IdIndex index, double[] factors, int id) {
+        int row = index.getRow(id);
+        if (row < 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(factors, row * rank, (row + 1) * rank);
+    }
+
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    private static double[] toRows(int rank, List<Tuple2<Object, double[]>> features, IdIndex index) {
+        double[] rows = new double[features.size() * rank];
+        for (Tuple2<Object, double[]> feature : features) {
+            double[] values = feature._2();
+            if (values.length != rank) {
+                throw new IllegalArgumentException(String.format("Factors of id %s have %s values, expected %s.",
+                        feature._1(), values.length, rank));
+            }
+            int row = index.add((Integer) feature._1());
+            System.arraycopy(values, 0, rows, row * rank, rank);
+        }
+        return rows;
+    }
+
+    private static List<Tuple2<Object, double[]>> toFeatures(int rank, double[] rows, IdIndex index) {
+        List<Tuple2<Object, double[]>> features = new ArrayList<Tuple2<Object, double[]>>(index.size());
+        for (int row = 0; row < index.size(); row++) {
+            features.add(new Tuple2<Object, double[]>(index.getId(row),
+                    Arrays.copyOfRange(rows, row * rank, (row + 1) * rank)));
+        }
+        return features;
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        List<Integer> list = new ArrayList<Integer>(ids.length);
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+}
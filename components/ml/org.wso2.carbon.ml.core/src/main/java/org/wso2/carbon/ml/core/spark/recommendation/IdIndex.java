@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open addressing (linear probing) map from user/product ids to row numbers of a factor matrix. Rows are assigned in
+ * insertion order, so the row of an id doubles as its position in the id array returned by {@link #getIds()}.
+ */
+public class IdIndex implements Serializable {
+
+    private static final long serialVersionUID = -2287391047325463871L;
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    // row of the id stored in the same slot, EMPTY for free slots
+    private int[] rows;
+    private int[] ids;
+    private int size;
+
+    public IdIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new int[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        ids = new int[Math.max(4, expectedSize)];
+    }
+
+    /**
+     * Copy of another index, which ids can be added to without changing the other.
+     */
+    public IdIndex(IdIndex other) {
+        keys = other.keys.clone();
+        rows = other.rows.clone();
+        ids = other.ids.clone();
+        size = other.size;
+    }
+
+    /**
+     * Row of a given id.
+     *
+     * @param id user or product id
+     * @return the row of the id, or -1 if the id is unknown
+     */
+    public int getRow(int id) {
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return rows[slot];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Add an id to the index, if it is not already there.
+     *
+     * @param id user or product id
+     * @return the row of the id
+     */
+    public int add(int id) {
+        int row = getRow(id);
+        if (row != EMPTY) {
+            return row;
+        }
+        // keep the load factor at or below one half
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        insert(id, size);
+        ids[size] = id;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Id stored at a given row.
+     */
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @return ids in row order
+     */
+    public int[] getIds() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    private void insert(int id, int row) {
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (rows[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        rows[slot] = row;
+    }
+
+    private void rehash(int capacity) {
+        keys = new int[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        for (int row = 0; row < size; row++) {
+            insert(ids[row], row);
+        }
+    }
+
+    /**
+     * Murmur3 finalizer, spreads sequential ids over the table.
+     */
+    private static int hash(int id) {
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Approximate maximum inner product search over product factors.
+ * <p>
+ * Each product vector p is scaled by the largest product norm M and extended with one more dimension,
+ * sqrt(1 - ||p||^2 / M^2), which puts every product on the unit sphere. A query q extended with 0 then has the inner
+ * product q.p / M with every product, so the product with the largest inner product is also the one with the
+ * largest cosine similarity, and a similarity graph can be searched instead of scoring every product.
+ * <p>
+ * The graph is a navigable small world graph: products are inserted in random order and linked to a diverse set of
+ * their most similar already inserted products. A search walks the graph greedily from a fixed entry point, keeping
+ * the best <i>search breadth</i> products seen so far; a larger breadth gives higher recall at higher latency.
+ */
+public class MipsIndex implements Serializable {
+
+    private static final long serialVersionUID = -1872305339717402266L;
+    // minimum number of products kept while searching for the neighbours of a new product
+    private static final int MIN_CONSTRUCTION_BREADTH = 100;
+
+    private final int rank;
+    private final int dimension;
+    private final int maxDegree;
+    private final int searchBreadth;
+    // products extended to unit norm, row-wise
+    private final double[] vectors;
+    private final int[] ids;
+    // neighbours of each product, maxDegree slots per product
+    private final int[] neighbours;
+    private final int[] degrees;
+    private final int entryPoint;
+
+    /**
+     * Build an index over the given product factors.
+     *
+     * @param rank number of factors per product
+     * @param productFactors product factors laid out row-wise
+     * @param productIndex ids of the product rows
+     * @param maxDegree maximum number of neighbours of a product in the graph
+     * @param searchBreadth default number of products kept while searching
+     * @param seed seed of the insertion order
+     */
+    public MipsIndex(int rank, double[] productFactors, IdIndex productIndex, int maxDegree, int searchBreadth,
+            long seed) {
+        if (maxDegree < 2) {
+            throw new IllegalArgumentException("Maximum degree of the index should be at least 2: " + maxDegree);
+        }
+        if (searchBreadth < 1) {
+            throw new IllegalArgumentException("Search breadth of the index should be positive: " + searchBreadth);
+        }
+        int size = productIndex.size();
+        this.rank = rank;
+        this.dimension = rank + 1;
+        this.maxDegree = maxDegree;
+        this.searchBreadth = searchBreadth;
+        this.ids = productIndex.getIds();
+        this.vectors = toUnitVectors(rank, productFactors, size);
+        this.neighbours = new int[size * maxDegree];
+        this.degrees = new int[size];
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        this.entryPoint = size > 0 ? order[0] : -1;
+
+        int breadth = Math.max(Math.max(searchBreadth, maxDegree), MIN_CONSTRUCTION_BREADTH);
+        int[] candidates = new int[breadth];
+        double[] similarities = new double[breadth];
+        BitSet visited = new BitSet(size);
+        for (int i = 1; i < size; i++) {
+            int node = order[i];
+            int found = search(vectors, node * dimension, dimension, breadth, visited, candidates, similarities);
+            link(node, candidates, similarities, found);
+        }
+    }
+
+    public int getSearchBreadth() {
+        return searchBreadth;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Find products with (approximately) the largest inner product with the query, using the default search
+     * breadth.
+     *
+     * @param query query factors, e.g. the factors of a user
+     * @param k number of products to find
+     * @return product ids, best first
+     */
+    public int[] search(double[] query, int k) {
+        return search(query, 0, k, searchBreadth);
+    }
+
+    /**
+     * Find products with (approximately) the largest inner product with the query.
+     *
+     * @param query array holding the query factors
+     * @param offset offset of the query factors in the array
+     * @param k number of products to find
+     * @param breadth number of products kept while searching, at least k
+     * @return product ids, best first
+     */
+    public int[] search(double[] query, int offset, int k, int breadth) {
+        if (ids.length == 0 || k <= 0) {
+            return new int[0];
+        }
+        breadth = Math.max(breadth, k);
+        int[] candidates = new int[breadth];
+        double[] similarities = new double[breadth];
+        int found = search(query, offset, rank, breadth, new BitSet(ids.length), candidates, similarities);
+        int[] result = new int[Math.min(k, found)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids[candidates[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Best first search from the entry point, keeping the given number of most similar products.
+     *
+     * @return number of products found, written best first to candidates and similarities
+     */
+    private int search(double[] query, int offset, int length, int breadth, BitSet visited, int[] candidates,
+            double[] similarities) {
+        visited.clear();
+        BoundedTopK results = new BoundedTopK(breadth);
+        CandidateQueue queue = new CandidateQueue(breadth);
+
+        double entrySimilarity = similarity(query, offset, length, entryPoint);
+        visited.set(entryPoint);
+        queue.push(entryPoint, entrySimilarity);
+        results.offer(entryPoint, entrySimilarity);
+        while (queue.size() > 0) {
+            double similarity = queue.bestSimilarity();
+            int node = queue.pop();
+            // every product left in the queue is less similar than the worst result
+            if (results.size() == breadth && similarity < results.threshold()) {
+                break;
+            }
+            int start = node * maxDegree;
+            for (int i = start; i < start + degrees[node]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                double neighbourSimilarity = similarity(query, offset, length, neighbour);
+                if (results.offer(neighbour, neighbourSimilarity)) {
+                    queue.push(neighbour, neighbourSimilarity);
+                }
+            }
+        }
+        return results.drain(candidates, similarities);
+    }
+
+    /**
+     * Link a new product to a diverse subset of its most similar products: a candidate is skipped if it is more
+     * similar to an already selected neighbour than to the new product, as such a product is reachable through that
+     * neighbour.
+     */
+    private void link(int node, int[] candidates, double[] similarities, int found) {
+        int limit = Math.max(1, maxDegree / 2);
+        int[] selected = new int[limit];
+        int count = 0;
+        for (int i = 0; i < found && count < limit; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < count && diverse; j++) {
+                diverse = similarity(candidates[i], selected[j]) < similarities[i];
+            }
+            if (diverse) {
+                selected[count++] = candidates[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            neighbours[node * maxDegree + degrees[node]++] = selected[i];
+            addReverseLink(selected[i], node);
+        }
+    }
+
+    /**
+     * Add a link back from a neighbour, replacing its least similar neighbour when it is full.
+     */
+    private void addReverseLink(int neighbour, int node) {
+        int start = neighbour * maxDegree;
+        if (degrees[neighbour] < maxDegree) {
+            neighbours[start + degrees[neighbour]++] = node;
+            return;
+        }
+        int weakest = -1;
+        double weakestSimilarity = similarity(neighbour, node);
+        for (int i = start; i < start + maxDegree; i++) {
+            double similarity = similarity(neighbour, neighbours[i]);
+            if (similarity < weakestSimilarity) {
+                weakest = i;
+                weakestSimilarity = similarity;
+            }
+        }
+        if (weakest >= 0) {
+            neighbours[weakest] = node;
+        }
+    }
+
+    private double similarity(int a, int b) {
+        return FactorStore.dot(vectors, a * dimension, vectors, b * dimension, dimension);
+    }
+
+    private double similarity(double[] query, int offset, int length, int node) {
+        return FactorStore.dot(query, offset, vectors, node * dimension, length);
+    }
+
+    private static double[] toUnitVectors(int rank, double[] factors, int size) {
+        int dimension = rank + 1;
+        double[] squaredNorms = new double[size];
+        double maxSquaredNorm = 0;
+        for (int i = 0; i < size; i++) {
+            squaredNorms[i] = FactorStore.dot(factors, i * rank, factors, i * rank, rank);
+            maxSquaredNorm = Math.max(maxSquaredNorm, squaredNorms[i]);
+        }
+        double maxNorm = maxSquaredNorm > 0 ? Math.sqrt(maxSquaredNorm) : 1;
+        double[] vectors = new double[size * dimension];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < rank; j++) {
+                vectors[i * dimension + j] = factors[i * rank + j] / maxNorm;
+            }
+            vectors[i * dimension + rank] = Math.sqrt(Math.max(0, 1 - squaredNorms[i] / (maxNorm * maxNorm)));
+        }
+        return vectors;
+    }
+
+    /**
+     * Max-heap of products to visit, most similar first.
+     */
+    private static class CandidateQueue {
+
+        private int[] nodes;
+        private double[] similarities;
+        private int size;
+
+        CandidateQueue(int capacity) {
+            nodes = new int[capacity];
+            similarities = new double[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        double bestSimilarity() {
+            return similarities[0];
+        }
+
+        void push(int node, double similarity) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                similarities = Arrays.copyOf(similarities, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (similarities[parent] >= similarity) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                similarities[index] = similarities[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            similarities[index] = similarity;
+        }
+
+        int pop() {
+            int best = nodes[0];
+            size--;
+            int node = nodes[size];
+            double similarity = similarities[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && similarities[child + 1] > similarities[child]) {
+                    child++;
+                }
+                if (similarities[child] <= similarity) {
+                    break;
+                }
+                nodes[index] = nodes[child];
+                similarities[index] = similarities[child];
+                index = child;
+            }
+            nodes[index] = node;
+            similarities[index] = similarity;
+            return best;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.spark.mllib.recommendation.Rating;
+
+import scala.Tuple2;
+
+/**
+ * Evaluates a partition of user factors against the test ratings of the same users, with the product factors held
+ * locally. Each test rating is predicted by a dot product and the top k products of every user with relevant test
+ * products are scored block-wise, so the error and ranking metrics come out of a single pass.
+ */
+public class RecommendationEvaluator implements Serializable {
+
+    private static final long serialVersionUID = -1804409795652305216L;
+
+    private final int rank;
+    private final double[] productFactors;
+    private final IdIndex productIndex;
+    private final BlockedTopKScorer scorer;
+    private final int k;
+
+    /**
+     * @param factorStore factors of the model
+     * @param k number of products ranked per user
+     */
+    public RecommendationEvaluator(FactorStore factorStore, int k) {
+        this.rank = factorStore.getRank();
+        this.productFactors = factorStore.getProductFactors();
+        this.productIndex = factorStore.getProductIndex();
+        this.scorer = factorStore.getProductScorer(k);
+        this.k = k;
+    }
+
+    /**
+     * @param userFactors (user id, factors) pairs of a partition
+     * @param ratings test ratings of the users of the same partition, keyed by user id
+     * @return metrics of the test ratings of users and products known to the model
+     * @throws IOException never, the results are consumed in memory
+     */
+    public RecommendationMetrics evaluate(Iterator<Tuple2<Object, double[]>> userFactors,
+            Iterator<Tuple2<Integer, Rating>> ratings) throws IOException {
+        Map<Integer, double[]> factorsByUser = new HashMap<Integer, double[]>();
+        while (userFactors.hasNext()) {
+            Tuple2<Object, double[]> userFactor = userFactors.next();
+            factorsByUser.put((Integer) userFactor._1(), userFactor._2());
+        }
+
+        final RecommendationMetrics metrics = new RecommendationMetrics(k);
+        final Map<Integer, Set<Integer>> relevantProducts = new HashMap<Integer, Set<Integer>>();
+        while (ratings.hasNext()) {
+            Rating rating = ratings.next()._2();
+            double[] factors = factorsByUser.get(rating.user());
+            int productRow = productIndex.getRow(rating.product());
+            if (factors == null || productRow < 0) {
+                continue;
+            }
+            metrics.addPrediction(rating.rating(),
+                    FactorStore.dot(factors, 0, productFactors, productRow * rank, rank));
+            if (rating.rating() > 0) {
+                Set<Integer> relevant = relevantProducts.get(rating.user());
+                if (relevant == null) {
+                    relevant = new HashSet<Integer>();
+                    relevantProducts.put(rating.user(), relevant);
+                }
+                relevant.add(rating.product());
+            }
+        }
+
+        List<Tuple2<Object, double[]>> rankedUsers = new ArrayList<Tuple2<Object, double[]>>(relevantProducts.size());
+        for (Integer userId : relevantProducts.keySet()) {
+            rankedUsers.add(new Tuple2<Object, double[]>(userId, factorsByUser.get(userId)));
+        }
+        scorer.score(rankedUsers.iterator(), new BlockedTopKScorer.ResultHandler() {
+            @Override
+            public void handle(int queryId, int[] ids, double[] scores, int count) {
+                metrics.addRanking(ids, count, relevantProducts.get(queryId));
+            }
+        });
+        return metrics;
+    }
+}
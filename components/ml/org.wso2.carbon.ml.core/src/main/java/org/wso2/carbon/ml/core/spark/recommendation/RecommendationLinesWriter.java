@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes recommendations as newline delimited JSON, one object per line, e.g.
+ * <code>{"userId":7,"productIds":[20,40,30]}</code>
+ */
+public class RecommendationLinesWriter implements BlockedTopKScorer.ResultHandler {
+
+    public static final String USER_ID = "userId";
+    public static final String PRODUCT_IDS = "productIds";
+
+    private final Writer writer;
+    private final String queryKey;
+    private final String resultKey;
+    private final StringBuilder line = new StringBuilder();
+
+    public RecommendationLinesWriter(Writer writer, String queryKey, String resultKey) {
+        this.writer = writer;
+        this.queryKey = queryKey;
+        this.resultKey = resultKey;
+    }
+
+    @Override
+    public void handle(int queryId, int[] ids, double[] scores, int count) throws IOException {
+        line.setLength(0);
+        append(line, queryKey, queryId, resultKey, ids, count);
+        line.append('\n');
+        writer.append(line);
+    }
+
+    /**
+     * Append the JSON object of a single recommendation, without the line separator.
+     */
+    public static StringBuilder append(StringBuilder builder, String queryKey, int queryId, String resultKey,
+            int[] ids, int count) {
+        builder.append("{\"").append(queryKey).append("\":").append(queryId).append(",\"").append(resultKey)
+                .append("\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(ids[i]);
+        }
+        return builder.append("]}");
+    }
+}
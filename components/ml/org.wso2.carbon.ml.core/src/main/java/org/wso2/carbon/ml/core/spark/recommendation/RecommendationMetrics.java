@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * Error and ranking metrics of a recommendation model, accumulated per partition of the test ratings and merged.
+ * A test product is relevant to a user if its rating is positive. Precision@k and average precision@k are averaged
+ * over the users with relevant test products, average precision being normalised by min(k, relevant products).
+ */
+public class RecommendationMetrics implements Serializable {
+
+    private static final long serialVersionUID = 7815532011458923066L;
+
+    private final int k;
+    private long ratings;
+    private double sumOfSquaredErrors;
+    private long users;
+    private double sumOfPrecisions;
+    private double sumOfAveragePrecisions;
+
+    public RecommendationMetrics(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Add the error of a predicted rating.
+     */
+    public void addPrediction(double rating, double prediction) {
+        double error = rating - prediction;
+        sumOfSquaredErrors += error * error;
+        ratings++;
+    }
+
+    /**
+     * Add the top k products recommended to a user.
+     *
+     * @param recommended recommended product ids, best first
+     * @param count number of recommended products
+     * @param relevant ids of the products relevant to the user, users without any are not counted
+     */
+    public void addRanking(int[] recommended, int count, Set<Integer> relevant) {
+        if (relevant.isEmpty() || k == 0) {
+            return;
+        }
+        int hits = 0;
+        double precisions = 0;
+        for (int i = 0; i < count && i < k; i++) {
+            if (relevant.contains(recommended[i])) {
+                hits++;
+                precisions += (double) hits / (i + 1);
+            }
+        }
+        sumOfPrecisions += (double) hits / k;
+        sumOfAveragePrecisions += precisions / Math.min(k, relevant.size());
+        users++;
+    }
+
+    public RecommendationMetrics merge(RecommendationMetrics other) {
+        ratings += other.ratings;
+        sumOfSquaredErrors += other.sumOfSquaredErrors;
+        users += other.users;
+        sumOfPrecisions += other.sumOfPrecisions;
+        sumOfAveragePrecisions += other.sumOfAveragePrecisions;
+        return this;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return number of test ratings of users and products known to the model
+     */
+    public long getNumberOfRatings() {
+        return ratings;
+    }
+
+    public double getMeanSquaredError() {
+        return ratings == 0 ? 0 : sumOfSquaredErrors / ratings;
+    }
+
+    public double getPrecisionAtK() {
+        return users == 0 ? 0 : sumOfPrecisions / users;
+    }
+
+    public double getMeanAveragePrecisionAtK() {
+        return users == 0 ? 0 : sumOfAveragePrecisions / users;
+    }
+}
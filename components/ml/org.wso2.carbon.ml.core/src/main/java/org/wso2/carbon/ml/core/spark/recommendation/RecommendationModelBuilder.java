@@ -18,23 +18,36 @@
 
 package org.wso2.carbon.ml.core.spark.recommendation;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.mllib.recommendation.MatrixFactorizationModel;
 import org.apache.spark.mllib.recommendation.Rating;
 import org.wso2.carbon.ml.commons.constants.MLConstants;
 import org.wso2.carbon.ml.commons.constants.MLConstants.RECOMMENDATION_ALGORITHM;
 import org.wso2.carbon.ml.commons.domain.MLModel;
+import org.wso2.carbon.ml.commons.domain.MLModelData;
 import org.wso2.carbon.ml.commons.domain.ModelSummary;
 import org.wso2.carbon.ml.commons.domain.Workflow;
 import org.wso2.carbon.ml.core.exceptions.AlgorithmNameException;
 import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+import org.wso2.carbon.ml.core.factories.DatasetType;
 import org.wso2.carbon.ml.core.interfaces.MLModelBuilder;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
 import org.wso2.carbon.ml.core.spark.models.MLMatrixFactorizationModel;
 import org.wso2.carbon.ml.core.spark.summary.RecommendationModelSummary;
+import org.wso2.carbon.ml.core.spark.transformations.FactorsToTopN;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
 import org.wso2.carbon.ml.database.DatabaseService;
 
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -44,6 +57,14 @@ import java.util.Map;
 
 public class RecommendationModelBuilder extends MLModelBuilder {
 
+	private static final Log log = LogFactory.getLog(RecommendationModelBuilder.class);
+	private static final int DEFAULT_MIPS_SEARCH_BREADTH = 100;
+	// recall of the approximate index is reported for top 10 recommendations of a sample of users
+	private static final int RECALL_K = 10;
+	private static final int RECALL_SAMPLE_SIZE = 1000;
+	// number of products ranked per user when evaluating the model
+	private static final int EVALUATION_K = 10;
+
 	public RecommendationModelBuilder(MLModelConfigurationContext context) {
 		super(context);
 	}
@@ -73,11 +94,13 @@ public class RecommendationModelBuilder extends MLModelBuilder {
 					RECOMMENDATION_ALGORITHM.valueOf(workflow.getAlgorithmName());
 			switch (recommendation_algorithm) {
 				case COLLABORATIVE_FILTERING:
-					trainingData = RecommendationUtils.preProcess(context, false);
+					trainingData = countRows(RecommendationUtils.preProcess(context, false));
+					startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
 					summaryModel = buildCollaborativeFilteringModel(trainingData, workflow, mlModel, false);
 					break;
 				case COLLABORATIVE_FILTERING_IMPLICIT:
-					trainingData = RecommendationUtils.preProcess(context, true);
+					trainingData = countRows(RecommendationUtils.preProcess(context, true));
+					startStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
 					summaryModel = buildCollaborativeFilteringModel(trainingData, workflow, mlModel, true);
 					break;
 				default:
@@ -129,12 +152,18 @@ public class RecommendationModelBuilder extends MLModelBuilder {
 				recommendationModelSummary.setAlgorithm(RECOMMENDATION_ALGORITHM.COLLABORATIVE_FILTERING.toString());
 				recommendationModelSummary.setDatasetVersion(workflow.getDatasetVersion());
 			}
-			mlModel.setModel(new MLMatrixFactorizationModel(model));
+			MLMatrixFactorizationModel matrixFactorizationModel = new MLMatrixFactorizationModel(model);
+			buildMipsIndex(matrixFactorizationModel, parameters, recommendationModelSummary);
+			materialiseTopN(matrixFactorizationModel, parameters, recommendationModelSummary);
+			mlModel.setModel(matrixFactorizationModel);
 			
 			// Evaluate the model on rating data
-			double meanSquaredError = collaborativeFiltering.test(model,
-					trainingData).mean();
-			recommendationModelSummary.setMeanSquaredError(meanSquaredError);
+			RecommendationMetrics metrics = collaborativeFiltering.test(matrixFactorizationModel, trainingData,
+			                                                            EVALUATION_K);
+			recommendationModelSummary.setMeanSquaredError(metrics.getMeanSquaredError());
+			recommendationModelSummary.setEvaluationK(EVALUATION_K);
+			recommendationModelSummary.setPrecisionAtK(metrics.getPrecisionAtK());
+			recommendationModelSummary.setMeanAveragePrecisionAtK(metrics.getMeanAveragePrecisionAtK());
 
 			return recommendationModelSummary;
 		} catch (Exception e) {
@@ -142,4 +171,87 @@ public class RecommendationModelBuilder extends MLModelBuilder {
 					"An error occurred while building recommendation model: " + e.getMessage(), e);
 		}
 	}
+
+	/**
+	 * Builds the approximate maximum inner product index over the product factors, if it is enabled, and reports
+	 * its recall@k in the model summary.
+	 *
+	 * @param model         matrix factorization model to be persisted
+	 * @param parameters    hyper parameters of the model
+	 * @param summary       {@link RecommendationModelSummary}
+	 * @throws MLModelHandlerException  If failed to measure the recall of the index
+	 */
+	private void buildMipsIndex(MLMatrixFactorizationModel model, Map<String, String> parameters,
+	                            RecommendationModelSummary summary) throws MLModelHandlerException {
+		String degree = parameters.get(MLConstants.MIPS_INDEX_DEGREE);
+		if (degree == null || Integer.parseInt(degree) <= 0) {
+			return;
+		}
+		String breadth = parameters.get(MLConstants.MIPS_SEARCH_BREADTH);
+		FactorStore factorStore = model.getFactorStore();
+		factorStore.setMipsIndex(new MipsIndex(factorStore.getRank(), factorStore.getProductFactors(),
+		                                       factorStore.getProductIndex(), Integer.parseInt(degree),
+		                                       breadth == null ? DEFAULT_MIPS_SEARCH_BREADTH : Integer.parseInt(breadth),
+		                                       MLConstants.RANDOM_SEED));
+		summary.setApproximateIndex(true);
+		summary.setRecallK(RECALL_K);
+		summary.setIndexRecallAtK(factorStore.measureRecall(RECALL_K, RECALL_SAMPLE_SIZE, MLConstants.RANDOM_SEED));
+	}
+
+	/**
+	 * Computes the top N products of every user and the top N users of every product on Spark, if it is enabled, and
+	 * writes them to a {@link TopNTable} beside the model, from which recommendations are served.
+	 *
+	 * @param model         matrix factorization model to be persisted
+	 * @param parameters    hyper parameters of the model
+	 * @param summary       {@link RecommendationModelSummary}
+	 * @throws IOException  If failed to write the table
+	 */
+	private void materialiseTopN(MLMatrixFactorizationModel model, Map<String, String> parameters,
+	                             RecommendationModelSummary summary) throws IOException {
+		String topN = parameters.get(MLConstants.TOP_N_RECOMMENDATIONS);
+		if (topN == null || Integer.parseInt(topN) <= 0) {
+			return;
+		}
+		MLModelData modelData = getContext().getModel();
+		if (!DatasetType.FILE.getValue().equals(modelData.getStorageType())) {
+			log.warn(String.format("Top N recommendations of model [id] %s are not materialised since storage type "
+			                       + "%s is not supported.", getContext().getModelId(), modelData.getStorageType()));
+			return;
+		}
+		// the table is written beside the file the model is persisted to
+		File file = new File(modelData.getStorageDirectory() + File.separator + modelData.getName() +
+		                     TopNTable.FILE_EXTENSION);
+		int n = Integer.parseInt(topN);
+		FactorStore factorStore = model.getFactorStore();
+		JavaSparkContext sparkContext = getContext().getSparkContext();
+		Broadcast<BlockedTopKScorer> productScorer = sparkContext.broadcast(factorStore.getProductScorer(n));
+		Broadcast<BlockedTopKScorer> userScorer = sparkContext.broadcast(factorStore.getUserScorer(n));
+		TopNTable.Writer writer = new TopNTable.Writer(file, n, factorStore.getNumberOfUsers(),
+		                                               factorStore.getNumberOfProducts());
+		try {
+			// partitions are sorted by id and pulled to the driver one at a time
+			Iterator<Tuple2<Integer, int[]>> products = model.getModel().userFeatures().toJavaRDD()
+					.mapPartitionsToPair(new FactorsToTopN.Builder().scorer(productScorer).build()).sortByKey()
+					.toLocalIterator();
+			while (products.hasNext()) {
+				Tuple2<Integer, int[]> userProducts = products.next();
+				writer.addUser(userProducts._1(), userProducts._2());
+			}
+			Iterator<Tuple2<Integer, int[]>> users = model.getModel().productFeatures().toJavaRDD()
+					.mapPartitionsToPair(new FactorsToTopN.Builder().scorer(userScorer).build()).sortByKey()
+					.toLocalIterator();
+			while (users.hasNext()) {
+				Tuple2<Integer, int[]> productUsers = users.next();
+				writer.addProduct(productUsers._1(), productUsers._2());
+			}
+		} finally {
+			writer.close();
+			productScorer.unpersist();
+			userScorer.unpersist();
+		}
+		summary.setMaterialisedTopN(n);
+		log.info(String.format("Materialised top %s recommendations of model [id] %s to %s", n,
+		                       getContext().getModelId(), file));
+	}
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Precomputed top N products of every user and top N users of every product of a recommendation model, read from a
+ * memory-mapped file.
+ * <p>
+ * The file holds a header (magic, version, N, number of users, number of products) followed by a user section and a
+ * product section. A section is a sequence of fixed size records sorted by id: the id, the number of recommended
+ * ids and N slots for them, all big-endian ints. Ids are looked up by binary search over the records.
+ */
+public class TopNTable {
+
+    public static final String FILE_EXTENSION = ".topn";
+
+    private static final int MAGIC = 0x4d4c544e;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int BYTES_PER_INT = 4;
+
+    private final int n;
+    private final IntBuffer users;
+    private final IntBuffer products;
+
+    private TopNTable(int n, IntBuffer users, IntBuffer products) {
+        this.n = n;
+        this.users = users;
+        this.products = products;
+    }
+
+    /**
+     * Memory-map a top N table.
+     *
+     * @param file file written by {@link Writer}
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a top N table
+     */
+    public static TopNTable open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE * BYTES_PER_INT)
+                    .asIntBuffer();
+            if (header.get(0) != MAGIC || header.get(1) != VERSION) {
+                throw new IOException("Not a top N recommendations file: " + file);
+            }
+            int n = header.get(2);
+            long userBytes = sectionBytes(header.get(3), n);
+            long productBytes = sectionBytes(header.get(4), n);
+            long position = HEADER_SIZE * BYTES_PER_INT;
+            if (channel.size() != position + userBytes + productBytes) {
+                throw new IOException("Truncated top N recommendations file: " + file);
+            }
+            // the mappings stay valid after the channel is closed
+            IntBuffer users = channel.map(FileChannel.MapMode.READ_ONLY, position, userBytes).asIntBuffer();
+            IntBuffer products = channel.map(FileChannel.MapMode.READ_ONLY, position + userBytes, productBytes)
+                    .asIntBuffer();
+            return new TopNTable(n, users, products);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @return number of recommendations kept per user and per product
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @return top N products of a given user, best first, or null if the user is not in the table
+     */
+    public int[] getProducts(int userId) {
+        return lookup(users, userId);
+    }
+
+    /**
+     * @return top N users of a given product, best first, or null if the product is not in the table
+     */
+    public int[] getUsers(int productId) {
+        return lookup(products, productId);
+    }
+
+    private int[] lookup(IntBuffer section, int id) {
+        int stride = n + 2;
+        int low = 0;
+        int high = section.limit() / stride - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = section.get(mid * stride);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                int start = mid * stride + 2;
+                int[] ids = new int[section.get(mid * stride + 1)];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = section.get(start + i);
+                }
+                return ids;
+            }
+        }
+        return null;
+    }
+
+    private static long sectionBytes(int records, int n) throws IOException {
+        long bytes = (long) records * (n + 2) * BYTES_PER_INT;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Top %s recommendations of %s ids exceed the 2GB section limit.", n,
+                    records));
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes a top N table. All the users must be added, in ascending id order, before the products, also in
+     * ascending id order.
+     */
+    public static class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final int n;
+        private final int numberOfUsers;
+        private final int numberOfProducts;
+        private int usersWritten;
+        private int productsWritten;
+        private long lastId = Long.MIN_VALUE;
+
+        public Writer(File file, int n, int numberOfUsers, int numberOfProducts) throws IOException {
+            sectionBytes(numberOfUsers, n);
+            sectionBytes(numberOfProducts, n);
+            this.n = n;
+            this.numberOfUsers = numberOfUsers;
+            this.numberOfProducts = numberOfProducts;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(numberOfUsers);
+            out.writeInt(numberOfProducts);
+        }
+
+        public void addUser(int userId, int[] productIds) throws IOException {
+            if (usersWritten == numberOfUsers) {
+                throw new IOException("More users than the declared " + numberOfUsers);
+            }
+            write(userId, productIds);
+            if (++usersWritten == numberOfUsers) {
+                lastId = Long.MIN_VALUE;
+            }
+        }
+
+        public void addProduct(int productId, int[] userIds) throws IOException {
+            if (usersWritten < numberOfUsers) {
+                throw new IOException(String.format("Products can only be added after all %s users, got %s.",
+                        numberOfUsers, usersWritten));
+            }
+            if (productsWritten == numberOfProducts) {
+                throw new IOException("More products than the declared " + numberOfProducts);
+            }
+            write(productId, userIds);
+            productsWritten++;
+        }
+
+        private void write(int id, int[] ids) throws IOException {
+            if (id <= lastId) {
+                throw new IOException(String.format("Ids should be added in ascending order, got %s after %s.", id,
+                        lastId));
+            }
+            lastId = id;
+            int count = Math.min(n, ids.length);
+            out.writeInt(id);
+            out.writeInt(count);
+            for (int i = 0; i < n; i++) {
+                out.writeInt(i < count ? ids[i] : 0);
+            }
+        }
+
+        /**
+         * Close the file.
+         *
+         * @throws IOException if fewer users or products than declared were added
+         */
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (usersWritten != numberOfUsers || productsWritten != numberOfProducts) {
+                throw new IOException(String.format("Expected %s users and %s products, got %s and %s.",
+                        numberOfUsers, numberOfProducts, usersWritten, productsWritten));
+            }
+        }
+    }
+}
@@ -29,7 +29,8 @@ import java.util.List;
 /**
  * A utility class to store class classification model summary
  */
-public class ClassClassificationAndRegressionModelSummary implements ModelSummary, Serializable {
+public class ClassClassificationAndRegressionModelSummary implements ModelSummary, PreprocessedDataSummary,
+        CrossValidationSummary, WarmStartSummary, Serializable {
 
     private static final long serialVersionUID = 5035275752959356840L;
     private double error;
@@ -41,6 +42,10 @@ public class ClassClassificationAndRegressionModelSummary implements ModelSummar
     private MulticlassConfusionMatrix multiclassConfusionMatrix;
     private double meanSquaredError;
     private String datasetVersion;
+    private boolean preprocessedDataCacheHit;
+    private CrossValidationMetrics crossValidationMetrics;
+    private Integer iterations;
+    private WarmStartMetrics warmStartMetrics;
 
     public String getAlgorithm() {
         return algorithm;
@@ -169,4 +174,50 @@ public class ClassClassificationAndRegressionModelSummary implements ModelSummar
     public String[] getFeatures() {
         return features;
     }
+
+    @Override
+    public boolean isPreprocessedDataCacheHit() {
+        return preprocessedDataCacheHit;
+    }
+
+    @Override
+    public void setPreprocessedDataCacheHit(boolean preprocessedDataCacheHit) {
+        this.preprocessedDataCacheHit = preprocessedDataCacheHit;
+    }
+
+    @Override
+    public CrossValidationMetrics getCrossValidationMetrics() {
+        return crossValidationMetrics;
+    }
+
+    @Override
+    public void setCrossValidationMetrics(CrossValidationMetrics crossValidationMetrics) {
+        this.crossValidationMetrics = crossValidationMetrics;
+    }
+
+    /**
+     * @return Returns the number of SGD iterations the model was trained for, fewer than the Iterations
+     *         hyperparameter if training stopped early, or null if the algorithm does not iterate
+     */
+    @Override
+    public Integer getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @param iterations Number of SGD iterations the model was trained for
+     */
+    public void setIterations(Integer iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public WarmStartMetrics getWarmStartMetrics() {
+        return warmStartMetrics;
+    }
+
+    @Override
+    public void setWarmStartMetrics(WarmStartMetrics warmStartMetrics) {
+        this.warmStartMetrics = warmStartMetrics;
+    }
 }
@@ -26,7 +26,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
 
-public class ClusterModelSummary implements ModelSummary, Serializable {
+public class ClusterModelSummary implements ModelSummary, PreprocessedDataSummary, WarmStartSummary, Serializable {
 
     private static final long serialVersionUID = -2367643384961727119L;
     private double trainDataComputeCost;
@@ -34,7 +34,9 @@ public class ClusterModelSummary implements ModelSummary, Serializable {
     private String algorithm;
     private String[] features;
     private String datasetVersion;
+    private boolean preprocessedDataCacheHit;
     private List<ClusterPoint> clusterPoints;
+    private WarmStartMetrics warmStartMetrics;
 
     public List<ClusterPoint> getClusterPoints() {
         return clusterPoints;
@@ -95,4 +97,32 @@ public class ClusterModelSummary implements ModelSummary, Serializable {
     public String[] getFeatures() {
         return features;
     }
+
+    @Override
+    public boolean isPreprocessedDataCacheHit() {
+        return preprocessedDataCacheHit;
+    }
+
+    @Override
+    public void setPreprocessedDataCacheHit(boolean preprocessedDataCacheHit) {
+        this.preprocessedDataCacheHit = preprocessedDataCacheHit;
+    }
+
+    /**
+     * @return Returns null, k-means not reporting the number of iterations it ran
+     */
+    @Override
+    public Integer getIterations() {
+        return null;
+    }
+
+    @Override
+    public WarmStartMetrics getWarmStartMetrics() {
+        return warmStartMetrics;
+    }
+
+    @Override
+    public void setWarmStartMetrics(WarmStartMetrics warmStartMetrics) {
+        this.warmStartMetrics = warmStartMetrics;
+    }
 }
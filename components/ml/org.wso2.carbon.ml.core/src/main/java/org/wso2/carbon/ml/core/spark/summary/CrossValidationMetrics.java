@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark.summary;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Metrics of a k-fold cross-validation: the metric of each fold, and their mean and sample variance.
+ */
+public class CrossValidationMetrics implements Serializable {
+
+    private static final long serialVersionUID = -2317554950291739521L;
+    private int folds;
+    private double[] accuracies;
+    private double meanAccuracy;
+    private double accuracyVariance;
+    private double[] meanSquaredErrors;
+    private double meanOfMeanSquaredErrors;
+    private double varianceOfMeanSquaredErrors;
+
+    /**
+     * @param accuracies model accuracy of each fold
+     * @param meanSquaredErrors mean squared error of each fold, or null if the algorithm is not a regression
+     */
+    public CrossValidationMetrics(double[] accuracies, double[] meanSquaredErrors) {
+        this.folds = accuracies.length;
+        this.accuracies = Arrays.copyOf(accuracies, accuracies.length);
+        this.meanAccuracy = mean(accuracies);
+        this.accuracyVariance = variance(accuracies);
+        if (meanSquaredErrors != null) {
+            this.meanSquaredErrors = Arrays.copyOf(meanSquaredErrors, meanSquaredErrors.length);
+            this.meanOfMeanSquaredErrors = mean(meanSquaredErrors);
+            this.varianceOfMeanSquaredErrors = variance(meanSquaredErrors);
+        }
+    }
+
+    /**
+     * @return Returns the number of folds
+     */
+    public int getFolds() {
+        return folds;
+    }
+
+    /**
+     * @return Returns model accuracy of each fold
+     */
+    public double[] getAccuracies() {
+        return accuracies;
+    }
+
+    /**
+     * @return Returns mean model accuracy of the folds
+     */
+    public double getMeanAccuracy() {
+        return meanAccuracy;
+    }
+
+    /**
+     * @return Returns sample variance of the model accuracies of the folds
+     */
+    public double getAccuracyVariance() {
+        return accuracyVariance;
+    }
+
+    /**
+     * @return Returns mean squared error of each fold, or null if the algorithm is not a regression
+     */
+    public double[] getMeanSquaredErrors() {
+        return meanSquaredErrors;
+    }
+
+    /**
+     * @return Returns mean of the mean squared errors of the folds
+     */
+    public double getMeanOfMeanSquaredErrors() {
+        return meanOfMeanSquaredErrors;
+    }
+
+    /**
+     * @return Returns sample variance of the mean squared errors of the folds
+     */
+    public double getVarianceOfMeanSquaredErrors() {
+        return varianceOfMeanSquaredErrors;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return values.length == 0 ? Double.NaN : sum / values.length;
+    }
+
+    private static double variance(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1);
+    }
+}
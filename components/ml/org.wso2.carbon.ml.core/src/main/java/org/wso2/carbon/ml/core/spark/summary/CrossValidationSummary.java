@@ -0,0 +1,34 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark.summary;
+
+/**
+ * Summary of a model whose algorithm may have been k-fold cross-validated.
+ */
+public interface CrossValidationSummary {
+
+    /**
+     * @return metrics of the cross-validation folds, or null if the model was not cross-validated
+     */
+    public CrossValidationMetrics getCrossValidationMetrics();
+
+    /**
+     * @param crossValidationMetrics metrics of the cross-validation folds
+     */
+    public void setCrossValidationMetrics(CrossValidationMetrics crossValidationMetrics);
+}
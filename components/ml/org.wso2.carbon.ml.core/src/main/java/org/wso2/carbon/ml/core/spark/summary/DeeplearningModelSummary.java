@@ -30,7 +30,7 @@ import org.wso2.carbon.ml.core.spark.MulticlassConfusionMatrix;
  * A utility class to store summary of information of DeeplearningModel
  * 
  */
-public class DeeplearningModelSummary implements ModelSummary, Serializable{
+public class DeeplearningModelSummary implements ModelSummary, PreprocessedDataSummary, Serializable {
     
     private static final long serialVersionUID = 3177874758349780888L;
     private double error;
@@ -43,6 +43,7 @@ public class DeeplearningModelSummary implements ModelSummary, Serializable{
     private MulticlassConfusionMatrix multiclassConfusionMatrix;
     private double meanSquaredError;
     private String datasetVersion;
+    private boolean preprocessedDataCacheHit;
 
     public String getAlgorithm() {
         return algorithm;
@@ -186,4 +187,13 @@ public class DeeplearningModelSummary implements ModelSummary, Serializable{
         this.datasetVersion = datasetVersion;
     }
 
+    @Override
+    public boolean isPreprocessedDataCacheHit() {
+        return preprocessedDataCacheHit;
+    }
+
+    @Override
+    public void setPreprocessedDataCacheHit(boolean preprocessedDataCacheHit) {
+        this.preprocessedDataCacheHit = preprocessedDataCacheHit;
+    }
 }
@@ -30,10 +30,12 @@ import java.util.List;
 /**
  * A utility class to store probabilistic classification model summary
  */
-public class ProbabilisticClassificationModelSummary implements ModelSummary,Serializable {
+public class ProbabilisticClassificationModelSummary implements ModelSummary, PreprocessedDataSummary,
+        CrossValidationSummary, WarmStartSummary, Serializable {
 
     private static final long serialVersionUID = -3725591755536859086L;
     private String roc;
+    private String pr;
     private double auc;
     private  List<FeatureImportance> featureImportance;
     private List<TestResultDataPoint> testResultDataPointsSample;
@@ -42,6 +44,10 @@ public class ProbabilisticClassificationModelSummary implements ModelSummary,Ser
     private double modelAccuracy;
     private MulticlassConfusionMatrix multiclassConfusionMatrix;
     private String datasetVersion;
+    private boolean preprocessedDataCacheHit;
+    private CrossValidationMetrics crossValidationMetrics;
+    private Integer iterations;
+    private WarmStartMetrics warmStartMetrics;
 
     public String getAlgorithm() {
         return algorithm;
@@ -94,6 +100,20 @@ public class ProbabilisticClassificationModelSummary implements ModelSummary,Ser
         this.roc = roc;
     }
 
+    /**
+     * @return Returns precision-recall curve as a JSON string
+     */
+    public String getPr() {
+        return pr;
+    }
+
+    /**
+     * @param pr Sets precision-recall curve
+     */
+    public void setPr(String pr) {
+        this.pr = pr;
+    }
+
     @Override
     public String getModelSummaryType() {
         return MLConstants.PROBABILISTIC_CLASSIFICATION_MODEL_SUMMARY;
@@ -170,4 +190,50 @@ public class ProbabilisticClassificationModelSummary implements ModelSummary,Ser
     public String[] getFeatures() {
         return features;
     }
+
+    @Override
+    public boolean isPreprocessedDataCacheHit() {
+        return preprocessedDataCacheHit;
+    }
+
+    @Override
+    public void setPreprocessedDataCacheHit(boolean preprocessedDataCacheHit) {
+        this.preprocessedDataCacheHit = preprocessedDataCacheHit;
+    }
+
+    @Override
+    public CrossValidationMetrics getCrossValidationMetrics() {
+        return crossValidationMetrics;
+    }
+
+    @Override
+    public void setCrossValidationMetrics(CrossValidationMetrics crossValidationMetrics) {
+        this.crossValidationMetrics = crossValidationMetrics;
+    }
+
+    /**
+     * @return Returns the number of SGD iterations the model was trained for, fewer than the Iterations
+     *         hyperparameter if training stopped early, or null if the algorithm does not iterate
+     */
+    @Override
+    public Integer getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @param iterations Number of SGD iterations the model was trained for
+     */
+    public void setIterations(Integer iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public WarmStartMetrics getWarmStartMetrics() {
+        return warmStartMetrics;
+    }
+
+    @Override
+    public void setWarmStartMetrics(WarmStartMetrics warmStartMetrics) {
+        this.warmStartMetrics = warmStartMetrics;
+    }
 }
@@ -30,7 +30,17 @@ public class RecommendationModelSummary implements ModelSummary, Serializable {
 	private String algorithm;
 	private String[] features;
 	private double meanSquaredError;
+	// precision@k and MAP@k of the top k products recommended to users with positively rated products
+	private int evaluationK;
+	private double precisionAtK;
+	private double meanAveragePrecisionAtK;
 	private String datasetVersion;
+	// recall@k of the approximate product index, if the model has one
+	private boolean approximateIndex;
+	private int recallK;
+	private double indexRecallAtK;
+	// number of recommendations per user and product precomputed at training time, 0 if none
+	private int materialisedTopN;
 
 	@Override
 	public String getModelSummaryType() {
@@ -69,6 +79,30 @@ public class RecommendationModelSummary implements ModelSummary, Serializable {
 		this.meanSquaredError = meanSquaredError;
 	}
 
+	public int getEvaluationK() {
+		return evaluationK;
+	}
+
+	public void setEvaluationK(int evaluationK) {
+		this.evaluationK = evaluationK;
+	}
+
+	public double getPrecisionAtK() {
+		return precisionAtK;
+	}
+
+	public void setPrecisionAtK(double precisionAtK) {
+		this.precisionAtK = precisionAtK;
+	}
+
+	public double getMeanAveragePrecisionAtK() {
+		return meanAveragePrecisionAtK;
+	}
+
+	public void setMeanAveragePrecisionAtK(double meanAveragePrecisionAtK) {
+		this.meanAveragePrecisionAtK = meanAveragePrecisionAtK;
+	}
+
 	public void setDatasetVersion(String datasetVersion) {
 		this.datasetVersion = datasetVersion;
 	}
@@ -76,4 +110,39 @@ public class RecommendationModelSummary implements ModelSummary, Serializable {
     public String getDatasetVersion() {
         return datasetVersion;
     }
+
+	public boolean isApproximateIndex() {
+		return approximateIndex;
+	}
+
+	public void setApproximateIndex(boolean approximateIndex) {
+		this.approximateIndex = approximateIndex;
+	}
+
+	public int getRecallK() {
+		return recallK;
+	}
+
+	public void setRecallK(int recallK) {
+		this.recallK = recallK;
+	}
+
+	/**
+	 * @return average fraction of the exact top k products of a user found by the approximate product index
+	 */
+	public double getIndexRecallAtK() {
+		return indexRecallAtK;
+	}
+
+	public void setIndexRecallAtK(double indexRecallAtK) {
+		this.indexRecallAtK = indexRecallAtK;
+	}
+
+	public int getMaterialisedTopN() {
+		return materialisedTopN;
+	}
+
+	public void setMaterialisedTopN(int materialisedTopN) {
+		this.materialisedTopN = materialisedTopN;
+	}
 }
@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark.summary;
+
+import java.io.Serializable;
+
+/**
+ * Metrics of a build warm-started from a previous model: the iterations and training time of the build against
+ * those of the build of the previous model, and what was saved. Figures that are not known are null.
+ */
+public class WarmStartMetrics implements Serializable {
+
+    private static final long serialVersionUID = -5873201937264513118L;
+    private long warmStartModelId;
+    private Integer iterations;
+    private Integer warmStartModelIterations;
+    private Integer savedIterations;
+    private Long trainingTime;
+    private Long warmStartModelTrainingTime;
+    private Long savedTrainingTime;
+
+    /**
+     * @param warmStartModelId id of the model the build was warm-started from
+     * @param iterations number of iterations of the build
+     * @param warmStartModelIterations number of iterations of the build of the model warm-started from
+     * @param trainingTime milliseconds spent training in the build
+     * @param warmStartModelTrainingTime milliseconds spent training in the build of the model warm-started from
+     */
+    public WarmStartMetrics(long warmStartModelId, Integer iterations, Integer warmStartModelIterations,
+            Long trainingTime, Long warmStartModelTrainingTime) {
+        this.warmStartModelId = warmStartModelId;
+        this.iterations = iterations;
+        this.warmStartModelIterations = warmStartModelIterations;
+        if (iterations != null && warmStartModelIterations != null) {
+            this.savedIterations = warmStartModelIterations - iterations;
+        }
+        this.trainingTime = trainingTime;
+        this.warmStartModelTrainingTime = warmStartModelTrainingTime;
+        if (trainingTime != null && warmStartModelTrainingTime != null) {
+            this.savedTrainingTime = warmStartModelTrainingTime - trainingTime;
+        }
+    }
+
+    /**
+     * @return Returns the id of the model the build was warm-started from
+     */
+    public long getWarmStartModelId() {
+        return warmStartModelId;
+    }
+
+    /**
+     * @return Returns the number of iterations of the build
+     */
+    public Integer getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Returns the number of iterations of the build of the model warm-started from
+     */
+    public Integer getWarmStartModelIterations() {
+        return warmStartModelIterations;
+    }
+
+    /**
+     * @return Returns the number of iterations saved, negative if the build ran more
+     */
+    public Integer getSavedIterations() {
+        return savedIterations;
+    }
+
+    /**
+     * @return Returns the milliseconds spent training in the build
+     */
+    public Long getTrainingTime() {
+        return trainingTime;
+    }
+
+    /**
+     * @return Returns the milliseconds spent training in the build of the model warm-started from
+     */
+    public Long getWarmStartModelTrainingTime() {
+        return warmStartModelTrainingTime;
+    }
+
+    /**
+     * @return Returns the milliseconds of training saved, negative if the build took longer
+     */
+    public Long getSavedTrainingTime() {
+        return savedTrainingTime;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark.summary;
+
+/**
+ * Summary of a model whose build may have been warm-started from the parameters of a previous model.
+ */
+public interface WarmStartSummary {
+
+    /**
+     * @return number of iterations the model was trained for, or null if it is not known
+     */
+    public Integer getIterations();
+
+    /**
+     * @return what warm-starting the build saved, or null if the model was built from scratch
+     */
+    public WarmStartMetrics getWarmStartMetrics();
+
+    /**
+     * @param warmStartMetrics what warm-starting the build saved
+     */
+    public void setWarmStartMetrics(WarmStartMetrics warmStartMetrics);
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.util.Arrays;
+
+import org.apache.spark.api.java.function.PairFunction;
+import org.apache.spark.mllib.regression.LabeledPoint;
+
+import scala.Tuple2;
+
+/**
+ * This class assigns each labeled point to a cross-validation fold by a hash of its features and label, so that the
+ * folds are the same however the data is partitioned or recomputed. Duplicate rows always land in the same fold.
+ */
+public class AssignFolds implements PairFunction<LabeledPoint, Integer, LabeledPoint> {
+
+    private static final long serialVersionUID = 6394772804851286420L;
+    private final int folds;
+
+    private AssignFolds(Builder builder) {
+        this.folds = builder.folds;
+    }
+
+    @Override
+    public Tuple2<Integer, LabeledPoint> call(LabeledPoint labeledPoint) {
+        return new Tuple2<Integer, LabeledPoint>(fold(labeledPoint, folds), labeledPoint);
+    }
+
+    /**
+     * @param labeledPoint labeled point
+     * @param folds number of folds
+     * @return fold of the labeled point, in [0, folds)
+     */
+    public static int fold(LabeledPoint labeledPoint, int folds) {
+        int hash = Arrays.hashCode(labeledPoint.features().toArray()) * 31
+                + Double.valueOf(labeledPoint.label()).hashCode();
+        // spread the bits, so that rows differing in a few low order bits do not end up in neighbouring folds
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % folds;
+    }
+
+    public static class Builder {
+        private int folds;
+
+        public Builder folds(int folds) {
+            this.folds = folds;
+            return this;
+        }
+
+        public AssignFolds build() {
+            return new AssignFolds(this);
+        }
+    }
+}
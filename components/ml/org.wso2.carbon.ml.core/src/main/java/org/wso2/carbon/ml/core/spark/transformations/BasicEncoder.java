@@ -58,6 +58,10 @@ public class BasicEncoder implements Function<String[], String[]> {
         return tokens;
     }
 
+    public List<Map<String, Integer>> getEncodings() {
+        return encodings;
+    }
+
     public static class Builder {
         private List<Map<String, Integer>> encodings;
 
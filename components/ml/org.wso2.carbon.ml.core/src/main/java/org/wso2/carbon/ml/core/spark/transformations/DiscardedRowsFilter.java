@@ -50,6 +50,10 @@ public class DiscardedRowsFilter implements Function<String[], Boolean> {
         return keep;
     }
 
+    public List<Integer> getIndices() {
+        return indices;
+    }
+
     public static class Builder {
         private List<Integer> indices;
 
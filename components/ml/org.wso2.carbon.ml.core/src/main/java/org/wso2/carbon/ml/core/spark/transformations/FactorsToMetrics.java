@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.spark.api.java.function.FlatMapFunction2;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.mllib.recommendation.Rating;
+import org.wso2.carbon.ml.core.spark.recommendation.RecommendationEvaluator;
+import org.wso2.carbon.ml.core.spark.recommendation.RecommendationMetrics;
+
+import scala.Tuple2;
+
+/**
+ * This class evaluates a partition of user factors against the co-partitioned test ratings of the same users and
+ * returns the metrics of the partition.
+ */
+public class FactorsToMetrics implements
+        FlatMapFunction2<Iterator<Tuple2<Object, double[]>>, Iterator<Tuple2<Integer, Rating>>, RecommendationMetrics> {
+
+    private static final long serialVersionUID = 5049046290316527631L;
+    private final Broadcast<RecommendationEvaluator> evaluator;
+
+    private FactorsToMetrics(Builder builder) {
+        this.evaluator = builder.evaluator;
+    }
+
+    @Override
+    public Iterable<RecommendationMetrics> call(Iterator<Tuple2<Object, double[]>> userFactors,
+            Iterator<Tuple2<Integer, Rating>> ratings) throws IOException {
+        return Arrays.asList(evaluator.value().evaluate(userFactors, ratings));
+    }
+
+    public static class Builder {
+        private Broadcast<RecommendationEvaluator> evaluator;
+
+        public Builder evaluator(Broadcast<RecommendationEvaluator> evaluator) {
+            this.evaluator = evaluator;
+            return this;
+        }
+
+        public FactorsToMetrics build() {
+            return new FactorsToMetrics(this);
+        }
+    }
+}
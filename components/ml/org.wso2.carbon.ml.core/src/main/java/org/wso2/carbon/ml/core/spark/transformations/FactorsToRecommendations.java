@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.wso2.carbon.ml.core.spark.recommendation.BlockedTopKScorer;
+import org.wso2.carbon.ml.core.spark.recommendation.RecommendationLinesWriter;
+
+import scala.Tuple2;
+
+/**
+ * This class scores a partition of (id, factors) pairs against broadcast candidate factors, a block at a time, and
+ * returns the top candidates of each id as JSON lines.
+ */
+public class FactorsToRecommendations implements FlatMapFunction<Iterator<Tuple2<Object, double[]>>, String> {
+
+    private static final long serialVersionUID = 2231887402163290845L;
+    private final Broadcast<BlockedTopKScorer> scorer;
+    private final String queryKey;
+    private final String resultKey;
+
+    private FactorsToRecommendations(Builder builder) {
+        this.scorer = builder.scorer;
+        this.queryKey = builder.queryKey;
+        this.resultKey = builder.resultKey;
+    }
+
+    @Override
+    public Iterable<String> call(Iterator<Tuple2<Object, double[]>> factors) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final StringBuilder line = new StringBuilder();
+        BlockedTopKScorer.ResultHandler handler = new BlockedTopKScorer.ResultHandler() {
+            @Override
+            public void handle(int queryId, int[] resultIds, double[] scores, int count) {
+                line.setLength(0);
+                lines.add(RecommendationLinesWriter.append(line, queryKey, queryId, resultKey, resultIds, count)
+                        .toString());
+            }
+        };
+        scorer.value().score(factors, handler);
+        return lines;
+    }
+
+    public static class Builder {
+        private Broadcast<BlockedTopKScorer> scorer;
+        private String queryKey = RecommendationLinesWriter.USER_ID;
+        private String resultKey = RecommendationLinesWriter.PRODUCT_IDS;
+
+        public Builder scorer(Broadcast<BlockedTopKScorer> scorer) {
+            this.scorer = scorer;
+            return this;
+        }
+
+        public Builder keys(String queryKey, String resultKey) {
+            this.queryKey = queryKey;
+            this.resultKey = resultKey;
+            return this;
+        }
+
+        public FactorsToRecommendations build() {
+            return new FactorsToRecommendations(this);
+        }
+    }
+}
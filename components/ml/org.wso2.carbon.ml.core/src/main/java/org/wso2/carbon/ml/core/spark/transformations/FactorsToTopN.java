@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.wso2.carbon.ml.core.spark.recommendation.BlockedTopKScorer;
+
+import scala.Tuple2;
+
+/**
+ * This class scores a partition of (id, factors) pairs against broadcast candidate factors, a block at a time, and
+ * returns the top candidate ids of each id.
+ */
+public class FactorsToTopN implements PairFlatMapFunction<Iterator<Tuple2<Object, double[]>>, Integer, int[]> {
+
+    private static final long serialVersionUID = -3580461762934106402L;
+    private final Broadcast<BlockedTopKScorer> scorer;
+
+    private FactorsToTopN(Builder builder) {
+        this.scorer = builder.scorer;
+    }
+
+    @Override
+    public Iterable<Tuple2<Integer, int[]>> call(Iterator<Tuple2<Object, double[]>> factors) throws IOException {
+        final List<Tuple2<Integer, int[]>> topN = new ArrayList<Tuple2<Integer, int[]>>();
+        scorer.value().score(factors, new BlockedTopKScorer.ResultHandler() {
+            @Override
+            public void handle(int queryId, int[] ids, double[] scores, int count) {
+                topN.add(new Tuple2<Integer, int[]>(queryId, Arrays.copyOf(ids, count)));
+            }
+        });
+        return topN;
+    }
+
+    public static class Builder {
+        private Broadcast<BlockedTopKScorer> scorer;
+
+        public Builder scorer(Broadcast<BlockedTopKScorer> scorer) {
+            this.scorer = scorer;
+            return this;
+        }
+
+        public FactorsToTopN build() {
+            return new FactorsToTopN(this);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.mllib.regression.LabeledPoint;
+
+import scala.Tuple2;
+
+/**
+ * A filter to keep the labeled points of a cross-validation fold, to test on, or those of all the other folds, to
+ * train on.
+ */
+public class FoldFilter implements Function<Tuple2<Integer, LabeledPoint>, Boolean> {
+
+    private static final long serialVersionUID = -8159273416253021784L;
+    private final int fold;
+    private final boolean inFold;
+
+    private FoldFilter(Builder builder) {
+        this.fold = builder.fold;
+        this.inFold = builder.inFold;
+    }
+
+    @Override
+    public Boolean call(Tuple2<Integer, LabeledPoint> foldAndPoint) {
+        return (foldAndPoint._1() == fold) == inFold;
+    }
+
+    public static class Builder {
+        private int fold;
+        private boolean inFold;
+
+        /**
+         * Keep the labeled points of the given fold.
+         */
+        public Builder testing(int fold) {
+            this.fold = fold;
+            this.inFold = true;
+            return this;
+        }
+
+        /**
+         * Keep the labeled points of all the folds but the given one.
+         */
+        public Builder training(int fold) {
+            this.fold = fold;
+            this.inFold = false;
+            return this;
+        }
+
+        public FoldFilter build() {
+            return new FoldFilter(this);
+        }
+    }
+}
@@ -20,9 +20,7 @@ package org.wso2.carbon.ml.core.spark.transformations;
 
 import org.apache.spark.api.java.function.Function;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
-import org.wso2.carbon.ml.core.utils.MLUtils;
-
-import java.util.regex.Pattern;
+import org.wso2.carbon.ml.core.utils.LineTokenizer;
 
 /**
  * This class transforms each line (line-by-line) into an array of String tokens
@@ -30,27 +28,37 @@ import java.util.regex.Pattern;
 public class LineToTokens implements Function<String, String[]> {
 
     private static final long serialVersionUID = -5025419727399292773L;
-    private final Pattern tokenSeparator;
+    private final LineTokenizer tokenizer;
 
     public LineToTokens(Builder builder) {
-        this.tokenSeparator = builder.tokenSeparator;
+        this.tokenizer = builder.columns == null ? LineTokenizer.forSeparator(builder.separator) : LineTokenizer
+                .forSeparator(builder.separator, builder.columns);
     }
 
     @Override
     public String[] call(String line) {
-        return tokenSeparator.split(line);
+        return tokenizer.tokenize(line);
     }
 
     public static class Builder {
-        private Pattern tokenSeparator;
+        private String separator;
+        private int[] columns;
 
         public Builder init(MLModelConfigurationContext ctx) {
-            this.tokenSeparator = MLUtils.getPatternFromDelimiter(ctx.getColumnSeparator());
+            this.separator = ctx.getColumnSeparator();
+            return this;
+        }
+
+        public Builder separator(String separator) {
+            this.separator = separator;
             return this;
         }
 
-        public Builder separator(Pattern separator) {
-            this.tokenSeparator = separator;
+        /**
+         * @param columns indices of the only columns to tokenize, the others being left null
+         */
+        public Builder columns(int[] columns) {
+            this.columns = columns;
             return this;
         }
 
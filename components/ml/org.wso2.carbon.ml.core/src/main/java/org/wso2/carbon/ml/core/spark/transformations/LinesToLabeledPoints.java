@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.util.Iterator;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+
+/**
+ * This class transforms a partition of lines into labeled points in a single pass, the response being the last
+ * column of each row. It replaces the chain of line, token and double array transformations of supervised models.
+ */
+public class LinesToLabeledPoints implements FlatMapFunction<Iterator<String>, LabeledPoint> {
+
+    private static final long serialVersionUID = 4407183217542379524L;
+    private final RowTransformer rowTransformer;
+
+    private LinesToLabeledPoints(Builder builder) {
+        this.rowTransformer = builder.rowTransformer;
+    }
+
+    @Override
+    public Iterable<LabeledPoint> call(final Iterator<String> lines) {
+        return new Iterable<LabeledPoint>() {
+            @Override
+            public Iterator<LabeledPoint> iterator() {
+                // the row buffer is reused for every line of the partition
+                final double[] row = new double[rowTransformer.getNumberOfColumns()];
+                return new RowTransformer.Rows<String, LabeledPoint>(lines) {
+                    @Override
+                    LabeledPoint transform(String line) throws MLModelBuilderException {
+                        if (!rowTransformer.transform(line, row)) {
+                            return null;
+                        }
+                        double[] features = new double[row.length - 1];
+                        System.arraycopy(row, 0, features, 0, features.length);
+                        return new LabeledPoint(row[row.length - 1], Vectors.dense(features));
+                    }
+                };
+            }
+        };
+    }
+
+    public static class Builder {
+        private RowTransformer rowTransformer;
+
+        public Builder rowTransformer(RowTransformer rowTransformer) {
+            this.rowTransformer = rowTransformer;
+            return this;
+        }
+
+        public LinesToLabeledPoints build() {
+            return new LinesToLabeledPoints(this);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.util.Iterator;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+
+/**
+ * This class transforms a partition of lines into feature vectors in a single pass. It replaces the chain of line,
+ * token and double array transformations of unsupervised and anomaly detection models.
+ */
+public class LinesToVectors implements FlatMapFunction<Iterator<String>, Vector> {
+
+    private static final long serialVersionUID = -6319150823741806527L;
+    private final RowTransformer rowTransformer;
+
+    private LinesToVectors(Builder builder) {
+        this.rowTransformer = builder.rowTransformer;
+    }
+
+    @Override
+    public Iterable<Vector> call(final Iterator<String> lines) {
+        return new Iterable<Vector>() {
+            @Override
+            public Iterator<Vector> iterator() {
+                return new RowTransformer.Rows<String, Vector>(lines) {
+                    private double[] row = new double[rowTransformer.getNumberOfColumns()];
+
+                    @Override
+                    Vector transform(String line) throws MLModelBuilderException {
+                        if (!rowTransformer.transform(line, row)) {
+                            // the array of a skipped line is reused for the next one
+                            return null;
+                        }
+                        // the vector wraps the array, so the next row gets a new one
+                        Vector vector = Vectors.dense(row);
+                        row = new double[row.length];
+                        return vector;
+                    }
+                };
+            }
+        };
+    }
+
+    public static class Builder {
+        private RowTransformer rowTransformer;
+
+        public Builder rowTransformer(RowTransformer rowTransformer) {
+            this.rowTransformer = rowTransformer;
+            return this;
+        }
+
+        public LinesToVectors build() {
+            return new LinesToVectors(this);
+        }
+    }
+}
@@ -59,6 +59,13 @@ public class MeanImputation implements Function<String[], String[]> {
         }
     }
 
+    /**
+     * @return means to impute missing values with, keyed by column index
+     */
+    public Map<Integer, Double> getMeanImputation() {
+        return meanImputation;
+    }
+
     public static class Builder {
         private Map<Integer, Double> meanImputation;
 
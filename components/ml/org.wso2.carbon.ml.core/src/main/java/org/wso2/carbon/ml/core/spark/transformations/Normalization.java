@@ -18,7 +18,6 @@
 
 package org.wso2.carbon.ml.core.spark.transformations;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -28,52 +27,63 @@ import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
 import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
 import org.wso2.carbon.ml.core.spark.algorithms.SparkModelUtils;
 
-import java.lang.Double;
-
 /**
  * This class normalize the each values row by row
  * Using this you can normalize numerical features
+ * Min and max values are held as primitive arrays and rows are normalized in place.
  */
 public class Normalization implements Function<double[], double[]> {
 
     private static final long serialVersionUID = 4558936873487486962L;
-    private final List<Double> max;
-    private final List<Double> min;
+    private final double[] max;
+    private final double[] min;
 
     public Normalization(Builder builder) {
         this.max = builder.max;
         this.min = builder.min;
     }
 
+    /**
+     * Normalizes the given row in place.
+     *
+     * @param values row to be normalized
+     * @return the same array holding the normalized values
+     */
     @Override
     public double[] call(double[] values) throws MLModelBuilderException {
 
-        try {
-            double[] normalizedValues = new double[values.length];
-
-            for (int i = 0; i < values.length; i++) {
-
-                if (Double.compare(values[i], max.get(i)) > 0) {
-                    normalizedValues[i] = 1.0;
-                } else if (Double.compare(values[i], min.get(i)) < 0) {
-                    normalizedValues[i] = 0.0;
-                } else if (Double.compare(min.get(i), max.get(i)) == 0) {
-                    normalizedValues[i] = 0.5;
-                } else {
-                    normalizedValues[i] = (values[i] - min.get(i)) / (max.get(i) - min.get(i));
-                }
+        if (values.length > max.length) {
+            throw new MLModelBuilderException(String.format(
+                    "An error occurred while normalizing values: row has %s values but min/max are known for %s",
+                    values.length, max.length));
+        }
+        for (int i = 0; i < values.length; i++) {
+
+            double value = values[i];
+            if (Double.compare(value, max[i]) > 0) {
+                values[i] = 1.0;
+            } else if (Double.compare(value, min[i]) < 0) {
+                values[i] = 0.0;
+            } else if (Double.compare(min[i], max[i]) == 0) {
+                values[i] = 0.5;
+            } else {
+                values[i] = (value - min[i]) / (max[i] - min[i]);
             }
+        }
+        return values;
+    }
 
-            return normalizedValues;
+    public double[] getMax() {
+        return max;
+    }
 
-        } catch (Exception e) {
-            throw new MLModelBuilderException("An error occurred while normalizing values: " + e.getMessage(), e);
-        }
+    public double[] getMin() {
+        return min;
     }
 
     public static class Builder {
-        private List<Double> max = new ArrayList<Double>();
-        private List<Double> min = new ArrayList<Double>();
+        private double[] max = new double[0];
+        private double[] min = new double[0];
 
         public Builder init(MLModelConfigurationContext ctx) {
 
@@ -91,21 +101,34 @@ public class Normalization implements Function<double[], double[]> {
         }
 
         public Builder minMax(List<Double> max, List<Double> min) {
+            this.max = new double[max.size()];
+            this.min = new double[min.size()];
+            for (int i = 0; i < this.max.length; i++) {
+                this.max[i] = max.get(i);
+            }
+            for (int i = 0; i < this.min.length; i++) {
+                this.min[i] = min.get(i);
+            }
+            return this;
+        }
+
+        public Builder minMax(double[] max, double[] min) {
             this.max = max;
             this.min = min;
-
             return this;
         }
 
         private void setMinMax(List<Feature> features, Map<String, String> stats) {
 
+            this.max = new double[features.size()];
+            this.min = new double[features.size()];
+            int i = 0;
             for (Feature feature : features) {
 
                 String featureStat = stats.get(feature.getName());
-                double maxValue = SparkModelUtils.getMax(featureStat);
-                this.max.add(maxValue);
-                double minValue = SparkModelUtils.getMin(featureStat);
-                this.min.add(minValue);
+                this.max[i] = SparkModelUtils.getMax(featureStat);
+                this.min[i] = SparkModelUtils.getMin(featureStat);
+                i++;
             }
 
         }
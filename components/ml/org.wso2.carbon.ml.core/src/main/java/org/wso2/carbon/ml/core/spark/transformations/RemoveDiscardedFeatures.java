@@ -65,6 +65,14 @@ public class RemoveDiscardedFeatures implements Function<String[], String[]> {
         return features;
     }
 
+    public List<Integer> getNewToOldIndicesList() {
+        return newToOldIndicesList;
+    }
+
+    public int getResponseIndex() {
+        return responseIndex;
+    }
+
     public static class Builder {
         private List<Integer> newToOldIndicesList;
         private int responseIndex;
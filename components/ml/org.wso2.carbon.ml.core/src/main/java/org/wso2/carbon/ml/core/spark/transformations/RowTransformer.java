@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Row;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+import org.wso2.carbon.ml.core.spark.ColumnarDataset;
+
+/**
+ * This class applies the whole pre-processing chain of a model builder to a line in one step: it filters the header,
+ * tokenizes the columns it needs, filters discarded rows, projects the included columns (response last), encodes
+ * categorical values, imputes missing values, parses and normalizes, writing straight into a double array. It is
+ * compiled from the same transformations which make up the chain, and gives the same values without the
+ * intermediate String and double arrays of each step.
+ * <p>
+ * Rows of a {@link ColumnarDataset} holding the {@link #getRequiredColumns()} are transformed the same way, numbers
+ * being read as they are stored.
+ */
+public class RowTransformer implements Serializable {
+
+    private static final long serialVersionUID = 8290516374093650385L;
+
+    private final HeaderFilter headerFilter;
+    private final LineToTokens lineToTokens;
+    private final DiscardedRowsFilter discardedRowsFilter;
+    private final Function<String[], Boolean> rowsFilter;
+    private final Normalization normalization;
+    // token index of each output column
+    private final int[] sourceColumns;
+    // sorted indices of the columns read, null if the whole line is needed
+    private final int[] requiredColumns;
+    // position of each output column, and of each column checked for discarded rows, in the required columns
+    private final int[] requiredPositions;
+    private final int[] discardedPositions;
+    // encoding of each output column, null if the column is not encoded
+    private final Map<String, Integer>[] encodings;
+    // code of values missing from the encoding of a column
+    private final double[] unknownCodes;
+    private final double[] means;
+    private final boolean[] imputed;
+
+    @SuppressWarnings("unchecked")
+    private RowTransformer(Builder builder) {
+        this.headerFilter = builder.headerFilter;
+        this.discardedRowsFilter = builder.discardedRowsFilter;
+        this.rowsFilter = builder.rowsFilter;
+        this.normalization = builder.normalization;
+
+        List<Integer> newToOldIndicesList = builder.removeDiscardedFeatures.getNewToOldIndicesList();
+        int responseIndex = builder.removeDiscardedFeatures.getResponseIndex();
+        int columns = newToOldIndicesList.size();
+        if (responseIndex != -1 && !builder.removeResponseColumn) {
+            columns++;
+        }
+        sourceColumns = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            sourceColumns[i] = i < newToOldIndicesList.size() ? newToOldIndicesList.get(i) : responseIndex;
+        }
+
+        LineToTokens.Builder tokenizer = new LineToTokens.Builder().separator(builder.columnSeparator);
+        List<Integer> discardedColumns = discardedRowsFilter == null ? new ArrayList<Integer>()
+                : discardedRowsFilter.getIndices();
+        // a row filter may look at any column
+        if (rowsFilter == null) {
+            Set<Integer> columnSet = new TreeSet<Integer>();
+            for (int column : sourceColumns) {
+                columnSet.add(column);
+            }
+            columnSet.addAll(discardedColumns);
+            List<Integer> required = new ArrayList<Integer>(columnSet);
+            requiredColumns = new int[required.size()];
+            for (int i = 0; i < requiredColumns.length; i++) {
+                requiredColumns[i] = required.get(i);
+            }
+            requiredPositions = new int[columns];
+            for (int i = 0; i < columns; i++) {
+                requiredPositions[i] = required.indexOf(sourceColumns[i]);
+            }
+            discardedPositions = new int[discardedColumns.size()];
+            for (int i = 0; i < discardedPositions.length; i++) {
+                discardedPositions[i] = required.indexOf(discardedColumns.get(i));
+            }
+            tokenizer.columns(requiredColumns);
+        } else {
+            requiredColumns = null;
+            requiredPositions = null;
+            discardedPositions = null;
+        }
+        this.lineToTokens = tokenizer.build();
+
+        encodings = new Map[columns];
+        unknownCodes = new double[columns];
+        List<Map<String, Integer>> columnEncodings = builder.basicEncoder == null ? null : builder.basicEncoder
+                .getEncodings();
+        for (int i = 0; columnEncodings != null && i < columns && i < columnEncodings.size(); i++) {
+            Map<String, Integer> encoding = columnEncodings.get(i);
+            if (encoding != null && !encoding.isEmpty()) {
+                encodings[i] = encoding;
+                // values missing from the encoding are encoded from its 0th mapping
+                unknownCodes[i] = encoding.values().iterator().next();
+            }
+        }
+
+        means = new double[columns];
+        imputed = new boolean[columns];
+        Map<Integer, Double> meanImputation = builder.meanImputation.getMeanImputation();
+        for (int i = 0; i < columns; i++) {
+            Double mean = meanImputation.get(i);
+            if (mean != null) {
+                means[i] = mean;
+                imputed[i] = true;
+            }
+        }
+    }
+
+    /**
+     * @return number of values of a transformed row, the response being the last of them if it is kept
+     */
+    public int getNumberOfColumns() {
+        return sourceColumns.length;
+    }
+
+    /**
+     * @return sorted indices of the columns a row is transformed from, or null if rows are filtered on whole lines
+     */
+    public int[] getRequiredColumns() {
+        return requiredColumns;
+    }
+
+    /**
+     * Transform a line.
+     *
+     * @param line line of the dataset
+     * @param row array of at least {@link #getNumberOfColumns()} values to write the row into
+     * @return false if the line is the header or a filtered row, in which case the row array is left in an undefined
+     *         state
+     * @throws MLModelBuilderException if a value cannot be transformed
+     */
+    public boolean transform(String line, double[] row) throws MLModelBuilderException {
+        if (!headerFilter.call(line)) {
+            return false;
+        }
+        String[] tokens = lineToTokens.call(line);
+        if (discardedRowsFilter != null && !discardedRowsFilter.call(tokens)) {
+            return false;
+        }
+        try {
+            if (rowsFilter != null && !rowsFilter.call(tokens)) {
+                return false;
+            }
+        } catch (Exception e) {
+            throw new MLModelBuilderException("An error occurred while filtering rows: " + e.getMessage(), e);
+        }
+        for (int i = 0; i < sourceColumns.length; i++) {
+            String token = sourceColumns[i] < tokens.length ? tokens[sourceColumns[i]] : null;
+            if (encodings[i] != null) {
+                Integer code = encodings[i].get(token);
+                row[i] = code == null ? unknownCodes[i] : code;
+            } else if (MLConstants.MISSING_VALUES.contains(token) && imputed[i]) {
+                row[i] = means[i];
+            } else if (token == null) {
+                throw new MLModelBuilderException(String.format("An error occurred while transforming tokens: "
+                        + "line has no value at index %s: %s", sourceColumns[i], line));
+            } else {
+                try {
+                    row[i] = Double.parseDouble(token);
+                } catch (NumberFormatException e) {
+                    throw new MLModelBuilderException("An error occurred while transforming tokens: "
+                            + e.getMessage(), e);
+                }
+            }
+        }
+        if (normalization != null) {
+            normalization.call(row);
+        }
+        return true;
+    }
+
+    /**
+     * Transform a row of a {@link ColumnarDataset}.
+     *
+     * @param values row holding the {@link #getRequiredColumns()}, in that order
+     * @param row array of at least {@link #getNumberOfColumns()} values to write the row into
+     * @return false if the row is discarded, in which case the row array is left in an undefined state
+     * @throws MLModelBuilderException if a value cannot be transformed, or rows are filtered on whole lines
+     */
+    public boolean transform(Row values, double[] row) throws MLModelBuilderException {
+        if (requiredColumns == null) {
+            throw new MLModelBuilderException("Rows filtered on whole lines cannot be read from a columnar dataset.");
+        }
+        for (int position : discardedPositions) {
+            if (isMissing(values.get(position))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < sourceColumns.length; i++) {
+            Object value = values.get(requiredPositions[i]);
+            if (encodings[i] != null) {
+                Integer code = encodings[i].get(ColumnarDataset.toToken(value));
+                row[i] = code == null ? unknownCodes[i] : code;
+            } else if (value instanceof Number) {
+                row[i] = ((Number) value).doubleValue();
+            } else if (isMissing(value) && imputed[i]) {
+                row[i] = means[i];
+            } else if (value == null) {
+                throw new MLModelBuilderException(String.format("An error occurred while transforming tokens: "
+                        + "row has no value at index %s: %s", sourceColumns[i], values));
+            } else {
+                try {
+                    row[i] = Double.parseDouble((String) value);
+                } catch (NumberFormatException e) {
+                    throw new MLModelBuilderException("An error occurred while transforming tokens: "
+                            + e.getMessage(), e);
+                }
+            }
+        }
+        if (normalization != null) {
+            normalization.call(row);
+        }
+        return true;
+    }
+
+    private static boolean isMissing(Object value) {
+        return value == null || (value instanceof String && MLConstants.MISSING_VALUES.contains((String) value));
+    }
+
+    /**
+     * Lazily transforms the lines or rows of a partition, skipping the header and filtered rows.
+     */
+    abstract static class Rows<S, T> implements Iterator<T> {
+
+        private final Iterator<S> sources;
+        private T next;
+
+        Rows(Iterator<S> sources) {
+            this.sources = sources;
+        }
+
+        /**
+         * @return the transformed line or row, or null if it is skipped
+         */
+        abstract T transform(S source) throws MLModelBuilderException;
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && sources.hasNext()) {
+                    next = transform(sources.next());
+                }
+            } catch (MLModelBuilderException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T row = next;
+            next = null;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static class Builder {
+        private HeaderFilter headerFilter;
+        private String columnSeparator;
+        private DiscardedRowsFilter discardedRowsFilter;
+        private Function<String[], Boolean> rowsFilter;
+        private RemoveDiscardedFeatures removeDiscardedFeatures;
+        private boolean removeResponseColumn;
+        private BasicEncoder basicEncoder;
+        private MeanImputation meanImputation;
+        private Normalization normalization;
+
+        public Builder headerFilter(HeaderFilter headerFilter) {
+            this.headerFilter = headerFilter;
+            return this;
+        }
+
+        public Builder columnSeparator(String columnSeparator) {
+            this.columnSeparator = columnSeparator;
+            return this;
+        }
+
+        public Builder discardedRowsFilter(DiscardedRowsFilter discardedRowsFilter) {
+            this.discardedRowsFilter = discardedRowsFilter;
+            return this;
+        }
+
+        /**
+         * @param rowsFilter filter applied to the tokens of a row, e.g. {@link AnomalyRowsFilter}
+         */
+        public Builder rowsFilter(Function<String[], Boolean> rowsFilter) {
+            this.rowsFilter = rowsFilter;
+            return this;
+        }
+
+        public Builder removeDiscardedFeatures(RemoveDiscardedFeatures removeDiscardedFeatures) {
+            this.removeDiscardedFeatures = removeDiscardedFeatures;
+            return this;
+        }
+
+        /**
+         * @param removeResponseColumn whether to drop the response column, as {@link RemoveResponseColumn} does
+         */
+        public Builder removeResponseColumn(boolean removeResponseColumn) {
+            this.removeResponseColumn = removeResponseColumn;
+            return this;
+        }
+
+        public Builder basicEncoder(BasicEncoder basicEncoder) {
+            this.basicEncoder = basicEncoder;
+            return this;
+        }
+
+        public Builder meanImputation(MeanImputation meanImputation) {
+            this.meanImputation = meanImputation;
+            return this;
+        }
+
+        public Builder normalization(Normalization normalization) {
+            this.normalization = normalization;
+            return this;
+        }
+
+        public RowTransformer build() {
+            return new RowTransformer(this);
+        }
+    }
+}
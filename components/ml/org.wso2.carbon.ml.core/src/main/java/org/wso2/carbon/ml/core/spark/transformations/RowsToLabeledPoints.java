@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.util.Iterator;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.apache.spark.sql.Row;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+
+/**
+ * This class transforms a partition of {@link org.wso2.carbon.ml.core.spark.ColumnarDataset} rows into labeled points
+ * in a single pass, the response being the last column of each row. It is the columnar counterpart of
+ * {@link LinesToLabeledPoints}.
+ */
+public class RowsToLabeledPoints implements FlatMapFunction<Iterator<Row>, LabeledPoint> {
+
+    private static final long serialVersionUID = -1862043325710498631L;
+    private final RowTransformer rowTransformer;
+
+    private RowsToLabeledPoints(Builder builder) {
+        this.rowTransformer = builder.rowTransformer;
+    }
+
+    @Override
+    public Iterable<LabeledPoint> call(final Iterator<Row> rows) {
+        return new Iterable<LabeledPoint>() {
+            @Override
+            public Iterator<LabeledPoint> iterator() {
+                // the row buffer is reused for every row of the partition
+                final double[] row = new double[rowTransformer.getNumberOfColumns()];
+                return new RowTransformer.Rows<Row, LabeledPoint>(rows) {
+                    @Override
+                    LabeledPoint transform(Row values) throws MLModelBuilderException {
+                        if (!rowTransformer.transform(values, row)) {
+                            return null;
+                        }
+                        double[] features = new double[row.length - 1];
+                        System.arraycopy(row, 0, features, 0, features.length);
+                        return new LabeledPoint(row[row.length - 1], Vectors.dense(features));
+                    }
+                };
+            }
+        };
+    }
+
+    public static class Builder {
+        private RowTransformer rowTransformer;
+
+        public Builder rowTransformer(RowTransformer rowTransformer) {
+            this.rowTransformer = rowTransformer;
+            return this;
+        }
+
+        public RowsToLabeledPoints build() {
+            return new RowsToLabeledPoints(this);
+        }
+    }
+}
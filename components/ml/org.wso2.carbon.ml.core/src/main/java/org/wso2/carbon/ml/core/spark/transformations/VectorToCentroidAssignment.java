@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.mllib.linalg.Vector;
+import org.wso2.carbon.ml.core.spark.models.ext.CentroidIndex;
+
+/**
+ * This class assigns each vector to its closest cluster center along with the distance to that center
+ */
+public class VectorToCentroidAssignment implements Function<Vector, CentroidIndex.Assignment> {
+
+    private static final long serialVersionUID = -6437281620418297711L;
+    private final CentroidIndex centroidIndex;
+
+    private VectorToCentroidAssignment(Builder builder) {
+        this.centroidIndex = builder.centroidIndex;
+    }
+
+    @Override
+    public CentroidIndex.Assignment call(Vector vector) {
+        return centroidIndex.assign(vector);
+    }
+
+    public static class Builder {
+        private CentroidIndex centroidIndex;
+
+        public Builder index(CentroidIndex centroidIndex) {
+            this.centroidIndex = centroidIndex;
+            return this;
+        }
+
+        public VectorToCentroidAssignment build() {
+            return new VectorToCentroidAssignment(this);
+        }
+    }
+}
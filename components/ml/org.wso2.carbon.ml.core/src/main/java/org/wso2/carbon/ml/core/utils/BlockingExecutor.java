@@ -17,71 +17,569 @@
  */
 package org.wso2.carbon.ml.core.utils;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
 /**
- * An executor which blocks and prevents further tasks from being submitted to the pool when the queue is full.
+ * An executor which blocks and prevents further tasks of a tenant from being submitted to the pool when the queue of
+ * that tenant is full, and shares the threads of the pool fairly between tenants.
+ * <p>
+ * Waiting tasks are ordered by priority, then by weighted fair queueing between tenants: each task is tagged with a
+ * virtual finish time, which advances by the inverse of the weight of its tenant from the later of the current
+ * virtual time and the finish time of the previous task of the same tenant. A burst of tasks of one tenant thus
+ * interleaves with the tasks of the others rather than running ahead of them. The size of the pool is a hard cap on
+ * the number of tasks running at once. Normal priority tasks of a tenant run on at most its weight times the running
+ * cap of a tenant, and never on the threads reserved for high priority tasks, so that a burst of model builds of one
+ * tenant neither takes every thread from the others nor holds up the short tasks users wait on. The Spark jobs of
+ * each task run in the Spark FAIR scheduler pool of its tenant, weighted as the tenant by
+ * {@link #getSchedulerAllocations()}, so that tenants also share the cluster fairly.
  * <p>
  * Based on the BoundedExecutor example in: Brian Goetz, 2006. Java Concurrency in Practice. (Listing 8.4)
  */
 public class BlockingExecutor extends ThreadPoolExecutor {
 
     private static final Log log = LogFactory.getLog(BlockingExecutor.class);
-    private final Semaphore semaphore;
+    private static final String SCHEDULER_POOL = "spark.scheduler.pool";
+    // spark properties of the calling thread which the helpers of runAll run their tasks with
+    private static final String[] SPARK_PROPERTIES = { SCHEDULER_POOL, "spark.jobGroup.id", "spark.job.description",
+            "spark.job.interruptOnCancel" };
+
+    /**
+     * Priority of a task; waiting tasks of a higher priority always run first.
+     */
+    public enum Priority {
+        /** Short tasks users wait on, e.g. summary statistics generation of a dataset. */
+        HIGH,
+        /** Model building and other long running tasks. */
+        NORMAL
+    }
+
+    private final int poolSize;
+    private final int permitsPerTenant;
+    private final int maxRunningPerTenant;
+    private final int normalThreads;
+    private final ConcurrentMap<Integer, TenantState> tenants = new ConcurrentHashMap<Integer, TenantState>();
+    private final AtomicLong sequence = new AtomicLong();
+    // tasks waiting to run, in the order they are dispatched to the pool; guarded by the executor
+    private final TreeSet<TenantTask> waiting = new TreeSet<TenantTask>();
+    private int running;
+    private int runningNormal;
+    private double virtualTime;
 
     /**
-     * Creates a BlockingExecutor which will block and prevent further submission to the pool when the specified queue
-     * size has been reached.
+     * Creates a BlockingExecutor which will block and prevent further submission of tasks of a tenant to the pool when
+     * the specified queue size has been reached by that tenant, with the default running cap of a tenant and number
+     * of threads reserved for high priority tasks.
      *
-     * @param poolSize the number of the threads in the pool
-     * @param queueSize the size of the queue
+     * @param poolSize the number of the threads in the pool, i.e. the maximum number of tasks running at once
+     * @param queueSize the size of the queue of each tenant
      */
     public BlockingExecutor(final int poolSize, final int queueSize) {
-        super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        this(poolSize, queueSize, getDefaultMaxRunningPerTenant(poolSize), getDefaultHighPriorityThreads(poolSize));
+    }
 
-        // the semaphore is bounding both the number of tasks currently executing
+    /**
+     * Creates a BlockingExecutor which will block and prevent further submission of tasks of a tenant to the pool when
+     * the specified queue size has been reached by that tenant.
+     *
+     * @param poolSize the number of the threads in the pool, i.e. the maximum number of tasks running at once
+     * @param queueSize the size of the queue of each tenant
+     * @param maxRunningPerTenant the maximum number of normal priority tasks of a tenant of weight 1 running at once
+     * @param highPriorityThreads the number of threads only high priority tasks run on, less than the pool size
+     */
+    public BlockingExecutor(final int poolSize, final int queueSize, final int maxRunningPerTenant,
+            final int highPriorityThreads) {
+        super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        if (maxRunningPerTenant <= 0) {
+            throw new IllegalArgumentException("Running cap of a tenant should be positive: " + maxRunningPerTenant);
+        }
+        if (highPriorityThreads < 0 || highPriorityThreads >= poolSize) {
+            throw new IllegalArgumentException("Number of threads reserved for high priority tasks should be between "
+                    + "0 and " + (poolSize - 1) + ": " + highPriorityThreads);
+        }
+        this.poolSize = poolSize;
+        // the semaphore of a tenant is bounding both the number of its tasks currently executing
         // and those queued up
-        semaphore = new Semaphore(poolSize + queueSize);
+        this.permitsPerTenant = poolSize + queueSize;
+        this.maxRunningPerTenant = maxRunningPerTenant;
+        this.normalThreads = poolSize - highPriorityThreads;
+    }
+
+    /**
+     * @return the running cap of a tenant of weight 1 used by default, half of the pool
+     */
+    public static int getDefaultMaxRunningPerTenant(int poolSize) {
+        return Math.max(1, poolSize / 2);
+    }
+
+    /**
+     * @return the number of threads reserved for high priority tasks by default, one unless the pool has only one
+     */
+    public static int getDefaultHighPriorityThreads(int poolSize) {
+        return poolSize > 1 ? 1 : 0;
+    }
+
+    /**
+     * Set the share of the pool a tenant gets relative to the other tenants, 1 by default.
+     */
+    public void setTenantWeight(int tenantId, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight of tenant " + tenantId + " should be positive: " + weight);
+        }
+        tenant(tenantId).weight = weight;
+    }
+
+    /**
+     * @return name of the Spark FAIR scheduler pool the jobs of the tasks of a tenant run in
+     */
+    public static String getSchedulerPool(int tenantId) {
+        return "ml.tenant." + tenantId;
+    }
+
+    /**
+     * Spark FAIR scheduler allocations of the pools of the super tenant and of the tenants given a weight, with the
+     * weight of the tenant and fair scheduling between the jobs of the tenant, e.g. the folds of a cross-validation.
+     * Pools of the other tenants are created by Spark as they are first used, with weight 1 and FIFO scheduling.
+     *
+     * @return contents of a file for the spark.scheduler.allocation.file property
+     */
+    public String getSchedulerAllocations() {
+        Set<Integer> tenantIds = new TreeSet<Integer>(tenants.keySet());
+        tenantIds.add(MultitenantConstants.SUPER_TENANT_ID);
+        StringBuilder allocations = new StringBuilder("<?xml version=\"1.0\"?>\n<allocations>\n");
+        for (int tenantId : tenantIds) {
+            TenantState tenant = tenants.get(tenantId);
+            allocations.append("  <pool name=\"").append(getSchedulerPool(tenantId)).append("\">\n")
+                    .append("    <schedulingMode>FAIR</schedulingMode>\n")
+                    .append("    <weight>").append(tenant == null ? 1 : tenant.weight).append("</weight>\n")
+                    .append("    <minShare>0</minShare>\n")
+                    .append("  </pool>\n");
+        }
+        return allocations.append("</allocations>\n").toString();
     }
 
     /**
-     * Executes the given task. This method will block when the semaphore has no permits i.e. when the queue has reached
-     * its capacity.
+     * Executes the given task as a normal priority task of the super tenant.
      */
     @Override
     public void execute(final Runnable task) {
+        execute(task, MultitenantConstants.SUPER_TENANT_ID, Priority.NORMAL);
+    }
+
+    /**
+     * Executes the given task. This method will block when the semaphore of the tenant has no permits i.e. when the
+     * queue of the tenant has reached its capacity.
+     *
+     * @param task task to execute
+     * @param tenantId tenant the task is run for
+     * @param priority priority of the task
+     */
+    public void execute(final Runnable task, int tenantId, Priority priority) {
+        TenantState tenant = tenant(tenantId);
         boolean acquired = false;
         do {
             try {
-                semaphore.acquire();
+                tenant.semaphore.acquire();
                 acquired = true;
             } catch (final InterruptedException e) {
                 log.warn("InterruptedException while acquiring the semaphore", e);
             }
         } while (!acquired);
+        submit(task, tenant, priority);
+    }
+
+    /**
+     * Executes the given task if the queue of the tenant has room for it, without blocking.
+     *
+     * @param task task to execute
+     * @param tenantId tenant the task is run for
+     * @param priority priority of the task
+     * @return whether the task was submitted
+     */
+    public boolean tryExecute(final Runnable task, int tenantId, Priority priority) {
+        TenantState tenant = tenant(tenantId);
+        if (!tenant.semaphore.tryAcquire()) {
+            return false;
+        }
+        submit(task, tenant, priority);
+        return true;
+    }
 
+    /**
+     * Runs the given tasks of a tenant, at most the given number of them at once, and waits for them to complete. The
+     * calling thread runs tasks too, and the others run on helpers submitted to the pool only while the queue of the
+     * tenant has room for them, so that a task of the pool can fan out without waiting on the pool or exceeding its
+     * size. Helpers count against the running cap of the tenant, and those still waiting once the calling thread ran
+     * the tasks are cancelled. The helpers run the tasks in the Spark scheduler pool and job group of the calling
+     * thread.
+     *
+     * @param tasks tasks to run
+     * @param tenantId tenant the tasks are run for
+     * @param parallelism maximum number of tasks running at once, including the calling thread
+     * @throws InterruptedException if interrupted while waiting, the tasks which have not started are then skipped
+     * @throws RuntimeException the first exception thrown by a task, once all of them completed
+     */
+    public void runAll(List<? extends Runnable> tasks, int tenantId, int parallelism) throws InterruptedException {
+        final TaskGroup group = new TaskGroup(tasks);
+        final JavaSparkContext sparkContext = MLCoreServiceValueHolder.getInstance().getSparkContext();
+        final String[] sparkProperties = new String[SPARK_PROPERTIES.length];
+        for (int i = 0; sparkContext != null && i < SPARK_PROPERTIES.length; i++) {
+            sparkProperties[i] = sparkContext.getLocalProperty(SPARK_PROPERTIES[i]);
+        }
+        List<Runnable> helpers = new ArrayList<Runnable>();
         try {
-            super.execute(task);
-        } catch (final RejectedExecutionException e) {
-            semaphore.release();
-            throw e;
+            for (int i = 1; i < Math.min(parallelism, tasks.size()); i++) {
+                Runnable helper = new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; sparkContext != null && j < SPARK_PROPERTIES.length; j++) {
+                            sparkContext.setLocalProperty(SPARK_PROPERTIES[j], sparkProperties[j]);
+                        }
+                        group.drain();
+                    }
+                };
+                if (!tryExecute(helper, tenantId, Priority.NORMAL)) {
+                    break;
+                }
+                helpers.add(helper);
+            }
+            group.drain();
+            group.done.await();
+        } finally {
+            group.tasks.clear();
+            // helpers still waiting in the queue have nothing left to run
+            for (Runnable helper : helpers) {
+                cancel(helper);
+            }
+        }
+        if (group.failure.get() != null) {
+            throw group.failure.get();
+        }
+    }
+
+    private void submit(Runnable task, TenantState tenant, Priority priority) {
+        synchronized (this) {
+            if (isShutdown()) {
+                tenant.semaphore.release();
+                throw new RejectedExecutionException("The ML thread pool has been shut down");
+            }
+            waiting.add(new TenantTask(task, tenant, priority, finishTag(tenant), sequence.getAndIncrement()));
+        }
+        dispatch();
+    }
+
+    /**
+     * Hands the waiting tasks to the pool in order while it has a free thread, skipping the normal priority tasks of
+     * tenants at their running cap, and all of them once only the threads reserved for high priority tasks are free.
+     */
+    private synchronized void dispatch() {
+        Iterator<TenantTask> iterator = waiting.iterator();
+        while (running < poolSize && iterator.hasNext() && !isShutdown()) {
+            TenantTask tenantTask = iterator.next();
+            TenantState tenant = tenantTask.tenant;
+            if (tenantTask.priority == Priority.NORMAL
+                    && (runningNormal >= normalThreads || tenant.runningNormal >= getMaxRunning(tenant))) {
+                continue;
+            }
+            iterator.remove();
+            started(tenantTask);
+            try {
+                super.execute(tenantTask);
+            } catch (final RejectedExecutionException e) {
+                finished(tenantTask);
+                tenant.semaphore.release();
+                log.warn("Dropping a task of tenant " + tenant.tenantId + " rejected by the ML thread pool", e);
+            }
+        }
+    }
+
+    private int getMaxRunning(TenantState tenant) {
+        return Math.min(normalThreads, maxRunningPerTenant * tenant.weight);
+    }
+
+    private void started(TenantTask tenantTask) {
+        running++;
+        if (tenantTask.priority == Priority.NORMAL) {
+            runningNormal++;
+            tenantTask.tenant.runningNormal++;
+        }
+    }
+
+    private void finished(TenantTask tenantTask) {
+        running--;
+        if (tenantTask.priority == Priority.NORMAL) {
+            runningNormal--;
+            tenantTask.tenant.runningNormal--;
+        }
+    }
+
+    /**
+     * Removes the given task from the queue if it has not started yet, releasing its semaphore permit.
+     *
+     * @return whether the task was removed, false if it has started or is unknown
+     */
+    public boolean cancel(final Runnable task) {
+        TenantTask cancelled = null;
+        synchronized (this) {
+            for (Iterator<TenantTask> iterator = waiting.iterator(); iterator.hasNext();) {
+                TenantTask tenantTask = iterator.next();
+                if (tenantTask.task == task) {
+                    iterator.remove();
+                    cancelled = tenantTask;
+                    break;
+                }
+            }
+        }
+        if (cancelled == null) {
+            return false;
+        }
+        cancelled.tenant.semaphore.release();
+        return true;
+    }
+
+    /**
+     * Hands the waiting tasks to the pool regardless of the running caps, so that they still run, and then shuts it
+     * down.
+     */
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            for (TenantTask tenantTask : waiting) {
+                started(tenantTask);
+                super.execute(tenantTask);
+            }
+            waiting.clear();
+            super.shutdown();
+        }
+    }
+
+    /**
+     * Shuts the pool down, interrupting the running tasks.
+     *
+     * @return the tasks which never started, including those waiting for a tenant to fall below its running cap
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks;
+        synchronized (this) {
+            tasks = super.shutdownNow();
+            tasks.addAll(waiting);
+            waiting.clear();
+        }
+        return tasks;
+    }
+
+    /**
+     * Method invoked prior to executing the given Runnable in the given thread. Advances the virtual time and routes
+     * the Spark jobs of the task to the scheduler pool of its tenant.
+     */
+    @Override
+    protected void beforeExecute(final Thread t, final Runnable r) {
+        super.beforeExecute(t, r);
+        TenantTask tenantTask = (TenantTask) r;
+        synchronized (this) {
+            virtualTime = Math.max(virtualTime, tenantTask.startTag);
+        }
+        JavaSparkContext sparkContext = MLCoreServiceValueHolder.getInstance().getSparkContext();
+        if (sparkContext != null) {
+            // threads inherit the spark properties of the thread which started them, e.g. the job group of a build
+            sparkContext.clearJobGroup();
+            sparkContext.setLocalProperty(SCHEDULER_POOL, getSchedulerPool(tenantTask.tenant.tenantId));
         }
     }
 
     /**
      * Method invoked upon completion of execution of the given Runnable, by the thread that executed the task. Releases
-     * a semaphore permit.
+     * a semaphore permit and hands the next waiting tasks to the pool.
      */
     @Override
-    public void afterExecute(final Runnable r, final Throwable t) {
+    protected void afterExecute(final Runnable r, final Throwable t) {
         super.afterExecute(r, t);
-        semaphore.release();
+        JavaSparkContext sparkContext = MLCoreServiceValueHolder.getInstance().getSparkContext();
+        if (sparkContext != null) {
+            sparkContext.clearJobGroup();
+            sparkContext.setLocalProperty(SCHEDULER_POOL, null);
+        }
+        TenantTask tenantTask = (TenantTask) r;
+        synchronized (this) {
+            finished(tenantTask);
+        }
+        tenantTask.tenant.semaphore.release();
+        dispatch();
+    }
+
+    private synchronized double[] finishTag(TenantState tenant) {
+        double start = Math.max(virtualTime, tenant.lastFinishTag);
+        tenant.lastFinishTag = start + 1.0 / tenant.weight;
+        return new double[] { start, tenant.lastFinishTag };
+    }
+
+    private TenantState tenant(int tenantId) {
+        TenantState tenant = tenants.get(tenantId);
+        if (tenant == null) {
+            TenantState newTenant = new TenantState(tenantId, permitsPerTenant);
+            tenant = tenants.putIfAbsent(tenantId, newTenant);
+            if (tenant == null) {
+                tenant = newTenant;
+                registerGauges(tenantId);
+            }
+        }
+        return tenant;
+    }
+
+    /**
+     * Number of tasks waiting to run.
+     */
+    public synchronized int getQueueSize() {
+        return waiting.size();
+    }
+
+    /**
+     * Number of tasks of a tenant waiting to run.
+     */
+    public synchronized int getQueueSize(int tenantId) {
+        int size = 0;
+        for (TenantTask queued : waiting) {
+            if (queued.tenant.tenantId == tenantId) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Time in milliseconds the longest waiting task of a tenant has been waiting to run, 0 if none is waiting.
+     */
+    public synchronized long getQueueWaitTime(int tenantId) {
+        long oldest = Long.MAX_VALUE;
+        for (TenantTask tenantTask : waiting) {
+            if (tenantTask.tenant.tenantId == tenantId) {
+                oldest = Math.min(oldest, tenantTask.submittedTime);
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private void registerGauges(final int tenantId) {
+        try {
+            MetricManager.gauge(Level.INFO, "org.wso2.carbon.ml.thread-pool-queue-size.tenant." + tenantId,
+                    new Gauge<Integer>() {
+                        @Override
+                        public Integer getValue() {
+                            return getQueueSize(tenantId);
+                        }
+                    });
+            MetricManager.gauge(Level.INFO, "org.wso2.carbon.ml.thread-pool-queue-wait-time.tenant." + tenantId,
+                    new Gauge<Long>() {
+                        @Override
+                        public Long getValue() {
+                            return getQueueWaitTime(tenantId);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Failed to register the thread pool gauges of tenant " + tenantId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tasks run together by {@link BlockingExecutor#runAll(List, int, int)}, taken by whichever thread is free.
+     */
+    private static class TaskGroup {
+        private final Queue<Runnable> tasks;
+        private final CountDownLatch done;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        private TaskGroup(List<? extends Runnable> tasks) {
+            this.tasks = new ConcurrentLinkedQueue<Runnable>(tasks);
+            this.done = new CountDownLatch(tasks.size());
+        }
+
+        private void drain() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+    }
+
+    private static class TenantState {
+        private final int tenantId;
+        private final Semaphore semaphore;
+        private volatile int weight = 1;
+        // guarded by the executor
+        private double lastFinishTag;
+        private int runningNormal;
+
+        private TenantState(int tenantId, int permits) {
+            this.tenantId = tenantId;
+            this.semaphore = new Semaphore(permits);
+        }
+    }
+
+    /**
+     * A task queued for a tenant, ordered by priority, virtual finish time and submission order.
+     */
+    private static class TenantTask implements Runnable, Comparable<TenantTask> {
+        private final Runnable task;
+        private final TenantState tenant;
+        private final Priority priority;
+        private final double startTag;
+        private final double finishTag;
+        private final long sequence;
+        private final long submittedTime = System.currentTimeMillis();
+
+        private TenantTask(Runnable task, TenantState tenant, Priority priority, double[] tags, long sequence) {
+            this.task = task;
+            this.tenant = tenant;
+            this.priority = priority;
+            this.startTag = tags[0];
+            this.finishTag = tags[1];
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(TenantTask other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            if (finishTag != other.finishTag) {
+                return finishTag < other.finishTag ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
     }
 }
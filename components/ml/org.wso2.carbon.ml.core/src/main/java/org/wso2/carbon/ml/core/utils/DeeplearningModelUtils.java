@@ -19,6 +19,8 @@
 package org.wso2.carbon.ml.core.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.spark.api.java.JavaPairRDD;
@@ -31,11 +33,18 @@ import org.wso2.carbon.ml.core.spark.summary.PredictedVsActual;
 import org.wso2.carbon.ml.core.spark.summary.TestResultDataPoint;
 
 import scala.Tuple2;
+import water.Futures;
+import water.Key;
+import water.fvec.AppendableVec;
 import water.fvec.Frame;
+import water.fvec.NewChunk;
 import water.fvec.Vec;
 
 public class DeeplearningModelUtils {
 
+    // number of rows of a chunk of frames built from local data
+    private static final int ROWS_PER_CHUNK = 100000;
+
     /**
      * A utility method to generate class classification model summary
      * 
@@ -98,51 +107,123 @@ public class DeeplearningModelUtils {
     }
 
     /**
-     * Convert a JavaRDD to a H2O Frame with Names
+     * Convert a JavaRDD to a H2O Frame with Names. The RDD is brought to the driver, where H2O runs, by a local
+     * iterator, and written column-wise into chunks of the frame. The iterator runs one Spark job per partition, so
+     * that the driver holds a single partition at a time: data of many small partitions is brought faster once
+     * coalesced, at the cost of the driver holding larger partitions.
      *
+     * @param names names of the features followed by the name of the response
      * @param data Data to be converted to a Frame
      * @return Frame with training data
+     * @throws IllegalArgumentException if a point does not have a value for each name
      */
     public static Frame javaRDDToFrame(String[] names, JavaRDD<LabeledPoint> data) {
-        List<LabeledPoint> list = data.collect();
-        Vec[] allVecs = new Vec[list.get(0).features().size() + 1];
-
-        for (int i = 0; i < list.get(0).features().size() + 1; i++) {
-            if (i < list.get(0).features().size()) {
-                Vec v = Vec.makeZero(list.size());
-                for (int j = 0; j < list.size(); j++) {
-                    v.set(j, list.get(j).features().toArray()[i]);
-                }
-                allVecs[i] = v;
-            } else {
-                Vec v = Vec.makeZero(list.size());
-                for (int j = 0; j < list.size(); j++) {
-                    v.set(j, (int) list.get(j).label());
-                }
-                allVecs[i] = v;
-            }
-        }
-
-        return new Frame(names, allVecs);
+        return toFrame(names, labeledPointRows(data.toLocalIterator()), ROWS_PER_CHUNK);
     }
 
     /**
      * Convert a Double List to a H2O Frame
      * 
+     * @param names names of the columns
      * @param data Data to be converted to a Frame
      * @return Frame with training data
+     * @throws IllegalArgumentException if a row does not have a value for each name
      */
     public static Frame doubleArrayListToFrame(String[] names, List<double[]> data) {
-        Vec[] allVecs = new Vec[data.get(0).length];
+        return toFrame(names, data.iterator(), ROWS_PER_CHUNK);
+    }
+
+    /**
+     * Write the given rows into a frame, a chunk of the given number of rows at a time.
+     */
+    static Frame toFrame(String[] names, Iterator<double[]> rows, int rowsPerChunk) {
+        AppendableVec[] vecs = newVecs(names.length);
+        Futures futures = new Futures();
+        List<double[]> chunkRows = new ArrayList<double[]>();
+        int chunkIndex = 0;
+        long row = 0;
+        while (rows.hasNext()) {
+            double[] values = rows.next();
+            if (values.length != names.length) {
+                // drop the chunks written so far
+                for (Vec vec : closeVecs(vecs, futures)) {
+                    vec.remove();
+                }
+                throw new IllegalArgumentException(String.format("Row %s has %s values but there are %s columns.",
+                        row, values.length, names.length));
+            }
+            chunkRows.add(values);
+            row++;
+            if (chunkRows.size() == rowsPerChunk || !rows.hasNext()) {
+                NewChunk[] chunks = newChunks(vecs, chunkIndex);
+                for (double[] chunkRow : chunkRows) {
+                    for (int i = 0; i < chunks.length; i++) {
+                        chunks[i].addNum(chunkRow[i]);
+                    }
+                }
+                closeChunks(chunks, chunkIndex++, futures);
+                chunkRows.clear();
+            }
+        }
+        return new Frame(names, closeVecs(vecs, futures));
+    }
+
+    /**
+     * Rows of the features of each point followed by its label, as an integer.
+     */
+    static Iterator<double[]> labeledPointRows(final Iterator<LabeledPoint> points) {
+        return new Iterator<double[]>() {
+            @Override
+            public boolean hasNext() {
+                return points.hasNext();
+            }
 
-        for (int i = 0; i < data.get(0).length; i++) {
-            Vec v = Vec.makeZero(data.size());
-            for (int j = 0; j < data.size(); j++) {
-                v.set(j, data.get(j)[i]);
+            @Override
+            public double[] next() {
+                LabeledPoint point = points.next();
+                double[] features = point.features().toArray();
+                double[] row = Arrays.copyOf(features, features.length + 1);
+                row[features.length] = (int) point.label();
+                return row;
             }
-            allVecs[i] = v;
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static AppendableVec[] newVecs(int columns) {
+        // vecs of a group share their chunk layout
+        Key<Vec>[] keys = new Vec.VectorGroup().addVecs(columns);
+        AppendableVec[] vecs = new AppendableVec[columns];
+        for (int i = 0; i < columns; i++) {
+            vecs[i] = new AppendableVec(keys[i]);
         }
+        return vecs;
+    }
+
+    private static NewChunk[] newChunks(AppendableVec[] vecs, int chunkIndex) {
+        NewChunk[] chunks = new NewChunk[vecs.length];
+        for (int i = 0; i < vecs.length; i++) {
+            chunks[i] = new NewChunk(vecs[i], chunkIndex);
+        }
+        return chunks;
+    }
 
-        return new Frame(names, allVecs);
+    private static void closeChunks(NewChunk[] chunks, int chunkIndex, Futures futures) {
+        for (NewChunk chunk : chunks) {
+            chunk.close(chunkIndex, futures);
+        }
+    }
+
+    private static Vec[] closeVecs(AppendableVec[] vecs, Futures futures) {
+        Vec[] closed = new Vec[vecs.length];
+        for (int i = 0; i < vecs.length; i++) {
+            closed[i] = vecs[i].close(futures);
+        }
+        futures.blockForPending();
+        return closed;
     }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Splits a delimited line (CSV/TSV) into its fields in a single scan over its characters. Fields may be quoted as in
+ * RFC 4180: a field starting with a double quote extends to the matching closing quote, may contain delimiters, and
+ * a doubled quote inside it stands for one quote. Enclosing quotes are not part of the token. Unlike
+ * {@link String#split(String)}, trailing empty fields are kept.
+ * <p>
+ * A tokenizer may be restricted to a set of columns, in which case only those tokens are created, the others being
+ * left null, and the rest of the line after the last of them is not scanned.
+ */
+public class LineTokenizer implements Serializable {
+
+    private static final long serialVersionUID = 2760361624578129583L;
+    private static final char QUOTE = '"';
+    private static final int INITIAL_WIDTH = 16;
+
+    private final char delimiter;
+    // null if every column is tokenized
+    private final boolean[] columns;
+    // number of fields of the last tokenized line, a hint for sizing the next token array
+    private int width = INITIAL_WIDTH;
+
+    /**
+     * @param delimiter field delimiter
+     */
+    public LineTokenizer(char delimiter) {
+        this.delimiter = checkDelimiter(delimiter);
+        this.columns = null;
+    }
+
+    /**
+     * @param delimiter field delimiter
+     * @param columns indices of the fields to tokenize
+     */
+    public LineTokenizer(char delimiter, int[] columns) {
+        int lastColumn = -1;
+        for (int column : columns) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Invalid column index: " + column);
+            }
+            lastColumn = Math.max(lastColumn, column);
+        }
+        this.delimiter = checkDelimiter(delimiter);
+        this.columns = new boolean[lastColumn + 1];
+        for (int column : columns) {
+            this.columns[column] = true;
+        }
+    }
+
+    /**
+     * @param columnSeparator single character column separator, as given by {@link MLUtils.ColumnSeparatorFactory}
+     * @return tokenizer of all the columns
+     */
+    public static LineTokenizer forSeparator(String columnSeparator) {
+        return new LineTokenizer(toDelimiter(columnSeparator));
+    }
+
+    /**
+     * @param columnSeparator single character column separator, as given by {@link MLUtils.ColumnSeparatorFactory}
+     * @param columns indices of the fields to tokenize
+     * @return tokenizer of the given columns
+     */
+    public static LineTokenizer forSeparator(String columnSeparator, int[] columns) {
+        return new LineTokenizer(toDelimiter(columnSeparator), columns);
+    }
+
+    private static char checkDelimiter(char delimiter) {
+        if (delimiter == QUOTE) {
+            throw new IllegalArgumentException("Quote cannot be used as the delimiter.");
+        }
+        return delimiter;
+    }
+
+    private static char toDelimiter(String columnSeparator) {
+        if (columnSeparator == null || columnSeparator.length() != 1) {
+            throw new IllegalArgumentException("Column separator should be a single character: " + columnSeparator);
+        }
+        return columnSeparator.charAt(0);
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Tokenize a line.
+     *
+     * @param line line to tokenize
+     * @return tokens of the line; if the tokenizer is restricted to a set of columns, the array ends at the last of
+     *         them (or earlier if the line has fewer fields) and the tokens of the other columns are null
+     */
+    public String[] tokenize(String line) {
+        int limit = columns == null ? Integer.MAX_VALUE : columns.length;
+        String[] tokens = new String[Math.min(width, limit)];
+        int length = line.length();
+        int position = 0;
+        int count = 0;
+        while (count < limit) {
+            boolean needed = columns == null || columns[count];
+            String token = null;
+            int end;
+            if (position < length && line.charAt(position) == QUOTE) {
+                StringBuilder value = needed ? new StringBuilder() : null;
+                end = scanQuoted(line, position + 1, value);
+                if (needed) {
+                    token = value.toString();
+                }
+            } else {
+                end = line.indexOf(delimiter, position);
+                if (end == -1) {
+                    end = length;
+                }
+                if (needed) {
+                    token = line.substring(position, end);
+                }
+            }
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, Math.min(Math.max(count * 2, INITIAL_WIDTH), limit));
+            }
+            tokens[count++] = token;
+            if (end >= length) {
+                break;
+            }
+            position = end + 1;
+        }
+        if (columns == null) {
+            width = count;
+        }
+        return count == tokens.length ? tokens : Arrays.copyOf(tokens, count);
+    }
+
+    /**
+     * Scan a quoted field, appending its value (if asked for) up to the next delimiter outside quotes. Characters
+     * between the closing quote and the delimiter are kept as they are, and an unterminated quote extends to the end
+     * of the line.
+     *
+     * @return index of the delimiter ending the field, or the line length if it is the last field
+     */
+    private int scanQuoted(String line, int start, StringBuilder value) {
+        int length = line.length();
+        int i = start;
+        while (i < length) {
+            char c = line.charAt(i++);
+            if (c == QUOTE) {
+                if (i < length && line.charAt(i) == QUOTE) {
+                    // escaped quote
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            if (value != null) {
+                value.append(c);
+            }
+        }
+        int end = line.indexOf(delimiter, i);
+        if (end == -1) {
+            end = length;
+        }
+        if (value != null) {
+            value.append(line, i, end);
+        }
+        return end;
+    }
+}
@@ -51,6 +51,16 @@ public class MLConstants {
     public static final String TARGET_HOME_PROP = "target.home";
     public static final String ML_THREAD_POOL_SIZE = "ml.thread.pool.size";
     public static final String ML_THREAD_POOL_QUEUE_SIZE = "ml.thread.pool.queue.size";
+    public static final String ML_THREAD_POOL_TENANT_WEIGHTS = "ml.thread.pool.tenant.weights";
+    public static final String ML_THREAD_POOL_TENANT_MAX_RUNNING = "ml.thread.pool.tenant.max.running";
+    public static final String ML_THREAD_POOL_HIGH_PRIORITY_THREADS = "ml.thread.pool.high.priority.threads";
+    public static final String ML_PREPROCESSED_DATA_CACHE_SIZE = "ml.preprocessed.data.cache.size";
+    public static final String ML_COLUMNAR_DATASET_STORAGE = "ml.columnar.dataset.storage";
+    public static final String ML_STORAGE_LEVEL = "ml.storage.level";
+    public static final String ML_NODE_ID = "ml.node.id";
+    public static final String ML_BUILD_LEASE_DURATION = "ml.build.lease.duration";
+    public static final String ML_SWEEP_MAX_PARALLELISM = "ml.sweep.max.parallelism";
+    public static final String ML_SWEEP_MAX_CANDIDATES = "ml.sweep.max.candidates";
 
     // I/O Adapter configs
     public static final String BAM_SERVER_URL= "BAMServerURL";
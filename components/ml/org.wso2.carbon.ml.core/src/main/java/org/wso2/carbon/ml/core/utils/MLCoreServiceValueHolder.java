@@ -22,10 +22,13 @@ import java.util.Properties;
 
 import org.apache.spark.SparkConf;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.storage.StorageLevel;
 import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterService;
 import org.wso2.carbon.ml.commons.domain.config.MLAlgorithm;
 import org.wso2.carbon.ml.commons.domain.config.Storage;
 import org.wso2.carbon.ml.commons.domain.config.SummaryStatisticsSettings;
+import org.wso2.carbon.ml.core.impl.BuildLeaseManager;
+import org.wso2.carbon.ml.core.spark.PreprocessedDataCache;
 import org.wso2.carbon.ml.database.DatabaseService;
 import org.wso2.carbon.utils.ConfigurationContextService;
 
@@ -45,8 +48,14 @@ public class MLCoreServiceValueHolder {
     private Storage modelStorage;
     private Storage datasetStorage;
     private BlockingExecutor threadExecutor;
+    private PreprocessedDataCache preprocessedDataCache;
+    private BuildLeaseManager buildLeaseManager;
+    private boolean columnarDatasetStorage;
+    private StorageLevel storageLevel = StorageLevel.MEMORY_AND_DISK_SER();
     private boolean sparkContextEnabled;
     private boolean h2oClientModeEnabled;
+    private int maxSweepParallelism = 4;
+    private int maxSweepCandidates = 100;
 
     public MLCoreServiceValueHolder() {
         sparkContextEnabled = true;
@@ -176,6 +185,47 @@ public class MLCoreServiceValueHolder {
         this.threadExecutor = threadExecutor;
     }
 
+    /**
+     * @return cache of pre-processed training data, or null if caching is disabled
+     */
+    public BuildLeaseManager getBuildLeaseManager() {
+        return buildLeaseManager;
+    }
+
+    public void setBuildLeaseManager(BuildLeaseManager buildLeaseManager) {
+        this.buildLeaseManager = buildLeaseManager;
+    }
+
+    public PreprocessedDataCache getPreprocessedDataCache() {
+        return preprocessedDataCache;
+    }
+
+    public void setPreprocessedDataCache(PreprocessedDataCache preprocessedDataCache) {
+        this.preprocessedDataCache = preprocessedDataCache;
+    }
+
+    /**
+     * @return whether uploaded file datasets get a {@link org.wso2.carbon.ml.core.spark.ColumnarDataset} copy
+     */
+    public boolean isColumnarDatasetStorage() {
+        return columnarDatasetStorage;
+    }
+
+    public void setColumnarDatasetStorage(boolean columnarDatasetStorage) {
+        this.columnarDatasetStorage = columnarDatasetStorage;
+    }
+
+    /**
+     * @return storage level of the intermediate data of model builds
+     */
+    public StorageLevel getStorageLevel() {
+        return storageLevel;
+    }
+
+    public void setStorageLevel(StorageLevel storageLevel) {
+        this.storageLevel = storageLevel;
+    }
+
     public boolean isSparkContextEnabled() {
         return sparkContextEnabled;
     }
@@ -184,6 +234,28 @@ public class MLCoreServiceValueHolder {
         this.sparkContextEnabled = sparkContextEnabled;
     }
 
+    /**
+     * @return maximum number of candidates of a hyperparameter sweep fitted at the same time
+     */
+    public int getMaxSweepParallelism() {
+        return maxSweepParallelism;
+    }
+
+    public void setMaxSweepParallelism(int maxSweepParallelism) {
+        this.maxSweepParallelism = maxSweepParallelism;
+    }
+
+    /**
+     * @return maximum number of candidates of a hyperparameter sweep
+     */
+    public int getMaxSweepCandidates() {
+        return maxSweepCandidates;
+    }
+
+    public void setMaxSweepCandidates(int maxSweepCandidates) {
+        this.maxSweepCandidates = maxSweepCandidates;
+    }
+
     public boolean isH2oClientModeEnabled() {
         return h2oClientModeEnabled;
     }
@@ -42,6 +42,7 @@ import org.wso2.carbon.ml.commons.domain.SamplePoints;
 import org.wso2.carbon.ml.commons.domain.Workflow;
 import org.wso2.carbon.ml.commons.domain.config.MLProperty;
 import org.wso2.carbon.ml.core.exceptions.MLMalformedDatasetException;
+import org.wso2.carbon.ml.core.spark.ColumnarDataset;
 import org.wso2.carbon.ml.core.spark.transformations.DiscardedRowsFilter;
 import org.wso2.carbon.ml.core.spark.transformations.HeaderFilter;
 import org.wso2.carbon.ml.core.spark.transformations.LineToTokens;
@@ -78,6 +79,11 @@ public class MLUtils {
                         "File content does not match the data format. [First Line] %s [Data Format] %s", firstLine,
                         dataType));
             }
+            String columnarPath = ColumnarDataset.getPath(path);
+            if (ColumnarDataset.exists(sparkContext, columnarPath)) {
+                return getSamplePoints(sampleSize, containsHeader, columnData, dataFormat, firstLine, sparkContext,
+                        columnarPath);
+            }
             return getSamplePoints(sampleSize, containsHeader, headerMap, columnData, dataFormat, lines);
 
         } catch (Exception e) {
@@ -146,9 +152,6 @@ public class MLUtils {
     private static SamplePoints getSamplePoints(int sampleSize, boolean containsHeader, Map<String, Integer> headerMap,
                                                 List<List<String>> columnData, CSVFormat dataFormat, JavaRDD<String> lines) {
         int featureSize;
-        int[] missing;
-        int[] stringCellCount;
-        int[] decimalCellCount;
         // take the first line
         String firstLine = lines.first();
         // count the number of features
@@ -161,19 +164,11 @@ public class MLUtils {
 
         String columnSeparator = String.valueOf(dataFormat.getDelimiter());
         HeaderFilter headerFilter = new HeaderFilter.Builder().header(lines.first()).build();
-        JavaRDD<String> data = lines.filter(headerFilter).cache();
-        Pattern pattern = MLUtils.getPatternFromDelimiter(columnSeparator);
-        LineToTokens lineToTokens = new LineToTokens.Builder().separator(pattern).build();
-        JavaRDD<String[]> tokens = data.map(lineToTokens);
-
-        // remove from cache
-        data.unpersist();
-        // add to cache
-        tokens.cache();
+        JavaRDD<String> data = lines.filter(headerFilter);
+        LineToTokens lineToTokens = new LineToTokens.Builder().separator(columnSeparator).build();
+        // read twice by takeSample, which counts the tokens before sampling them
+        JavaRDD<String[]> tokens = data.map(lineToTokens).cache();
 
-        missing = new int[featureSize];
-        stringCellCount = new int[featureSize];
-        decimalCellCount = new int[featureSize];
         if (sampleSize >= 0 && featureSize > 0) {
             sampleSize = sampleSize / featureSize;
         }
@@ -196,6 +191,33 @@ public class MLUtils {
         // remove from cache
         tokens.unpersist();
 
+        return getSamplePoints(featureSize, headerMap, columnData, sampleLines);
+    }
+
+    /**
+     * Take the sample from the columnar copy of a dataset, turning only the sampled values back into text.
+     */
+    private static SamplePoints getSamplePoints(int sampleSize, boolean containsHeader, List<List<String>> columnData,
+            CSVFormat dataFormat, String firstLine, JavaSparkContext sparkContext, String columnarPath) {
+        int featureSize = getFeatureSize(firstLine, dataFormat);
+        if (sampleSize >= 0 && featureSize > 0) {
+            sampleSize = sampleSize / featureSize;
+        }
+        for (int i = 0; i < featureSize; i++) {
+            columnData.add(new ArrayList<String>());
+        }
+        Map<String, Integer> headerMap = containsHeader ? generateHeaderMap(firstLine, dataFormat)
+                : generateHeaderMap(featureSize);
+        List<String[]> sampleLines = ColumnarDataset.takeSample(sparkContext, columnarPath, sampleSize);
+        return getSamplePoints(featureSize, headerMap, columnData, sampleLines);
+    }
+
+    private static SamplePoints getSamplePoints(int featureSize, Map<String, Integer> headerMap,
+            List<List<String>> columnData, List<String[]> sampleLines) {
+        int[] missing = new int[featureSize];
+        int[] stringCellCount = new int[featureSize];
+        int[] decimalCellCount = new int[featureSize];
+
         // iterate through sample lines
         for (String[] columnValues : sampleLines) {
             for (int currentCol = 0; currentCol < featureSize; currentCol++) {
@@ -318,7 +340,7 @@ public class MLUtils {
      */
     public static int getFeatureIndex(String feature, String headerRow, String columnSeparator) {
         int featureIndex = 0;
-        String[] headerItems = headerRow.split(columnSeparator);
+        String[] headerItems = LineTokenizer.forSeparator(columnSeparator).tokenize(headerRow);
         for (int i = 0; i < headerItems.length; i++) {
             if (headerItems[i] != null) {
                 String column = headerItems[i].replace("\"", "").trim();
@@ -451,7 +473,7 @@ public class MLUtils {
 
     public static Map<String, Integer> generateHeaderMap(String line, CSVFormat format) {
         Map<String, Integer> headerMap = new HashMap<String, Integer>();
-        String[] values = line.split("" + format.getDelimiter());
+        String[] values = new LineTokenizer(format.getDelimiter()).tokenize(line);
         int i = 0;
         for (String value : values) {
             headerMap.put(value, i);
@@ -461,12 +483,12 @@ public class MLUtils {
     }
 
     public static int getFeatureSize(String line, CSVFormat format) {
-        String[] values = line.split("" + format.getDelimiter());
+        String[] values = new LineTokenizer(format.getDelimiter()).tokenize(line);
         return values.length;
     }
 
     public static String[] getFeatures(String line, CSVFormat format) {
-        String[] values = line.split("" + format.getDelimiter());
+        String[] values = new LineTokenizer(format.getDelimiter()).tokenize(line);
         return values;
     }
 
@@ -484,10 +506,9 @@ public class MLUtils {
                                                List<Integer> featureIndices) {
         String columnSeparator = String.valueOf(delimiter);
         HeaderFilter headerFilter = new HeaderFilter.Builder().header(headerRow).build();
-        JavaRDD<String> data = lines.filter(headerFilter).cache();
-        Pattern pattern = MLUtils.getPatternFromDelimiter(columnSeparator);
-        LineToTokens lineToTokens = new LineToTokens.Builder().separator(pattern).build();
-        JavaRDD<String[]> tokens = data.map(lineToTokens).cache();
+        JavaRDD<String> data = lines.filter(headerFilter);
+        LineToTokens lineToTokens = new LineToTokens.Builder().separator(columnSeparator).build();
+        JavaRDD<String[]> tokens = data.map(lineToTokens);
 
         // get feature indices for discard imputation
         DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().indices(featureIndices).build();
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.spark.mllib.clustering.KMeansModel;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.commons.domain.Feature;
+import org.wso2.carbon.ml.commons.domain.FeatureType;
+import org.wso2.carbon.ml.commons.domain.MLModel;
+import org.wso2.carbon.ml.commons.domain.Workflow;
+import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+import org.wso2.carbon.ml.core.spark.models.MLKMeansModel;
+
+public class WarmStartModelTest {
+
+    private static final String LOGISTIC_REGRESSION = MLConstants.SUPERVISED_ALGORITHM.LOGISTIC_REGRESSION.name();
+    private static final String K_MEANS = MLConstants.UNSUPERVISED_ALGORITHM.K_MEANS.name();
+
+    @Test
+    public void testCompatible() throws MLModelHandlerException {
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model(LOGISTIC_REGRESSION, Arrays.asList(0, 1)));
+    }
+
+    @Test
+    public void testFeaturesOfOtherIndices() throws MLModelHandlerException {
+        // the same features in the same order, even if at other columns of the dataset
+        MLModel model = model(LOGISTIC_REGRESSION, Arrays.asList(3, 5));
+        List<Feature> features = new ArrayList<Feature>();
+        features.add(feature("b", 5, FeatureType.CATEGORICAL));
+        features.add(feature("a", 3, FeatureType.NUMERICAL));
+        features.add(feature("label", 0, FeatureType.CATEGORICAL));
+        model.setFeatures(features);
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model);
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class, expectedExceptionsMessageRegExp = ".*\\[algorithm\\].*")
+    public void testAlgorithmMismatch() throws MLModelHandlerException {
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model(MLConstants.SUPERVISED_ALGORITHM.SVM.name(), Arrays.asList(0, 1)));
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class, expectedExceptionsMessageRegExp = ".*\\[features\\].*")
+    public void testFeatureOrderMismatch() throws MLModelHandlerException {
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model(LOGISTIC_REGRESSION, Arrays.asList(1, 0)));
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class, expectedExceptionsMessageRegExp = ".*\\[features\\].*")
+    public void testFeatureTypeMismatch() throws MLModelHandlerException {
+        MLModel model = model(LOGISTIC_REGRESSION, Arrays.asList(0, 1));
+        model.getFeatures().get(1).setType(FeatureType.NUMERICAL);
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model);
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class, expectedExceptionsMessageRegExp = ".*\\[features\\].*")
+    public void testFeatureMissing() throws MLModelHandlerException {
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model(LOGISTIC_REGRESSION, Arrays.asList(0)));
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class,
+            expectedExceptionsMessageRegExp = ".*\\[response variable\\].*")
+    public void testResponseVariableMismatch() throws MLModelHandlerException {
+        MLModel model = model(LOGISTIC_REGRESSION, Arrays.asList(0, 1));
+        model.setResponseVariable("other");
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings(), 1,
+                model);
+    }
+
+    @Test
+    public void testClusters() throws MLModelHandlerException {
+        MLModelHandler.checkWarmStartModel(2, workflow(K_MEANS), Arrays.asList(0, 1), encodings(), 1, kMeansModel(3));
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class,
+            expectedExceptionsMessageRegExp = ".*\\[number of clusters\\].*")
+    public void testClustersMismatch() throws MLModelHandlerException {
+        MLModelHandler.checkWarmStartModel(2, workflow(K_MEANS), Arrays.asList(0, 1), encodings(), 1, kMeansModel(2));
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class, expectedExceptionsMessageRegExp = ".*\\[encoding\\].*")
+    public void testEncodingMismatch() throws MLModelHandlerException {
+        // a new category of the dataset version shifts the codes of the others
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1),
+                encodings("x", "y", "z", "0"), 1, model(LOGISTIC_REGRESSION, Arrays.asList(0, 1)));
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class, expectedExceptionsMessageRegExp = ".*\\[encoding\\].*")
+    public void testResponseEncodingMismatch() throws MLModelHandlerException {
+        List<Map<String, Integer>> encodings = encodings();
+        encodings.set(2, encoding("no", "yes", "maybe"));
+        MLModelHandler.checkWarmStartModel(2, workflow(LOGISTIC_REGRESSION), Arrays.asList(0, 1), encodings, 1,
+                model(LOGISTIC_REGRESSION, Arrays.asList(0, 1)));
+    }
+
+    private static Workflow workflow(String algorithmName) {
+        Workflow workflow = new Workflow();
+        workflow.setAlgorithmName(algorithmName);
+        workflow.setResponseVariable("label");
+        workflow.setFeatures(features());
+        Map<String, String> hyperParameters = new HashMap<String, String>();
+        hyperParameters.put(MLConstants.NUM_CLUSTERS, "3");
+        workflow.setHyperParameters(hyperParameters);
+        return workflow;
+    }
+
+    private static MLModel model(String algorithmName, List<Integer> newToOldIndicesList) {
+        MLModel model = new MLModel();
+        model.setAlgorithmName(algorithmName);
+        model.setResponseVariable("label");
+        model.setFeatures(features());
+        model.setNewToOldIndicesList(newToOldIndicesList);
+        model.setEncodings(encodings());
+        return model;
+    }
+
+    private static MLModel kMeansModel(int clusters) {
+        MLModel model = model(K_MEANS, Arrays.asList(0, 1));
+        // the response variable is not compared for unsupervised algorithms
+        model.setResponseVariable(null);
+        Vector[] centers = new Vector[clusters];
+        for (int i = 0; i < clusters; i++) {
+            centers[i] = Vectors.dense(i, i);
+        }
+        model.setModel(new MLKMeansModel(new KMeansModel(centers)));
+        return model;
+    }
+
+    /**
+     * @return encodings of the feature vectors of the models, a numerical feature, a categorical one of the given
+     *         values and a categorical response
+     */
+    private static List<Map<String, Integer>> encodings(String... values) {
+        List<Map<String, Integer>> encodings = new ArrayList<Map<String, Integer>>();
+        encodings.add(new HashMap<String, Integer>());
+        encodings.add(values.length > 0 ? encoding(values) : encoding("x", "y", "z"));
+        encodings.add(encoding("no", "yes"));
+        return encodings;
+    }
+
+    private static Map<String, Integer> encoding(String... values) {
+        String[] sorted = values.clone();
+        Arrays.sort(sorted);
+        Map<String, Integer> encoding = new HashMap<String, Integer>();
+        for (int i = 0; i < sorted.length; i++) {
+            encoding.put(sorted[i], i);
+        }
+        return encoding;
+    }
+
+    private static List<Feature> features() {
+        List<Feature> features = new ArrayList<Feature>();
+        features.add(feature("a", 0, FeatureType.NUMERICAL));
+        features.add(feature("b", 1, FeatureType.CATEGORICAL));
+        features.add(feature("label", 2, FeatureType.CATEGORICAL));
+        return features;
+    }
+
+    private static Feature feature(String name, int index, String type) {
+        Feature feature = new Feature();
+        feature.setName(name);
+        feature.setIndex(index);
+        feature.setType(type);
+        return feature;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+
+import scala.Tuple2;
+
+public class BuildProgressTrackerTest {
+
+    @Test
+    public void testStageTimes() {
+        BuildProgressTracker.Stages stages = new BuildProgressTracker.Stages();
+        Assert.assertEquals(stages.getStage(), MLConstants.MODEL_STATUS_NOT_STARTED);
+        Assert.assertTrue(stages.getTimes(0).isEmpty());
+
+        Assert.assertTrue(stages.start(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING, 1000));
+        Assert.assertTrue(stages.start(MLConstants.MODEL_BUILD_STAGE_TRAINING, 1300));
+        // the current stage is timed so far
+        Assert.assertEquals(stages.getTimes(1500), times(300, 200));
+        Assert.assertEquals(stages.getStage(), MLConstants.MODEL_BUILD_STAGE_TRAINING);
+
+        // a stage started again adds up
+        Assert.assertTrue(stages.start(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING, 1600));
+        stages.finish(MLConstants.MODEL_STATUS_COMPLETE, 1700);
+        Assert.assertEquals(stages.getTimes(5000), times(400, 300));
+        Assert.assertEquals(stages.getStage(), MLConstants.MODEL_STATUS_COMPLETE);
+    }
+
+    @Test
+    public void testCancel() {
+        BuildProgressTracker.Stages stages = new BuildProgressTracker.Stages();
+        Assert.assertTrue(stages.start(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING, 1000));
+
+        Assert.assertTrue(stages.cancel());
+        Assert.assertTrue(stages.isCancelled());
+        // cancelling again does not cancel a live build
+        Assert.assertFalse(stages.cancel());
+        // the build fails at the start of its next stage
+        Assert.assertFalse(stages.start(MLConstants.MODEL_BUILD_STAGE_TRAINING, 1200));
+        stages.finish(MLConstants.MODEL_STATUS_CANCELLED, 1200);
+        Assert.assertEquals(stages.getTimes(1200).get(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING), Long.valueOf(200));
+    }
+
+    @Test
+    public void testCancelEnded() {
+        BuildProgressTracker.Stages stages = new BuildProgressTracker.Stages();
+        Assert.assertTrue(stages.start(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING, 1000));
+        stages.finish(MLConstants.MODEL_STATUS_FAILED, 1100);
+
+        Assert.assertFalse(stages.cancel());
+        Assert.assertFalse(stages.isCancelled());
+    }
+
+    @Test
+    public void testRowCounts() {
+        BuildProgressTracker.RowCounts rowCounts = new BuildProgressTracker.RowCounts();
+        // the tasks of two partitions of one RDD, and of a partition of another
+        HashMap<Long, Long> first = rowCounts.addAccumulator(rowCounts.zero(null), count(1, 0, 100));
+        HashMap<Long, Long> second = rowCounts.addAccumulator(rowCounts.zero(null), count(1, 1, 50));
+        HashMap<Long, Long> other = rowCounts.addAccumulator(rowCounts.zero(null), count(2, 0, 30));
+        HashMap<Long, Long> counts = rowCounts.addInPlace(rowCounts.zero(null), first);
+        counts = rowCounts.addInPlace(counts, second);
+        counts = rowCounts.addInPlace(counts, other);
+        Assert.assertEquals(BuildProgressTracker.RowCounts.total(counts), 180);
+
+        // a partition computed again, e.g. by a retried task or the next fold, is counted once
+        HashMap<Long, Long> recomputed = rowCounts.addAccumulator(rowCounts.zero(null), count(1, 0, 100));
+        HashMap<Long, Long> merged = rowCounts.addInPlace(counts, recomputed);
+        Assert.assertEquals(BuildProgressTracker.RowCounts.total(merged), 180);
+        // the counts read so far are left as they were
+        Assert.assertNotSame(merged, counts);
+        Assert.assertEquals(counts.size(), 3);
+    }
+
+    @Test
+    public void testRowCountsPartitions() {
+        Assert.assertNotEquals(BuildProgressTracker.RowCounts.partition(1, 2),
+                BuildProgressTracker.RowCounts.partition(2, 1));
+        Assert.assertNotEquals(BuildProgressTracker.RowCounts.partition(0, Integer.MAX_VALUE),
+                BuildProgressTracker.RowCounts.partition(1, 0));
+    }
+
+    private static Tuple2<Long, Long> count(int rddId, int partition, long rows) {
+        return new Tuple2<Long, Long>(BuildProgressTracker.RowCounts.partition(rddId, partition), rows);
+    }
+
+    private static Map<String, Long> times(long preprocessing, long training) {
+        Map<String, Long> times = new LinkedHashMap<String, Long>();
+        times.put(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING, preprocessing);
+        times.put(MLConstants.MODEL_BUILD_STAGE_TRAINING, training);
+        return times;
+    }
+}
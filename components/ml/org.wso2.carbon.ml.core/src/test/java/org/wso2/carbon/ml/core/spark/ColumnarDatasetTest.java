@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import org.apache.spark.sql.Row;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ColumnarDatasetTest {
+
+    @Test
+    public void testTypeOf() {
+        Assert.assertEquals(ColumnarDataset.typeOf(""), ColumnarDataset.EMPTY);
+        Assert.assertEquals(ColumnarDataset.typeOf("42"), ColumnarDataset.LONG);
+        Assert.assertEquals(ColumnarDataset.typeOf("-7"), ColumnarDataset.LONG);
+        Assert.assertEquals(ColumnarDataset.typeOf("2.5"), ColumnarDataset.DOUBLE);
+        Assert.assertEquals(ColumnarDataset.typeOf("-0.125"), ColumnarDataset.DOUBLE);
+        // numbers which would not read back as the same text
+        Assert.assertEquals(ColumnarDataset.typeOf("007"), ColumnarDataset.STRING);
+        Assert.assertEquals(ColumnarDataset.typeOf("2.50"), ColumnarDataset.STRING);
+        Assert.assertEquals(ColumnarDataset.typeOf("1e3"), ColumnarDataset.STRING);
+        Assert.assertEquals(ColumnarDataset.typeOf("NA"), ColumnarDataset.STRING);
+        Assert.assertEquals(ColumnarDataset.typeOf("?"), ColumnarDataset.STRING);
+        Assert.assertEquals(ColumnarDataset.typeOf("yes"), ColumnarDataset.STRING);
+    }
+
+    @Test
+    public void testColumnTypes() {
+        ColumnarDataset.AddRowTypes addRowTypes = new ColumnarDataset.AddRowTypes();
+        ColumnarDataset.MergeColumnTypes mergeColumnTypes = new ColumnarDataset.MergeColumnTypes();
+        int[] types1 = addRowTypes.call(new int[0], new String[] { "1", "1.5", "", "x" });
+        types1 = addRowTypes.call(types1, new String[] { "2", "", "", "3" });
+        int[] types2 = addRowTypes.call(new int[0], new String[] { "3", "2", "", "4", "5" });
+
+        Assert.assertEquals(types1, new int[] { ColumnarDataset.LONG, ColumnarDataset.DOUBLE, ColumnarDataset.EMPTY,
+                ColumnarDataset.STRING });
+        Assert.assertEquals(mergeColumnTypes.call(types1, types2), new int[] { ColumnarDataset.LONG,
+                ColumnarDataset.STRING, ColumnarDataset.EMPTY, ColumnarDataset.STRING, ColumnarDataset.LONG });
+    }
+
+    @Test
+    public void testTokensToRow() {
+        ColumnarDataset.TokensToRow tokensToRow = new ColumnarDataset.TokensToRow(new int[] { ColumnarDataset.LONG,
+                ColumnarDataset.DOUBLE, ColumnarDataset.STRING, ColumnarDataset.EMPTY, ColumnarDataset.LONG });
+        String[] tokens = { "3", "", "NA", "" };
+        Row row = tokensToRow.call(tokens);
+
+        Assert.assertEquals(row.length(), 5);
+        Assert.assertEquals(row.get(0), 3L);
+        Assert.assertNull(row.get(1));
+        Assert.assertEquals(row.get(2), "NA");
+        Assert.assertNull(row.get(3));
+        Assert.assertNull(row.get(4));
+        for (int i = 0; i < tokens.length; i++) {
+            Assert.assertEquals(ColumnarDataset.toToken(row.get(i)), tokens[i]);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import org.apache.spark.storage.StorageLevel;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PersistenceManagerTest {
+
+    @Test
+    public void testStorageLevel() {
+        Assert.assertEquals(PersistenceManager.storageLevel("MEMORY_AND_DISK_SER"), StorageLevel.MEMORY_AND_DISK_SER());
+        Assert.assertEquals(PersistenceManager.storageLevel("DISK_ONLY"), StorageLevel.DISK_ONLY());
+        // replicated levels are supported too
+        Assert.assertEquals(PersistenceManager.storageLevel("MEMORY_ONLY_2"), StorageLevel.MEMORY_ONLY_2());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownStorageLevel() {
+        PersistenceManager.storageLevel("MEMORY");
+    }
+
+    @Test
+    public void testRecomputations() {
+        Assert.assertEquals(PersistenceManager.recomputations(4, 4), 0);
+        Assert.assertEquals(PersistenceManager.recomputations(7, 4), 3);
+        // partitions never read are not counted against the recomputed ones
+        Assert.assertEquals(PersistenceManager.recomputations(2, 4), 0);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.domain.Feature;
+import org.wso2.carbon.ml.commons.domain.Workflow;
+import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+
+public class PreprocessedDataCacheTest {
+
+    @Test
+    public void testKey() {
+        String key = PreprocessedDataCache.key(context(3, "Mean", false), Double.class);
+        Assert.assertEquals(key.length(), 64);
+        // the order of the features and of the encoded values does not matter
+        Assert.assertEquals(PreprocessedDataCache.key(context(3, "Mean", true), Double.class), key);
+
+        Assert.assertNotEquals(PreprocessedDataCache.key(context(4, "Mean", false), Double.class), key);
+        Assert.assertNotEquals(PreprocessedDataCache.key(context(3, "Discard", false), Double.class), key);
+        Assert.assertNotEquals(PreprocessedDataCache.key(context(3, "Mean", false), Integer.class), key);
+    }
+
+    @Test
+    public void testCommit() throws IOException {
+        File directory = createDirectory();
+        try {
+            PreprocessedDataCache cache = new PreprocessedDataCache(directory.getPath(), Long.MAX_VALUE);
+            FileSystem fileSystem = FileSystem.getLocal(new Configuration());
+            Path entry = new Path(directory.getPath(), "key");
+
+            Path temporary = writeEntry(directory, "_tmp-key-1", 10);
+            Assert.assertTrue(cache.commit(fileSystem, temporary, entry));
+            Assert.assertEquals(names(new File(directory, "key")), Arrays.asList("_SUCCESS", "part-00000"));
+            Assert.assertFalse(new File(directory, "_tmp-key-1").exists());
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCommitRace() throws IOException {
+        File directory = createDirectory();
+        try {
+            PreprocessedDataCache cache = new PreprocessedDataCache(directory.getPath(), Long.MAX_VALUE);
+            FileSystem fileSystem = FileSystem.getLocal(new Configuration());
+            Path entry = new Path(directory.getPath(), "key");
+            writeEntry(directory, "key", 10);
+
+            // the entry of the build which wrote it first is kept as it is
+            Path temporary = writeEntry(directory, "_tmp-key-2", 20);
+            Assert.assertTrue(cache.commit(fileSystem, temporary, entry));
+            Assert.assertEquals(names(new File(directory, "key")), Arrays.asList("_SUCCESS", "part-00000"));
+            Assert.assertEquals(new File(directory, "key/part-00000").length(), 10);
+
+            // an incomplete entry is not used
+            new File(directory, "key/_SUCCESS").delete();
+            Assert.assertFalse(cache.commit(fileSystem, temporary, entry));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testEvict() throws IOException {
+        File directory = createDirectory();
+        try {
+            PreprocessedDataCache cache = new PreprocessedDataCache(directory.getPath(), 250);
+            FileSystem fileSystem = FileSystem.getLocal(new Configuration());
+            long now = System.currentTimeMillis();
+            writeEntry(directory, "a", 100);
+            writeEntry(directory, "b", 100);
+            writeEntry(directory, "c", 100);
+            writeEntry(directory, "_tmp-d-1", 100);
+            new File(directory, "a").setLastModified(now - 3000);
+            new File(directory, "b").setLastModified(now - 2000);
+            new File(directory, "c").setLastModified(now - 1000);
+            new File(directory, "_tmp-d-1").setLastModified(now - 4000);
+
+            // the least recently used entry is evicted, unless it is the one being kept, and temporaries are left
+            cache.evict(fileSystem, "a");
+            Assert.assertEquals(names(directory), Arrays.asList("_tmp-d-1", "a", "c"));
+            cache.evict(fileSystem, "c");
+            Assert.assertEquals(names(directory), Arrays.asList("_tmp-d-1", "a", "c"));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    private static File createDirectory() throws IOException {
+        File directory = File.createTempFile("preprocessed", "");
+        Assert.assertTrue(directory.delete() && directory.mkdir());
+        return directory;
+    }
+
+    /**
+     * Write an entry as Spark does, with a part file of the given size and a success marker.
+     */
+    private static Path writeEntry(File directory, String name, int bytes) throws IOException {
+        File entry = new File(directory, name);
+        FileUtils.writeByteArrayToFile(new File(entry, "part-00000"), new byte[bytes]);
+        FileUtils.writeByteArrayToFile(new File(entry, "_SUCCESS"), new byte[0]);
+        return new Path(entry.getPath());
+    }
+
+    private static List<String> names(File directory) {
+        String[] names = directory.list();
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
+    private static MLModelConfigurationContext context(long datasetVersionId, String imputeOption, boolean reversed) {
+        List<Feature> features = new ArrayList<Feature>();
+        features.add(feature("a", 0, "NUMERICAL", imputeOption));
+        features.add(feature("b", 1, "CATEGORICAL", "Discard"));
+        features.add(feature("c", 2, "NUMERICAL", "Discard"));
+        Map<String, Integer> encoding = new HashMap<String, Integer>();
+        List<String> values = Arrays.asList("x", "y", "z");
+        if (reversed) {
+            features = new ArrayList<Feature>(Arrays.asList(features.get(2), features.get(1), features.get(0)));
+            values = Arrays.asList("z", "y", "x");
+        }
+        for (String value : values) {
+            encoding.put(value, value.charAt(0) - 'x');
+        }
+        List<Map<String, Integer>> encodings = new ArrayList<Map<String, Integer>>();
+        encodings.add(new HashMap<String, Integer>());
+        encodings.add(encoding);
+        encodings.add(new HashMap<String, Integer>());
+
+        Workflow workflow = new Workflow();
+        workflow.setFeatures(features);
+        MLModelConfigurationContext context = new MLModelConfigurationContext();
+        context.setDatasetVersionId(datasetVersionId);
+        context.setFacts(workflow);
+        context.setColumnSeparator(",");
+        context.setHeaderRow("a,b,c");
+        context.setResponseIndex(2);
+        context.setNewToOldIndicesList(Arrays.asList(0, 1));
+        context.setEncodings(encodings);
+        return context;
+    }
+
+    private static Feature feature(String name, int index, String type, String imputeOption) {
+        Feature feature = new Feature();
+        feature.setName(name);
+        feature.setIndex(index);
+        feature.setType(type);
+        feature.setInclude(true);
+        feature.setImputeOption(imputeOption);
+        return feature;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.apache.spark.serializer.DeserializationStream;
+import org.apache.spark.serializer.JavaSerializer;
+import org.apache.spark.serializer.KryoSerializer;
+import org.apache.spark.serializer.SerializationStream;
+import org.apache.spark.serializer.Serializer;
+import org.apache.spark.serializer.SerializerInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.core.spark.summary.PredictedVsActual;
+import org.wso2.carbon.ml.core.spark.summary.TestResultDataPoint;
+
+import scala.reflect.ClassTag;
+import scala.reflect.ClassTag$;
+
+/**
+ * Compares Java serialization with Kryo serialization, using {@link MLKryoRegistrator}, on a partition of labeled
+ * points and of test results, written as a stream the way Spark writes serialized cache blocks and shuffle output.
+ * The main method prints the serialized size of a partition with each serializer before running the benchmarks. Run
+ * with {@code java -cp <test classpath> org.wso2.carbon.ml.core.spark.SerializationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int RECORDS = 1024;
+    private static final int FEATURES = 20;
+    private static final ClassTag<Object> OBJECT_TAG = ClassTag$.MODULE$.apply(Object.class);
+
+    @Param({ "java", "kryo" })
+    private String serializer;
+
+    @Param({ "labeledPoints", "testResults" })
+    private String records;
+
+    private Object[] partition;
+    private SerializerInstance instance;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        partition = records(records);
+        instance = serializer(serializer).newInstance();
+        serialized = serialize(instance, partition);
+    }
+
+    @Benchmark
+    public int serialize() {
+        return serialize(instance, partition).length;
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) {
+        DeserializationStream stream = instance.deserializeStream(new ByteArrayInputStream(serialized));
+        for (int i = 0; i < partition.length; i++) {
+            blackhole.consume(stream.readObject(OBJECT_TAG));
+        }
+        stream.close();
+    }
+
+    private static Serializer serializer(String name) {
+        SparkConf conf = new SparkConf(false);
+        if ("kryo".equals(name)) {
+            return new KryoSerializer(conf.set(MLConstants.SPARK_KRYO_REGISTRATOR, MLKryoRegistrator.class.getName()));
+        }
+        return new JavaSerializer(conf);
+    }
+
+    private static Object[] records(String name) {
+        Random random = new Random(1);
+        Object[] partition = new Object[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            double[] features = new double[FEATURES];
+            for (int j = 0; j < FEATURES; j++) {
+                features[j] = random.nextDouble();
+            }
+            double label = random.nextInt(2);
+            if ("labeledPoints".equals(name)) {
+                partition[i] = new LabeledPoint(label, Vectors.dense(features));
+            } else {
+                PredictedVsActual predictedVsActual = new PredictedVsActual();
+                predictedVsActual.setActual(label);
+                predictedVsActual.setPredicted(random.nextInt(2));
+                TestResultDataPoint testResult = new TestResultDataPoint();
+                testResult.setPredictedVsActual(predictedVsActual);
+                testResult.setFeatureValues(features);
+                partition[i] = testResult;
+            }
+        }
+        return partition;
+    }
+
+    private static byte[] serialize(SerializerInstance instance, Object[] partition) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SerializationStream stream = instance.serializeStream(bytes);
+        for (Object record : partition) {
+            stream.writeObject(record, OBJECT_TAG);
+        }
+        stream.close();
+        return bytes.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (String records : new String[] { "labeledPoints", "testResults" }) {
+            for (String serializer : new String[] { "java", "kryo" }) {
+                int size = serialize(serializer(serializer).newInstance(), records(records)).length;
+                System.out.println(String.format("%s of %s records with %s serialization: %s bytes", RECORDS,
+                        records, serializer, size));
+            }
+        }
+        new Runner(new OptionsBuilder().include(SerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.spark.algorithms.EarlyStopping.Loss;
+import org.wso2.carbon.ml.core.spark.algorithms.EarlyStopping.MarginLoss;
+import org.wso2.carbon.ml.core.spark.algorithms.EarlyStopping.Monitor;
+
+public class EarlyStoppingTest {
+
+    @Test
+    public void testLoss() {
+        Assert.assertEquals(MarginLoss.loss(0, 1, Loss.LOGISTIC), Math.log(2), 1e-12);
+        Assert.assertEquals(MarginLoss.loss(2, 1, Loss.LOGISTIC), Math.log1p(Math.exp(-2)), 1e-12);
+        Assert.assertEquals(MarginLoss.loss(2, 0, Loss.LOGISTIC), Math.log1p(Math.exp(2)), 1e-12);
+        // large margins do not overflow
+        Assert.assertEquals(MarginLoss.loss(1000, 0, Loss.LOGISTIC), 1000, 1e-9);
+        Assert.assertEquals(MarginLoss.loss(1000, 1, Loss.LOGISTIC), 0, 1e-12);
+
+        Assert.assertEquals(MarginLoss.loss(0.5, 1, Loss.HINGE), 0.5, 1e-12);
+        Assert.assertEquals(MarginLoss.loss(2, 1, Loss.HINGE), 0, 1e-12);
+        Assert.assertEquals(MarginLoss.loss(0.5, 0, Loss.HINGE), 1.5, 1e-12);
+
+        Assert.assertEquals(MarginLoss.loss(3, 1, Loss.SQUARED), 2, 1e-12);
+    }
+
+    @Test
+    public void testStopsOnPlateau() {
+        // improvements within the tolerance do not count
+        Monitor monitor = new Monitor(1e-2, 2);
+        Assert.assertEquals(run(monitor, 1.0, 0.5, 0.499, 0.498, 0.1), Arrays.asList(4, 2));
+        Assert.assertEquals(monitor.getBestLoss(), 0.5);
+    }
+
+    @Test
+    public void testStopsOnDivergence() {
+        Monitor monitor = new Monitor(1e-4, 3);
+        Assert.assertEquals(run(monitor, 0.7, 0.4, Double.NaN, Double.POSITIVE_INFINITY, Double.NaN, 0.1),
+                Arrays.asList(5, 2));
+        Assert.assertEquals(monitor.getBestLoss(), 0.4);
+
+        // a diverged first chunk is not kept as the best one
+        monitor = new Monitor(1e-4, 3);
+        Assert.assertEquals(run(monitor, Double.NaN, 0.9, 0.8), Arrays.asList(3, 3));
+        Assert.assertEquals(run(new Monitor(1e-4, 2), Double.NaN, Double.NaN, 0.8), Arrays.asList(2, 0));
+    }
+
+    /**
+     * Feed the losses of chunks to a monitor as training does.
+     *
+     * @return number of chunks run and number of the best chunk, 0 if none
+     */
+    private static List<Integer> run(Monitor monitor, double... losses) {
+        int chunks = 0;
+        int best = 0;
+        while (chunks < losses.length && !monitor.isExhausted()) {
+            if (monitor.update(losses[chunks++])) {
+                best = chunks;
+            }
+        }
+        return Arrays.asList(chunks, best);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidValidationFraction() {
+        new EarlyStopping.Builder().validationFraction(1).build();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidPatience() {
+        new EarlyStopping.Builder().patience(0).build();
+    }
+}
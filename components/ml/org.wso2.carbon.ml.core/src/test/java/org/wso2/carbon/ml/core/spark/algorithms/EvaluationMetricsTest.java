@@ -0,0 +1,156 @@
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.spark.summary.TestResultDataPoint;
+
+public class EvaluationMetricsTest {
+
+    @Test
+    public void testClassification() {
+        EvaluationMetrics metrics = new EvaluationMetrics(10, true, 0, false);
+        metrics.add(0.0, 0.0, 0.0, features(1));
+        metrics.add(1.0, 1.0, 0.0, features(2));
+        metrics.add(2.0, 2.0, 2.0, features(3));
+        metrics.add(2.0, 2.0, 2.0, features(4));
+
+        Assert.assertEquals(metrics.getCount(), 4);
+        Assert.assertEquals(metrics.getError(), 0.25, 1e-12);
+        Assert.assertEquals(metrics.getLabels(), new double[] { 0.0, 1.0, 2.0 });
+        Assert.assertEquals(metrics.getConfusionMatrix(), new double[][] { { 1, 1, 0 }, { 0, 0, 0 }, { 0, 0, 2 } });
+        Assert.assertEquals(metrics.getSample().size(), 4);
+    }
+
+    @Test
+    public void testRegression() {
+        EvaluationMetrics metrics = new EvaluationMetrics(10, false, 0, false);
+        metrics.add(1.5, 1.5, 1.0, features(1));
+        metrics.add(3.0, 3.0, 4.0, features(2));
+
+        Assert.assertEquals(metrics.getMeanSquaredError(), (0.25 + 1.0) / 2, 1e-12);
+        Assert.assertEquals(metrics.getMeanAbsoluteError(), (0.5 + 1.0) / 2, 1e-12);
+        Assert.assertEquals(metrics.getLabels().length, 0);
+    }
+
+    @Test
+    public void testRoc() {
+        EvaluationMetrics separated = new EvaluationMetrics(0, true, 10, true);
+        separated.add(1.0, 0.95, 1.0, features(1));
+        separated.add(1.0, 0.75, 1.0, features(2));
+        separated.add(0.0, 0.35, 0.0, features(3));
+        separated.add(0.0, 0.05, 0.0, features(4));
+        Assert.assertEquals(separated.getAreaUnderRoc(), 1.0, 1e-12);
+        Assert.assertEquals(separated.getAreaUnderPr(), 1.0, 1e-12);
+
+        // one positive ranked below a negative
+        EvaluationMetrics metrics = new EvaluationMetrics(0, true, 10, true);
+        metrics.add(1.0, 0.95, 1.0, features(1));
+        metrics.add(1.0, 0.75, 0.0, features(2));
+        metrics.add(0.0, 0.35, 1.0, features(3));
+        metrics.add(0.0, 0.05, 0.0, features(4));
+        List<double[]> roc = metrics.getRoc();
+        Assert.assertEquals(roc.get(0), new double[] { 0, 0 });
+        Assert.assertEquals(roc.get(1), new double[] { 0, 0.5 });
+        Assert.assertEquals(roc.get(2), new double[] { 0.5, 0.5 });
+        Assert.assertEquals(roc.get(3), new double[] { 0.5, 1 });
+        Assert.assertEquals(roc.get(roc.size() - 1), new double[] { 1, 1 });
+        Assert.assertEquals(metrics.getAreaUnderRoc(), 0.75, 1e-12);
+        Assert.assertEquals(metrics.getPr().get(0), new double[] { 0, 1 });
+        Assert.assertEquals(metrics.getPr().get(1), new double[] { 0.5, 1 });
+
+        // margins are squashed into bins, a margin of 0 falling in the middle one
+        EvaluationMetrics margins = new EvaluationMetrics(0, true, 10, false);
+        margins.add(1.0, 20.0, 1.0, features(1));
+        margins.add(0.0, -0.1, 0.0, features(2));
+        margins.add(0.0, -20.0, 0.0, features(3));
+        Assert.assertEquals(margins.getAreaUnderRoc(), 1.0, 1e-12);
+    }
+
+    @Test
+    public void testBinarySampleHoldsScores() {
+        // the predicted class is used for the error, the score is sampled
+        EvaluationMetrics probabilities = new EvaluationMetrics(10, true, 10, true);
+        probabilities.add(1.0, 0.8, 1.0, features(1));
+        probabilities.add(0.0, 0.3, 1.0, features(2));
+        Assert.assertEquals(probabilities.getError(), 0.5, 1e-12);
+        assertSampledValues(probabilities, 0.8, 0.3);
+
+        EvaluationMetrics margins = new EvaluationMetrics(10, true, 10, false);
+        margins.add(1.0, 2.5, 1.0, features(1));
+        margins.add(0.0, -1.5, 0.0, features(2));
+        assertSampledValues(margins, 2.5, -1.5);
+
+        // models without scores sample their predictions
+        EvaluationMetrics multiclass = new EvaluationMetrics(10, true, 0, false);
+        multiclass.add(2.0, 0.0, 2.0, features(1));
+        assertSampledValues(multiclass, 2.0);
+    }
+
+    private static void assertSampledValues(EvaluationMetrics metrics, double... expected) {
+        Set<Double> sampled = new HashSet<Double>();
+        for (TestResultDataPoint testResult : metrics.getSample()) {
+            sampled.add(testResult.getPredictedVsActual().getPredicted());
+        }
+        Set<Double> values = new HashSet<Double>();
+        for (double value : expected) {
+            values.add(value);
+        }
+        Assert.assertEquals(sampled, values);
+    }
+
+    @Test
+    public void testMerge() {
+        EvaluationMetrics metrics1 = new EvaluationMetrics(5, true, 10, true);
+        EvaluationMetrics metrics2 = new EvaluationMetrics(5, true, 10, true);
+        EvaluationMetrics all = new EvaluationMetrics(5, true, 10, true);
+        for (int i = 0; i < 100; i++) {
+            double label = i % 2;
+            double score = (i % 10) / 10.0;
+            double prediction = score > 0.5 ? 1.0 : 0.0;
+            (i < 30 ? metrics1 : metrics2).add(prediction, score, label, features(i));
+            all.add(prediction, score, label, features(i));
+        }
+        EvaluationMetrics merged = metrics1.merge(metrics2);
+
+        Assert.assertEquals(merged.getCount(), 100);
+        Assert.assertEquals(merged.getError(), all.getError(), 1e-12);
+        Assert.assertEquals(merged.getConfusionMatrix(), all.getConfusionMatrix());
+        Assert.assertEquals(merged.getAreaUnderRoc(), all.getAreaUnderRoc(), 1e-12);
+        Assert.assertEquals(merged.getSample().size(), 5);
+        Set<Double> sampled = new HashSet<Double>();
+        for (TestResultDataPoint testResult : merged.getSample()) {
+            sampled.add(testResult.getFeatureValues()[0]);
+        }
+        Assert.assertEquals(sampled.size(), 5);
+    }
+
+    @Test
+    public void testSampleIsUniform() {
+        // every point of two unevenly sized partitions is sampled about equally often
+        int[] counts = new int[20];
+        for (int run = 0; run < 5000; run++) {
+            EvaluationMetrics metrics1 = new EvaluationMetrics(4, false, 0, false);
+            EvaluationMetrics metrics2 = new EvaluationMetrics(4, false, 0, false);
+            for (int i = 0; i < 20; i++) {
+                (i < 5 ? metrics1 : metrics2).add(0, 0, 0, features(i));
+            }
+            for (TestResultDataPoint testResult : metrics1.merge(metrics2).getSample()) {
+                counts[(int) testResult.getFeatureValues()[0]]++;
+            }
+        }
+        // expected 5000 * 4 / 20 = 1000 each
+        for (int count : counts) {
+            Assert.assertTrue(count > 850 && count < 1150, "Sampled " + count + " times");
+        }
+    }
+
+    private static Vector features(double value) {
+        return Vectors.dense(value, value);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.domain.MLHyperParameterSweep;
+import org.wso2.carbon.ml.commons.domain.MLSweepCandidate;
+import org.wso2.carbon.ml.commons.domain.MLSweepLeaderboard;
+import org.wso2.carbon.ml.commons.domain.Workflow;
+import org.wso2.carbon.ml.core.factories.AlgorithmType;
+import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+
+public class HyperParameterSweepTest {
+
+    @Test
+    public void testGridCandidates() {
+        List<Map<String, String>> candidates = HyperParameterSweep.gridCandidates(base(), values());
+
+        Assert.assertEquals(candidates.size(), 6);
+        Assert.assertEquals(new HashSet<Map<String, String>>(candidates).size(), 6);
+        for (Map<String, String> candidate : candidates) {
+            Assert.assertEquals(candidate.get("Reg_Type"), "L2");
+            Assert.assertEquals(candidate.size(), 3);
+        }
+        Assert.assertEquals(candidates.get(0).get("Iterations"), "10");
+        Assert.assertEquals(candidates.get(0).get("Learning_Rate"), "0.1");
+        Assert.assertEquals(candidates.get(1).get("Learning_Rate"), "0.01");
+    }
+
+    @Test
+    public void testRandomCandidates() {
+        List<Map<String, String>> candidates = HyperParameterSweep.randomCandidates(base(), values(), 4, 7L);
+
+        Assert.assertEquals(candidates.size(), 4);
+        Assert.assertEquals(new HashSet<Map<String, String>>(candidates).size(), 4);
+        Assert.assertEquals(HyperParameterSweep.randomCandidates(base(), values(), 4, 7L), candidates);
+        // asking for more than there are gives the grid
+        Assert.assertEquals(HyperParameterSweep.randomCandidates(base(), values(), 10, 7L),
+                HyperParameterSweep.gridCandidates(base(), values()));
+    }
+
+    @Test
+    public void testTrainingFractions() {
+        assertFractions(HyperParameterSweep.trainingFractions(9, 3), 1.0 / 9, 1.0 / 3, 1);
+        assertFractions(HyperParameterSweep.trainingFractions(8, 3), 1.0 / 3, 1);
+        assertFractions(HyperParameterSweep.trainingFractions(2, 3), 1);
+        assertFractions(HyperParameterSweep.trainingFractions(9, 1), 1);
+    }
+
+    @Test
+    public void testRank() {
+        List<MLSweepCandidate> candidates = new ArrayList<MLSweepCandidate>();
+        candidates.add(candidate(null, 1));
+        candidates.add(candidate(0.7, 1.0 / 3));
+        candidates.add(candidate(0.8, 1));
+        candidates.add(candidate(0.9, 1));
+
+        HyperParameterSweep.rank(candidates, false);
+        Assert.assertEquals(metrics(candidates), Arrays.<Double> asList(0.9, 0.8, 0.7, null));
+        HyperParameterSweep.rank(candidates, true);
+        Assert.assertEquals(metrics(candidates), Arrays.<Double> asList(0.8, 0.9, 0.7, null));
+    }
+
+    @Test
+    public void testCountCandidates() {
+        MLHyperParameterSweep sweep = new MLHyperParameterSweep();
+        sweep.setHyperParameters(values());
+        Assert.assertEquals(HyperParameterSweep.countCandidates(sweep), 6);
+        sweep.setSearchType(MLHyperParameterSweep.RANDOM_SEARCH);
+        sweep.setNumberOfCandidates(4);
+        Assert.assertEquals(HyperParameterSweep.countCandidates(sweep), 4);
+        sweep.setNumberOfCandidates(10);
+        Assert.assertEquals(HyperParameterSweep.countCandidates(sweep), 6);
+
+        // a huge grid is counted without being generated
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        List<String> thousand = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            thousand.add(String.valueOf(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            values.put("Parameter" + i, thousand);
+        }
+        sweep.setHyperParameters(values);
+        sweep.setSearchType(MLHyperParameterSweep.GRID_SEARCH);
+        Assert.assertEquals(HyperParameterSweep.countCandidates(sweep), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testLeaderboard() {
+        Workflow facts = new Workflow();
+        facts.setAlgorithmClass(AlgorithmType.NUMERICAL_PREDICTION.getValue());
+        facts.setHyperParameters(base());
+        MLModelConfigurationContext context = new MLModelConfigurationContext();
+        context.setFacts(facts);
+        MLHyperParameterSweep sweep = new MLHyperParameterSweep();
+        sweep.setHyperParameters(values());
+        MLSweepLeaderboard leaderboard = new MLSweepLeaderboard();
+
+        new HyperParameterSweep(context, sweep, leaderboard, -1234);
+        Assert.assertEquals(leaderboard.getMetricName(), HyperParameterSweep.MEAN_SQUARED_ERROR);
+        Assert.assertTrue(leaderboard.isLowerIsBetter());
+        List<MLSweepCandidate> candidates = leaderboard.getCandidates();
+        Assert.assertEquals(candidates.size(), 6);
+        for (MLSweepCandidate candidate : candidates) {
+            Assert.assertEquals(candidate.getStatus(), MLSweepCandidate.STATUS_PENDING);
+        }
+        // readers get a snapshot, which the sweep does not update
+        try {
+            candidates.clear();
+            Assert.fail("The published candidates should not be modifiable");
+        } catch (UnsupportedOperationException expected) {
+            Assert.assertEquals(leaderboard.getCandidates().size(), 6);
+        }
+    }
+
+    private static void assertFractions(double[] actual, double... expected) {
+        Assert.assertEquals(actual.length, expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(actual[i], expected[i], 1e-12);
+        }
+    }
+
+    private static Map<String, String> base() {
+        Map<String, String> base = new HashMap<String, String>();
+        base.put("Iterations", "100");
+        base.put("Learning_Rate", "0.1");
+        base.put("Reg_Type", "L2");
+        return base;
+    }
+
+    private static Map<String, List<String>> values() {
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        values.put("Learning_Rate", Arrays.asList("0.1", "0.01"));
+        values.put("Iterations", Arrays.asList("10", "100", "1000"));
+        return values;
+    }
+
+    private static MLSweepCandidate candidate(Double metric, double trainingFraction) {
+        MLSweepCandidate candidate = new MLSweepCandidate();
+        candidate.setMetric(metric);
+        candidate.setTrainingFraction(trainingFraction);
+        return candidate;
+    }
+
+    private static List<Double> metrics(List<MLSweepCandidate> candidates) {
+        List<Double> metrics = new ArrayList<Double>();
+        for (MLSweepCandidate candidate : candidates) {
+            metrics.add(candidate.getMetric());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.algorithms;
+
+import org.apache.spark.mllib.classification.LogisticRegressionModel;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LogisticRegressionTest {
+
+    @Test
+    public void testBiasWeightRoundTrip() {
+        LogisticRegressionModel model = new LogisticRegressionModel(Vectors.dense(0.5, -1.25, 2.0), 0.75);
+        Vector weights = LogisticRegression.biasWeights(model);
+        Assert.assertEquals(weights.toArray(), new double[] { 0.5, -1.25, 2.0, 0.75 });
+
+        LogisticRegressionModel restored = LogisticRegression.withIntercept(new LogisticRegressionModel(weights, 0));
+        Assert.assertEquals(restored.weights().toArray(), model.weights().toArray());
+        Assert.assertEquals(restored.intercept(), model.intercept());
+    }
+
+    @Test
+    public void testBiasWeightPredictions() throws Exception {
+        LogisticRegressionModel model = new LogisticRegressionModel(Vectors.dense(0.5, -1.25), -0.3).clearThreshold();
+        // the warm-start model scores points with the constant feature as the model scores the points themselves
+        LogisticRegressionModel withBias = new LogisticRegressionModel(LogisticRegression.biasWeights(model), 0)
+                .clearThreshold();
+        LogisticRegression.AppendBias appendBias = new LogisticRegression.AppendBias();
+        double[][] points = new double[][] { { 0, 0 }, { 1, 2 }, { -3, 0.5 }, { 4, -1 } };
+        for (double[] point : points) {
+            LabeledPoint labeledPoint = new LabeledPoint(1, Vectors.dense(point));
+            Assert.assertEquals(withBias.predict(appendBias.call(labeledPoint).features()),
+                    model.predict(labeledPoint.features()), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.models.ext;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.domain.AnomalyScore;
+
+public class AnomalyDetectionModelTest {
+
+    private static final List<Double> NORMAL_DISTANCES = Arrays.asList(3.0, 1.0, 4.0, 2.0);
+    private static final List<Double> SMALL_DISTANCES = Arrays.asList(1.5, 0.5);
+
+    @Test
+    public void testScore() {
+        AnomalyDetectionModel model = model();
+
+        AnomalyScore score = model.score(Vectors.dense(2.5, 0.0));
+        Assert.assertEquals(score.getCluster(), 0);
+        Assert.assertEquals(score.getDistance(), 2.5, 1e-12);
+        Assert.assertEquals(score.getPercentileRank(), 50.0, 1e-12);
+
+        // training distances equal to the distance are ranked below it
+        Assert.assertEquals(model.score(Vectors.dense(0.0, 3.0)).getPercentileRank(), 75.0, 1e-12);
+        Assert.assertEquals(model.score(Vectors.dense(0.0, 0.0)).getPercentileRank(), 0.0, 1e-12);
+        Assert.assertEquals(model.score(Vectors.dense(-5.0, 0.0)).getPercentileRank(), 100.0, 1e-12);
+
+        score = model.score(Vectors.dense(10.0, 1.0));
+        Assert.assertEquals(score.getCluster(), 1);
+        Assert.assertEquals(score.getDistance(), 1.0, 1e-12);
+        Assert.assertEquals(score.getPercentileRank(), 50.0, 1e-12);
+    }
+
+    @Test
+    public void testScoreOrdering() {
+        AnomalyDetectionModel model = model();
+        double previousRank = -1;
+        // the further a point from its cluster center, the higher its rank
+        for (double distance = 0; distance <= 5; distance += 0.25) {
+            AnomalyScore score = model.score(Vectors.dense(0.0, -distance));
+            Assert.assertEquals(score.getCluster(), 0);
+            Assert.assertTrue(score.getPercentileRank() >= previousRank, "rank at distance " + distance);
+            previousRank = score.getPercentileRank();
+        }
+        Assert.assertEquals(previousRank, 100.0, 1e-12);
+    }
+
+    @Test
+    public void testPercentileDistances() {
+        AnomalyDetectionModel model = model();
+        Map<Integer, Map<Integer, Double>> percentileDistances = model.getPercentileDistances(1, 100);
+        Assert.assertEquals(percentileDistances.size(), 2);
+
+        // same boundaries as before the distances were sorted once per model
+        DescriptiveStatistics normal = statistics(NORMAL_DISTANCES);
+        DescriptiveStatistics small = statistics(SMALL_DISTANCES);
+        for (int percentile = 1; percentile <= 100; percentile++) {
+            Assert.assertEquals(percentileDistances.get(0).get(percentile), normal.getPercentile(percentile), 1e-12);
+            Assert.assertEquals(percentileDistances.get(1).get(percentile), small.getPercentile(percentile), 1e-12);
+        }
+        Assert.assertEquals(model.getPercentileDistances(95, 96).get(0).keySet().size(), 2);
+    }
+
+    @Test
+    public void testPredictAgreesWithPercentileDistances() {
+        AnomalyDetectionModel model = model();
+        Map<Integer, Map<Integer, Double>> percentileDistances = model.getPercentileDistances(1, 100);
+        double[][] points = new double[][] { { 2.5, 0.0 }, { 0.0, 3.9 }, { 11.2, 0.0 }, { 10.0, 0.4 } };
+        for (double[] point : points) {
+            AnomalyScore score = model.score(Vectors.dense(point));
+            Map<Integer, String> predictions = model.predict(Vectors.dense(point), 1, 100);
+            for (int percentile = 1; percentile <= 100; percentile++) {
+                double boundary = percentileDistances.get(score.getCluster()).get(percentile);
+                String expected = score.getDistance() > boundary ? "anomaly" : "normal";
+                Assert.assertEquals(predictions.get(percentile), expected, Arrays.toString(point) + " at "
+                        + percentile);
+                Assert.assertEquals(model.predict(Vectors.dense(point), percentile), expected);
+            }
+        }
+    }
+
+    private static AnomalyDetectionModel model() {
+        AnomalyDetectionModel model = new AnomalyDetectionModel();
+        model.setCentroidIndex(new CentroidIndex(new double[][] { { 0.0, 0.0 }, { 10.0, 0.0 } }));
+        Map<Integer, List<Double>> distances = new HashMap<Integer, List<Double>>();
+        distances.put(0, NORMAL_DISTANCES);
+        distances.put(1, SMALL_DISTANCES);
+        model.setClusterIndexToDistancesListMap(distances);
+        model.setNormalLabel("normal");
+        model.setAnomalyLabel("anomaly");
+        return model;
+    }
+
+    private static DescriptiveStatistics statistics(List<Double> distances) {
+        DescriptiveStatistics statistics = new DescriptiveStatistics();
+        for (double distance : distances) {
+            statistics.addValue(distance);
+        }
+        return statistics;
+    }
+}
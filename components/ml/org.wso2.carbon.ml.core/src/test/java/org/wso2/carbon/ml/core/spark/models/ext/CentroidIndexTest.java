@@ -0,0 +1,74 @@
+package org.wso2.carbon.ml.core.spark.models.ext;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CentroidIndexTest {
+
+    @Test
+    public void testAssign() {
+        double[][] centers = new double[][] { { 0.0, 0.0 }, { 10.0, 0.0 }, { 0.0, 10.0 }, { 10.0, 10.0 } };
+        CentroidIndex centroidIndex = new CentroidIndex(centers);
+
+        CentroidIndex.Assignment assignment = centroidIndex.assign(new double[] { 1.0, 1.0 });
+        Assert.assertEquals(assignment.getCluster(), 0);
+        Assert.assertEquals(assignment.getDistance(), Math.sqrt(2.0), 1e-12);
+
+        assignment = centroidIndex.assign(new double[] { 9.0, 2.0 });
+        Assert.assertEquals(assignment.getCluster(), 1);
+        Assert.assertEquals(assignment.getDistance(), Math.sqrt(5.0), 1e-12);
+
+        assignment = centroidIndex.assign(new double[] { 7.0, 12.0 });
+        Assert.assertEquals(assignment.getCluster(), 3);
+        Assert.assertEquals(assignment.getDistance(), Math.sqrt(13.0), 1e-12);
+    }
+
+    @Test
+    public void testTiesResolveToLowerClusterIndex() {
+        double[][] centers = new double[][] { { 4.0, 0.0 }, { 0.0, 4.0 }, { -4.0, 0.0 } };
+        CentroidIndex centroidIndex = new CentroidIndex(centers);
+
+        Assert.assertEquals(centroidIndex.assign(new double[] { 0.0, 0.0 }).getCluster(), 0);
+        Assert.assertEquals(centroidIndex.assign(new double[] { -2.0, 2.0 }).getCluster(), 1);
+    }
+
+    @Test
+    public void testAssignMatchesExhaustiveSearch() {
+        Random random = new Random(42);
+        int k = 200;
+        int dimension = 30;
+        double[][] centers = new double[k][dimension];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < dimension; j++) {
+                centers[i][j] = random.nextGaussian() * (1 + i % 7);
+            }
+        }
+        CentroidIndex centroidIndex = new CentroidIndex(centers);
+
+        for (int n = 0; n < 1000; n++) {
+            double[] point = new double[dimension];
+            for (int j = 0; j < dimension; j++) {
+                point[j] = random.nextGaussian() * 4;
+            }
+            int expectedCluster = -1;
+            double expectedDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < k; i++) {
+                double sum = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double diff = point[j] - centers[i][j];
+                    sum += diff * diff;
+                }
+                if (Math.sqrt(sum) < expectedDistance) {
+                    expectedDistance = Math.sqrt(sum);
+                    expectedCluster = i;
+                }
+            }
+            CentroidIndex.Assignment assignment = centroidIndex.assign(point);
+            Assert.assertEquals(assignment.getCluster(), expectedCluster);
+            Assert.assertEquals(assignment.getDistance(), expectedDistance, 1e-9);
+            Assert.assertEquals(centroidIndex.distance(point, expectedCluster), expectedDistance, 1e-9);
+        }
+    }
+}
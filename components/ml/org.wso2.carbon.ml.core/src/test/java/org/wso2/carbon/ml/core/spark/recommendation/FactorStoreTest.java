@@ -0,0 +1,252 @@
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.spark.mllib.recommendation.Rating;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+
+import scala.Tuple2;
+
+public class FactorStoreTest {
+
+    @Test
+    public void testRecommendProducts() throws MLModelHandlerException {
+        FactorStore factorStore = new FactorStore(2, features(new int[] { 7, 3 }, new double[][] { { 1.0, 0.0 },
+                { 0.0, 1.0 } }), features(new int[] { 10, 20, 30, 40 }, new double[][] { { 1.0, 2.0 },
+                { 3.0, 1.0 }, { 2.0, 3.0 }, { 3.0, 0.5 } }));
+
+        // scores 1, 3, 2, 3 : equal scores are ordered by id
+        Assert.assertEquals(factorStore.recommendProducts(7, 3), Arrays.asList(20, 40, 30));
+        Assert.assertEquals(factorStore.recommendProducts(3, 10), Arrays.asList(30, 10, 20, 40));
+        Assert.assertEquals(factorStore.recommendUsers(30, 1), Arrays.asList(3));
+        Assert.assertEquals(factorStore.predict(3, 40), 0.5, 1e-12);
+    }
+
+    @Test(expectedExceptions = MLModelHandlerException.class)
+    public void testRecommendProductsForUnknownUser() throws MLModelHandlerException {
+        FactorStore factorStore = new FactorStore(1, features(new int[] { 1 }, new double[][] { { 1.0 } }),
+                features(new int[] { 2 }, new double[][] { { 1.0 } }));
+        factorStore.recommendProducts(2, 1);
+    }
+
+    @Test
+    public void testRecommendMatchesExhaustiveSearch() throws MLModelHandlerException {
+        Random random = new Random(7);
+        int rank = 10;
+        int[] userIds = new int[50];
+        int[] productIds = new int[1000];
+        double[][] userFactors = new double[userIds.length][rank];
+        double[][] productFactors = new double[productIds.length][rank];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = random.nextInt(1000000);
+            for (int j = 0; j < rank; j++) {
+                userFactors[i][j] = random.nextGaussian();
+            }
+        }
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = i * 31;
+            for (int j = 0; j < rank; j++) {
+                productFactors[i][j] = random.nextGaussian();
+            }
+        }
+        FactorStore factorStore = new FactorStore(rank, features(userIds, userFactors),
+                features(productIds, productFactors));
+        Assert.assertEquals(factorStore.getNumberOfProducts(), productIds.length);
+
+        for (int i = 0; i < userIds.length; i++) {
+            final double[] scores = new double[productIds.length];
+            Integer[] order = new Integer[productIds.length];
+            for (int p = 0; p < productIds.length; p++) {
+                for (int j = 0; j < rank; j++) {
+                    scores[p] += userFactors[i][j] * productFactors[p][j];
+                }
+                order[p] = p;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(scores[b], scores[a]);
+                }
+            });
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int p = 0; p < 20; p++) {
+                expected.add(productIds[order[p]]);
+            }
+            Assert.assertEquals(factorStore.recommendProducts(userIds[i], 20), expected);
+            Assert.assertEquals(factorStore.getUserFeatures(userIds[i]), userFactors[i]);
+        }
+    }
+
+    @Test
+    public void testBatchRecommendProductsMatchesSingleUser() throws MLModelHandlerException, IOException {
+        Random random = new Random(11);
+        int rank = 7;
+        int[] userIds = new int[150];
+        int[] productIds = new int[603];
+        double[][] userFactors = new double[userIds.length][rank];
+        double[][] productFactors = new double[productIds.length][rank];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = i;
+            for (int j = 0; j < rank; j++) {
+                userFactors[i][j] = random.nextGaussian();
+            }
+        }
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = 1000 + i;
+            for (int j = 0; j < rank; j++) {
+                productFactors[i][j] = random.nextGaussian();
+            }
+        }
+        final FactorStore factorStore = new FactorStore(rank, features(userIds, userFactors),
+                features(productIds, productFactors));
+
+        StringWriter writer = new StringWriter();
+        factorStore.recommendProducts(null, 15, new RecommendationLinesWriter(writer,
+                RecommendationLinesWriter.USER_ID, RecommendationLinesWriter.PRODUCT_IDS));
+        String[] lines = writer.toString().split("\n");
+        Assert.assertEquals(lines.length, userIds.length);
+        Assert.assertEquals(lines[3], line(3, factorStore.recommendProducts(3, 15)));
+
+        final List<Integer> batchUsers = new ArrayList<Integer>();
+        factorStore.recommendProducts(new int[] { 149, 0, 77 }, 5, new BlockedTopKScorer.ResultHandler() {
+            @Override
+            public void handle(int queryId, int[] ids, double[] scores, int count) {
+                batchUsers.add(queryId);
+                try {
+                    List<Integer> expected = factorStore.recommendProducts(queryId, 5);
+                    Assert.assertEquals(count, expected.size());
+                    for (int i = 0; i < count; i++) {
+                        Assert.assertEquals(ids[i], (int) expected.get(i));
+                        Assert.assertEquals(scores[i], factorStore.predict(queryId, ids[i]), 1e-12);
+                    }
+                } catch (MLModelHandlerException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        Assert.assertEquals(batchUsers, Arrays.asList(149, 0, 77));
+    }
+
+    @Test
+    public void testFoldInUsers() throws MLModelHandlerException {
+        Random random = new Random(13);
+        int rank = 4;
+        int[] productIds = new int[40];
+        double[][] productFactors = new double[productIds.length][rank];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = i;
+            for (int j = 0; j < rank; j++) {
+                productFactors[i][j] = random.nextGaussian();
+            }
+        }
+        FactorStore factorStore = new FactorStore(rank, features(new int[] { 1 }, new double[][] { { 1, 1, 1, 1 } }),
+                features(productIds, productFactors));
+
+        // ratings which a new user, and the known user, would give with these factors
+        double[] newUser = { 0.5, -1.0, 2.0, 0.25 };
+        double[] knownUser = { -0.5, 0.5, 1.0, -2.0 };
+        List<Rating> ratings = new ArrayList<Rating>();
+        for (int i = 0; i < 20; i++) {
+            ratings.add(new Rating(5, productIds[i], dot(newUser, productFactors[i])));
+            ratings.add(new Rating(1, productIds[i], dot(knownUser, productFactors[i])));
+        }
+        Assert.assertEquals(factorStore.foldInUsers(ratings, 1e-6, 0, false), 2);
+
+        Assert.assertEquals(factorStore.getNumberOfUsers(), 2);
+        for (int j = 0; j < rank; j++) {
+            Assert.assertEquals(factorStore.getUserFeatures(5)[j], newUser[j], 1e-3);
+            Assert.assertEquals(factorStore.getUserFeatures(1)[j], knownUser[j], 1e-3);
+        }
+        Assert.assertEquals(factorStore.recommendProducts(5, 3), factorStore.recommendProductsExactly(5, 3));
+    }
+
+    @Test
+    public void testFoldInUnknownProduct() throws MLModelHandlerException {
+        FactorStore factorStore = new FactorStore(1, features(new int[] { 1 }, new double[][] { { 1.0 } }),
+                features(new int[] { 2 }, new double[][] { { 1.0 } }));
+        try {
+            factorStore.foldInUsers(Arrays.asList(new Rating(3, 2, 1.0), new Rating(3, 4, 1.0)), 0.1, 0, false);
+            Assert.fail("Ratings of an unknown product were folded in.");
+        } catch (MLModelHandlerException expected) {
+            Assert.assertFalse(factorStore.containsUser(3));
+        }
+    }
+
+    @Test
+    public void testCopy() throws MLModelHandlerException {
+        FactorStore factorStore = new FactorStore(1, features(new int[] { 1 }, new double[][] { { 1.0 } }),
+                features(new int[] { 2 }, new double[][] { { 1.0 } }));
+        factorStore.setVersion(3);
+        FactorStore copy = factorStore.copy();
+        Assert.assertEquals(copy.getVersion(), 3);
+
+        // ratings folded into the copy, including those of new ids, leave the store it was copied from unchanged
+        Assert.assertEquals(copy.foldInUsers(Arrays.asList(new Rating(1, 2, 4.0), new Rating(3, 2, 2.0)), 1e-9, 0,
+                false), 2);
+        Assert.assertEquals(copy.getUserFeatures(1)[0], 4.0, 1e-6);
+        Assert.assertTrue(copy.containsUser(3));
+        Assert.assertEquals(factorStore.getUserFeatures(1)[0], 1.0);
+        Assert.assertFalse(factorStore.containsUser(3));
+        Assert.assertEquals(factorStore.getNumberOfUsers(), 1);
+    }
+
+    @Test
+    public void testScorerKeepsSnapshot() throws MLModelHandlerException, IOException {
+        FactorStore factorStore = new FactorStore(1, features(new int[] { 1 }, new double[][] { { 1.0 } }),
+                features(new int[] { 2, 3 }, new double[][] { { 1.0 }, { 2.0 } }));
+        BlockedTopKScorer scorer = factorStore.getProductScorer(2);
+        double[] productFactors = factorStore.getProductFactors();
+
+        factorStore.foldInProducts(Arrays.asList(new Rating(1, 2, 10.0)), 1e-9, 0, false);
+        Assert.assertEquals(factorStore.getProductFeatures(2)[0], 10.0, 1e-6);
+
+        // the scorer and the factors taken before the fold-in are unchanged
+        Assert.assertEquals(productFactors[0], 1.0);
+        final List<Integer> ids = new ArrayList<Integer>();
+        final List<Double> scores = new ArrayList<Double>();
+        scorer.score(new int[] { 1 }, new double[] { 1.0 }, 1, new BlockedTopKScorer.ResultHandler() {
+            @Override
+            public void handle(int queryId, int[] resultIds, double[] resultScores, int count) {
+                for (int i = 0; i < count; i++) {
+                    ids.add(resultIds[i]);
+                    scores.add(resultScores[i]);
+                }
+            }
+        });
+        Assert.assertEquals(ids, Arrays.asList(3, 2));
+        Assert.assertEquals(scores, Arrays.asList(2.0, 1.0));
+        Assert.assertEquals(factorStore.recommendProducts(1, 2), Arrays.asList(2, 3));
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static String line(int userId, List<Integer> productIds) {
+        StringBuilder builder = new StringBuilder("{\"userId\":").append(userId).append(",\"productIds\":[");
+        for (int i = 0; i < productIds.size(); i++) {
+            builder.append(i > 0 ? "," : "").append(productIds.get(i));
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static List<Tuple2<Object, double[]>> features(int[] ids, double[][] factors) {
+        List<Tuple2<Object, double[]>> features = new ArrayList<Tuple2<Object, double[]>>();
+        for (int i = 0; i < ids.length; i++) {
+            features.add(new Tuple2<Object, double[]>(ids[i], factors[i]));
+        }
+        return features;
+    }
+}
@@ -0,0 +1,53 @@
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
+
+import scala.Tuple2;
+
+public class MipsIndexTest {
+
+    @Test
+    public void testSearchSmallCatalogIsExact() throws MLModelHandlerException {
+        FactorStore factorStore = factorStore(new Random(3), 20, 60, 5);
+        factorStore.setMipsIndex(new MipsIndex(5, factorStore.getProductFactors(), factorStore.getProductIndex(), 8,
+                100, 1L));
+
+        for (int userId = 0; userId < 20; userId++) {
+            Assert.assertEquals(factorStore.recommendProducts(userId, 5),
+                    factorStore.recommendProductsExactly(userId, 5));
+        }
+    }
+
+    @Test
+    public void testRecall() throws MLModelHandlerException {
+        FactorStore factorStore = factorStore(new Random(5), 100, 3000, 8);
+        factorStore.setMipsIndex(new MipsIndex(8, factorStore.getProductFactors(), factorStore.getProductIndex(), 16,
+                200, 1L));
+
+        Assert.assertEquals(factorStore.getMipsIndex().size(), 3000);
+        Assert.assertTrue(factorStore.measureRecall(10, 100, 1L) > 0.9);
+    }
+
+    private static FactorStore factorStore(Random random, int users, int products, int rank) {
+        return new FactorStore(rank, features(random, users, rank), features(random, products, rank));
+    }
+
+    private static List<Tuple2<Object, double[]>> features(Random random, int size, int rank) {
+        List<Tuple2<Object, double[]>> features = new ArrayList<Tuple2<Object, double[]>>();
+        for (int i = 0; i < size; i++) {
+            double[] factors = new double[rank];
+            double scale = 0.5 + random.nextDouble();
+            for (int j = 0; j < rank; j++) {
+                factors[j] = random.nextGaussian() * scale;
+            }
+            features.add(new Tuple2<Object, double[]>(i, factors));
+        }
+        return features;
+    }
+}
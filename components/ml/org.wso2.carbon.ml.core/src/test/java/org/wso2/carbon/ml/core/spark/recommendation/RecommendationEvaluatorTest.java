@@ -0,0 +1,50 @@
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.spark.mllib.recommendation.Rating;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import scala.Tuple2;
+
+public class RecommendationEvaluatorTest {
+
+    @Test
+    public void testEvaluate() throws IOException {
+        List<Tuple2<Object, double[]>> users = new ArrayList<Tuple2<Object, double[]>>();
+        users.add(new Tuple2<Object, double[]>(7, new double[] { 1.0, 0.0 }));
+        users.add(new Tuple2<Object, double[]>(3, new double[] { 0.0, 1.0 }));
+        List<Tuple2<Object, double[]>> products = new ArrayList<Tuple2<Object, double[]>>();
+        products.add(new Tuple2<Object, double[]>(10, new double[] { 1.0, 2.0 }));
+        products.add(new Tuple2<Object, double[]>(20, new double[] { 3.0, 1.0 }));
+        products.add(new Tuple2<Object, double[]>(30, new double[] { 2.0, 3.0 }));
+        FactorStore factorStore = new FactorStore(2, users, products);
+
+        // user 7 ranks 20, 30 and user 3 ranks 30, 10; ratings of unknown users and products are ignored
+        List<Tuple2<Integer, Rating>> ratings = Arrays.asList(rating(7, 20, 2.0), rating(7, 10, 1.0),
+                rating(3, 10, 2.0), rating(3, 20, 0.0), rating(5, 10, 1.0), rating(7, 40, 1.0));
+        RecommendationMetrics metrics = new RecommendationEvaluator(factorStore, 2).evaluate(users.iterator(),
+                ratings.iterator());
+
+        Assert.assertEquals(metrics.getNumberOfRatings(), 4);
+        // errors -1, 0, 0, -1
+        Assert.assertEquals(metrics.getMeanSquaredError(), 0.5, 1e-12);
+        // user 7 hits 20 at 1 of 2 relevant, user 3 hits 10 at 2 of 1 relevant
+        Assert.assertEquals(metrics.getPrecisionAtK(), 0.5, 1e-12);
+        Assert.assertEquals(metrics.getMeanAveragePrecisionAtK(), (0.5 + 0.5) / 2, 1e-12);
+
+        RecommendationMetrics merged = metrics.merge(new RecommendationEvaluator(factorStore, 2).evaluate(
+                users.iterator(), Arrays.asList(rating(3, 30, 1.0)).iterator()));
+        Assert.assertEquals(merged.getNumberOfRatings(), 5);
+        Assert.assertEquals(merged.getPrecisionAtK(), (0.5 + 0.5 + 0.5) / 3, 1e-12);
+        Assert.assertEquals(merged.getMeanAveragePrecisionAtK(), (0.5 + 0.5 + 1.0) / 3, 1e-12);
+    }
+
+    private static Tuple2<Integer, Rating> rating(int user, int product, double rating) {
+        return new Tuple2<Integer, Rating>(user, new Rating(user, product, rating));
+    }
+}
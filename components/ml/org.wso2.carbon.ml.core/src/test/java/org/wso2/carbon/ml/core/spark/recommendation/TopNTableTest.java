@@ -0,0 +1,44 @@
+package org.wso2.carbon.ml.core.spark.recommendation;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TopNTableTest {
+
+    @Test
+    public void testLookup() throws IOException {
+        File file = File.createTempFile("model", TopNTable.FILE_EXTENSION);
+        file.deleteOnExit();
+        TopNTable.Writer writer = new TopNTable.Writer(file, 3, 2, 3);
+        writer.addUser(4, new int[] { 30, 10, 20 });
+        writer.addUser(9, new int[] { 20 });
+        writer.addProduct(10, new int[] { 4 });
+        writer.addProduct(20, new int[] { 9, 4 });
+        writer.addProduct(30, new int[] { 4, 9 });
+        writer.close();
+
+        TopNTable table = TopNTable.open(file);
+        Assert.assertEquals(table.getN(), 3);
+        Assert.assertEquals(table.getProducts(4), new int[] { 30, 10, 20 });
+        Assert.assertEquals(table.getProducts(9), new int[] { 20 });
+        Assert.assertEquals(table.getUsers(20), new int[] { 9, 4 });
+        Assert.assertNull(table.getProducts(5));
+        Assert.assertNull(table.getUsers(4));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testIdsOutOfOrder() throws IOException {
+        File file = File.createTempFile("model", TopNTable.FILE_EXTENSION);
+        file.deleteOnExit();
+        TopNTable.Writer writer = new TopNTable.Writer(file, 2, 2, 0);
+        try {
+            writer.addUser(9, new int[] { 1 });
+            writer.addUser(4, new int[] { 1 });
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.spark.summary;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CrossValidationMetricsTest {
+
+    @Test
+    public void testMeanAndVariance() {
+        CrossValidationMetrics metrics = new CrossValidationMetrics(new double[] { 0.8, 0.9, 0.7, 0.6 },
+                new double[] { 2, 4, 4, 6 });
+
+        Assert.assertEquals(metrics.getFolds(), 4);
+        Assert.assertEquals(metrics.getMeanAccuracy(), 0.75, 1e-12);
+        // sample variance, over k - 1
+        Assert.assertEquals(metrics.getAccuracyVariance(), 0.05 / 3, 1e-12);
+        Assert.assertEquals(metrics.getMeanOfMeanSquaredErrors(), 4, 1e-12);
+        Assert.assertEquals(metrics.getVarianceOfMeanSquaredErrors(), 8.0 / 3, 1e-12);
+    }
+
+    @Test
+    public void testClassification() {
+        double[] accuracies = { 0.5, 0.5 };
+        CrossValidationMetrics metrics = new CrossValidationMetrics(accuracies, null);
+        accuracies[0] = 0;
+
+        Assert.assertEquals(metrics.getAccuracies()[0], 0.5);
+        Assert.assertEquals(metrics.getAccuracyVariance(), 0.0);
+        Assert.assertNull(metrics.getMeanSquaredErrors());
+    }
+}
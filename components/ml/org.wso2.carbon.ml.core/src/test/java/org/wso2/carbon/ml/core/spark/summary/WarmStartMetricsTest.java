@@ -0,0 +1,24 @@
+package org.wso2.carbon.ml.core.spark.summary;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WarmStartMetricsTest {
+
+    @Test
+    public void testSavings() {
+        WarmStartMetrics metrics = new WarmStartMetrics(7, 30, 100, 1500L, 6000L);
+        Assert.assertEquals(metrics.getWarmStartModelId(), 7);
+        Assert.assertEquals(metrics.getSavedIterations(), Integer.valueOf(70));
+        Assert.assertEquals(metrics.getSavedTrainingTime(), Long.valueOf(4500));
+    }
+
+    @Test
+    public void testUnknownFigures() {
+        // k-means does not report its iterations, and a model built before progress tracking has no stage times
+        WarmStartMetrics metrics = new WarmStartMetrics(7, null, null, 1500L, null);
+        Assert.assertNull(metrics.getSavedIterations());
+        Assert.assertNull(metrics.getSavedTrainingTime());
+        Assert.assertEquals(metrics.getTrainingTime(), Long.valueOf(1500));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.util.Random;
+
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import scala.Tuple2;
+
+public class AssignFoldsTest {
+
+    @Test
+    public void testFoldsAreDeterministicAndBalanced() {
+        AssignFolds assignFolds = new AssignFolds.Builder().folds(5).build();
+        Random random = new Random(3);
+        int[] sizes = new int[5];
+        for (int i = 0; i < 5000; i++) {
+            LabeledPoint labeledPoint = new LabeledPoint(random.nextInt(2), Vectors.dense(new double[] {
+                    random.nextInt(100), random.nextDouble() }));
+            Tuple2<Integer, LabeledPoint> foldAndPoint = assignFolds.call(labeledPoint);
+            Assert.assertEquals(foldAndPoint._2(), labeledPoint);
+            Assert.assertEquals(AssignFolds.fold(new LabeledPoint(labeledPoint.label(), Vectors.dense(labeledPoint
+                    .features().toArray())), 5), (int) foldAndPoint._1());
+            sizes[foldAndPoint._1()]++;
+        }
+        for (int size : sizes) {
+            Assert.assertTrue(Math.abs(size - 1000) < 100, "Unbalanced fold of size " + size);
+        }
+    }
+
+    @Test
+    public void testFoldFilter() {
+        Tuple2<Integer, LabeledPoint> foldAndPoint = new Tuple2<Integer, LabeledPoint>(2, new LabeledPoint(1,
+                Vectors.dense(new double[] { 1 })));
+
+        Assert.assertTrue(new FoldFilter.Builder().testing(2).build().call(foldAndPoint));
+        Assert.assertFalse(new FoldFilter.Builder().training(2).build().call(foldAndPoint));
+        Assert.assertFalse(new FoldFilter.Builder().testing(1).build().call(foldAndPoint));
+        Assert.assertTrue(new FoldFilter.Builder().training(1).build().call(foldAndPoint));
+    }
+}
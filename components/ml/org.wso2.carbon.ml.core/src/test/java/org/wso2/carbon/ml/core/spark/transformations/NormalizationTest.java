@@ -40,4 +40,22 @@ public class NormalizationTest {
         normalizedRow = normalization.call(new double[] { 10.0, 6.0, 45.0, 3.0 });
         Assert.assertEquals(normalizedRow, new double[] { 1.0, 1.0, 0.875, 1.0 });
     }
+
+    @Test
+    public void testNormalizationWithPrecomputedMinMax() throws MLModelBuilderException {
+
+        Normalization normalization = new Normalization.Builder()
+                .minMax(new double[] { 10.0, 5.0, 50.0, 1.0 }, new double[] { 2.0, 0.0, 10.0, 1.0 }).build();
+        double[] row = new double[] { 5.0, 3.0, 20.0, 2.0 };
+        double[] normalizedRow = normalization.call(row);
+        Assert.assertTrue(normalizedRow == row);
+        Assert.assertEquals(normalizedRow, new double[] { 0.375, 0.6, 0.25, 1.0 });
+    }
+
+    @Test(expectedExceptions = MLModelBuilderException.class)
+    public void testNormalizationWithMissingMinMax() throws MLModelBuilderException {
+
+        Normalization normalization = new Normalization.Builder().minMax(max, min).build();
+        normalization.call(new double[] { 1.0, 7.0, 30.0, 1.0, 4.0 });
+    }
 }
@@ -0,0 +1,111 @@
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
+
+public class RowTransformerTest {
+
+    private static final String HEADER = "a,b,c,d,e";
+
+    private final HeaderFilter headerFilter = new HeaderFilter.Builder().header(HEADER).build();
+    private final LineToTokens lineToTokens = new LineToTokens.Builder().separator(",").build();
+    private final DiscardedRowsFilter discardedRowsFilter = new DiscardedRowsFilter.Builder().indices(
+            Arrays.asList(3)).build();
+    // features e, a, c with d as the response
+    private final RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder()
+            .indices(Arrays.asList(4, 0, 2)).responseIndex(1).build();
+    private final BasicEncoder basicEncoder;
+    private final MeanImputation meanImputation;
+
+    public RowTransformerTest() {
+        List<Map<String, Integer>> encodings = new ArrayList<Map<String, Integer>>();
+        Map<String, Integer> encoding = new HashMap<String, Integer>();
+        encoding.put("x", 0);
+        encoding.put("y", 1);
+        encodings.add(encoding);
+        encodings.add(new HashMap<String, Integer>());
+        encodings.add(new HashMap<String, Integer>());
+        basicEncoder = new BasicEncoder.Builder().encodings(encodings).build();
+        Map<Integer, Double> means = new HashMap<Integer, Double>();
+        means.put(2, 2.5);
+        meanImputation = new MeanImputation.Builder().imputations(means).build();
+    }
+
+    @Test
+    public void testTransformMatchesChain() throws MLModelBuilderException {
+        RowTransformer rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(",").discardedRowsFilter(discardedRowsFilter)
+                .removeDiscardedFeatures(removeDiscardedFeatures).basicEncoder(basicEncoder)
+                .meanImputation(meanImputation).build();
+        StringArrayToDoubleArray stringArrayToDoubleArray = new StringArrayToDoubleArray.Builder().build();
+        Assert.assertEquals(rowTransformer.getNumberOfColumns(), 4);
+
+        double[] row = new double[rowTransformer.getNumberOfColumns()];
+        for (String line : new String[] { "1.5,0,4,1,y", "2,1,NA,0,x", "3,1,?,1,z" }) {
+            double[] expected = stringArrayToDoubleArray.call(meanImputation.call(basicEncoder
+                    .call(removeDiscardedFeatures.call(lineToTokens.call(line)))));
+            Assert.assertTrue(rowTransformer.transform(line, row));
+            Assert.assertEquals(row.length, expected.length);
+            for (int i = 0; i < row.length; i++) {
+                Assert.assertEquals(row[i], expected[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testSkippedLines() throws MLModelBuilderException {
+        RowTransformer rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(",").discardedRowsFilter(discardedRowsFilter)
+                .removeDiscardedFeatures(removeDiscardedFeatures).meanImputation(meanImputation)
+                .removeResponseColumn(true).build();
+        Assert.assertEquals(rowTransformer.getNumberOfColumns(), 3);
+
+        double[] row = new double[rowTransformer.getNumberOfColumns()];
+        Assert.assertFalse(rowTransformer.transform(HEADER, row));
+        Assert.assertFalse(rowTransformer.transform("1,2,3,NA,5", row));
+        Assert.assertTrue(rowTransformer.transform("1,2,3,4,5", row));
+        Assert.assertEquals(row[0], 5.0);
+        Assert.assertEquals(row[1], 1.0);
+        Assert.assertEquals(row[2], 3.0);
+    }
+
+    @Test
+    public void testTransformRowMatchesLine() throws MLModelBuilderException {
+        RowTransformer rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(",").discardedRowsFilter(discardedRowsFilter)
+                .removeDiscardedFeatures(removeDiscardedFeatures).basicEncoder(basicEncoder)
+                .meanImputation(meanImputation).removeResponseColumn(true).build();
+        // columns a, c, d and e
+        Assert.assertEquals(rowTransformer.getRequiredColumns(), new int[] { 0, 2, 3, 4 });
+
+        String[] lines = { "1.5,0,4,1,y", "2.0,1,,0,x", "3.0,1,5,1,z", "4.0,0,6,,x" };
+        Row[] rows = { RowFactory.create(1.5, 4L, 1L, "y"), RowFactory.create(2.0, null, 0L, "x"),
+                RowFactory.create(3.0, 5L, 1L, "z"), RowFactory.create(4.0, 6L, null, "x") };
+        double[] expected = new double[rowTransformer.getNumberOfColumns()];
+        double[] row = new double[rowTransformer.getNumberOfColumns()];
+        for (int i = 0; i < lines.length; i++) {
+            boolean kept = rowTransformer.transform(lines[i], expected);
+            Assert.assertEquals(rowTransformer.transform(rows[i], row), kept);
+            for (int j = 0; kept && j < row.length; j++) {
+                Assert.assertEquals(row[j], expected[j], 1e-12);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = MLModelBuilderException.class)
+    public void testInvalidValue() throws MLModelBuilderException {
+        RowTransformer rowTransformer = new RowTransformer.Builder().headerFilter(headerFilter)
+                .columnSeparator(",").removeDiscardedFeatures(removeDiscardedFeatures)
+                .meanImputation(meanImputation).build();
+        rowTransformer.transform("NA,2,3,4,5", new double[rowTransformer.getNumberOfColumns()]);
+    }
+}
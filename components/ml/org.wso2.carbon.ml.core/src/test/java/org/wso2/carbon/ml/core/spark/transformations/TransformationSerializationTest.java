@@ -0,0 +1,344 @@
+package org.wso2.carbon.ml.core.spark.transformations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.mllib.linalg.Vector;
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.apache.spark.serializer.KryoSerializer;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.commons.domain.Workflow;
+import org.wso2.carbon.ml.core.internal.MLModelConfigurationContext;
+import org.wso2.carbon.ml.core.spark.MLKryoRegistrator;
+import org.wso2.carbon.ml.core.spark.models.ext.CentroidIndex;
+
+import scala.Tuple2;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultClassResolver;
+
+/**
+ * Copies every transformation with Java serialization, which Spark uses for the closures of tasks, and with Kryo
+ * configured as {@link org.wso2.carbon.ml.core.impl.SparkConfigurationParser} does, and checks that the copies
+ * transform records as the original does.
+ */
+public class TransformationSerializationTest {
+
+    private static final Kryo kryo = new KryoSerializer(new SparkConf(false).set(
+            MLConstants.SPARK_KRYO_REGISTRATOR, MLKryoRegistrator.class.getName())).newKryo();
+
+    private static final String HEADER = "a,b,c";
+
+    @Test
+    public void testAnomalyRowsFilter() throws Exception {
+        AnomalyRowsFilter filter = new AnomalyRowsFilter.Builder().init(context("normal,fine", 1)).build();
+        assertFunctionRoundTrips(filter, new String[] { "1", "fine" }, new String[] { "1", "odd" });
+    }
+
+    @Test
+    public void testNormalRowsFilter() throws Exception {
+        NormalRowsFilter filter = new NormalRowsFilter.Builder().init(context("normal,fine", 1)).build();
+        assertFunctionRoundTrips(filter, new String[] { "1", "fine" }, new String[] { "1", "odd" });
+    }
+
+    @Test
+    public void testAssignFolds() throws Exception {
+        AssignFolds assignFolds = new AssignFolds.Builder().folds(5).build();
+        for (AssignFolds copy : copies(assignFolds)) {
+            for (LabeledPoint point : points()) {
+                Assert.assertEquals(copy.call(point), assignFolds.call(point));
+            }
+        }
+    }
+
+    @Test
+    public void testBasicEncoder() throws Exception {
+        List<Map<String, Integer>> encodings = new ArrayList<Map<String, Integer>>();
+        Map<String, Integer> encoding = new HashMap<String, Integer>();
+        encoding.put("x", 0);
+        encoding.put("y", 1);
+        encodings.add(encoding);
+        encodings.add(new HashMap<String, Integer>());
+        BasicEncoder basicEncoder = new BasicEncoder.Builder().encodings(encodings).build();
+        assertFunctionRoundTrips(basicEncoder, new String[] { "y", "2" }, new String[] { "z", "3" });
+    }
+
+    @Test
+    public void testDiscardedRowsFilter() throws Exception {
+        DiscardedRowsFilter filter = new DiscardedRowsFilter.Builder().indices(indices(1)).build();
+        assertFunctionRoundTrips(filter, new String[] { "a", "NA" }, new String[] { "a", "b" });
+    }
+
+    @Test
+    public void testDoubleArrayToLabeledPoint() throws Exception {
+        assertFunctionRoundTrips(new DoubleArrayToLabeledPoint.Builder().build(), new double[] { 1.5, 2, 1 });
+    }
+
+    @Test
+    public void testDoubleArrayToVector() throws Exception {
+        assertFunctionRoundTrips(new DoubleArrayToVector.Builder().build(), new double[] { 1.5, 2 });
+    }
+
+    @Test
+    public void testFactorsToMetrics() throws Exception {
+        // broadcast values are serialized by Spark on their own
+        assertCopies(new FactorsToMetrics.Builder().build());
+    }
+
+    @Test
+    public void testFactorsToRecommendations() throws Exception {
+        assertCopies(new FactorsToRecommendations.Builder().keys("user", "products").build());
+    }
+
+    @Test
+    public void testFactorsToTopN() throws Exception {
+        assertCopies(new FactorsToTopN.Builder().build());
+    }
+
+    @Test
+    public void testFoldFilter() throws Exception {
+        FoldFilter foldFilter = new FoldFilter.Builder().testing(2).build();
+        LabeledPoint point = points().get(0);
+        assertFunctionRoundTrips(foldFilter, new Tuple2<Integer, LabeledPoint>(1, point),
+                new Tuple2<Integer, LabeledPoint>(2, point));
+    }
+
+    @Test
+    public void testHeaderFilter() throws Exception {
+        assertFunctionRoundTrips(new HeaderFilter.Builder().header(HEADER).build(), HEADER, "1,2,3");
+    }
+
+    @Test
+    public void testImplicitDataToRating() throws Exception {
+        ImplicitDataToRating implicitDataToRating = new ImplicitDataToRating(0, 1, indices(2, 3),
+                new ArrayList<Double>(Arrays.asList(0.25, 0.75)));
+        assertFunctionRoundTrips(implicitDataToRating, new String[] { "7", "9", "1", "3" });
+    }
+
+    @Test
+    public void testLineToTokens() throws Exception {
+        assertFunctionRoundTrips(new LineToTokens.Builder().separator(",").build(), "1,\"a,b\",3", "1,,2");
+    }
+
+    @Test
+    public void testLinesToLabeledPoints() throws Exception {
+        LinesToLabeledPoints linesToLabeledPoints = new LinesToLabeledPoints.Builder().rowTransformer(
+                rowTransformer(false)).build();
+        List<String> lines = Arrays.asList(HEADER, "1,2,3", "4,NA,6", "7,8,9");
+        for (LinesToLabeledPoints copy : copies(linesToLabeledPoints)) {
+            Assert.assertEquals(toList(copy.call(lines.iterator())),
+                    toList(linesToLabeledPoints.call(lines.iterator())));
+        }
+    }
+
+    @Test
+    public void testLinesToVectors() throws Exception {
+        LinesToVectors linesToVectors = new LinesToVectors.Builder().rowTransformer(rowTransformer(true)).build();
+        List<String> lines = Arrays.asList(HEADER, "1,2,3", "4,NA,6", "7,8,9");
+        for (LinesToVectors copy : copies(linesToVectors)) {
+            Assert.assertEquals(toList(copy.call(lines.iterator())), toList(linesToVectors.call(lines.iterator())));
+        }
+    }
+
+    @Test
+    public void testMeanImputation() throws Exception {
+        Map<Integer, Double> means = new HashMap<Integer, Double>();
+        means.put(1, 2.5);
+        MeanImputation meanImputation = new MeanImputation.Builder().imputations(means).build();
+        assertFunctionRoundTrips(meanImputation, new String[] { "1", "NA" }, new String[] { "1", "2" });
+    }
+
+    @Test
+    public void testMissingValuesFilter() throws Exception {
+        assertFunctionRoundTrips(new MissingValuesFilter.Builder().build(), new String[] { "1", "NA" },
+                new String[] { "1", "2" });
+    }
+
+    @Test
+    public void testNormalization() throws Exception {
+        Normalization normalization = new Normalization.Builder().minMax(new double[] { 10, 4 },
+                new double[] { 0, 2 }).build();
+        assertFunctionRoundTrips(normalization, new double[] { 5, 3 }, new double[] { 10, 2 });
+    }
+
+    @Test
+    public void testRemoveDiscardedFeatures() throws Exception {
+        RemoveDiscardedFeatures removeDiscardedFeatures = new RemoveDiscardedFeatures.Builder().indices(
+                indices(2, 0)).responseIndex(1).build();
+        assertFunctionRoundTrips(removeDiscardedFeatures, new String[] { "a", "b", "c" });
+    }
+
+    @Test
+    public void testRemoveResponseColumn() throws Exception {
+        assertFunctionRoundTrips(new RemoveResponseColumn(), new String[] { "a", "b", "c" });
+    }
+
+    @Test
+    public void testRowTransformer() throws Exception {
+        RowTransformer rowTransformer = rowTransformer(false);
+        for (RowTransformer copy : copies(rowTransformer)) {
+            Assert.assertEquals(copy.getRequiredColumns(), rowTransformer.getRequiredColumns());
+            double[] expected = new double[rowTransformer.getNumberOfColumns()];
+            double[] row = new double[copy.getNumberOfColumns()];
+            for (String line : new String[] { HEADER, "1,2,3", "4,NA,6" }) {
+                Assert.assertEquals(copy.transform(line, row), rowTransformer.transform(line, expected));
+                Assert.assertEquals(row, expected);
+            }
+        }
+    }
+
+    @Test
+    public void testRowsToLabeledPoints() throws Exception {
+        RowsToLabeledPoints rowsToLabeledPoints = new RowsToLabeledPoints.Builder().rowTransformer(
+                rowTransformer(false)).build();
+        List<Row> rows = rows();
+        for (RowsToLabeledPoints copy : copies(rowsToLabeledPoints)) {
+            Assert.assertEquals(toList(copy.call(rows.iterator())), toList(rowsToLabeledPoints.call(rows.iterator())));
+        }
+    }
+
+    @Test
+    public void testRowsToVectors() throws Exception {
+        RowsToVectors rowsToVectors = new RowsToVectors.Builder().rowTransformer(rowTransformer(true)).build();
+        List<Row> rows = rows();
+        for (RowsToVectors copy : copies(rowsToVectors)) {
+            Assert.assertEquals(toList(copy.call(rows.iterator())), toList(rowsToVectors.call(rows.iterator())));
+        }
+    }
+
+    @Test
+    public void testRowsToLines() throws Exception {
+        RowsToLines rowsToLines = new RowsToLines.Builder().separator(",").build();
+        assertFunctionRoundTrips(rowsToLines, rows().toArray(new Row[0]));
+    }
+
+    @Test
+    public void testStringArrayToDoubleArray() throws Exception {
+        assertFunctionRoundTrips(new StringArrayToDoubleArray.Builder().build(), new String[] { "1", "2.5" });
+    }
+
+    @Test
+    public void testStringArrayToRating() throws Exception {
+        assertFunctionRoundTrips(new StringArrayToRating(0, 1, 2), new String[] { "7", "9", "3.5" });
+    }
+
+    @Test
+    public void testTokensToVectors() throws Exception {
+        TokensToVectors tokensToVectors = new TokensToVectors.Builder().indices(indices(0, 2)).build();
+        assertFunctionRoundTrips(tokensToVectors, new String[] { "1", "x", "3" });
+    }
+
+    @Test
+    public void testVectorToCentroidAssignment() throws Exception {
+        VectorToCentroidAssignment vectorToCentroidAssignment = new VectorToCentroidAssignment.Builder().index(
+                new CentroidIndex(new double[][] { { 0, 0 }, { 5, 5 } })).build();
+        Vector vector = Vectors.dense(4, 4.5);
+        CentroidIndex.Assignment expected = vectorToCentroidAssignment.call(vector);
+        for (VectorToCentroidAssignment copy : copies(vectorToCentroidAssignment)) {
+            CentroidIndex.Assignment assignment = copy.call(vector);
+            Assert.assertEquals(assignment.getCluster(), expected.getCluster());
+            Assert.assertEquals(assignment.getDistance(), expected.getDistance());
+        }
+    }
+
+    /**
+     * Copy a transformation with Java serialization and with Kryo, checking that it is registered with Kryo.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> copies(T transformation) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(transformation);
+        out.close();
+        T javaCopy = (T) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        Class<?> type = transformation.getClass();
+        Assert.assertTrue(kryo.getRegistration(type).getId() != DefaultClassResolver.NAME,
+                type + " is not registered with Kryo");
+        Output output = new Output(4096, -1);
+        kryo.writeClassAndObject(output, transformation);
+        T kryoCopy = (T) kryo.readClassAndObject(new Input(output.toBytes()));
+        return Arrays.asList(javaCopy, kryoCopy);
+    }
+
+    private static void assertCopies(Object transformation) throws Exception {
+        for (Object copy : copies(transformation)) {
+            Assert.assertNotNull(copy);
+            Assert.assertEquals(copy.getClass(), transformation.getClass());
+        }
+    }
+
+    @SafeVarargs
+    private static <I, O> void assertFunctionRoundTrips(Function<I, O> transformation, I... inputs)
+            throws Exception {
+        for (Function<I, O> copy : copies(transformation)) {
+            for (I input : inputs) {
+                Assert.assertEquals(copy.call(input), transformation.call(input));
+            }
+        }
+    }
+
+    private static <T> List<T> toList(Iterable<T> records) {
+        List<T> list = new ArrayList<T>();
+        for (T record : records) {
+            list.add(record);
+        }
+        return list;
+    }
+
+    private static List<Integer> indices(Integer... indices) {
+        return new ArrayList<Integer>(Arrays.asList(indices));
+    }
+
+    private static MLModelConfigurationContext context(String normalLabels, int responseIndex) {
+        Workflow workflow = new Workflow();
+        workflow.setNormalLabels(normalLabels);
+        MLModelConfigurationContext context = new MLModelConfigurationContext();
+        context.setFacts(workflow);
+        context.setResponseIndex(responseIndex);
+        return context;
+    }
+
+    private static List<LabeledPoint> points() {
+        List<LabeledPoint> points = new ArrayList<LabeledPoint>();
+        for (int i = 0; i < 10; i++) {
+            points.add(new LabeledPoint(i % 2, Vectors.dense(i, i * 0.5)));
+        }
+        return points;
+    }
+
+    private static List<Row> rows() {
+        return Arrays.asList(RowFactory.create(1.0, 2L, 3.0), RowFactory.create(4.0, null, 6.0),
+                RowFactory.create(7.0, 8L, 9.0));
+    }
+
+    /**
+     * Transforms columns c and a, with b, which may be missing, as the response.
+     */
+    private static RowTransformer rowTransformer(boolean removeResponseColumn) {
+        Map<Integer, Double> means = new HashMap<Integer, Double>();
+        means.put(1, 5.0);
+        return new RowTransformer.Builder().headerFilter(new HeaderFilter.Builder().header(HEADER).build())
+                .columnSeparator(",").discardedRowsFilter(new DiscardedRowsFilter.Builder().indices(indices(1))
+                        .build()).removeDiscardedFeatures(new RemoveDiscardedFeatures.Builder().indices(
+                        indices(2, 0)).responseIndex(1).build()).meanImputation(new MeanImputation.Builder()
+                        .imputations(means).build()).removeResponseColumn(removeResponseColumn).build();
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.utils.BlockingExecutor.Priority;
+
+public class BlockingExecutorTest {
+
+    private static final long TIMEOUT = 10;
+
+    private BlockingExecutor executor;
+
+    @AfterMethod
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFairQueueing() throws InterruptedException {
+        executor = new BlockingExecutor(1, 10);
+        CountDownLatch release = block();
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(5);
+        executor.execute(record("a1", order, done), 1, Priority.NORMAL);
+        executor.execute(record("a2", order, done), 1, Priority.NORMAL);
+        executor.execute(record("a3", order, done), 1, Priority.NORMAL);
+        executor.execute(record("b1", order, done), 2, Priority.NORMAL);
+        executor.execute(record("b2", order, done), 2, Priority.NORMAL);
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        // the burst of tenant 1 interleaves with the tasks of tenant 2, submitted after it
+        Assert.assertEquals(order, Arrays.asList("a1", "b1", "a2", "b2", "a3"));
+    }
+
+    @Test
+    public void testTenantWeight() throws InterruptedException {
+        executor = new BlockingExecutor(1, 10);
+        executor.setTenantWeight(2, 2);
+        CountDownLatch release = block();
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(5);
+        executor.execute(record("a1", order, done), 1, Priority.NORMAL);
+        executor.execute(record("a2", order, done), 1, Priority.NORMAL);
+        executor.execute(record("b1", order, done), 2, Priority.NORMAL);
+        executor.execute(record("b2", order, done), 2, Priority.NORMAL);
+        executor.execute(record("b3", order, done), 2, Priority.NORMAL);
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(order, Arrays.asList("b1", "a1", "b2", "b3", "a2"));
+    }
+
+    @Test
+    public void testPriority() throws InterruptedException {
+        executor = new BlockingExecutor(1, 10);
+        CountDownLatch release = block();
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(3);
+        executor.execute(record("build", order, done), 1, Priority.NORMAL);
+        executor.execute(record("other build", order, done), 2, Priority.NORMAL);
+        executor.execute(record("summary", order, done), 1, Priority.HIGH);
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(order, Arrays.asList("summary", "build", "other build"));
+    }
+
+    @Test
+    public void testTenantBlocking() throws InterruptedException {
+        executor = new BlockingExecutor(1, 1);
+        CountDownLatch release = block();
+        final CountDownLatch done = new CountDownLatch(4);
+        executor.execute(await(release, done), 1, Priority.NORMAL);
+        executor.execute(await(release, done), 1, Priority.NORMAL);
+
+        // the queue of tenant 1 is full, so that its next task waits to be submitted
+        final CountDownLatch submitted = new CountDownLatch(1);
+        Thread submitter = new Thread() {
+            @Override
+            public void run() {
+                executor.execute(await(new CountDownLatch(0), done), 1, Priority.NORMAL);
+                submitted.countDown();
+            }
+        };
+        submitter.start();
+        Assert.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        // while the other tenants are not held up
+        Assert.assertTrue(executor.tryExecute(await(release, done), 2, Priority.NORMAL));
+        Assert.assertEquals(executor.getQueueSize(1), 2);
+
+        release.countDown();
+        Assert.assertTrue(submitted.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        executor = new BlockingExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable running = await(release, new CountDownLatch(1));
+        executor.execute(running, 1, Priority.NORMAL);
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable queued = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        executor.execute(queued, 1, Priority.NORMAL);
+        Assert.assertFalse(executor.tryExecute(queued, 1, Priority.NORMAL));
+
+        // tasks are cancelled by themselves, not by the wrapper they are queued as, and give back their permit
+        Assert.assertTrue(executor.cancel(queued));
+        Assert.assertFalse(executor.cancel(queued));
+        Assert.assertFalse(executor.cancel(running));
+        Assert.assertEquals(executor.getQueueSize(1), 0);
+        CountDownLatch done = new CountDownLatch(1);
+        Assert.assertTrue(executor.tryExecute(await(new CountDownLatch(0), done), 1, Priority.NORMAL));
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(runs.get(), 0);
+    }
+
+    @Test
+    public void testSchedulerAllocations() {
+        executor = new BlockingExecutor(1, 1);
+        executor.setTenantWeight(1, 3);
+
+        String allocations = executor.getSchedulerAllocations();
+        Assert.assertTrue(allocations.contains("<pool name=\"ml.tenant.-1234\">\n    <schedulingMode>FAIR"
+                + "</schedulingMode>\n    <weight>1</weight>"));
+        Assert.assertTrue(allocations.contains("<pool name=\"ml.tenant.1\">\n    <schedulingMode>FAIR"
+                + "</schedulingMode>\n    <weight>3</weight>"));
+    }
+
+    @Test
+    public void testTryExecute() throws InterruptedException {
+        executor = new BlockingExecutor(1, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        Assert.assertTrue(executor.tryExecute(await(release, done), 1, Priority.NORMAL));
+        // the tenant has no room left, the others have
+        Assert.assertFalse(executor.tryExecute(await(release, done), 1, Priority.NORMAL));
+        Assert.assertTrue(executor.tryExecute(await(release, done), 2, Priority.NORMAL));
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTenantRunningCap() throws InterruptedException {
+        executor = new BlockingExecutor(4, 10, 1, 0);
+        executor.setTenantWeight(2, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch done = new CountDownLatch(6);
+        for (int i = 0; i < 3; i++) {
+            executor.execute(await(started, release, done), 1, Priority.NORMAL);
+        }
+        for (int i = 0; i < 3; i++) {
+            executor.execute(await(started, release, done), 2, Priority.NORMAL);
+        }
+
+        // a burst of one tenant leaves free threads for the others, tenants running as many tasks as their weight
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        sleep(200);
+        Assert.assertEquals(executor.getActiveCount(), 3);
+        Assert.assertEquals(executor.getQueueSize(1), 2);
+        Assert.assertEquals(executor.getQueueSize(2), 1);
+        CountDownLatch other = new CountDownLatch(1);
+        executor.execute(await(new CountDownLatch(0), other), 3, Priority.NORMAL);
+        Assert.assertTrue(other.await(TIMEOUT, TimeUnit.SECONDS));
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(executor.getQueueSize(), 0);
+    }
+
+    @Test
+    public void testHighPriorityThreads() throws InterruptedException {
+        executor = new BlockingExecutor(2, 10, 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        executor.execute(await(started, release, done), 1, Priority.NORMAL);
+        executor.execute(await(started, release, done), 2, Priority.NORMAL);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        // builds of any tenant leave the reserved thread to the short tasks users wait on
+        Assert.assertEquals(executor.getQueueSize(), 1);
+        CountDownLatch summary = new CountDownLatch(1);
+        executor.execute(await(new CountDownLatch(0), summary), 1, Priority.HIGH);
+        Assert.assertTrue(summary.await(TIMEOUT, TimeUnit.SECONDS));
+
+        release.countDown();
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRunAll() throws InterruptedException {
+        executor = new BlockingExecutor(2, 1, 2, 0);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < 6; i++) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    sleep(50);
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        }
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        // a task of the pool fans out without waiting on the pool, nor exceeding its size
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.runAll(tasks, 1, 4);
+                } catch (Throwable e) {
+                    failure.set(e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }, 1, Priority.NORMAL);
+
+        Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(completed.get(), 6);
+        Assert.assertEquals(maxRunning.get(), 2);
+        Assert.assertEquals(executor.getQueueSize(1), 0);
+    }
+
+    @Test
+    public void testRunAllFailure() throws InterruptedException {
+        executor = new BlockingExecutor(2, 0);
+        final AtomicInteger completed = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < 4; i++) {
+            final boolean fail = i == 1;
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    if (fail) {
+                        throw new IllegalStateException("failed");
+                    }
+                    completed.incrementAndGet();
+                }
+            });
+        }
+
+        try {
+            executor.runAll(tasks, 1, 2);
+            Assert.fail("The failure of a task should be rethrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "failed");
+        }
+        // the other tasks still ran
+        Assert.assertEquals(completed.get(), 3);
+    }
+
+    /**
+     * Occupy the thread of the pool, with a task of tenant 0, until the returned latch is counted down.
+     */
+    private CountDownLatch block() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(await(started, release, new CountDownLatch(1)), 0, Priority.NORMAL);
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static Runnable record(final String name, final List<String> order, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+    private static Runnable await(final CountDownLatch release, final CountDownLatch done) {
+        return await(new CountDownLatch(0), release, done);
+    }
+
+    private static Runnable await(final CountDownLatch started, final CountDownLatch release,
+            final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.spark.mllib.linalg.Vectors;
+import org.apache.spark.mllib.regression.LabeledPoint;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.core.impl.H2OServer;
+
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+/**
+ * Compares the frames written chunk by chunk with those of the former construction, setting each value of zero vecs.
+ */
+public class DeeplearningModelUtilsTest {
+
+    private static final String[] NAMES = { "x", "y", "label" };
+
+    @BeforeClass
+    public void startH2O() {
+        if (!H2OServer.hasH2OServerStarted()) {
+            H2OServer.startH2O("54331");
+        }
+    }
+
+    @Test
+    public void testListToFrame() {
+        List<double[]> rows = new ArrayList<double[]>();
+        Random random = new Random(3);
+        for (int i = 0; i < 250; i++) {
+            rows.add(new double[] { random.nextGaussian(), i, random.nextInt(2) });
+        }
+
+        // chunks of 100 rows, the last one partly filled
+        Frame frame = DeeplearningModelUtils.toFrame(NAMES, rows.iterator(), 100);
+        Frame expected = legacyFrame(rows);
+        try {
+            Assert.assertEquals(frame.vec(0).nChunks(), 3);
+            assertFrameEquals(frame, expected);
+        } finally {
+            frame.delete();
+            expected.delete();
+        }
+    }
+
+    @Test
+    public void testLabeledPointsToFrame() {
+        List<LabeledPoint> points = new ArrayList<LabeledPoint>();
+        List<double[]> rows = new ArrayList<double[]>();
+        for (int i = 0; i < 120; i++) {
+            double label = i % 3 + 0.5;
+            points.add(new LabeledPoint(label, Vectors.dense(i * 0.5, -i)));
+            // the former construction set the label as an integer
+            rows.add(new double[] { i * 0.5, -i, (int) label });
+        }
+
+        Frame frame = DeeplearningModelUtils.toFrame(NAMES,
+                DeeplearningModelUtils.labeledPointRows(points.iterator()), 50);
+        Frame expected = legacyFrame(rows);
+        try {
+            assertFrameEquals(frame, expected);
+        } finally {
+            frame.delete();
+            expected.delete();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRowLength() {
+        List<double[]> rows = Arrays.asList(new double[] { 1, 2, 0 }, new double[] { 1, 2 });
+        DeeplearningModelUtils.toFrame(NAMES, rows.iterator(), 100);
+    }
+
+    private static void assertFrameEquals(Frame actual, Frame expected) {
+        Assert.assertEquals(actual.names(), expected.names());
+        Assert.assertEquals(actual.numRows(), expected.numRows());
+        for (int column = 0; column < expected.numCols(); column++) {
+            Vec actualVec = actual.vec(column);
+            Vec expectedVec = expected.vec(column);
+            for (long row = 0; row < expected.numRows(); row++) {
+                Assert.assertEquals(actualVec.at(row), expectedVec.at(row), 0.0, "row " + row + ", column " + column);
+            }
+        }
+    }
+
+    private static Frame legacyFrame(List<double[]> rows) {
+        Vec[] vecs = new Vec[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            Vec vec = Vec.makeZero(rows.size());
+            for (int j = 0; j < rows.size(); j++) {
+                vec.set(j, rows.get(j)[i]);
+            }
+            vecs[i] = vec;
+        }
+        return new Frame(NAMES, vecs);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link LineTokenizer} with the regular expression returned by {@link MLUtils#getPatternFromDelimiter}
+ * on CSV lines, splitting every column and projecting a few of them. Run with
+ * {@code java -cp <test classpath> org.wso2.carbon.ml.core.utils.LineTokenizerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LineTokenizerBenchmark {
+
+    private static final int LINES = 1024;
+
+    @Param({ "10", "100" })
+    private int columns;
+
+    private String[] lines;
+    private Pattern pattern;
+    private LineTokenizer tokenizer;
+    private LineTokenizer projectingTokenizer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < columns; j++) {
+                if (j > 0) {
+                    line.append(',');
+                }
+                if (j % 10 == 9) {
+                    line.append("\"category ").append(random.nextInt(10)).append(", quoted\"");
+                } else {
+                    line.append(random.nextDouble());
+                }
+            }
+            lines[i] = line.toString();
+        }
+        pattern = MLUtils.getPatternFromDelimiter(",");
+        tokenizer = LineTokenizer.forSeparator(",");
+        projectingTokenizer = LineTokenizer.forSeparator(",", new int[] { 0, 2, 4 });
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(pattern.split(line));
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(tokenizer.tokenize(line));
+        }
+    }
+
+    @Benchmark
+    public void projectingTokenizer(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(projectingTokenizer.tokenize(line));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LineTokenizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
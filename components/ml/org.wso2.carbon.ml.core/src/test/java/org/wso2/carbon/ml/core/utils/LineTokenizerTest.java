@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.core.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LineTokenizerTest {
+
+    @Test
+    public void testTokenize() {
+        LineTokenizer tokenizer = new LineTokenizer(',');
+        Assert.assertEquals(tokenizer.tokenize("1.2,abc,,3"), new String[] { "1.2", "abc", "", "3" });
+        Assert.assertEquals(tokenizer.tokenize("1,2,,"), new String[] { "1", "2", "", "" });
+        Assert.assertEquals(tokenizer.tokenize(""), new String[] { "" });
+        Assert.assertEquals(new LineTokenizer('\t').tokenize("a\tb,c"), new String[] { "a", "b,c" });
+    }
+
+    @Test
+    public void testQuotedFields() {
+        LineTokenizer tokenizer = new LineTokenizer(',');
+        Assert.assertEquals(tokenizer.tokenize("\"a,b\",2"), new String[] { "a,b", "2" });
+        Assert.assertEquals(tokenizer.tokenize("1,\"say \"\"hi\"\"\",3"), new String[] { "1", "say \"hi\"", "3" });
+        Assert.assertEquals(tokenizer.tokenize("\"\",x"), new String[] { "", "x" });
+        Assert.assertEquals(tokenizer.tokenize("in\"side,\"open"), new String[] { "in\"side", "open" });
+    }
+
+    @Test
+    public void testProjection() {
+        LineTokenizer tokenizer = new LineTokenizer(',', new int[] { 3, 1 });
+        Assert.assertEquals(tokenizer.tokenize("a,\"b,c\",d,e,f,g"), new String[] { null, "b,c", null, "e" });
+        Assert.assertEquals(tokenizer.tokenize("a,b"), new String[] { null, "b" });
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSeparator() {
+        LineTokenizer.forSeparator(", ");
+    }
+}
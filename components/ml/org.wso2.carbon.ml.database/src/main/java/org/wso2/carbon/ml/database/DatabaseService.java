@@ -412,6 +412,24 @@ public interface DatabaseService {
      */
     public MLStorage getModelStorage(long modelId) throws DatabaseHandlerException;
 
+    /**
+     * Get the version of the persisted model, advanced whenever the model is rewritten in place, e.g. when ratings are
+     * folded into a recommendation model
+     * @param modelId unique id of the model
+     * @return version of the model, -1 if the model is unknown
+     * @throws DatabaseHandlerException
+     */
+    public long getModelVersion(long modelId) throws DatabaseHandlerException;
+
+    /**
+     * Advance the version of the persisted model by one, if it is still at the given version
+     * @param modelId unique id of the model
+     * @param version version the model was read at
+     * @return whether the version was advanced, false if another node rewrote the model since it was read
+     * @throws DatabaseHandlerException
+     */
+    public boolean advanceModelVersion(long modelId, long version) throws DatabaseHandlerException;
+
     /**
      * Get the project having the given project name
      * @param tenantId    tenant id
@@ -658,6 +676,114 @@ public interface DatabaseService {
      */
     void updateModelError(long modelId, String error) throws DatabaseHandlerException;
 
+    /**
+     * Update the progress of a model build
+     * @param modelId Unique id of the model
+     * @param progress {@link org.wso2.carbon.ml.commons.domain.MLModelBuildProgress} object
+     * @throws DatabaseHandlerException
+     */
+    void updateModelProgress(long modelId, MLModelBuildProgress progress) throws DatabaseHandlerException;
+
+    /**
+     * Retrieve the progress of a model build
+     * @param modelId Unique id of the model
+     * @return {@link org.wso2.carbon.ml.commons.domain.MLModelBuildProgress} object, or null if the build has not
+     *         started
+     * @throws DatabaseHandlerException
+     */
+    MLModelBuildProgress getModelProgress(long modelId) throws DatabaseHandlerException;
+
+    /**
+     * Persist a model build request in the build queue, replacing any earlier build request of the model
+     * @param build {@link org.wso2.carbon.ml.commons.domain.MLModelBuildRequest} object
+     * @param leaseExpiryTime time in milliseconds until which the owner of the build holds its lease
+     * @throws DatabaseHandlerException
+     */
+    void insertModelBuild(MLModelBuildRequest build, long leaseExpiryTime) throws DatabaseHandlerException;
+
+    /**
+     * Update the state of a pending model build in the build queue, if the given node still owns it
+     * @param modelId Unique id of the model
+     * @param owner id of the node running the build
+     * @param state Running or the final status of the model
+     * @return whether the state was updated, false if the build has ended or another node has claimed it
+     * @throws DatabaseHandlerException
+     */
+    boolean updateModelBuildState(long modelId, String owner, String state) throws DatabaseHandlerException;
+
+    /**
+     * Check whether a node holds an unexpired lease on a pending model build
+     * @param modelId Unique id of the model
+     * @param owner id of the node
+     * @return whether the node owns the build
+     * @throws DatabaseHandlerException
+     */
+    boolean isModelBuildOwner(long modelId, String owner) throws DatabaseHandlerException;
+
+    /**
+     * Update the status of a model, if the given node owns its pending build
+     * @param modelId Unique id of the model
+     * @param status Status of the model
+     * @param buildOwner id of the node running the build of the model
+     * @return whether the status was updated, false if the build has ended or another node has claimed it
+     * @throws DatabaseHandlerException
+     */
+    boolean updateModelStatus(long modelId, String status, String buildOwner) throws DatabaseHandlerException;
+
+    /**
+     * Update the storage details of a model and mark it as complete, if the given node owns its pending build
+     * @param modelId Unique id of the model
+     * @param storageType Storage type
+     * @param location Storage location
+     * @param buildOwner id of the node running the build of the model
+     * @return whether the storage was updated, false if the build has ended or another node has claimed it
+     * @throws DatabaseHandlerException
+     */
+    boolean updateModelStorage(long modelId, String storageType, String location, String buildOwner)
+            throws DatabaseHandlerException;
+
+    /**
+     * Request the cancellation of a pending model build, which its owner acts on when it next renews its leases
+     * @param modelId Unique id of the model
+     * @return whether a pending build of the model was found whose cancellation had not been requested yet
+     * @throws DatabaseHandlerException
+     */
+    boolean requestModelBuildCancel(long modelId) throws DatabaseHandlerException;
+
+    /**
+     * Retrieve the pending model builds of a node whose cancellation has been requested
+     * @param owner id of the node
+     * @return List of model ids
+     * @throws DatabaseHandlerException
+     */
+    List<Long> getCancelRequestedModelBuilds(String owner) throws DatabaseHandlerException;
+
+    /**
+     * Claim a pending model build, queuing it again on the given node
+     * @param modelId Unique id of the model
+     * @param owner id of the node claiming the build
+     * @param leaseExpiryTime time in milliseconds until which the owner holds the lease on the build
+     * @return whether the build was claimed, false if it has ended or another node holds an unexpired lease on it
+     * @throws DatabaseHandlerException
+     */
+    boolean claimModelBuild(long modelId, String owner, long leaseExpiryTime) throws DatabaseHandlerException;
+
+    /**
+     * Renew the leases on the pending model builds of a node
+     * @param owner id of the node
+     * @param leaseExpiryTime time in milliseconds until which the owner holds the leases
+     * @throws DatabaseHandlerException
+     */
+    void renewModelBuildLeases(String owner, long leaseExpiryTime) throws DatabaseHandlerException;
+
+    /**
+     * Retrieve the pending model builds a node can claim: its own, and those whose lease has expired
+     * @param owner id of the node
+     * @return List of {@link org.wso2.carbon.ml.commons.domain.MLModelBuildRequest} objects, oldest first
+     * @throws DatabaseHandlerException
+     */
+    List<MLModelBuildRequest> getClaimableModelBuilds(String owner) throws DatabaseHandlerException;
+
     /**
      * Get feature names of a dataset ordered by feature index
      * @param datasetId Unique id of dataset
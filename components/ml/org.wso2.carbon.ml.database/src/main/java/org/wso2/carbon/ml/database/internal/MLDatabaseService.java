@@ -17,6 +17,7 @@
  */
 package org.wso2.carbon.ml.database.internal;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,10 +35,12 @@ import org.wso2.carbon.ml.database.internal.constants.SQLQueries;
 import org.wso2.carbon.ml.database.internal.ds.LocalDatabaseCreator;
 import org.wso2.carbon.ml.database.util.MLDBUtil;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -85,6 +88,13 @@ public class MLDatabaseService implements DatabaseService {
 
     }
     
+    /**
+     * Database service over a given data source, without the configuration of the server
+     */
+    MLDatabaseService(DataSource dataSource) {
+        dbh = new MLDataSource(dataSource);
+    }
+
     public MLConfiguration getMlConfiguration() {
         return mlConfig != null ? mlConfig : new MLConfiguration();
     }
@@ -845,6 +855,485 @@ public class MLDatabaseService implements DatabaseService {
         }
     }
 
+    /**
+     * Update the progress of a model build, adding it if the build has none yet
+     */
+    @Override
+    public void updateModelProgress(long modelId, MLModelBuildProgress progress) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        PreparedStatement insertStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.UPDATE_MODEL_PROGRESS);
+            setModelProgress(updateStatement, modelId, progress);
+            if (updateStatement.executeUpdate() == 0) {
+                insertStatement = connection.prepareStatement(SQLQueries.INSERT_MODEL_PROGRESS);
+                setModelProgress(insertStatement, modelId, progress);
+                insertStatement.execute();
+            }
+            connection.commit();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Successfully updated the progress of model: " + modelId);
+            }
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while updating the progress of model " + modelId
+                    + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(insertStatement);
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    private void setModelProgress(PreparedStatement statement, long modelId, MLModelBuildProgress progress)
+            throws SQLException {
+        StringBuilder stageTimes = new StringBuilder();
+        if (progress.getStageTimes() != null) {
+            for (Map.Entry<String, Long> stageTime : progress.getStageTimes().entrySet()) {
+                if (stageTimes.length() > 0) {
+                    stageTimes.append(',');
+                }
+                stageTimes.append(stageTime.getKey()).append('=').append(stageTime.getValue());
+            }
+        }
+        statement.setString(1, progress.getStage());
+        statement.setInt(2, progress.getPercentage());
+        statement.setLong(3, progress.getRowsProcessed());
+        statement.setString(4, stageTimes.toString());
+        statement.setString(5, progress.getSparkJobIds() == null ? "" : StringUtils.join(progress.getSparkJobIds(),
+                ','));
+        statement.setString(6, progress.getSparkStageIds() == null ? "" : StringUtils.join(
+                progress.getSparkStageIds(), ','));
+        statement.setLong(7, progress.getCachedBytes());
+        statement.setLong(8, progress.getRecomputedPartitions());
+        statement.setLong(9, modelId);
+    }
+
+    /**
+     * Retrieve the progress of a model build
+     */
+    @Override
+    public MLModelBuildProgress getModelProgress(long modelId) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement getStatement = null;
+        ResultSet result = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            getStatement = connection.prepareStatement(SQLQueries.GET_MODEL_PROGRESS);
+            getStatement.setLong(1, modelId);
+            result = getStatement.executeQuery();
+            if (!result.first()) {
+                return null;
+            }
+            MLModelBuildProgress progress = new MLModelBuildProgress();
+            progress.setModelId(modelId);
+            progress.setStage(result.getString(1));
+            progress.setPercentage(result.getInt(2));
+            progress.setRowsProcessed(result.getLong(3));
+            Map<String, Long> stageTimes = new LinkedHashMap<String, Long>();
+            for (String stageTime : StringUtils.split(StringUtils.defaultString(result.getString(4)), ',')) {
+                String[] stageAndTime = stageTime.split("=");
+                stageTimes.put(stageAndTime[0], Long.parseLong(stageAndTime[1]));
+            }
+            progress.setStageTimes(stageTimes);
+            progress.setSparkJobIds(toIds(result.getString(5)));
+            progress.setSparkStageIds(toIds(result.getString(6)));
+            progress.setCachedBytes(result.getLong(7));
+            progress.setRecomputedPartitions(result.getLong(8));
+            progress.setLastUpdatedTime(result.getString(9));
+            return progress;
+        } catch (SQLException e) {
+            throw new DatabaseHandlerException("An error occurred while retrieving the progress of model " + modelId
+                    + ": " + e.getMessage(), e);
+        } finally {
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, getStatement, result);
+        }
+    }
+
+    /**
+     * Persist a model build request in the build queue
+     */
+    @Override
+    public void insertModelBuild(MLModelBuildRequest build, long leaseExpiryTime) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        PreparedStatement insertStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.UPDATE_MODEL_BUILD);
+            setModelBuild(updateStatement, build, leaseExpiryTime);
+            if (updateStatement.executeUpdate() == 0) {
+                insertStatement = connection.prepareStatement(SQLQueries.INSERT_MODEL_BUILD);
+                setModelBuild(insertStatement, build, leaseExpiryTime);
+                insertStatement.execute();
+            }
+            connection.commit();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Successfully queued the build of model: " + build.getModelId());
+            }
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while queuing the build of model "
+                    + build.getModelId() + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(insertStatement);
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    private void setModelBuild(PreparedStatement statement, MLModelBuildRequest build, long leaseExpiryTime)
+            throws SQLException {
+        statement.setInt(1, build.getTenantId());
+        statement.setString(2, build.getUserName());
+        if (build.getSweep() != null) {
+            statement.setObject(3, build.getSweep());
+        } else {
+            statement.setNull(3, Types.BLOB);
+        }
+        if (build.getWarmStartModelId() != null) {
+            statement.setLong(4, build.getWarmStartModelId());
+        } else {
+            statement.setNull(4, Types.BIGINT);
+        }
+        statement.setString(5, build.getState());
+        statement.setString(6, build.getOwner());
+        statement.setTimestamp(7, new Timestamp(leaseExpiryTime));
+        statement.setLong(8, build.getModelId());
+    }
+
+    /**
+     * Update the state of a pending model build in the build queue, fenced by its owner
+     */
+    @Override
+    public boolean updateModelBuildState(long modelId, String owner, String state) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.UPDATE_MODEL_BUILD_STATE);
+            updateStatement.setString(1, state);
+            updateStatement.setLong(2, modelId);
+            updateStatement.setString(3, owner);
+            updateStatement.setString(4, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setString(5, MLConstants.BUILD_STATE_RUNNING);
+            boolean updated = updateStatement.executeUpdate() == 1;
+            connection.commit();
+            if (updated && logger.isDebugEnabled()) {
+                logger.debug("Successfully updated the build state of model: " + modelId + " to " + state);
+            }
+            return updated;
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while updating the build state of model "
+                    + modelId + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    /**
+     * Check whether a node holds an unexpired lease on a pending model build
+     */
+    @Override
+    public boolean isModelBuildOwner(long modelId, String owner) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement getStatement = null;
+        ResultSet result = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            getStatement = connection.prepareStatement(SQLQueries.GET_MODEL_BUILD_OWNER);
+            getStatement.setLong(1, modelId);
+            getStatement.setString(2, owner);
+            getStatement.setString(3, MLConstants.BUILD_STATE_QUEUED);
+            getStatement.setString(4, MLConstants.BUILD_STATE_RUNNING);
+            getStatement.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            result = getStatement.executeQuery();
+            return result.next();
+        } catch (SQLException e) {
+            throw new DatabaseHandlerException("An error occurred while checking the owner of the build of model "
+                    + modelId + ": " + e.getMessage(), e);
+        } finally {
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, getStatement, result);
+        }
+    }
+
+    /**
+     * Update the status of a model, fenced by the owner of its pending build
+     */
+    @Override
+    public boolean updateModelStatus(long modelId, String status, String buildOwner)
+            throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.UPDATE_OWNED_MODEL_STATUS);
+            updateStatement.setString(1, status);
+            updateStatement.setLong(2, modelId);
+            updateStatement.setLong(3, modelId);
+            updateStatement.setString(4, buildOwner);
+            updateStatement.setString(5, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setString(6, MLConstants.BUILD_STATE_RUNNING);
+            boolean updated = updateStatement.executeUpdate() == 1;
+            connection.commit();
+            if (updated && logger.isDebugEnabled()) {
+                logger.debug("Successfully updated the status of model: " + modelId);
+            }
+            return updated;
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while updating the status of model " + modelId
+                    + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    /**
+     * Update the model storage, fenced by the owner of the pending build of the model
+     */
+    @Override
+    public boolean updateModelStorage(long modelId, String storageType, String location, String buildOwner)
+            throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.UPDATE_OWNED_MODEL_STORAGE);
+            updateStatement.setObject(1, storageType);
+            updateStatement.setObject(2, location);
+            updateStatement.setString(3, MLConstants.MODEL_STATUS_COMPLETE);
+            updateStatement.setLong(4, modelId);
+            updateStatement.setLong(5, modelId);
+            updateStatement.setString(6, buildOwner);
+            updateStatement.setString(7, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setString(8, MLConstants.BUILD_STATE_RUNNING);
+            boolean updated = updateStatement.executeUpdate() == 1;
+            connection.commit();
+            if (updated && logger.isDebugEnabled()) {
+                logger.debug("Successfully updated the model storage of model: " + modelId);
+            }
+            return updated;
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while updating the model storage of model "
+                    + modelId + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    /**
+     * Request the cancellation of a pending model build
+     */
+    @Override
+    public boolean requestModelBuildCancel(long modelId) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.REQUEST_MODEL_BUILD_CANCEL);
+            updateStatement.setLong(1, modelId);
+            updateStatement.setString(2, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setString(3, MLConstants.BUILD_STATE_RUNNING);
+            boolean requested = updateStatement.executeUpdate() == 1;
+            connection.commit();
+            if (requested && logger.isDebugEnabled()) {
+                logger.debug("Successfully requested the cancellation of the build of model: " + modelId);
+            }
+            return requested;
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while requesting the cancellation of the build "
+                    + "of model " + modelId + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    /**
+     * Retrieve the pending model builds of a node whose cancellation has been requested
+     */
+    @Override
+    public List<Long> getCancelRequestedModelBuilds(String owner) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement getStatement = null;
+        ResultSet result = null;
+        List<Long> modelIds = new ArrayList<Long>();
+        try {
+            connection = dbh.getDataSource().getConnection();
+            getStatement = connection.prepareStatement(SQLQueries.GET_CANCEL_REQUESTED_MODEL_BUILDS);
+            getStatement.setString(1, owner);
+            getStatement.setString(2, MLConstants.BUILD_STATE_QUEUED);
+            getStatement.setString(3, MLConstants.BUILD_STATE_RUNNING);
+            result = getStatement.executeQuery();
+            while (result.next()) {
+                modelIds.add(result.getLong(1));
+            }
+            return modelIds;
+        } catch (SQLException e) {
+            throw new DatabaseHandlerException("An error occurred while retrieving the cancelled model builds of "
+                    + owner + ": " + e.getMessage(), e);
+        } finally {
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, getStatement, result);
+        }
+    }
+
+    /**
+     * Claim a pending model build. The conditional update locks the row, so that only one node claims it.
+     */
+    @Override
+    public boolean claimModelBuild(long modelId, String owner, long leaseExpiryTime)
+            throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.CLAIM_MODEL_BUILD);
+            updateStatement.setString(1, owner);
+            updateStatement.setTimestamp(2, new Timestamp(leaseExpiryTime));
+            updateStatement.setString(3, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setLong(4, modelId);
+            updateStatement.setString(5, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setString(6, MLConstants.BUILD_STATE_RUNNING);
+            updateStatement.setString(7, owner);
+            updateStatement.setTimestamp(8, new Timestamp(System.currentTimeMillis()));
+            boolean claimed = updateStatement.executeUpdate() == 1;
+            connection.commit();
+            if (claimed && logger.isDebugEnabled()) {
+                logger.debug("Successfully claimed the build of model: " + modelId + " for " + owner);
+            }
+            return claimed;
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while claiming the build of model " + modelId
+                    + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    /**
+     * Renew the leases on the pending model builds of a node
+     */
+    @Override
+    public void renewModelBuildLeases(String owner, long leaseExpiryTime) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.RENEW_MODEL_BUILD_LEASES);
+            updateStatement.setTimestamp(1, new Timestamp(leaseExpiryTime));
+            updateStatement.setString(2, owner);
+            updateStatement.setString(3, MLConstants.BUILD_STATE_QUEUED);
+            updateStatement.setString(4, MLConstants.BUILD_STATE_RUNNING);
+            updateStatement.execute();
+            connection.commit();
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while renewing the build leases of " + owner + ": "
+                    + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
+    /**
+     * Retrieve the pending model builds a node can claim
+     */
+    @Override
+    public List<MLModelBuildRequest> getClaimableModelBuilds(String owner) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement getStatement = null;
+        ResultSet result = null;
+        List<MLModelBuildRequest> builds = new ArrayList<MLModelBuildRequest>();
+        try {
+            connection = dbh.getDataSource().getConnection();
+            getStatement = connection.prepareStatement(SQLQueries.GET_CLAIMABLE_MODEL_BUILDS);
+            getStatement.setString(1, MLConstants.BUILD_STATE_QUEUED);
+            getStatement.setString(2, MLConstants.BUILD_STATE_RUNNING);
+            getStatement.setString(3, owner);
+            getStatement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            result = getStatement.executeQuery();
+            while (result.next()) {
+                MLModelBuildRequest build = new MLModelBuildRequest();
+                build.setModelId(result.getLong(1));
+                build.setTenantId(result.getInt(2));
+                build.setUserName(result.getString(3));
+                if (result.getBinaryStream(4) != null) {
+                    build.setSweep(MLDBUtil.getHyperParameterSweepFromInputStream(result.getBinaryStream(4)));
+                }
+                build.setState(result.getString(5));
+                build.setOwner(result.getString(6));
+                long warmStartModelId = result.getLong(7);
+                if (!result.wasNull()) {
+                    build.setWarmStartModelId(warmStartModelId);
+                }
+                build.setCancelRequested(result.getBoolean(8));
+                builds.add(build);
+            }
+            return builds;
+        } catch (Exception e) {
+            throw new DatabaseHandlerException("An error occurred while retrieving the pending model builds: "
+                    + e.getMessage(), e);
+        } finally {
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, getStatement, result);
+        }
+    }
+
+    private List<Integer> toIds(String ids) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (String id : StringUtils.split(StringUtils.defaultString(ids), ',')) {
+            list.add(Integer.parseInt(id));
+        }
+        return list;
+    }
+
     /**
      * Returns data points of the selected sample as coordinates of three features, needed for the scatter plot.
      *
@@ -1963,6 +2452,56 @@ public class MLDatabaseService implements DatabaseService {
         }
     }
 
+    @Override
+    public long getModelVersion(long modelId) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet result = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            statement = connection.prepareStatement(SQLQueries.GET_MODEL_VERSION);
+            statement.setLong(1, modelId);
+            result = statement.executeQuery();
+            return result.next() ? result.getLong(1) : -1;
+        } catch (SQLException e) {
+            throw new DatabaseHandlerException("An error occurred while extracting the version of model " + modelId
+                    + ": " + e.getMessage(), e);
+        } finally {
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, statement, result);
+        }
+    }
+
+    /**
+     * Advance the version of a model, compared and set in one statement so that one of two nodes rewriting the model
+     * at once fails
+     */
+    @Override
+    public boolean advanceModelVersion(long modelId, long version) throws DatabaseHandlerException {
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        try {
+            connection = dbh.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            updateStatement = connection.prepareStatement(SQLQueries.ADVANCE_MODEL_VERSION);
+            updateStatement.setLong(1, modelId);
+            updateStatement.setLong(2, version);
+            boolean updated = updateStatement.executeUpdate() == 1;
+            connection.commit();
+            return updated;
+        } catch (SQLException e) {
+            // Roll-back the changes.
+            MLDatabaseUtils.rollBack(connection);
+            throw new DatabaseHandlerException("An error occurred while advancing the version of model " + modelId
+                    + ": " + e.getMessage(), e);
+        } finally {
+            // Enable auto commit.
+            MLDatabaseUtils.enableAutoCommit(connection);
+            // Close the database resources.
+            MLDatabaseUtils.closeDatabaseResources(connection, updateStatement);
+        }
+    }
+
     @Override
     public boolean isValidModelId(int tenantId, String userName, long modelId) throws DatabaseHandlerException {
 
@@ -2462,6 +3001,16 @@ public class MLDatabaseService implements DatabaseService {
             mlWorkflow.setRatingVariable(getAStringModelConfiguration(analysisId, MLConstants.RATING_VARIABLE));
             mlWorkflow.setObservations(getAStringModelConfiguration(analysisId, MLConstants.OBSERVATIONS));
             mlWorkflow.setTrainDataFraction(Double.valueOf(getAStringModelConfiguration(analysisId, MLConstants.TRAIN_DATA_FRACTION)));
+            String crossValidationFolds = getAStringModelConfiguration(analysisId,
+                    MLConstants.CROSS_VALIDATION_FOLDS);
+            if (crossValidationFolds != null && !crossValidationFolds.trim().isEmpty()) {
+                try {
+                    mlWorkflow.setCrossValidationFolds(Integer.parseInt(crossValidationFolds.trim()));
+                } catch (NumberFormatException e) {
+                    throw new DatabaseHandlerException("Invalid number of cross-validation folds of analysis [id] "
+                            + analysisId + ": " + crossValidationFolds, e);
+                }
+            }
             mlWorkflow.setNormalLabels(getAStringModelConfiguration(analysisId, MLConstants.NORMAL_LABELS));
             mlWorkflow.setNormalization(getABooleanModelConfiguration(analysisId, MLConstants.NORMALIZATION));
             mlWorkflow.setNewNormalLabel(getAStringModelConfiguration(analysisId, MLConstants.NEW_NORMAL_LABEL));
@@ -133,6 +133,60 @@ public class SQLQueries {
     
     public static final String UPDATE_MODEL_ERROR = "UPDATE ML_MODEL SET ERROR=? WHERE MODEL_ID=?";
 
+    public static final String UPDATE_MODEL_PROGRESS = "UPDATE ML_MODEL_PROGRESS SET STAGE=?, PERCENTAGE=?, "
+            + "ROWS_PROCESSED=?, STAGE_TIMES=?, SPARK_JOB_IDS=?, SPARK_STAGE_IDS=?, CACHED_BYTES=?, "
+            + "RECOMPUTED_PARTITIONS=?, LAST_UPDATED_TIME=CURRENT_TIMESTAMP() WHERE MODEL_ID=?";
+
+    public static final String INSERT_MODEL_PROGRESS = "INSERT INTO ML_MODEL_PROGRESS(STAGE, PERCENTAGE, "
+            + "ROWS_PROCESSED, STAGE_TIMES, SPARK_JOB_IDS, SPARK_STAGE_IDS, CACHED_BYTES, RECOMPUTED_PARTITIONS, "
+            + "LAST_UPDATED_TIME, MODEL_ID) VALUES(?,?,?,?,?,?,?,?, CURRENT_TIMESTAMP(),?)";
+
+    public static final String GET_MODEL_PROGRESS = "SELECT STAGE, PERCENTAGE, ROWS_PROCESSED, STAGE_TIMES, "
+            + "SPARK_JOB_IDS, SPARK_STAGE_IDS, CACHED_BYTES, RECOMPUTED_PARTITIONS, LAST_UPDATED_TIME "
+            + "FROM ML_MODEL_PROGRESS WHERE MODEL_ID=?";
+
+    public static final String UPDATE_MODEL_BUILD = "UPDATE ML_MODEL_BUILD SET TENANT_ID=?, USERNAME=?, SWEEP=?, "
+            + "WARM_START_MODEL_ID=?, STATE=?, OWNER=?, LEASE_EXPIRY=?, CANCEL_REQUESTED=FALSE, "
+            + "LAST_UPDATED_TIME=CURRENT_TIMESTAMP() WHERE MODEL_ID=?";
+
+    public static final String INSERT_MODEL_BUILD = "INSERT INTO ML_MODEL_BUILD(TENANT_ID, USERNAME, SWEEP, "
+            + "WARM_START_MODEL_ID, STATE, OWNER, LEASE_EXPIRY, CANCEL_REQUESTED, LAST_UPDATED_TIME, MODEL_ID) "
+            + "VALUES(?,?,?,?,?,?,?, FALSE, CURRENT_TIMESTAMP(),?)";
+
+    // only the owner of a pending build moves it on, so that a node which lost its lease cannot end a claimed build
+    public static final String UPDATE_MODEL_BUILD_STATE = "UPDATE ML_MODEL_BUILD SET STATE=?, "
+            + "LAST_UPDATED_TIME=CURRENT_TIMESTAMP() WHERE MODEL_ID=? AND OWNER=? AND STATE IN (?,?)";
+
+    // a pending build can be claimed by the node holding its lease, e.g. after a restart, or once the lease expired
+    public static final String CLAIM_MODEL_BUILD = "UPDATE ML_MODEL_BUILD SET OWNER=?, LEASE_EXPIRY=?, STATE=?, "
+            + "LAST_UPDATED_TIME=CURRENT_TIMESTAMP() WHERE MODEL_ID=? AND STATE IN (?,?) "
+            + "AND (OWNER=? OR LEASE_EXPIRY IS NULL OR LEASE_EXPIRY < ?)";
+
+    public static final String RENEW_MODEL_BUILD_LEASES = "UPDATE ML_MODEL_BUILD SET LEASE_EXPIRY=? WHERE OWNER=? "
+            + "AND STATE IN (?,?)";
+
+    public static final String GET_CLAIMABLE_MODEL_BUILDS = "SELECT MODEL_ID, TENANT_ID, USERNAME, SWEEP, STATE, "
+            + "OWNER, WARM_START_MODEL_ID, CANCEL_REQUESTED FROM ML_MODEL_BUILD WHERE STATE IN (?,?) "
+            + "AND (OWNER=? OR LEASE_EXPIRY IS NULL OR LEASE_EXPIRY < ?) ORDER BY LAST_UPDATED_TIME";
+
+    public static final String GET_MODEL_BUILD_OWNER = "SELECT MODEL_ID FROM ML_MODEL_BUILD WHERE MODEL_ID=? "
+            + "AND OWNER=? AND STATE IN (?,?) AND LEASE_EXPIRY >= ?";
+
+    public static final String REQUEST_MODEL_BUILD_CANCEL = "UPDATE ML_MODEL_BUILD SET CANCEL_REQUESTED=TRUE, "
+            + "LAST_UPDATED_TIME=CURRENT_TIMESTAMP() WHERE MODEL_ID=? AND STATE IN (?,?) "
+            + "AND (CANCEL_REQUESTED IS NULL OR CANCEL_REQUESTED=FALSE)";
+
+    public static final String GET_CANCEL_REQUESTED_MODEL_BUILDS = "SELECT MODEL_ID FROM ML_MODEL_BUILD "
+            + "WHERE OWNER=? AND CANCEL_REQUESTED=TRUE AND STATE IN (?,?)";
+
+    // the status and storage of a model being built are written by the owner of its pending build only
+    public static final String UPDATE_OWNED_MODEL_STATUS = "UPDATE ML_MODEL SET STATUS=? WHERE MODEL_ID=? "
+            + "AND EXISTS (SELECT MODEL_ID FROM ML_MODEL_BUILD WHERE MODEL_ID=? AND OWNER=? AND STATE IN (?,?))";
+
+    public static final String UPDATE_OWNED_MODEL_STORAGE = "UPDATE ML_MODEL SET STORAGE_TYPE=?, STORAGE_LOCATION=?, "
+            + "STATUS=? WHERE MODEL_ID=? "
+            + "AND EXISTS (SELECT MODEL_ID FROM ML_MODEL_BUILD WHERE MODEL_ID=? AND OWNER=? AND STATE IN (?,?))";
+
     public static final String INSERT_MODEL_CONFIGURATION = "INSERT INTO ML_MODEL_CONFIGURATION(ANALYSIS_ID, `KEY`, VALUE) VALUES(?,?,?)";
 
     public static final String UPDATE_MODEL_CONFIGURATION = "UPDATE ML_MODEL_CONFIGURATION SET VALUE=? WHERE ANALYSIS_ID=? AND `KEY`=?";
@@ -231,6 +285,11 @@ public class SQLQueries {
 
     public static final String GET_MODEL_STORAGE = "SELECT STORAGE_TYPE, STORAGE_LOCATION FROM ML_MODEL WHERE MODEL_ID=?";
 
+    public static final String GET_MODEL_VERSION = "SELECT MODEL_VERSION FROM ML_MODEL WHERE MODEL_ID=?";
+
+    public static final String ADVANCE_MODEL_VERSION = "UPDATE ML_MODEL SET MODEL_VERSION=MODEL_VERSION+1 "
+            + "WHERE MODEL_ID=? AND MODEL_VERSION=?";
+
     public static final String DELETE_DATASET_SCHEMA = "DELETE FROM ML_DATASET_SCHEMA WHERE DATASET_SCHEMA_ID=?";
 
     public static final String DELETE_DATASET_VERSION = "DELETE FROM ML_DATASET_VERSION WHERE DATASET_VERSION_ID=?";
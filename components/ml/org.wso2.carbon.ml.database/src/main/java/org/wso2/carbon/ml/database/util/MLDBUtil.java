@@ -20,6 +20,7 @@ package org.wso2.carbon.ml.database.util;
 
 import org.wso2.carbon.ml.commons.constants.MLConstants;
 import org.wso2.carbon.ml.commons.domain.MLDatasetVersion;
+import org.wso2.carbon.ml.commons.domain.MLHyperParameterSweep;
 import org.wso2.carbon.ml.commons.domain.ModelSummary;
 import org.wso2.carbon.ml.commons.domain.SamplePoints;
 
@@ -59,6 +60,21 @@ public class MLDBUtil {
         return modelSummary;
     }
 
+    /**
+     * Deserialize MLHyperParameterSweep from InputStream
+     * @param data Data input stream
+     * @return {@link org.wso2.carbon.ml.commons.domain.MLHyperParameterSweep} object
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static MLHyperParameterSweep getHyperParameterSweepFromInputStream(InputStream data) throws IOException,
+            ClassNotFoundException {
+        ObjectInputStream is = new ObjectInputStream(data);
+        MLHyperParameterSweep sweep = (MLHyperParameterSweep) is.readObject();
+        is.close();
+        return sweep;
+    }
+
     /**
      * Return dataset status by iterating through all the given versions
      * @param datasetVersions List of dataset versions
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.ml.database.internal;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.commons.domain.MLModelBuildProgress;
+import org.wso2.carbon.ml.commons.domain.MLModelBuildRequest;
+import org.wso2.carbon.ml.database.exceptions.DatabaseHandlerException;
+
+/**
+ * Runs the build queue and model version queries against the H2 script of the database feature.
+ */
+public class MLDatabaseServiceBuildQueueTest {
+
+    private static final String H2_SCRIPT = "../../../features/ml/org.wso2.carbon.ml.database.feature/src/main/"
+            + "resources/dbscripts/h2.sql";
+    private static final long LEASE = 60000;
+
+    private JdbcDataSource dataSource;
+    private MLDatabaseService databaseService;
+
+    @BeforeClass
+    public void createDatabase() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:ml-build-queue;DB_CLOSE_DELAY=-1");
+        execute("RUNSCRIPT FROM '" + new File(H2_SCRIPT).getAbsolutePath() + "'");
+        // the models are inserted without their analyses and datasets
+        execute("SET REFERENTIAL_INTEGRITY FALSE");
+        databaseService = new MLDatabaseService(dataSource);
+    }
+
+    @BeforeMethod
+    public void clear() throws SQLException {
+        execute("DELETE FROM ML_MODEL_BUILD");
+        execute("DELETE FROM ML_MODEL_PROGRESS");
+        execute("DELETE FROM ML_MODEL");
+        for (long modelId = 1; modelId <= 3; modelId++) {
+            execute("INSERT INTO ML_MODEL(MODEL_ID, NAME, STATUS) VALUES(" + modelId + ", 'model" + modelId + "', '"
+                    + MLConstants.MODEL_STATUS_IN_PROGRESS + "')");
+        }
+    }
+
+    @Test
+    public void testClaim() throws DatabaseHandlerException {
+        long now = System.currentTimeMillis();
+        databaseService.insertModelBuild(build(1, "a"), now + LEASE);
+        databaseService.insertModelBuild(build(2, "a"), now - 1);
+
+        // a live lease is only claimed by its owner, e.g. after a restart, an expired one by any node
+        Assert.assertFalse(databaseService.claimModelBuild(1, "b", now + LEASE));
+        Assert.assertTrue(databaseService.claimModelBuild(1, "a", now + LEASE));
+        Assert.assertTrue(databaseService.claimModelBuild(2, "b", now + LEASE));
+        Assert.assertFalse(databaseService.claimModelBuild(2, "a", now + LEASE));
+
+        // an ended build is not claimed again
+        Assert.assertTrue(databaseService.updateModelBuildState(2, "b", MLConstants.MODEL_STATUS_COMPLETE));
+        Assert.assertFalse(databaseService.claimModelBuild(2, "b", now + LEASE));
+    }
+
+    @Test
+    public void testRenew() throws DatabaseHandlerException {
+        long now = System.currentTimeMillis();
+        databaseService.insertModelBuild(build(1, "a"), now - 1);
+        databaseService.insertModelBuild(build(2, "a"), now - 1);
+        databaseService.insertModelBuild(build(3, "b"), now - 1);
+        Assert.assertTrue(databaseService.updateModelBuildState(2, "a", MLConstants.MODEL_STATUS_FAILED));
+
+        databaseService.renewModelBuildLeases("a", now + LEASE);
+        Assert.assertTrue(databaseService.isModelBuildOwner(1, "a"));
+        Assert.assertFalse(databaseService.isModelBuildOwner(2, "a"));
+        Assert.assertFalse(databaseService.isModelBuildOwner(3, "b"));
+        Assert.assertEquals(claimableIds("c"), Arrays.asList(3L));
+    }
+
+    @Test
+    public void testRecovery() throws DatabaseHandlerException {
+        long now = System.currentTimeMillis();
+        databaseService.insertModelBuild(build(1, "a"), now + LEASE);
+        databaseService.insertModelBuild(build(2, "b"), now + LEASE);
+        databaseService.insertModelBuild(build(3, "b"), now - 1);
+        Assert.assertTrue(databaseService.updateModelBuildState(1, "a", MLConstants.BUILD_STATE_RUNNING));
+
+        // a restarted node claims its own builds at once, and the others' once their lease expired
+        Assert.assertEquals(claimableIds("a"), Arrays.asList(1L, 3L));
+        Assert.assertEquals(claimableIds("b"), Arrays.asList(2L, 3L));
+        Assert.assertTrue(databaseService.claimModelBuild(3, "a", now + LEASE));
+        Assert.assertEquals(claimableIds("b"), Arrays.asList(2L));
+
+        MLModelBuildRequest build = null;
+        for (MLModelBuildRequest claimable : databaseService.getClaimableModelBuilds("a")) {
+            if (claimable.getModelId() == 1) {
+                build = claimable;
+            }
+        }
+        Assert.assertNotNull(build);
+        Assert.assertEquals(build.getState(), MLConstants.BUILD_STATE_RUNNING);
+        Assert.assertEquals(build.getTenantId(), -1234);
+        Assert.assertEquals(build.getUserName(), "admin");
+        Assert.assertEquals(build.getWarmStartModelId(), Long.valueOf(5));
+        Assert.assertNull(build.getSweep());
+    }
+
+    @Test
+    public void testModelVersion() throws DatabaseHandlerException {
+        Assert.assertEquals(databaseService.getModelVersion(1), 0);
+        Assert.assertEquals(databaseService.getModelVersion(4), -1);
+
+        // of two nodes rewriting a model read at the same version, the second fails
+        Assert.assertTrue(databaseService.advanceModelVersion(1, 0));
+        Assert.assertFalse(databaseService.advanceModelVersion(1, 0));
+        Assert.assertEquals(databaseService.getModelVersion(1), 1);
+        Assert.assertTrue(databaseService.advanceModelVersion(1, 1));
+        Assert.assertEquals(databaseService.getModelVersion(1), 2);
+        Assert.assertEquals(databaseService.getModelVersion(2), 0);
+    }
+
+    @Test
+    public void testFencing() throws DatabaseHandlerException, SQLException {
+        long now = System.currentTimeMillis();
+        databaseService.insertModelBuild(build(1, "a"), now - 1);
+        Assert.assertTrue(databaseService.claimModelBuild(1, "b", now + LEASE));
+
+        // the node which lost its lease can no longer move the build on, nor write the model
+        Assert.assertFalse(databaseService.isModelBuildOwner(1, "a"));
+        Assert.assertFalse(databaseService.updateModelBuildState(1, "a", MLConstants.MODEL_STATUS_FAILED));
+        Assert.assertFalse(databaseService.updateModelStatus(1, MLConstants.MODEL_STATUS_FAILED, "a"));
+        Assert.assertFalse(databaseService.updateModelStorage(1, "file", "/tmp/a", "a"));
+        Assert.assertEquals(modelStatus(1), MLConstants.MODEL_STATUS_IN_PROGRESS);
+
+        Assert.assertTrue(databaseService.isModelBuildOwner(1, "b"));
+        Assert.assertTrue(databaseService.updateModelBuildState(1, "b", MLConstants.BUILD_STATE_RUNNING));
+        Assert.assertTrue(databaseService.updateModelStorage(1, "file", "/tmp/b", "b"));
+        Assert.assertEquals(modelStatus(1), MLConstants.MODEL_STATUS_COMPLETE);
+        Assert.assertTrue(databaseService.updateModelBuildState(1, "b", MLConstants.MODEL_STATUS_COMPLETE));
+
+        // nor can the owner once the build has ended
+        Assert.assertFalse(databaseService.updateModelStatus(1, MLConstants.MODEL_STATUS_FAILED, "b"));
+        Assert.assertFalse(databaseService.updateModelBuildState(1, "b", MLConstants.MODEL_STATUS_FAILED));
+        Assert.assertEquals(modelStatus(1), MLConstants.MODEL_STATUS_COMPLETE);
+    }
+
+    @Test
+    public void testCancelRequest() throws DatabaseHandlerException {
+        long now = System.currentTimeMillis();
+        databaseService.insertModelBuild(build(1, "a"), now + LEASE);
+        databaseService.insertModelBuild(build(2, "a"), now + LEASE);
+        Assert.assertTrue(databaseService.updateModelBuildState(2, "a", MLConstants.MODEL_STATUS_COMPLETE));
+
+        Assert.assertTrue(databaseService.requestModelBuildCancel(1));
+        // only a new request is reported
+        Assert.assertFalse(databaseService.requestModelBuildCancel(1));
+        Assert.assertFalse(databaseService.requestModelBuildCancel(2));
+        Assert.assertFalse(databaseService.requestModelBuildCancel(3));
+        Assert.assertEquals(databaseService.getCancelRequestedModelBuilds("a"), Arrays.asList(1L));
+        Assert.assertTrue(databaseService.getCancelRequestedModelBuilds("b").isEmpty());
+        Assert.assertTrue(databaseService.getClaimableModelBuilds("a").get(0).isCancelRequested());
+
+        // building the model again clears the request
+        databaseService.insertModelBuild(build(1, "a"), now + LEASE);
+        Assert.assertTrue(databaseService.getCancelRequestedModelBuilds("a").isEmpty());
+        Assert.assertFalse(databaseService.getClaimableModelBuilds("a").get(0).isCancelRequested());
+    }
+
+    @Test
+    public void testModelProgress() throws DatabaseHandlerException {
+        Assert.assertNull(databaseService.getModelProgress(1));
+        MLModelBuildProgress progress = new MLModelBuildProgress();
+        progress.setStage(MLConstants.MODEL_BUILD_STAGE_TRAINING);
+        progress.setPercentage(20);
+        progress.setRowsProcessed(1000);
+        Map<String, Long> stageTimes = new LinkedHashMap<String, Long>();
+        stageTimes.put(MLConstants.MODEL_BUILD_STAGE_PREPROCESSING, 300L);
+        stageTimes.put(MLConstants.MODEL_BUILD_STAGE_TRAINING, 200L);
+        progress.setStageTimes(stageTimes);
+        progress.setSparkJobIds(Arrays.asList(1, 2));
+        progress.setSparkStageIds(Arrays.asList(3));
+        progress.setCachedBytes(4096);
+        progress.setRecomputedPartitions(2);
+        databaseService.updateModelProgress(1, progress);
+
+        // saved again, the progress is updated in place
+        progress.setCachedBytes(8192);
+        databaseService.updateModelProgress(1, progress);
+        MLModelBuildProgress saved = databaseService.getModelProgress(1);
+        Assert.assertEquals(saved.getStage(), MLConstants.MODEL_BUILD_STAGE_TRAINING);
+        Assert.assertEquals(saved.getPercentage(), 20);
+        Assert.assertEquals(saved.getRowsProcessed(), 1000);
+        Assert.assertEquals(saved.getStageTimes(), stageTimes);
+        Assert.assertEquals(saved.getSparkJobIds(), Arrays.asList(1, 2));
+        Assert.assertEquals(saved.getSparkStageIds(), Arrays.asList(3));
+        Assert.assertEquals(saved.getCachedBytes(), 8192);
+        Assert.assertEquals(saved.getRecomputedPartitions(), 2);
+        Assert.assertNotNull(saved.getLastUpdatedTime());
+    }
+
+    private List<Long> claimableIds(String owner) throws DatabaseHandlerException {
+        List<Long> modelIds = new ArrayList<Long>();
+        for (MLModelBuildRequest build : databaseService.getClaimableModelBuilds(owner)) {
+            modelIds.add(build.getModelId());
+        }
+        // builds updated within the same instant are in no particular order
+        Collections.sort(modelIds);
+        return modelIds;
+    }
+
+    private static MLModelBuildRequest build(long modelId, String owner) {
+        MLModelBuildRequest build = new MLModelBuildRequest();
+        build.setModelId(modelId);
+        build.setTenantId(-1234);
+        build.setUserName("admin");
+        build.setWarmStartModelId(5L);
+        build.setState(MLConstants.BUILD_STATE_QUEUED);
+        build.setOwner(owner);
+        return build;
+    }
+
+    private String modelStatus(long modelId) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            PreparedStatement statement = connection.prepareStatement("SELECT STATUS FROM ML_MODEL WHERE MODEL_ID=?");
+            statement.setLong(1, modelId);
+            ResultSet result = statement.executeQuery();
+            return result.next() ? result.getString(1) : null;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute(sql);
+        } finally {
+            connection.close();
+        }
+    }
+}
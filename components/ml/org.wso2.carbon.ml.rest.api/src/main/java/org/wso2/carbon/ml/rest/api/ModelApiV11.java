@@ -31,14 +31,20 @@ import org.apache.hadoop.fs.InvalidRequestException;
 import org.apache.http.HttpHeaders;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.ml.commons.constants.MLConstants;
+import org.wso2.carbon.ml.commons.domain.AnomalyScores;
+import org.wso2.carbon.ml.commons.domain.MLHyperParameterSweep;
 import org.wso2.carbon.ml.commons.domain.MLModel;
+import org.wso2.carbon.ml.commons.domain.MLModelBuildProgress;
 import org.wso2.carbon.ml.commons.domain.MLModelData;
+import org.wso2.carbon.ml.commons.domain.MLRating;
 import org.wso2.carbon.ml.commons.domain.MLStorage;
+import org.wso2.carbon.ml.commons.domain.MLSweepLeaderboard;
 import org.wso2.carbon.ml.commons.domain.ModelSummary;
 import org.wso2.carbon.ml.core.exceptions.MLModelBuilderException;
 import org.wso2.carbon.ml.core.exceptions.MLModelHandlerException;
 import org.wso2.carbon.ml.core.exceptions.MLModelPublisherException;
 import org.wso2.carbon.ml.core.impl.MLModelHandler;
+import org.wso2.carbon.ml.core.spark.recommendation.BatchRecommendations;
 import org.wso2.carbon.ml.commons.domain.config.MLAlgorithm;
 import org.wso2.carbon.ml.core.exceptions.MLPmmlExportException;
 import org.wso2.carbon.ml.core.utils.MLCoreServiceValueHolder;
@@ -122,17 +128,20 @@ public class ModelApiV11 extends MLRestAPI {
     /**
      * Build the model
      * @param modelId Unique id of the model to be built.
+     * @param warmStartFromModelId Unique id of a built model of the same algorithm and features to start from, e.g.
+     *            one built on a previous dataset version, or null to build from scratch.
      */
     @POST
     @Path("/{modelId}")
     @Produces("application/json")
     @Consumes("application/json")
-    public Response buildModel(@PathParam("modelId") long modelId) {
+    public Response buildModel(@PathParam("modelId") long modelId,
+            @QueryParam("warmStartFromModelId") Long warmStartFromModelId) {
         PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
         int tenantId = carbonContext.getTenantId();
         String userName = carbonContext.getUsername();
         try {
-            mlModelHandler.buildModel(tenantId, userName, modelId);
+            mlModelHandler.buildModel(tenantId, userName, modelId, warmStartFromModelId);
             return Response.ok().build();
         } catch (MLModelHandlerException e) {
             String msg = MLUtils.getErrorMsg(String.format(
@@ -151,6 +160,123 @@ public class ModelApiV11 extends MLRestAPI {
         }
     }
 
+    /**
+     * Sweep the hyperparameters of the algorithm of a model and build the model with the best candidate. The data is
+     * pre-processed once and the candidates are fitted concurrently.
+     * @param modelId Unique id of the model to be built.
+     * @param sweep JSON of the values to try per hyperparameter, e.g.
+     *            {"searchType":"grid","hyperParameters":{"Iterations":["100","1000"],"Learning_Rate":["0.1","0.01"]}}
+     * @return JSON of {@link MLSweepLeaderboard} containing the candidates of the sweep
+     */
+    @POST
+    @Path("/{modelId}/sweep")
+    @Produces("application/json")
+    @Consumes("application/json")
+    public Response sweepHyperParameters(@PathParam("modelId") long modelId, MLHyperParameterSweep sweep) {
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        try {
+            MLSweepLeaderboard leaderboard = mlModelHandler.sweepHyperParameters(tenantId, userName, modelId, sweep);
+            return Response.ok(leaderboard).build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while sweeping the model [id] %s of tenant [id] %s and [user] %s .", modelId,
+                    tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        } catch (MLModelBuilderException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while sweeping the model [id] %s of tenant [id] %s and [user] %s .", modelId,
+                    tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Get the leaderboard of the latest hyperparameter sweep of a model
+     * @param modelId Unique id of the model
+     * @return JSON of {@link MLSweepLeaderboard} containing the candidates of the sweep, best first
+     */
+    @GET
+    @Path("/{modelId}/sweep")
+    @Produces("application/json")
+    public Response getSweepLeaderboard(@PathParam("modelId") long modelId) {
+        MLSweepLeaderboard leaderboard = mlModelHandler.getSweepLeaderboard(modelId);
+        if (leaderboard == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new MLErrorBean("No hyperparameter sweep found for model [id] " + modelId)).build();
+        }
+        return Response.ok(leaderboard).build();
+    }
+
+    /**
+     * Get the progress of the build of a model
+     * @param modelId Unique id of the model
+     * @return JSON of {@link MLModelBuildProgress} containing the current stage of the build, the time spent in each
+     *         stage, the rows processed and the ids of its Spark jobs and stages
+     */
+    @GET
+    @Path("/{modelId}/progress")
+    @Produces("application/json")
+    public Response getModelProgress(@PathParam("modelId") long modelId) {
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        try {
+            MLModelBuildProgress progress = null;
+            if (mlModelHandler.getModel(tenantId, userName, modelId) != null) {
+                progress = mlModelHandler.getModelProgress(modelId);
+            }
+            if (progress == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(new MLErrorBean("No build progress found for model [id] " + modelId)).build();
+            }
+            return Response.ok(progress).build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while retrieving the progress of the model [id] %s of tenant [id] %s and [user] "
+                            + "%s .", modelId, tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Cancel the build of a model
+     * @param modelId Unique id of the model
+     */
+    @POST
+    @Path("/{modelId}/cancel")
+    @Produces("application/json")
+    public Response cancelModelBuild(@PathParam("modelId") long modelId) {
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        try {
+            if (!mlModelHandler.cancelModelBuild(tenantId, userName, modelId)) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(new MLErrorBean("Model [id] " + modelId
+                                + " is not being built, or its build has been cancelled already")).build();
+            }
+            auditLog.info(String.format("User [name] %s of tenant [id] %s cancelled the build of model [id] %s ",
+                    userName, tenantId, modelId));
+            return Response.ok().build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while cancelling the build of model [id] %s of tenant [id] %s and [user] %s .",
+                    modelId, tenantId, userName), e);
+            logger.error(msg, e);
+            auditLog.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
     /**
      * Publish the model to ML registry
      * @param modelId Unique id of the model to be published
@@ -373,6 +499,42 @@ public class ModelApiV11 extends MLRestAPI {
         }
     }
 
+    /**
+     * Score data points using an anomaly detection model. Returns the assigned cluster, the distance to the cluster
+     * center and the percentile rank of the distance within the cluster for each data point, together with the
+     * cluster boundary distances of the requested percentile range, so any percentile can be applied by the client.
+     *
+     * @param modelId Unique id of the model
+     * @param data List of string arrays containing the feature values to be scored
+     * @param minPercentile min percentile value of the cluster boundaries (defaults to 1)
+     * @param maxPercentile max percentile value of the cluster boundaries (defaults to 100)
+     * @return JSON of {@link AnomalyScores} object
+     */
+    @POST
+    @Path("/{modelId}/anomaly-scores")
+    @Produces("application/json")
+    @Consumes("application/json")
+    public Response getAnomalyScores(@PathParam("modelId") long modelId, List<String[]> data,
+            @QueryParam("minPercentile") @DefaultValue("1") int minPercentile,
+            @QueryParam("maxPercentile") @DefaultValue("100") int maxPercentile) {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        try {
+            AnomalyScores anomalyScores = mlModelHandler.getAnomalyScores(tenantId, userName, modelId, data,
+                    minPercentile, maxPercentile);
+            return Response.ok(anomalyScores).build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while scoring from model [id] %s of tenant [id] %s and [user] %s.", modelId,
+                    tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
     /**
      * Get the model data
      *
@@ -611,4 +773,123 @@ public class ModelApiV11 extends MLRestAPI {
         }
     }
 
+    /**
+     * Get recommended products for a batch of users using the given model. Recommendations are streamed as newline
+     * delimited JSON, one object per user, e.g. {"userId":7,"productIds":[20,40,30]}
+     * @param modelId id of the recommendation model to be used.
+     * @param userIds JSON array of user ids, all the users of the model if not given.
+     * @param noOfProducts number of recommendations required per user, 10 by default.
+     * @return newline delimited JSON of product recommendations.
+     */
+    @POST
+    @Path("/{modelId}/product-recommendations")
+    @Produces("application/x-ndjson")
+    @Consumes("application/json")
+    public Response getProductRecommendations(@PathParam("modelId") long modelId, List<Integer> userIds,
+            @QueryParam("no-of-products") @DefaultValue("10") int noOfProducts) {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        if (noOfProducts <= 0) {
+            String msg = String.format("Error occurred while getting recommendations from model [id] %s of tenant "
+                    + "[id] %s and [user] %s. Invalid number of products: %s", modelId, tenantId, userName,
+                    noOfProducts);
+            logger.error(msg);
+            return Response.status(Response.Status.BAD_REQUEST).entity(new MLErrorBean(msg)).build();
+        }
+        try {
+            final BatchRecommendations recommendations =
+                    mlModelHandler.getProductRecommendations(tenantId, userName, modelId, userIds, noOfProducts);
+            StreamingOutput stream = new StreamingOutput() {
+                @Override
+                public void write(OutputStream outputStream) throws IOException {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                    recommendations.write(writer);
+                    writer.close();
+                }
+            };
+            return Response.ok(stream).build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while getting recommendations from model [id] %s of tenant [id] %s and [user] %s.",
+                    modelId, tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Export recommended products for all the users of the given model to the model storage, as a Spark job.
+     * @param modelId id of the recommendation model to be used.
+     * @param noOfProducts number of recommendations required per user, 10 by default.
+     * @return JSON of {@link MLResponseBean} containing the location the recommendations are written to.
+     */
+    @POST
+    @Path("/{modelId}/product-recommendations/export")
+    @Produces("application/json")
+    public Response exportProductRecommendations(@PathParam("modelId") long modelId,
+            @QueryParam("no-of-products") @DefaultValue("10") int noOfProducts) {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        if (noOfProducts <= 0) {
+            String msg = String.format("Error occurred while exporting recommendations of model [id] %s of tenant "
+                    + "[id] %s and [user] %s. Invalid number of products: %s", modelId, tenantId, userName,
+                    noOfProducts);
+            logger.error(msg);
+            return Response.status(Response.Status.BAD_REQUEST).entity(new MLErrorBean(msg)).build();
+        }
+        try {
+            String location = mlModelHandler.exportProductRecommendations(tenantId, userName, modelId, noOfProducts);
+            return Response.status(Response.Status.ACCEPTED).entity(new MLResponseBean(location)).build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while exporting recommendations of model [id] %s of tenant [id] %s and [user] %s.",
+                    modelId, tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Fold new ratings into the given recommendation model without retraining it. The factors of the rating users
+     * are solved against the product factors of the model, or the reverse, so new users (or products) can be
+     * recommended right away.
+     * @param modelId id of the recommendation model.
+     * @param ratings JSON array of ratings, e.g. [{"userId":7,"productId":20,"rating":4.0}]
+     * @param foldIn "users" to solve the factors of the rating users, "products" to solve those of the rated products.
+     * @return JSON of {@link MLResponseBean} containing the number of users or products whose factors were solved.
+     */
+    @POST
+    @Path("/{modelId}/ratings")
+    @Produces("application/json")
+    @Consumes("application/json")
+    public Response foldInRatings(@PathParam("modelId") long modelId, List<MLRating> ratings,
+            @QueryParam("fold-in") @DefaultValue("users") String foldIn) {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        int tenantId = carbonContext.getTenantId();
+        String userName = carbonContext.getUsername();
+        if (!"users".equals(foldIn) && !"products".equals(foldIn)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new MLErrorBean("fold-in should be either users or products: " + foldIn)).build();
+        }
+        try {
+            int solved = mlModelHandler.foldInRatings(tenantId, userName, modelId, ratings,
+                    "products".equals(foldIn));
+            return Response.ok(new MLResponseBean(String.valueOf(solved))).build();
+        } catch (MLModelHandlerException e) {
+            String msg = MLUtils.getErrorMsg(String.format(
+                    "Error occurred while folding ratings into model [id] %s of tenant [id] %s and [user] %s.",
+                    modelId, tenantId, userName), e);
+            logger.error(msg, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(new MLErrorBean(e.getMessage()))
+                    .build();
+        }
+    }
+
 }
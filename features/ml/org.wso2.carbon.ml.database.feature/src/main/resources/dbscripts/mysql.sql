@@ -102,6 +102,7 @@ STORAGE_TYPE VARCHAR(50),
 STORAGE_LOCATION VARCHAR(500),
 STATUS VARCHAR(20),
 ERROR TEXT,
+MODEL_VERSION BIGINT DEFAULT 0,
 CONSTRAINT PK_MODEL PRIMARY KEY(MODEL_ID),
 CONSTRAINT FK_ANALYSIS_MODEL FOREIGN KEY(ANALYSIS_ID) REFERENCES ML_ANALYSIS(ANALYSIS_ID)
 ON UPDATE CASCADE ON DELETE CASCADE,
@@ -119,6 +120,40 @@ CONSTRAINT FK_ANALYSIS_MODEL_CONFIGURATION FOREIGN KEY(ANALYSIS_ID) REFERENCES M
 ON UPDATE CASCADE ON DELETE CASCADE
 )DEFAULT CHARACTER SET = utf8;
 
+-- MODEL_PROGRESS
+CREATE TABLE IF NOT EXISTS ML_MODEL_PROGRESS(
+MODEL_ID BIGINT,
+STAGE VARCHAR(20),
+PERCENTAGE INT,
+ROWS_PROCESSED BIGINT,
+STAGE_TIMES VARCHAR(500),
+SPARK_JOB_IDS TEXT,
+SPARK_STAGE_IDS TEXT,
+CACHED_BYTES BIGINT,
+RECOMPUTED_PARTITIONS BIGINT,
+LAST_UPDATED_TIME TIMESTAMP,
+CONSTRAINT PK_MODEL_PROGRESS PRIMARY KEY(MODEL_ID),
+CONSTRAINT FK_MODEL_MODEL_PROGRESS FOREIGN KEY(MODEL_ID) REFERENCES ML_MODEL(MODEL_ID)
+ON UPDATE CASCADE ON DELETE CASCADE
+)DEFAULT CHARACTER SET = utf8;
+
+-- MODEL_BUILD
+CREATE TABLE IF NOT EXISTS ML_MODEL_BUILD(
+MODEL_ID BIGINT,
+TENANT_ID INT,
+USERNAME VARCHAR(50),
+SWEEP BLOB,
+WARM_START_MODEL_ID BIGINT,
+STATE VARCHAR(20),
+OWNER VARCHAR(200),
+LEASE_EXPIRY TIMESTAMP NULL,
+CANCEL_REQUESTED BOOLEAN,
+LAST_UPDATED_TIME TIMESTAMP NULL,
+CONSTRAINT PK_MODEL_BUILD PRIMARY KEY(MODEL_ID),
+CONSTRAINT FK_MODEL_MODEL_BUILD FOREIGN KEY(MODEL_ID) REFERENCES ML_MODEL(MODEL_ID)
+ON UPDATE CASCADE ON DELETE CASCADE
+)DEFAULT CHARACTER SET = utf8;
+
 -- FEATURE_CUSTOMIZED
 CREATE TABLE IF NOT EXISTS ML_FEATURE_CUSTOMIZED(
 ANALYSIS_ID BIGINT,